@@ -18,7 +18,15 @@
  */
 package com.github.sanctum.storages;
 
+import com.github.sanctum.storages.compaction.CompactionTask;
 import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.items.MatchStrategy;
+import com.github.sanctum.storages.stats.FlowStats;
+import com.github.sanctum.storages.storage.ContentsView;
+import com.github.sanctum.storages.storage.SlotCursor;
+import com.github.sanctum.storages.storage.SlotIndexList;
 import com.github.sanctum.storages.storage.StorageSlot;
 import com.google.common.collect.ImmutableList;
 import org.bukkit.Material;
@@ -26,8 +34,15 @@ import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 /**
  * Represents an iterable item storage with defined slot indexes.
@@ -39,6 +54,66 @@ import java.util.ListIterator;
  * @author ms5984
  */
 public abstract class DiscreteStorage implements Storage<StorageSlot> {
+    private final List<StorageListener> listeners = new CopyOnWriteArrayList<>();
+    /** Item-flow counters or null if flow is not counted. */
+    protected volatile @Nullable FlowStats flowStats;
+    /** Dispatches content changes to all registered listeners. */
+    protected final StorageListener events = new StorageListener() {
+        @Override
+        public void slotChanged(@NotNull DiscreteStorage storage, int slot, @Nullable ItemKey previousKey, int previousAmount, @Nullable ItemKey key, int amount) {
+            for (StorageListener listener : listeners) {
+                listener.slotChanged(storage, slot, previousKey, previousAmount, key, amount);
+            }
+        }
+
+        @Override
+        public void invalidated(@NotNull DiscreteStorage storage) {
+            for (StorageListener listener : listeners) {
+                listener.invalidated(storage);
+            }
+        }
+    };
+
+    /**
+     * Register a listener for content changes.
+     * <p>
+     * Implementations which do not track their contents never
+     * report changes.
+     *
+     * @param listener a listener
+     */
+    public void addListener(@NotNull StorageListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener for content changes.
+     *
+     * @param listener a listener
+     */
+    public void removeListener(@NotNull StorageListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Set the counters which record item flow through this storage.
+     * <p>
+     * Additions, removals and extractions are counted while set.
+     *
+     * @param stats flow counters or null to stop counting
+     */
+    public void setFlowStats(@Nullable FlowStats stats) {
+        this.flowStats = stats;
+    }
+
+    /**
+     * Get the counters which record item flow through this storage.
+     *
+     * @return flow counters or null if flow is not counted
+     */
+    public @Nullable FlowStats getFlowStats() {
+        return flowStats;
+    }
 
     /**
      * Get a list of all slots in this storage.
@@ -60,13 +135,7 @@ public abstract class DiscreteStorage implements Storage<StorageSlot> {
      * @throws ProviderException if the provider encounters an error
      */
     public List<StorageSlot> findExact(ItemStack stack) throws ProviderException {
-        final ImmutableList.Builder<StorageSlot> builder = new ImmutableList.Builder<>();
-        for (StorageSlot storageSlot : getSlots()) {
-            if (storageSlot.getItem().filter(stack::equals).isPresent()) {
-                builder.add(storageSlot);
-            }
-        }
-        return builder.build();
+        return toSlots(findExact(stack, new SlotIndexList()));
     }
 
     /**
@@ -78,11 +147,75 @@ public abstract class DiscreteStorage implements Storage<StorageSlot> {
      * @throws ProviderException if the provider encounters an error
      */
     public List<StorageSlot> find(Material material) throws ProviderException {
-        final ImmutableList.Builder<StorageSlot> builder = new ImmutableList.Builder<>();
-        for (StorageSlot storageSlot : getSlots()) {
-            if (storageSlot.getItem().filter(i -> i.getType() == material).isPresent()) {
-                builder.add(storageSlot);
+        return toSlots(find(material, new SlotIndexList()));
+    }
+
+    /**
+     * Append the indexes of slots whose contents match the
+     * provided {@link ItemStack} exactly to a list.
+     * <p>
+     * Matches meta and amount. Does not allocate when {@code into}
+     * has sufficient capacity.
+     *
+     * @param stack an ItemStack to match exactly
+     * @param into a list receiving matching slot indexes
+     * @return {@code into}
+     * @throws ProviderException if the provider encounters an error
+     */
+    public SlotIndexList findExact(ItemStack stack, @NotNull SlotIndexList into) throws ProviderException {
+        return readContents(view -> {
+            for (int i = 0; i < view.size(); ++i) {
+                if (view.getAmount(i) == stack.getAmount() && stack.equals(view.getItem(i))) into.add(i);
             }
+            return into;
+        });
+    }
+
+    /**
+     * Append the indexes of slots whose contents match
+     * the provided {@link Material} to a list.
+     * <p>
+     * Does not allocate when {@code into} has sufficient capacity.
+     *
+     * @param material a material to match
+     * @param into a list receiving matching slot indexes
+     * @return {@code into}
+     * @throws ProviderException if the provider encounters an error
+     */
+    public SlotIndexList find(Material material, @NotNull SlotIndexList into) throws ProviderException {
+        return readContents(view -> {
+            for (int i = 0; i < view.size(); ++i) {
+                if (view.getType(i) == material) into.add(i);
+            }
+            return into;
+        });
+    }
+
+    /**
+     * Append the index and amount of slots whose contents match
+     * the provided {@link Material} to a cursor.
+     * <p>
+     * Does not allocate when {@code into} has sufficient capacity.
+     *
+     * @param material a material to match
+     * @param into a cursor receiving matching slots
+     * @return {@code into}
+     * @throws ProviderException if the provider encounters an error
+     */
+    public SlotCursor find(Material material, @NotNull SlotCursor into) throws ProviderException {
+        return readContents(view -> {
+            for (int i = 0; i < view.size(); ++i) {
+                if (view.getType(i) == material) into.add(i, view.getAmount(i));
+            }
+            return into;
+        });
+    }
+
+    private List<StorageSlot> toSlots(SlotIndexList indexes) {
+        final ImmutableList.Builder<StorageSlot> builder = new ImmutableList.Builder<>();
+        final List<StorageSlot> slots = getSlots();
+        for (int i = 0; i < indexes.size(); ++i) {
+            builder.add(slots.get(indexes.get(i)));
         }
         return builder.build();
     }
@@ -162,6 +295,143 @@ public abstract class DiscreteStorage implements Storage<StorageSlot> {
      */
     public abstract void setContents(ItemStack[] items) throws ProviderException, IllegalArgumentException;
 
+    /**
+     * Read the contents through a view instead of a copy.
+     * <p>
+     * The view is only valid while the reader runs and must not be
+     * kept; the storage must not be modified from within the reader.
+     * By default the view wraps {@link #getContents()}; implementations
+     * override this to avoid copying.
+     *
+     * @param reader a reader of the contents
+     * @param <R> result type
+     * @return the result of the reader
+     * @throws ProviderException if the provider encounters an error
+     */
+    public <R> R readContents(@NotNull Function<? super ContentsView, ? extends R> reader) throws ProviderException {
+        return ContentsView.within(ContentsView.of(getContents()), reader);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the contents once and writes back only changed slots.
+     */
+    @Override
+    public @NotNull List<ItemStack> extract(@NotNull ExtractionQuery query) throws ProviderException {
+        final ItemStack[] contents = getContents();
+        final BitSet changed = new BitSet(contents.length);
+        final List<ItemStack> extracted = query.applyTo(contents, changed);
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            setItem(i, contents[i]);
+        }
+        final FlowStats stats = flowStats;
+        if (stats != null) {
+            stats.recordOperation();
+            stats.recordOut(extracted);
+        }
+        return extracted;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the contents once.
+     */
+    @Override
+    public <K> @NotNull Map<K, Long> countBy(@NotNull MatchStrategy<K> strategy) throws ProviderException {
+        return readContents(view -> {
+            final Map<K, Long> counts = new HashMap<>();
+            for (int i = 0; i < view.size(); ++i) {
+                final K key = strategy.keyOf(view.getKey(i));
+                if (key != null) counts.merge(key, (long) view.getAmount(i), Long::sum);
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the contents once.
+     */
+    @Override
+    public int freeSlots() throws ProviderException {
+        return readContents(view -> {
+            int free = 0;
+            for (int i = 0; i < view.size(); ++i) {
+                if (view.isEmpty(i)) ++free;
+            }
+            return free;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the contents once.
+     */
+    @Override
+    public long maxInsertable(@NotNull ItemKey key) throws ProviderException {
+        final int max = key.getMaxStackSize();
+        return readContents(view -> {
+            long total = 0;
+            for (int i = 0; i < view.size(); ++i) {
+                if (view.isEmpty(i)) {
+                    total += max;
+                } else if (view.matches(i, key)) {
+                    total += Math.max(0, max - view.getAmount(i));
+                }
+            }
+            return total;
+        });
+    }
+
+    /**
+     * Whether this storage is a plain container whose slots each
+     * accept any item, so items may be moved freely between them.
+     * <p>
+     * Only plain containers are {@link #compact() compacted}. Defaults
+     * to true; storages with special slots, such as furnace, brewing,
+     * armor or off-hand slots, return false.
+     *
+     * @return true if this storage is a plain container
+     * @throws ProviderException if the provider encounters an error
+     */
+    public boolean isPlainContainer() throws ProviderException {
+        return true;
+    }
+
+    /**
+     * Merge similar partial stacks into the fewest full stacks.
+     * <p>
+     * Plans in memory from a single contents read and applies the
+     * result with one {@link #setContents(ItemStack[])}, only if
+     * anything changed. Storages which are not
+     * {@link #isPlainContainer() plain containers} are left alone.
+     *
+     * @return true if the contents were rewritten
+     * @throws ProviderException if the provider encounters an error
+     */
+    public boolean compact() throws ProviderException {
+        return compact(null);
+    }
+
+    /**
+     * Merge similar partial stacks into the fewest full stacks and
+     * optionally sort them.
+     *
+     * @param order a key order or null to keep first-seen order
+     * @return true if the contents were rewritten
+     * @throws ProviderException if the provider encounters an error
+     * @see #compact()
+     */
+    public boolean compact(@Nullable Comparator<? super ItemKey> order) throws ProviderException {
+        final CompactionTask task = new CompactionTask(Collections.singletonList(this), order);
+        task.run();
+        return task.getWrittenCount() > 0;
+    }
+
     @Override
     public @NotNull ListIterator<StorageSlot> iterator() {
         return getSlots().listIterator();
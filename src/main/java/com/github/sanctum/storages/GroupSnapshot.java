@@ -0,0 +1,263 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.storage.ContentsView;
+import com.github.sanctum.storages.storage.StorageItem;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable point-in-time copy of the contents of a group's
+ * members.
+ * <p>
+ * A snapshot taken on top of an earlier one shares the content
+ * arrays of members which did not change in between, and the stacks
+ * of unchanged slots of those which did, so only changes cost memory.
+ * {@link #restore()} writes back only the slots which differ. Both
+ * compare against freshly read contents, never a cached index.
+ * <p>
+ * <b>Take and restore from the main thread only.</b>
+ *
+ * @since 1.0.0
+ * @see StorageGroup#snapshot()
+ */
+public final class GroupSnapshot {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private final String name;
+    private final long version = VERSIONS.incrementAndGet();
+    private final long timestamp = System.currentTimeMillis();
+    private final ImmutableList<Storage<?>> members;
+    private final Map<Storage<?>, ItemStack[]> contents;
+    private final int shared;
+
+    private GroupSnapshot(String name, ImmutableList<Storage<?>> members, Map<Storage<?>, ItemStack[]> contents, int shared) {
+        this.name = name;
+        this.members = members;
+        this.contents = contents;
+        this.shared = shared;
+    }
+
+    /**
+     * Take a snapshot of the {@link StorageGroup#flatten() flattened}
+     * members of a group.
+     *
+     * @param group a group
+     * @param base an earlier snapshot to share unchanged contents
+     *             with, or null
+     * @return a new snapshot
+     * @throws ProviderException if a provider encounters an error
+     */
+    public static @NotNull GroupSnapshot take(@NotNull StorageGroup<?> group, @Nullable GroupSnapshot base) throws ProviderException {
+        final List<Storage<?>> members = new ArrayList<>(group.flatten());
+        final Map<Storage<?>, ItemStack[]> contents = new IdentityHashMap<>(members.size());
+        int shared = 0;
+        for (Storage<?> member : members) {
+            final ItemStack[] previous = (base == null) ? null : base.contents.get(member);
+            final ItemStack[] current = read(member, previous);
+            if (current == previous) ++shared;
+            contents.put(member, current);
+        }
+        return new GroupSnapshot(group.getName(), ImmutableList.copyOf(members), contents, shared);
+    }
+
+    /**
+     * Drop what an index-backed member knows about its contents so the
+     * next read compares against the inventory itself, even inside a
+     * {@link com.github.sanctum.storages.storage.ContentScope ContentScope}.
+     */
+    private static void invalidate(Storage<?> storage) {
+        if (storage instanceof InventoryDiscreteStorage) ((InventoryDiscreteStorage<?>) storage).invalidateContents();
+    }
+
+    private static ItemStack[] read(Storage<?> storage, @Nullable ItemStack[] previous) throws ProviderException {
+        invalidate(storage);
+        if (storage instanceof DiscreteStorage) {
+            return ((DiscreteStorage) storage).readContents(view -> {
+                final int size = view.size();
+                if (previous == null || previous.length != size) return copy(view, null);
+                for (int i = 0; i < size; ++i) {
+                    if (!same(view, i, previous[i])) return copy(view, previous);
+                }
+                return previous;
+            });
+        }
+        final List<ItemStack> items = new ArrayList<>();
+        for (StorageItem element : storage) {
+            items.add(element.getItem().orElse(null));
+        }
+        final ItemStack[] copy = new ItemStack[items.size()];
+        boolean changed = previous == null || previous.length != copy.length;
+        for (int i = 0; i < copy.length; ++i) {
+            final ItemStack item = items.get(i);
+            if (!changed && same(item, previous[i])) {
+                copy[i] = previous[i];
+            } else {
+                copy[i] = ItemKey.isEmpty(item) ? null : item.clone();
+                changed = true;
+            }
+        }
+        return changed ? copy : previous;
+    }
+
+    private static ItemStack[] copy(ContentsView view, @Nullable ItemStack[] previous) {
+        final ItemStack[] copy = new ItemStack[view.size()];
+        for (int i = 0; i < copy.length; ++i) {
+            if (view.isEmpty(i)) continue;
+            copy[i] = (previous != null && same(view, i, previous[i])) ? previous[i] : view.getItem(i).clone();
+        }
+        return copy;
+    }
+
+    private static boolean same(ContentsView view, int slot, @Nullable ItemStack saved) {
+        if (saved == null) return view.isEmpty(slot);
+        // type and amount come cheap from indexed views
+        return view.getType(slot) == saved.getType() && view.getAmount(slot) == saved.getAmount() && saved.equals(view.getItem(slot));
+    }
+
+    private static boolean same(@Nullable ItemStack item, @Nullable ItemStack saved) {
+        return (saved == null) ? ItemKey.isEmpty(item) : saved.equals(item);
+    }
+
+    /**
+     * Get the name of the group this snapshot was taken of.
+     *
+     * @return the group name
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * Get the version of this snapshot.
+     * <p>
+     * Versions increase with every snapshot taken.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the time this snapshot was taken.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the storages recorded in this snapshot.
+     *
+     * @return an immutable list of the members, in group order
+     */
+    public @NotNull List<Storage<?>> getMembers() {
+        return members;
+    }
+
+    /**
+     * Get the number of members whose contents are shared with the
+     * base snapshot because they did not change.
+     *
+     * @return the number of shared members
+     */
+    public int getSharedCount() {
+        return shared;
+    }
+
+    /**
+     * Get a copy of the recorded contents of a member.
+     *
+     * @param member a storage
+     * @return a copy of its contents or null if not recorded
+     */
+    public @Nullable ItemStack @Nullable [] getContents(@NotNull Storage<?> member) {
+        final ItemStack[] saved = contents.get(member);
+        if (saved == null) return null;
+        final ItemStack[] copy = new ItemStack[saved.length];
+        for (int i = 0; i < copy.length; ++i) {
+            if (saved[i] != null) copy[i] = saved[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Write the recorded contents back to the recorded members.
+     * <p>
+     * Only slots which differ from the snapshot are written. Members
+     * which left the group are restored as well; storages which joined
+     * it since are left alone. Sizes are checked before anything is
+     * written.
+     *
+     * @return the number of slots written
+     * @throws ProviderException if a member changed size or a provider
+     * encounters an error
+     */
+    public int restore() throws ProviderException {
+        for (Storage<?> member : members) {
+            if (member.getSize() != contents.get(member).length) {
+                throw new ProviderException("A member of " + name + " changed size since snapshot " + version);
+            }
+        }
+        int written = 0;
+        for (Storage<?> member : members) {
+            final ItemStack[] saved = contents.get(member);
+            if (member instanceof DiscreteStorage) {
+                final DiscreteStorage storage = (DiscreteStorage) member;
+                invalidate(storage);
+                final BitSet changed = storage.readContents(view -> {
+                    final BitSet slots = new BitSet(saved.length);
+                    for (int i = 0; i < saved.length; ++i) {
+                        if (!same(view, i, saved[i])) slots.set(i);
+                    }
+                    return slots;
+                });
+                for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                    storage.setItem(i, (saved[i] == null) ? null : saved[i].clone());
+                    ++written;
+                }
+                continue;
+            }
+            final ListIterator<? extends StorageItem> elements = member.iterator();
+            while (elements.hasNext()) {
+                final int i = elements.nextIndex();
+                final StorageItem element = elements.next();
+                if (i >= saved.length) break;
+                if (same(element.getItem().orElse(null), saved[i])) continue;
+                element.setItem((saved[i] == null) ? null : saved[i].clone());
+                ++written;
+            }
+        }
+        return written;
+    }
+}
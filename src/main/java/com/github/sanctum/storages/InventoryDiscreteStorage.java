@@ -23,20 +23,38 @@ import com.github.sanctum.storages.blocks.BlockManager;
 import com.github.sanctum.storages.exceptions.InventoryHolderException;
 import com.github.sanctum.storages.exceptions.ItemException;
 import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.items.MatchStrategy;
+import com.github.sanctum.storages.storage.ContentIndex;
+import com.github.sanctum.storages.storage.ContentScope;
+import com.github.sanctum.storages.storage.ContentsView;
+import com.github.sanctum.storages.storage.SlotCursor;
+import com.github.sanctum.storages.storage.SlotIndexList;
 import com.github.sanctum.storages.players.PlayerManager;
+import com.github.sanctum.storages.stats.FlowStats;
 import com.github.sanctum.storages.storage.StorageSlot;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import org.bukkit.Material;
 import org.bukkit.Nameable;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -48,8 +66,17 @@ import java.util.function.Function;
  * @author ms5984
  */
 public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> extends DiscreteStorage {
+    private static final Set<InventoryType> PLAIN_TYPES = Sets.immutableEnumSet(InventoryType.CHEST, InventoryType.ENDER_CHEST,
+            InventoryType.BARREL, InventoryType.SHULKER_BOX, InventoryType.HOPPER, InventoryType.DISPENSER, InventoryType.DROPPER,
+            InventoryType.PLAYER);
     protected final T manager;
     protected final ImmutableList<StorageSlot> slotDAOs;
+    protected final ContentIndex contentIndex;
+    private SlotBuffer buffer;
+    private WriteBehindFlusher flusher;
+    private long indexEpoch;
+    private int rawSize = -1;
+    private int storageSize;
 
     /**
      * Create a new InventoryDiscreteStorage backed by an InventoryManager.
@@ -59,22 +86,246 @@ public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> ex
      */
     protected InventoryDiscreteStorage(T provider) throws ProviderException {
         this.manager = provider;
-        final ImmutableList.Builder<StorageSlot> slots = new ImmutableList.Builder<>();
         final int size = getSize();
+        final StorageSlot[] slots = new StorageSlot[size];
         for (int index = 0; index < size; ++index) {
-            slots.add(new StorageSlot(index) {
-                @Override
-                public Optional<@NotNull ItemStack> getItem() throws InventoryHolderException {
-                    return Optional.ofNullable(manager.query(holder -> holder.getInventory().getItem(index)));
-                }
+            slots[index] = new InventorySlot(index);
+        }
+        this.slotDAOs = ImmutableList.copyOf(slots);
+        this.contentIndex = new ContentIndex(this, size, events);
+    }
+
+    /**
+     * Enable or disable write-behind mode for this storage.
+     * <p>
+     * While enabled, slot reads and writes performed through
+     * {@link StorageSlot StorageSlots} are served from an in-memory
+     * buffer; dirty slots are written back to the inventory in a
+     * single update when the storage is flushed, either by the
+     * provided {@link WriteBehindFlusher} or by {@link #flush()}.
+     * All other operations flush pending writes first.
+     * <p>
+     * Buffered reads do not observe changes made to the inventory by
+     * other sources until the next flush.
+     *
+     * @param flusher a flusher or null to disable write-behind mode
+     * @throws InventoryHolderException if the InventoryHolder encounters
+     * an error flushing pending writes
+     */
+    public void setWriteBehind(@Nullable WriteBehindFlusher flusher) throws InventoryHolderException {
+        if (this.flusher == flusher) return;
+        flush();
+        if (this.flusher != null) this.flusher.dequeue(this);
+        this.flusher = flusher;
+        this.buffer = (flusher == null) ? null : new SlotBuffer(slotDAOs.size());
+    }
+
+    /**
+     * Whether this storage is in write-behind mode.
+     *
+     * @return true if slot writes are buffered
+     */
+    public boolean isWriteBehind() {
+        return buffer != null;
+    }
+
+    /**
+     * Write all buffered slot writes to the inventory and
+     * drop buffered reads.
+     * <p>
+     * Does nothing if this storage is not in write-behind mode.
+     *
+     * @throws InventoryHolderException if the InventoryHolder encounters
+     * an error; buffered writes are kept and queued for the next flush,
+     * while buffered reads and the content index are invalidated since
+     * the inventory may have been partially written
+     */
+    public void flush() throws InventoryHolderException {
+        final SlotBuffer buffer = this.buffer;
+        if (buffer == null || buffer.isEmpty()) return;
+        if (buffer.isDirty()) {
+            try {
+                manager.updateInventory(buffer::applyTo);
+            } catch (InventoryHolderException e) {
+                buffer.dropReads();
+                contentIndex.invalidate();
+                flusher.enqueue(this);
+                throw e;
+            }
+        }
+        buffer.reset();
+    }
+
+    /**
+     * Drop buffered reads and writes without applying them.
+     * <p>
+     * Used by operations which overwrite the entire inventory.
+     */
+    protected void discardBuffer() {
+        if (buffer != null) buffer.reset();
+    }
+
+    private ItemStack readBuffered(int index) throws InventoryHolderException {
+        if (!buffer.isLoaded(index)) {
+            final ItemStack item = manager.queryInventory(inventory -> inventory.getItem(index));
+            buffer.load(index, item);
+            contentIndex.set(index, item);
+            flusher.enqueue(this);
+        }
+        return buffer.get(index);
+    }
+
+    /**
+     * Get the content index of this storage.
+     * <p>
+     * The index is kept up to date by every write made through this
+     * storage; changes made by other sources are only picked up by
+     * {@link #refreshContentIndex()}.
+     *
+     * @return the content index, which may be out of date
+     */
+    public ContentIndex getContentIndex() {
+        return contentIndex;
+    }
+
+    /**
+     * Whether the content index may be trusted without a refresh.
+     * <p>
+     * Only true while a {@link ContentScope} is open and the index was
+     * refreshed within it.
+     *
+     * @return true if the index is current
+     */
+    public boolean isContentIndexCurrent() {
+        return contentIndex.isValid() && ContentScope.isCurrent(indexEpoch);
+    }
+
+    /**
+     * Rebuild the content index from a full read unless it
+     * {@link #isContentIndexCurrent() is current}.
+     * <p>
+     * Outside of a {@link ContentScope} this reads the inventory on
+     * every call.
+     *
+     * @return the current content index
+     * @throws InventoryHolderException if the InventoryHolder encounters an error
+     */
+    public ContentIndex refreshContentIndex() throws InventoryHolderException {
+        if (!isContentIndexCurrent()) {
+            flush();
+            contentIndex.setAll(manager.queryInventory(inventory -> inventory.getStorageContents()));
+            indexEpoch = ContentScope.epoch();
+        }
+        return contentIndex;
+    }
+
+    /**
+     * Signal that the inventory may have been changed by another source.
+     * <p>
+     * Invalidates the content index and drops buffered reads; buffered
+     * writes are kept.
+     */
+    public void invalidateContents() {
+        if (buffer != null) buffer.dropReads();
+        contentIndex.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the presence summary of the content index, which
+     * is refreshed first unless current.
+     */
+    @Override
+    public boolean mightContain(@NotNull Material material) throws InventoryHolderException {
+        return refreshContentIndex().mightContain(material);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the presence summary of the content index, which
+     * is refreshed first unless current.
+     */
+    @Override
+    public boolean mightContain(@NotNull ItemKey key) throws InventoryHolderException {
+        return refreshContentIndex().mightContain(key);
+    }
+
+    @Override
+    public int freeSlots() throws InventoryHolderException {
+        return refreshContentIndex().getFreeSlots();
+    }
+
+    @Override
+    public long maxInsertable(@NotNull ItemKey key) throws InventoryHolderException {
+        return refreshContentIndex().getMaxInsertable(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index, which is refreshed first
+     * unless current.
+     */
+    @Override
+    public <K> @NotNull Map<K, Long> countBy(@NotNull MatchStrategy<K> strategy) throws InventoryHolderException {
+        final ContentIndex index = refreshContentIndex();
+        final Map<K, Long> counts = new HashMap<>();
+        for (int i = 0; i < index.size(); ++i) {
+            final K key = strategy.keyOf(index.getKey(i));
+            if (key != null) counts.merge(key, (long) index.getAmount(i), Long::sum);
+        }
+        return counts;
+    }
 
-                @Override
-                public void setItem(@Nullable ItemStack item) throws InventoryHolderException {
-                    manager.update(p -> p.getInventory().setItem(index, item));
-                }
-            });
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index without reading the inventory
+     * while the index is current.
+     */
+    @Override
+    public SlotIndexList findExact(ItemStack stack, @NotNull SlotIndexList into) throws InventoryHolderException {
+        final ContentIndex index = refreshContentIndex();
+        final ItemKey key = ItemKey.of(stack);
+        if (key == null) return into;
+        for (int i = 0; i < index.size(); ++i) {
+            if (key.equals(index.getKey(i)) && index.getAmount(i) == stack.getAmount()) into.add(i);
+        }
+        return into;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index without reading the inventory
+     * while the index is current.
+     */
+    @Override
+    public SlotIndexList find(Material material, @NotNull SlotIndexList into) throws InventoryHolderException {
+        final ContentIndex index = refreshContentIndex();
+        for (int i = 0; i < index.size(); ++i) {
+            final ItemKey key = index.getKey(i);
+            if (key != null && key.getType() == material) into.add(i);
+        }
+        return into;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index without reading the inventory
+     * while the index is current.
+     */
+    @Override
+    public SlotCursor find(Material material, @NotNull SlotCursor into) throws InventoryHolderException {
+        final ContentIndex index = refreshContentIndex();
+        for (int i = 0; i < index.size(); ++i) {
+            final ItemKey key = index.getKey(i);
+            if (key != null && key.getType() == material) into.add(i, index.getAmount(i));
         }
-        this.slotDAOs = slots.build();
+        return into;
     }
 
     @Override
@@ -84,67 +335,252 @@ public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> ex
 
     @Override
     public ItemStack[] getContents() throws InventoryHolderException {
-        return manager.query(holder -> holder.getInventory().getStorageContents());
+        flush();
+        final ItemStack[] contents = manager.queryInventory(inventory -> inventory.getStorageContents());
+        contentIndex.setAll(contents);
+        indexEpoch = ContentScope.epoch();
+        return contents;
     }
 
     @Override
     public void setContents(ItemStack[] items) throws InventoryHolderException, IllegalArgumentException {
-        manager.update(holder -> holder.getInventory().getStorageContents());
+        discardBuffer();
+        manager.updateInventory(inventory -> inventory.setStorageContents(items));
+        contentIndex.setAll(items);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Types, amounts and keys are answered from the content index,
+     * which is refreshed first unless current; stacks are read from the
+     * inventory one slot at a time.
+     */
+    @Override
+    public <R> R readContents(@NotNull Function<? super ContentsView, ? extends R> reader) throws InventoryHolderException {
+        final ContentIndex index = refreshContentIndex();
+        flush();
+        return manager.queryInventory(inventory -> ContentsView.within(new IndexedView(index, inventory), reader));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The storage size is cached and only recomputed when the
+     * inventory's overall size changes.
+     */
     @Override
     public int getSize() throws InventoryHolderException {
-        return manager.query(holder -> holder.getInventory().getStorageContents().length);
+        return manager.queryInventory(this::storageSize);
+    }
+
+    private int storageSize(Inventory inventory) {
+        final int raw = inventory.getSize();
+        if (raw != rawSize) {
+            storageSize = inventory.getStorageContents().length;
+            rawSize = raw;
+        }
+        return storageSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * True for chest-like inventories and the storage contents of
+     * player inventories.
+     */
+    @Override
+    public boolean isPlainContainer() throws InventoryHolderException {
+        return PLAIN_TYPES.contains(manager.queryInventory(Inventory::getType));
     }
 
     @Override
     public void clear() throws InventoryHolderException {
-        manager.update(holder -> holder.getInventory().clear());
+        discardBuffer();
+        manager.updateInventory(inventory -> inventory.clear());
+        contentIndex.setAll(new ItemStack[0]);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index while it is current; otherwise
+     * the inventory is read.
+     */
     @Override
     public boolean contains(Material material) throws InventoryHolderException {
-        return manager.query(holder -> holder.getInventory().contains(material));
+        if (isContentIndexCurrent()) return countType(material) > 0;
+        flush();
+        return manager.queryInventory(inventory -> inventory.contains(material));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index while it is current; otherwise
+     * the inventory is read.
+     */
     @Override
     public boolean containsAtLeast(Material material, int amount) throws InventoryHolderException {
-        return manager.query(holder -> holder.getInventory().contains(material, amount));
+        if (isContentIndexCurrent()) return amount <= 0 || countType(material) >= amount;
+        flush();
+        return manager.queryInventory(inventory -> inventory.contains(material, amount));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index while it is current; otherwise
+     * the inventory is read.
+     */
     @Override
     public boolean containsSimilar(ItemStack similar, int amount) throws InventoryHolderException {
-        return manager.query(holder -> holder.getInventory().containsAtLeast(similar, amount));
+        if (similar != null && isContentIndexCurrent()) {
+            if (amount <= 0) return true;
+            final ItemKey key = ItemKey.of(similar);
+            long total = 0;
+            for (int i = 0; key != null && i < contentIndex.size(); ++i) {
+                if (key.equals(contentIndex.getKey(i))) total += contentIndex.getAmount(i);
+            }
+            return total >= amount;
+        }
+        flush();
+        return manager.queryInventory(inventory -> inventory.containsAtLeast(similar, amount));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered from the content index while it is current; otherwise
+     * the inventory is read.
+     */
     @Override
     public boolean containsExact(ItemStack itemStack, int amount) throws InventoryHolderException {
-        return manager.query(holder -> holder.getInventory().contains(itemStack, amount));
+        if (itemStack != null && isContentIndexCurrent()) {
+            if (amount <= 0) return true;
+            final ItemKey key = ItemKey.of(itemStack);
+            int matches = 0;
+            for (int i = 0; key != null && i < contentIndex.size(); ++i) {
+                if (key.equals(contentIndex.getKey(i)) && contentIndex.getAmount(i) == itemStack.getAmount()) ++matches;
+            }
+            return matches >= amount;
+        }
+        flush();
+        return manager.queryInventory(inventory -> inventory.contains(itemStack, amount));
+    }
+
+    private long countType(Material material) {
+        long total = 0;
+        for (int i = 0; i < contentIndex.size(); ++i) {
+            final ItemKey key = contentIndex.getKey(i);
+            if (key != null && key.getType() == material) total += contentIndex.getAmount(i);
+        }
+        return total;
     }
 
     @Override
     public void addItem(Collection<@NotNull ItemStack> items) throws InventoryHolderException, ItemException {
-        final Collection<ItemStack> values = manager.query(holder -> holder.getInventory().addItem(items.toArray(new ItemStack[0]))).values();
+        flush();
+        final FlowStats stats = flowStats;
+        if (stats != null) {
+            stats.recordOperation();
+            stats.recordIn(items);
+        }
+        final Map<Integer, ItemStack> leftover = new HashMap<>();
+        manager.updateInventory(inventory -> {
+            leftover.putAll(inventory.addItem(items.toArray(new ItemStack[0])));
+            if (contentIndex.isValid()) syncTouched(inventory, items, true);
+        });
+        final Collection<ItemStack> values = leftover.values();
         if (!values.isEmpty()) {
+            if (stats != null) stats.recordRejected(values);
             throw new ItemException(ImmutableList.copyOf(values));
         }
     }
 
     @Override
     public void removeItem(Collection<@NotNull ItemStack> items) throws InventoryHolderException, ItemException {
-        final Collection<ItemStack> values = manager.query(holder -> holder.getInventory().removeItem(items.toArray(new ItemStack[0]))).values();
+        flush();
+        final FlowStats stats = flowStats;
+        if (stats != null) {
+            stats.recordOperation();
+            stats.recordOut(items);
+        }
+        final Map<Integer, ItemStack> leftover = new HashMap<>();
+        manager.updateInventory(inventory -> {
+            leftover.putAll(inventory.removeItem(items.toArray(new ItemStack[0])));
+            if (contentIndex.isValid()) syncTouched(inventory, items, false);
+        });
+        final Collection<ItemStack> values = leftover.values();
         if (!values.isEmpty()) {
+            if (stats != null) stats.recordMissing(values);
             throw new ItemException(ImmutableList.copyOf(values));
         }
     }
 
+    /**
+     * Record the slots which adding or removing items may have changed,
+     * reading only those slots: slots known to hold one of the items'
+     * types and, after adding, known empty slots up to the first one
+     * still empty, as inventories fill empty slots in order.
+     *
+     * @param inventory the inventory just changed
+     * @param items the items added or removed
+     * @param added whether the items were added
+     */
+    private void syncTouched(Inventory inventory, Collection<ItemStack> items, boolean added) {
+        final Set<Material> types = EnumSet.noneOf(Material.class);
+        for (ItemStack item : items) {
+            if (item != null) types.add(item.getType());
+        }
+        boolean fillable = added;
+        for (int i = 0; i < contentIndex.size(); ++i) {
+            final ItemKey key = contentIndex.getKey(i);
+            if (key != null ? types.contains(key.getType()) : fillable) {
+                final ItemStack item = inventory.getItem(i);
+                contentIndex.set(i, item);
+                if (key == null && item == null) fillable = false;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Performs the whole extraction in a single update.
+     */
+    @Override
+    public @NotNull List<ItemStack> extract(@NotNull ExtractionQuery query) throws InventoryHolderException {
+        flush();
+        final List<ItemStack> extracted = new ArrayList<>();
+        manager.updateInventory(inventory -> {
+            final ItemStack[] contents = inventory.getStorageContents();
+            final BitSet changed = new BitSet(contents.length);
+            extracted.addAll(query.applyTo(contents, changed));
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                inventory.setItem(i, contents[i]);
+                contentIndex.set(i, contents[i]);
+            }
+        });
+        final FlowStats stats = flowStats;
+        if (stats != null) {
+            stats.recordOperation();
+            stats.recordOut(extracted);
+        }
+        return extracted;
+    }
+
     @Override
     public boolean remove(Material material) throws ProviderException {
+        final FlowStats stats = flowStats;
+        if (stats != null) stats.recordOperation();
         final ListIterator<StorageSlot> iterator = iterator();
         boolean anyRemoved = false;
         while (iterator.hasNext()) {
             final StorageSlot next = iterator.next();
-            if (next.getItem().filter(itemStack -> itemStack.getType() == material).isPresent()) {
+            final ItemStack item = next.getItem().filter(itemStack -> itemStack.getType() == material).orElse(null);
+            if (item != null) {
+                if (stats != null) stats.recordOut(item);
                 next.setItem(null);
                 if (!anyRemoved) anyRemoved = true;
             }
@@ -154,11 +590,14 @@ public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> ex
 
     @Override
     public boolean removeExact(ItemStack item) throws ProviderException {
+        final FlowStats stats = flowStats;
+        if (stats != null) stats.recordOperation();
         final ListIterator<StorageSlot> iterator = iterator();
         boolean anyRemoved = false;
         while (iterator.hasNext()) {
             final StorageSlot next = iterator.next();
             if (next.getItem().filter(item::equals).isPresent()) {
+                if (stats != null) stats.recordOut(item);
                 next.setItem(null);
                 if (!anyRemoved) anyRemoved = true;
             }
@@ -167,14 +606,104 @@ public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> ex
     }
 
     /**
-     * Abstract manager class for {@link InventoryHolder}-based
-     * InventoryDiscreteStorages.
+     * A view answering from the content index, reading stacks from
+     * the inventory only when asked.
+     */
+    private static final class IndexedView extends ContentsView {
+        private final ContentIndex index;
+        private final Inventory inventory;
+
+        IndexedView(ContentIndex index, Inventory inventory) {
+            this.index = index;
+            this.inventory = inventory;
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+
+        @Override
+        protected @Nullable ItemStack item(int slot) {
+            return (index.getKey(slot) == null) ? null : inventory.getItem(slot);
+        }
+
+        @Override
+        protected @Nullable Material type(int slot) {
+            final ItemKey key = index.getKey(slot);
+            return (key == null) ? null : key.getType();
+        }
+
+        @Override
+        protected int amount(int slot) {
+            return index.getAmount(slot);
+        }
+
+        @Override
+        protected @Nullable ItemKey key(int slot) {
+            return index.getKey(slot);
+        }
+
+        @Override
+        protected boolean keyMatches(int slot, @NotNull ItemKey key) {
+            return key.equals(index.getKey(slot));
+        }
+    }
+
+    /**
+     * Slot DAO delegating to the manager or the write-behind buffer.
+     */
+    private final class InventorySlot extends StorageSlot {
+        private InventorySlot(int index) {
+            super(index);
+        }
+
+        @Override
+        public Optional<@NotNull ItemStack> getItem() throws InventoryHolderException {
+            if (buffer != null) {
+                return Optional.ofNullable(readBuffered(index));
+            }
+            return Optional.ofNullable(manager.queryInventory(inventory -> inventory.getItem(index)));
+        }
+
+        @Override
+        public void setItem(@Nullable ItemStack item) throws InventoryHolderException {
+            if (buffer != null) {
+                buffer.set(index, item);
+                flusher.enqueue(InventoryDiscreteStorage.this);
+            } else {
+                manager.updateInventory(inventory -> inventory.setItem(index, item));
+            }
+            contentIndex.set(index, item);
+        }
+
+        @Override
+        public Optional<@NotNull ItemStack> updateAndGet(Function<@Nullable ItemStack, @Nullable ItemStack> updateOperation) throws ProviderException {
+            if (buffer == null) return super.updateAndGet(updateOperation);
+            final ItemStack result = updateOperation.apply(readBuffered(index));
+            setItem(result);
+            return Optional.ofNullable(result);
+        }
+    }
+
+    /**
+     * Abstract manager class for InventoryDiscreteStorages.
+     * <p>
+     * Managers of {@link InventoryHolder} states should extend
+     * {@link HolderManager}; managers of any other state implement
+     * {@link #getInventory(Object)}.
      *
+     * @see HolderManager
      * @see BlockManager
      * @see PlayerManager
-     * @param <T> InventoryHolder and Nameable type
+     * @see com.github.sanctum.storages.entities.EntityManager
+     * @see com.github.sanctum.storages.inventories.InventoryReferenceManager
+     * @param <T> state type
      */
-    public static abstract class InventoryManager<T extends InventoryHolder & Nameable> {
+    public static abstract class InventoryManager<T> {
+        private T cachedState;
+        private long cachedGeneration;
+        private long cachedLocalGeneration;
 
         /**
          * Perform an operation on {@link T} which returns
@@ -186,7 +715,7 @@ public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> ex
          * @throws InventoryHolderException if the InventoryHolder encounters an error
          */
         public <R> R query(Function<T, R> queryFunction) throws InventoryHolderException {
-            return queryFunction.apply(validate(getRawState()));
+            return queryFunction.apply(resolve());
         }
 
         /**
@@ -196,9 +725,102 @@ public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> ex
          * @throws InventoryHolderException if the InventoryHolder encounters an error
          */
         public void update(Consumer<T> queryFunction) throws InventoryHolderException {
-            queryFunction.accept(validate(getRawState()));
+            queryFunction.accept(resolve());
+        }
+
+        /**
+         * Get the validated {@link T} state, reusing the state validated
+         * earlier in the current {@link StateCache#current() generation}
+         * and {@link #localGeneration() local generation} while the
+         * {@link StateCache#isActive() cache is active}.
+         * <p>
+         * Cached states are only checked with {@link #isStale(Object)}.
+         *
+         * @return validated state
+         * @throws InventoryHolderException if the InventoryHolder encounters an error
+         */
+        protected @NotNull T resolve() throws InventoryHolderException {
+            if (!StateCache.isActive()) return validate(getRawState());
+            final long generation = StateCache.current();
+            final long localGeneration = localGeneration();
+            final T cached = cachedState;
+            if (cached != null && cachedGeneration == generation && cachedLocalGeneration == localGeneration
+                    && !isStale(cached)) return cached;
+            cachedState = null;
+            final T state = validate(getRawState());
+            cachedGeneration = generation;
+            cachedLocalGeneration = localGeneration;
+            cachedState = state;
+            return state;
+        }
+
+        /**
+         * Drop the cached state so the next operation resolves
+         * and validates it again.
+         */
+        public void invalidate() {
+            cachedState = null;
+        }
+
+        /**
+         * Get the generation of the area the state lives in, such as
+         * the {@link StateCache#current(String, int, int) generation of
+         * a chunk}.
+         * <p>
+         * Cached states are only reused while this does not change
+         * either; defaults to 0.
+         *
+         * @return the local generation
+         */
+        protected long localGeneration() {
+            return 0;
+        }
+
+        /**
+         * Cheaply check whether a cached state can no longer be used.
+         * <p>
+         * Called on every cache hit in place of full resolution;
+         * defaults to false.
+         *
+         * @param cachedState a previously validated state
+         * @return true if the state must be resolved again
+         */
+        protected boolean isStale(@NotNull T cachedState) {
+            return false;
+        }
+
+        /**
+         * Perform an operation on the inventory of {@link T} which
+         * returns a value of arbitrary type.
+         *
+         * @param queryFunction query operation
+         * @param <R> return type of the function (inferred with lambdas)
+         * @return result of function
+         * @throws InventoryHolderException if the InventoryHolder encounters an error
+         */
+        public <R> R queryInventory(Function<Inventory, R> queryFunction) throws InventoryHolderException {
+            return query(state -> queryFunction.apply(getInventory(state)));
+        }
+
+        /**
+         * Perform an operation on the inventory of {@link T} which
+         * does not return a value.
+         *
+         * @param queryFunction update operation
+         * @throws InventoryHolderException if the InventoryHolder encounters an error
+         */
+        public void updateInventory(Consumer<Inventory> queryFunction) throws InventoryHolderException {
+            update(state -> queryFunction.accept(getInventory(state)));
         }
 
+        /**
+         * Get the inventory managed for a validated {@link T} state.
+         *
+         * @param state validated state
+         * @return the managed inventory
+         */
+        protected abstract @NotNull Inventory getInventory(@NotNull T state);
+
         /**
          * Validate the raw {@link T} state.
          *
@@ -221,4 +843,23 @@ public abstract class InventoryDiscreteStorage<T extends InventoryManager<?>> ex
          */
         protected abstract T getRawState() throws InventoryHolderException;
     }
+
+    /**
+     * Abstract manager class for {@link InventoryHolder}-based
+     * InventoryDiscreteStorages.
+     *
+     * @since 1.0.0
+     * @param <T> InventoryHolder and Nameable type
+     */
+    public static abstract class HolderManager<T extends InventoryHolder & Nameable> extends InventoryManager<T> {
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Returns {@link InventoryHolder#getInventory()}.
+         */
+        @Override
+        protected @NotNull Inventory getInventory(@NotNull T state) {
+            return state.getInventory();
+        }
+    }
 }
@@ -20,12 +20,14 @@ package com.github.sanctum.storages;
 
 import com.github.sanctum.storages.exceptions.ItemException;
 import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ExtractionQuery;
 import com.google.common.collect.ImmutableList;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * An object from which items may be taken.
@@ -75,4 +77,16 @@ public interface ItemSource {
      * @throws ProviderException if the provider encounters an error
      */
     boolean removeExact(ItemStack item) throws ProviderException;
+
+    /**
+     * Take up to a limit of items matching a query.
+     * <p>
+     * Unlike {@link #removeItem(Collection)}, falling short of the
+     * limit is not an error; the items found are returned.
+     *
+     * @param query an extraction query
+     * @return the extracted stacks
+     * @throws ProviderException if the provider encounters an error
+     */
+    @NotNull List<ItemStack> extract(@NotNull ExtractionQuery query) throws ProviderException;
 }
@@ -0,0 +1,351 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.items.MatchStrategy;
+import com.github.sanctum.storages.stats.FlowStats;
+import com.github.sanctum.storages.storage.ContentIndex;
+import com.github.sanctum.storages.storage.StorageItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A list-backed StorageGroup with cached capacity totals.
+ * <p>
+ * SimpleStorageGroups may be nested to form a hierarchy. Each group
+ * keeps a cached, versioned {@link #flatten() flattened} member list
+ * in which nested SimpleStorageGroups are expanded and every storage
+ * appears once; group operations visit that list instead of walking
+ * the tree. Adding a group which contains this group is rejected.
+ * <p>
+ * Slots, free slots and free space per key of
+ * {@link InventoryDiscreteStorage} members at any depth are rolled up
+ * from their content indexes as they change. Before answering
+ * {@link #freeSlots()}, {@link #maxInsertable(ItemKey)} and the
+ * amount queries, each such member refreshes its index unless it is
+ * current, which only holds inside a
+ * {@link com.github.sanctum.storages.storage.ContentScope ContentScope};
+ * within a scope, repeated queries do not visit those members again.
+ * Other members are asked directly.
+ * <p>
+ * <b>Not thread-safe; use from the main thread only.</b>
+ *
+ * @since 1.0.0
+ * @param <T> element type
+ */
+public class SimpleStorageGroup<T extends StorageItem> implements StorageGroup<T> {
+    private final String name;
+    private final List<Storage<? extends T>> storages = new ArrayList<>();
+    private final List<SimpleStorageGroup<?>> parents = new ArrayList<>();
+    private final Set<InventoryDiscreteStorage<?>> tracked = new LinkedHashSet<>();
+    private final Map<ItemKey, long[]> headroom = new HashMap<>();
+    private final Map<ItemKey, long[]> amounts = new HashMap<>();
+    private List<Storage<? extends T>> flattened = Collections.emptyList();
+    private List<Storage<? extends T>> untracked = Collections.emptyList();
+    private long version;
+    private long flattenedVersion;
+    private long slots;
+    private long freeSlots;
+    private volatile FlowStats flowStats;
+    private @Nullable GroupSnapshot lastSnapshot;
+    private final StorageListener capacityListener = new StorageListener() {
+        @Override
+        public void slotChanged(@NotNull DiscreteStorage storage, int slot, @Nullable ItemKey previousKey, int previousAmount, @Nullable ItemKey key, int amount) {
+            if (previousKey == null) --freeSlots;
+            if (key == null) ++freeSlots;
+            addHeadroom(previousKey, -ContentIndex.headroom(previousKey, previousAmount));
+            addHeadroom(key, ContentIndex.headroom(key, amount));
+            addTotal(amounts, previousKey, -previousAmount);
+            addTotal(amounts, key, amount);
+        }
+    };
+
+    /**
+     * Create an empty group.
+     *
+     * @param name the name of the group
+     */
+    public SimpleStorageGroup(@NotNull String name) {
+        this.name = name;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the storage is this group or
+     * a group which contains this group
+     */
+    @Override
+    public void addStorage(Storage<? extends T> storage) throws IllegalArgumentException {
+        if (storages.contains(storage)) return;
+        if (storage instanceof StorageGroup && reaches((StorageGroup<?>) storage, this, Collections.newSetFromMap(new IdentityHashMap<>()))) {
+            throw new IllegalArgumentException("Adding the group to " + name + " would create a cycle");
+        }
+        storages.add(storage);
+        if (storage instanceof SimpleStorageGroup) ((SimpleStorageGroup<?>) storage).parents.add(this);
+        structureChanged();
+    }
+
+    @Override
+    public void removeStorage(Storage<? extends T> storage) {
+        if (!storages.remove(storage)) return;
+        if (storage instanceof SimpleStorageGroup) ((SimpleStorageGroup<?>) storage).parents.remove(this);
+        structureChanged();
+    }
+
+    @Override
+    public List<Storage<? extends T>> getStorages() {
+        return Collections.unmodifiableList(storages);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Nested SimpleStorageGroups are expanded depth-first; other
+     * groups are kept as members. The list is cached until this group
+     * or a nested group changes.
+     */
+    @Override
+    public List<Storage<? extends T>> flatten() {
+        if (flattenedVersion != version) rebuild();
+        return flattened;
+    }
+
+    /**
+     * Get the structure version of this group.
+     * <p>
+     * Incremented whenever a member is added to or removed from this
+     * group or any nested group.
+     *
+     * @return the structure version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private void structureChanged() {
+        ++version;
+        for (SimpleStorageGroup<?> parent : parents) {
+            parent.structureChanged();
+        }
+    }
+
+    private static boolean reaches(StorageGroup<?> from, StorageGroup<?> target, Set<StorageGroup<?>> visited) {
+        if (from == target) return true;
+        if (!visited.add(from)) return false;
+        for (Storage<?> member : from.getStorages()) {
+            if (member instanceof StorageGroup && reaches((StorageGroup<?>) member, target, visited)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Recompute the flattened members and move capacity tracking to
+     * the new set of index-backed members.
+     */
+    private void rebuild() {
+        final Set<Storage<? extends T>> members = new LinkedHashSet<>();
+        collect(this, members);
+        final List<Storage<? extends T>> others = new ArrayList<>();
+        final Iterator<InventoryDiscreteStorage<?>> iterator = tracked.iterator();
+        while (iterator.hasNext()) {
+            final InventoryDiscreteStorage<?> storage = iterator.next();
+            if (members.contains(storage)) continue;
+            iterator.remove();
+            storage.removeListener(capacityListener);
+            final ContentIndex index = storage.getContentIndex();
+            slots -= index.size();
+            freeSlots -= index.getFreeSlots();
+            index.forEachHeadroom((key, total) -> addHeadroom(key, -total));
+            for (int i = 0; i < index.size(); ++i) addTotal(amounts, index.getKey(i), -index.getAmount(i));
+        }
+        for (Storage<? extends T> member : members) {
+            if (!(member instanceof InventoryDiscreteStorage)) {
+                others.add(member);
+                continue;
+            }
+            final InventoryDiscreteStorage<?> storage = (InventoryDiscreteStorage<?>) member;
+            if (!tracked.add(storage)) continue;
+            final ContentIndex index = storage.getContentIndex();
+            slots += index.size();
+            freeSlots += index.getFreeSlots();
+            index.forEachHeadroom(this::addHeadroom);
+            for (int i = 0; i < index.size(); ++i) addTotal(amounts, index.getKey(i), index.getAmount(i));
+            storage.addListener(capacityListener);
+        }
+        this.flattened = Collections.unmodifiableList(new ArrayList<>(members));
+        this.untracked = others;
+        this.flattenedVersion = version;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends StorageItem> void collect(SimpleStorageGroup<? extends T> group, Set<Storage<? extends T>> into) {
+        for (Storage<? extends T> member : group.storages) {
+            if (member instanceof SimpleStorageGroup) {
+                collect((SimpleStorageGroup<? extends T>) member, into);
+            } else {
+                into.add(member);
+            }
+        }
+    }
+
+    /**
+     * Set the counters which record item flow through this group.
+     *
+     * @param stats flow counters or null to stop counting
+     * @see DiscreteStorage#setFlowStats(FlowStats)
+     */
+    public void setFlowStats(@Nullable FlowStats stats) {
+        this.flowStats = stats;
+    }
+
+    @Override
+    public @Nullable FlowStats getFlowStats() {
+        return flowStats;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each snapshot is taken on top of the previous one, sharing the
+     * contents of members which did not change in between.
+     */
+    @Override
+    public GroupSnapshot snapshot() throws ProviderException {
+        lastSnapshot = GroupSnapshot.take(this, lastSnapshot);
+        return lastSnapshot;
+    }
+
+    @Override
+    public int getSize() throws ProviderException {
+        flatten();
+        long size = slots;
+        for (Storage<? extends T> storage : untracked) {
+            size += storage.getSize();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    @Override
+    public int freeSlots() throws ProviderException {
+        flatten();
+        refreshStale();
+        long free = freeSlots;
+        for (Storage<? extends T> storage : untracked) {
+            free += storage.freeSlots();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, free);
+    }
+
+    @Override
+    public long maxInsertable(@NotNull ItemKey key) throws ProviderException {
+        flatten();
+        refreshStale();
+        final long[] partial = headroom.get(key);
+        long total = ((partial == null) ? 0 : partial[0]) + freeSlots * key.getMaxStackSize();
+        for (Storage<? extends T> storage : untracked) {
+            total += storage.maxInsertable(key);
+        }
+        return total;
+    }
+
+    /**
+     * Get the total amount of items of a key in this group.
+     * <p>
+     * Read from the rolled-up totals of index-backed members; other
+     * members are asked directly.
+     *
+     * @param key an item key
+     * @return the total amount
+     * @throws ProviderException if a provider encounters an error
+     */
+    public long getAmount(@NotNull ItemKey key) throws ProviderException {
+        flatten();
+        refreshStale();
+        final long[] total = amounts.get(key);
+        long amount = (total == null) ? 0 : total[0];
+        for (Storage<? extends T> storage : untracked) {
+            amount += storage.countBy(MatchStrategy.SIMILAR).getOrDefault(key, 0L);
+        }
+        return amount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Computed from the rolled-up totals per item key of index-backed
+     * members; other members are asked directly.
+     */
+    @Override
+    public <K> @NotNull Map<K, Long> countBy(@NotNull MatchStrategy<K> strategy) throws ProviderException {
+        flatten();
+        refreshStale();
+        final Map<K, Long> counts = new HashMap<>();
+        amounts.forEach((key, total) -> {
+            final K bucket = strategy.keyOf(key);
+            if (bucket != null) counts.merge(bucket, total[0], Long::sum);
+        });
+        for (Storage<? extends T> storage : untracked) {
+            storage.countBy(strategy).forEach((key, amount) -> counts.merge(key, amount, Long::sum));
+        }
+        return counts;
+    }
+
+    @Override
+    public @NotNull ListIterator<T> iterator() {
+        final List<T> elements = new ArrayList<>();
+        for (Storage<? extends T> storage : flatten()) {
+            for (T element : storage) {
+                elements.add(element);
+            }
+        }
+        return Collections.unmodifiableList(elements).listIterator();
+    }
+
+    /**
+     * Refresh index-backed members whose content index is not current;
+     * their differences arrive through the capacity listener.
+     *
+     * @throws ProviderException if a provider encounters an error
+     */
+    private void refreshStale() throws ProviderException {
+        for (InventoryDiscreteStorage<?> storage : tracked) {
+            storage.refreshContentIndex();
+        }
+    }
+
+    private void addHeadroom(@Nullable ItemKey key, long delta) {
+        addTotal(headroom, key, delta);
+    }
+
+    private static void addTotal(Map<ItemKey, long[]> totals, @Nullable ItemKey key, long delta) {
+        if (key == null || delta == 0) return;
+        final long[] total = totals.computeIfAbsent(key, k -> new long[1]);
+        if ((total[0] += delta) == 0) totals.remove(key);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * In-memory slot overlay used by write-behind storages.
+ * <p>
+ * Slots are loaded on first read and served from memory until the
+ * next flush; writes are recorded as dirty and applied in one pass.
+ * Stacks are copied on the way in and out, so callers never share a
+ * buffered stack.
+ *
+ * @since 1.0.0
+ */
+final class SlotBuffer {
+    private final ItemStack[] items;
+    private final BitSet loaded;
+    private final BitSet dirty;
+
+    SlotBuffer(int size) {
+        this.items = new ItemStack[size];
+        this.loaded = new BitSet(size);
+        this.dirty = new BitSet(size);
+    }
+
+    int size() {
+        return items.length;
+    }
+
+    boolean isLoaded(int index) {
+        return loaded.get(index);
+    }
+
+    @Nullable ItemStack get(int index) {
+        return copy(items[index]);
+    }
+
+    void load(int index, @Nullable ItemStack item) {
+        items[index] = copy(item);
+        loaded.set(index);
+    }
+
+    void set(int index, @Nullable ItemStack item) {
+        items[index] = copy(item);
+        loaded.set(index);
+        dirty.set(index);
+    }
+
+    boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    boolean isEmpty() {
+        return loaded.isEmpty();
+    }
+
+    /**
+     * Write all dirty slots to the provided inventory.
+     *
+     * @param inventory the backing inventory
+     */
+    void applyTo(Inventory inventory) {
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            inventory.setItem(i, items[i]);
+        }
+    }
+
+    /**
+     * Forget loaded slots which have not been written.
+     */
+    void dropReads() {
+        for (int i = loaded.nextSetBit(0); i >= 0; i = loaded.nextSetBit(i + 1)) {
+            if (!dirty.get(i)) items[i] = null;
+        }
+        loaded.and(dirty);
+    }
+
+    /**
+     * Forget all loaded and dirty slots.
+     */
+    void reset() {
+        Arrays.fill(items, null);
+        loaded.clear();
+        dirty.clear();
+    }
+
+    private static @Nullable ItemStack copy(@Nullable ItemStack item) {
+        return (item == null) ? null : item.clone();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Helpers for passing stacks between storages.
+ *
+ * @since 1.0.0
+ */
+final class Stacks {
+    private Stacks() {}
+
+    /**
+     * Copy stacks before handing them to a storage, which may change
+     * the stacks it is given.
+     *
+     * @param items some stacks
+     * @return a new list of copies
+     */
+    static List<ItemStack> copies(Collection<ItemStack> items) {
+        final List<ItemStack> copies = new ArrayList<>(items.size());
+        for (ItemStack item : items) copies.add(item.clone());
+        return copies;
+    }
+
+    /**
+     * Sum the amounts of stacks.
+     *
+     * @param items some stacks
+     * @return the total amount
+     */
+    static int amount(Collection<ItemStack> items) {
+        int amount = 0;
+        for (ItemStack item : items) amount += item.getAmount();
+        return amount;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage.InventoryManager;
+import com.github.sanctum.storages.blocks.BlockLocation;
+import org.bukkit.Bukkit;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.vehicle.VehicleDestroyEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The generation counter behind the validated-state cache of
+ * {@link InventoryManager InventoryManagers}.
+ * <p>
+ * A manager reuses its validated state for as long as the generation
+ * does not change. Once {@link #register(Plugin) registered}, the
+ * generation advances every tick and whenever a chunk, world, player
+ * or entity which may back a manager changes, so cached states are
+ * never reused across ticks or across such changes. Block changes only
+ * advance the {@link #current(String, int, int) generation of their
+ * chunk}, which block managers check as well.
+ * <p>
+ * Managers do not cache states at all until the cache is registered,
+ * nor once its task is cancelled or its plugin is disabled.
+ *
+ * @since 1.0.0
+ */
+public final class StateCache implements Listener {
+    private static final AtomicLong GENERATION = new AtomicLong();
+    private static final AtomicLong CHUNK_CHANGES = new AtomicLong();
+    // per world, the last change of each chunk changed this generation
+    private static final Map<String, Map<Long, Long>> CHUNKS = new ConcurrentHashMap<>();
+    private static volatile BukkitTask task;
+    private final Plugin plugin;
+
+    private StateCache(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Get the current generation.
+     *
+     * @return the current generation
+     */
+    public static long current() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Whether the cache has been {@link #register(Plugin) registered}.
+     * <p>
+     * Managers only reuse validated states while the cache is active.
+     *
+     * @return true if cached states may be reused
+     */
+    public static boolean isActive() {
+        final BukkitTask current = task;
+        return current != null && !current.isCancelled();
+    }
+
+    /**
+     * Get the generation of a chunk within the current generation.
+     * <p>
+     * Cached states of blocks in the chunk are only reused while this
+     * does not change either.
+     *
+     * @param world the world name
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the last change of the chunk or 0 if it has not changed
+     * in the current generation
+     */
+    public static long current(@NotNull String world, int chunkX, int chunkZ) {
+        final Map<Long, Long> chunks = CHUNKS.get(world);
+        if (chunks == null) return 0;
+        return chunks.getOrDefault(BlockLocation.chunkKey(chunkX, chunkZ), 0L);
+    }
+
+    /**
+     * Invalidate every cached state.
+     */
+    public static void advance() {
+        GENERATION.incrementAndGet();
+        // a new generation invalidates every chunk as well
+        CHUNKS.clear();
+    }
+
+    /**
+     * Invalidate the cached states of blocks in a chunk.
+     *
+     * @param world the world name
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     */
+    public static void advance(@NotNull String world, int chunkX, int chunkZ) {
+        CHUNKS.computeIfAbsent(world, w -> new ConcurrentHashMap<>())
+                .put(BlockLocation.chunkKey(chunkX, chunkZ), CHUNK_CHANGES.incrementAndGet());
+    }
+
+    private static void advance(Block block) {
+        advance(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    /**
+     * Advance the generation every tick and on relevant events.
+     * <p>
+     * The cache stays active until the returned task is cancelled or
+     * the plugin is disabled.
+     *
+     * @param plugin the plugin owning the task and listener
+     * @return the scheduled task
+     */
+    public static BukkitTask register(@NotNull Plugin plugin) {
+        Bukkit.getPluginManager().registerEvents(new StateCache(plugin), plugin);
+        final BukkitTask scheduled = Bukkit.getScheduler().runTaskTimer(plugin, StateCache::advance, 1L, 1L);
+        advance();
+        task = scheduled;
+        return scheduled;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent e) {
+        if (e.getPlugin() != plugin) return;
+        final BukkitTask current = task;
+        if (current != null && current.getOwner() == plugin) {
+            current.cancel();
+            task = null;
+        }
+        advance();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent e) {
+        advance(e.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent e) {
+        advance(e.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent e) {
+        advance(e.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent e) {
+        advance(e.getBlock());
+        for (Block block : e.blockList()) advance(block);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent e) {
+        // destroyed entities have their own events
+        for (Block block : e.blockList()) advance(block);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent e) {
+        advance();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVehicleDestroy(VehicleDestroyEvent e) {
+        advance();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        advance();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent e) {
+        advance();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        advance();
+    }
+}
@@ -19,10 +19,20 @@
 package com.github.sanctum.storages;
 
 import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.items.MatchStrategy;
 import com.github.sanctum.storages.storage.StorageItem;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 /**
  * Represents a dynamic item storage which may be iterated upon.
@@ -55,6 +65,107 @@ public interface Storage<T extends StorageItem> extends Iterable<T>, ItemReceive
      */
     int getSize() throws ProviderException;
 
+    /**
+     * Get the number of empty slots in the storage.
+     *
+     * @return the number of free slots
+     * @throws ProviderException if the provider encounters an error
+     */
+    default int freeSlots() throws ProviderException {
+        int free = 0;
+        for (T element : this) {
+            if (ItemKey.isEmpty(element.getItem().orElse(null))) ++free;
+        }
+        return free;
+    }
+
+    /**
+     * Get the number of items of a key which fit into the storage.
+     * <p>
+     * Counts the free space on existing similar stacks plus that of
+     * free slots. Slot-specific restrictions (such as furnace fuel
+     * slots) are not considered.
+     *
+     * @param key an item key
+     * @return the maximum insertable amount
+     * @throws ProviderException if the provider encounters an error
+     */
+    default long maxInsertable(@NotNull ItemKey key) throws ProviderException {
+        final int max = key.getMaxStackSize();
+        long total = 0;
+        for (T element : this) {
+            final ItemStack item = element.getItem().orElse(null);
+            if (ItemKey.isEmpty(item)) {
+                total += max;
+            } else if (key.matches(item)) {
+                total += Math.max(0, max - item.getAmount());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Count the items of the storage, bucketed by the keys of a
+     * match strategy.
+     *
+     * @param strategy a match strategy
+     * @param <K> key type
+     * @return the total amount per key
+     * @throws ProviderException if the provider encounters an error
+     */
+    default <K> @NotNull Map<K, Long> countBy(@NotNull MatchStrategy<K> strategy) throws ProviderException {
+        final Map<K, Long> counts = new HashMap<>();
+        for (T element : this) {
+            final ItemStack item = element.getItem().orElse(null);
+            final K key = strategy.keyOf(item);
+            if (key != null) counts.merge(key, (long) item.getAmount(), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Whether the storage might contain items of a material.
+     * <p>
+     * A cheap, conservative test which groups use to skip members:
+     * false means the material is definitely absent, true means it
+     * may be present. Defaults to true.
+     *
+     * @param material a material
+     * @return false if the material is definitely absent
+     * @throws ProviderException if the provider encounters an error
+     */
+    default boolean mightContain(@NotNull Material material) throws ProviderException {
+        return true;
+    }
+
+    /**
+     * Whether the storage might contain items of a key.
+     * <p>
+     * A cheap, conservative test which groups use to skip members:
+     * false means the key is definitely absent, true means it may be
+     * present. Defaults to true.
+     *
+     * @param key an item key
+     * @return false if the key is definitely absent
+     * @throws ProviderException if the provider encounters an error
+     */
+    default boolean mightContain(@NotNull ItemKey key) throws ProviderException {
+        return true;
+    }
+
+    /**
+     * Whether an amount of items of a key fits into the storage.
+     *
+     * @param key an item key
+     * @param amount an amount
+     * @return true if the amount fits
+     * @throws ProviderException if the provider encounters an error
+     * @see #maxInsertable(ItemKey)
+     */
+    default boolean canAccept(@NotNull ItemKey key, int amount) throws ProviderException {
+        return maxInsertable(key) >= amount;
+    }
+
     /**
      * Clear the entire storage.
      * @throws ProviderException if the provider encounters an error
@@ -69,4 +180,22 @@ public interface Storage<T extends StorageItem> extends Iterable<T>, ItemReceive
      */
     @Override
     @NotNull ListIterator<T> iterator();
+
+    @Override
+    default @NotNull List<ItemStack> extract(@NotNull ExtractionQuery query) throws ProviderException {
+        final List<T> elements = new ArrayList<>();
+        for (T element : this) {
+            elements.add(element);
+        }
+        final ItemStack[] contents = new ItemStack[elements.size()];
+        for (int i = 0; i < contents.length; ++i) {
+            contents[i] = elements.get(i).getItem().orElse(null);
+        }
+        final BitSet changed = new BitSet(contents.length);
+        final List<ItemStack> extracted = query.applyTo(contents, changed);
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            elements.get(i).setItem(contents[i]);
+        }
+        return extracted;
+    }
 }
@@ -18,14 +18,22 @@
  */
 package com.github.sanctum.storages;
 
+import com.github.sanctum.storages.compaction.CompactionTask;
 import com.github.sanctum.storages.exceptions.ItemException;
 import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.items.MatchStrategy;
+import com.github.sanctum.storages.stats.FlowStats;
+import com.github.sanctum.storages.storage.ContentScope;
 import com.github.sanctum.storages.storage.StorageItem;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Represents a group of storages.
@@ -59,27 +67,173 @@ public interface StorageGroup<T extends StorageItem> extends Storage<T> {
      */
     List<Storage<? extends T>> getStorages();
 
+    /**
+     * Get the storages which group operations visit.
+     * <p>
+     * Groups which nest other groups return their members with nested
+     * groups expanded, each storage once, so operations do not recurse
+     * through the tree. By default this is {@link #getStorages()}.
+     *
+     * @return list of the storages visited by group operations
+     */
+    default List<Storage<? extends T>> flatten() {
+        return getStorages();
+    }
+
+    /**
+     * Get the counters which record item flow through this group.
+     * <p>
+     * Operations on the group are counted once at the group level;
+     * members count their share separately.
+     *
+     * @return flow counters or null if flow is not counted
+     */
+    default @Nullable FlowStats getFlowStats() {
+        return null;
+    }
+
+    /**
+     * Merge similar partial stacks across all discrete members and
+     * pack them into the fewest members, in group order.
+     * <p>
+     * Runs to completion; use {@link #compaction(Comparator)} to spread
+     * the work over several ticks.
+     *
+     * @return the number of members rewritten
+     * @throws ProviderException if a provider encounters an error
+     */
+    default int compact() throws ProviderException {
+        return compact(null);
+    }
+
+    /**
+     * Merge similar partial stacks across all discrete members, pack
+     * them into the fewest members and optionally sort them.
+     *
+     * @param order a key order or null to keep first-seen order
+     * @return the number of members rewritten
+     * @throws ProviderException if a provider encounters an error
+     */
+    default int compact(@Nullable Comparator<? super ItemKey> order) throws ProviderException {
+        final CompactionTask task = compaction(order);
+        task.run();
+        return task.getWrittenCount();
+    }
+
+    /**
+     * Create an incremental compaction of this group.
+     * <p>
+     * Call {@link CompactionTask#step(long)} once per tick with a time
+     * budget until it reports completion.
+     *
+     * @param order a key order or null to keep first-seen order
+     * @return a new compaction task
+     */
+    default CompactionTask compaction(@Nullable Comparator<? super ItemKey> order) {
+        return CompactionTask.of(this, order);
+    }
+
+    /**
+     * Take a point-in-time snapshot of the contents of this group.
+     *
+     * @return a new snapshot
+     * @throws ProviderException if a provider encounters an error
+     * @see GroupSnapshot#take(StorageGroup, GroupSnapshot)
+     */
+    default GroupSnapshot snapshot() throws ProviderException {
+        return GroupSnapshot.take(this, null);
+    }
+
+    /**
+     * Roll the members recorded in a snapshot back to its contents.
+     *
+     * @param snapshot a snapshot of this group
+     * @return the number of slots written
+     * @throws ProviderException if a member changed size or a provider
+     * encounters an error
+     * @see GroupSnapshot#restore()
+     */
+    default int restore(@NotNull GroupSnapshot snapshot) throws ProviderException {
+        return snapshot.restore();
+    }
+
     @Override
     default int getSize() throws ProviderException {
         int i = 0;
-        for (Storage<? extends T> storage : getStorages()) {
+        for (Storage<? extends T> storage : flatten()) {
             i += storage.getSize();
         }
         return i;
     }
 
+    @Override
+    default int freeSlots() throws ProviderException {
+        long free = 0;
+        for (Storage<? extends T> storage : flatten()) {
+            free += storage.freeSlots();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, free);
+    }
+
+    @Override
+    default <K> @NotNull Map<K, Long> countBy(@NotNull MatchStrategy<K> strategy) throws ProviderException {
+        final Map<K, Long> counts = new HashMap<>();
+        for (Storage<? extends T> storage : flatten()) {
+            storage.countBy(strategy).forEach((key, amount) -> counts.merge(key, amount, Long::sum));
+        }
+        return counts;
+    }
+
+    @Override
+    default long maxInsertable(@NotNull ItemKey key) throws ProviderException {
+        long total = 0;
+        for (Storage<? extends T> storage : flatten()) {
+            total += storage.maxInsertable(key);
+        }
+        return total;
+    }
+
     @Override
     default void clear() throws ProviderException {
-        for (Storage<? extends T> storage : getStorages()) {
+        for (Storage<? extends T> storage : flatten()) {
             storage.clear();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * True if any member might contain the material.
+     */
+    @Override
+    default boolean mightContain(@NotNull Material material) throws ProviderException {
+        for (Storage<? extends T> storage : flatten()) {
+            if (storage.mightContain(material)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * True if any member might contain the key.
+     */
+    @Override
+    default boolean mightContain(@NotNull ItemKey key) throws ProviderException {
+        for (Storage<? extends T> storage : flatten()) {
+            if (storage.mightContain(key)) return true;
+        }
+        return false;
+    }
+
     @Override
     default boolean contains(Material material) throws ProviderException {
-        for (Storage<? extends T> storage : getStorages()) {
-            if (storage.contains(material)) {
-                return true;
+        try (ContentScope scope = ContentScope.open()) {
+            for (Storage<? extends T> storage : flatten()) {
+                if (material != null && !storage.mightContain(material)) continue;
+                if (storage.contains(material)) {
+                    return true;
+                }
             }
         }
         return false;
@@ -87,9 +241,12 @@ public interface StorageGroup<T extends StorageItem> extends Storage<T> {
 
     @Override
     default boolean containsAtLeast(Material material, int amount) throws ProviderException {
-        for (Storage<? extends T> storage : getStorages()) {
-            if (storage.containsAtLeast(material, amount)) {
-                return true;
+        try (ContentScope scope = ContentScope.open()) {
+            for (Storage<? extends T> storage : flatten()) {
+                if (amount > 0 && material != null && !storage.mightContain(material)) continue;
+                if (storage.containsAtLeast(material, amount)) {
+                    return true;
+                }
             }
         }
         return false;
@@ -97,9 +254,13 @@ public interface StorageGroup<T extends StorageItem> extends Storage<T> {
 
     @Override
     default boolean containsSimilar(ItemStack similar, int amount) throws ProviderException {
-        for (Storage<? extends T> storage : getStorages()) {
-            if (storage.containsSimilar(similar, amount)) {
-                return true;
+        final ItemKey key = ItemKey.of(similar);
+        try (ContentScope scope = ContentScope.open()) {
+            for (Storage<? extends T> storage : flatten()) {
+                if (amount > 0 && key != null && !storage.mightContain(key)) continue;
+                if (storage.containsSimilar(similar, amount)) {
+                    return true;
+                }
             }
         }
         return false;
@@ -107,55 +268,104 @@ public interface StorageGroup<T extends StorageItem> extends Storage<T> {
 
     @Override
     default boolean containsExact(ItemStack itemStack, int amount) throws ProviderException {
-        for (Storage<? extends T> storage : getStorages()) {
-            if (storage.containsExact(itemStack, amount)) {
-                return true;
+        final ItemKey key = ItemKey.of(itemStack);
+        try (ContentScope scope = ContentScope.open()) {
+            for (Storage<? extends T> storage : flatten()) {
+                if (amount > 0 && key != null && !storage.mightContain(key)) continue;
+                if (storage.containsExact(itemStack, amount)) {
+                    return true;
+                }
             }
         }
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Members are offered copies of the stacks they have yet to place,
+     * in group order, until one takes all of them. A member failing
+     * with a provider error is assumed to have taken nothing and is
+     * skipped. The provider error is only rethrown if no member took
+     * anything; otherwise the stacks left over are reported through an
+     * {@link ItemException} with the error suppressed.
+     */
     @Override
     default void addItem(Collection<@NotNull ItemStack> items) throws ProviderException, ItemException {
-        final Iterator<Storage<? extends T>> iterator = getStorages().iterator();
+        final FlowStats stats = getFlowStats();
+        if (stats != null) {
+            stats.recordOperation();
+            stats.recordIn(items);
+        }
+        final int offered = Stacks.amount(items);
         List<ItemStack> itemStacks = new ArrayList<>(items);
-        while (iterator.hasNext()) {
-            final Storage<? extends T> next = iterator.next();
+        ProviderException failure = null;
+        for (Storage<? extends T> next : flatten()) {
             try {
-                next.addItem(itemStacks);
+                next.addItem(Stacks.copies(itemStacks));
+                return;
             } catch (ProviderException e) {
-                if (!iterator().hasNext()) throw e;
+                failure = e;
             } catch (ItemException e) {
-                if (!iterator.hasNext()) throw e;
                 itemStacks = e.getItems();
             }
         }
+        if (failure != null && Stacks.amount(itemStacks) == offered) throw failure;
+        if (stats != null) stats.recordRejected(itemStacks);
+        final ItemException rejected = new ItemException(itemStacks);
+        if (failure != null) rejected.addSuppressed(failure);
+        throw rejected;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Members are asked in group order for copies of the stacks not
+     * yet removed until one removes all of them. A member failing with
+     * a provider error is assumed to have removed nothing and is
+     * skipped. The provider error is only rethrown if no member removed
+     * anything; otherwise the stacks still missing are reported through
+     * an {@link ItemException} with the error suppressed.
+     */
     @Override
     default void removeItem(Collection<@NotNull ItemStack> items) throws ProviderException, ItemException {
-        final Iterator<Storage<? extends T>> iterator = getStorages().iterator();
+        final FlowStats stats = getFlowStats();
+        if (stats != null) {
+            stats.recordOperation();
+            stats.recordOut(items);
+        }
+        final int requested = Stacks.amount(items);
         List<ItemStack> itemStacks = new ArrayList<>(items);
-        while (iterator.hasNext()) {
-            final Storage<? extends T> next = iterator.next();
+        ProviderException failure = null;
+        for (Storage<? extends T> next : flatten()) {
             try {
-                next.removeItem(itemStacks);
+                next.removeItem(Stacks.copies(itemStacks));
+                return;
             } catch (ProviderException e) {
-                if (!iterator().hasNext()) throw e;
+                failure = e;
             } catch (ItemException e) {
-                if (!iterator.hasNext()) throw e;
                 itemStacks = e.getItems();
             }
         }
+        if (failure != null && Stacks.amount(itemStacks) == requested) throw failure;
+        if (stats != null) stats.recordMissing(itemStacks);
+        final ItemException missing = new ItemException(itemStacks);
+        if (failure != null) missing.addSuppressed(failure);
+        throw missing;
     }
 
     @Override
     default boolean remove(Material material) throws ProviderException {
+        final FlowStats stats = getFlowStats();
+        if (stats != null) stats.recordOperation();
         boolean removed = false;
-        for (Storage<? extends T> storage : getStorages()) {
-            if (storage.remove(material)) {
-                if (!removed) {
-                    removed = true;
+        try (ContentScope scope = ContentScope.open()) {
+            for (Storage<? extends T> storage : flatten()) {
+                if (material != null && !storage.mightContain(material)) continue;
+                if (storage.remove(material)) {
+                    if (!removed) {
+                        removed = true;
+                    }
                 }
             }
         }
@@ -164,14 +374,98 @@ public interface StorageGroup<T extends StorageItem> extends Storage<T> {
 
     @Override
     default boolean removeExact(ItemStack item) throws ProviderException {
+        final FlowStats stats = getFlowStats();
+        if (stats != null) stats.recordOperation();
         boolean removed = false;
-        for (Storage<? extends T> storage : getStorages()) {
-            if (storage.removeExact(item)) {
-                if (!removed) {
-                    removed = true;
+        final ItemKey key = ItemKey.of(item);
+        try (ContentScope scope = ContentScope.open()) {
+            for (Storage<? extends T> storage : flatten()) {
+                if (key != null && !storage.mightContain(key)) continue;
+                if (storage.removeExact(item)) {
+                    if (!removed) {
+                        removed = true;
+                    }
                 }
             }
         }
         return removed;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Members are visited in the query's storage order when present,
+     * otherwise in group order; the limit is shared by all members.
+     * Members which cannot hold any material of a type-restricted
+     * filter are skipped. A member failing with a provider error is
+     * skipped as well, so the items already taken from other members
+     * are still returned; the error is only thrown if nothing could be
+     * taken.
+     *
+     * @see #extract(ExtractionQuery, Consumer)
+     */
+    @Override
+    default @NotNull List<ItemStack> extract(@NotNull ExtractionQuery query) throws ProviderException {
+        final List<ProviderException> failures = new ArrayList<>();
+        final List<ItemStack> extracted = extract(query, failures::add);
+        if (extracted.isEmpty() && !failures.isEmpty()) {
+            final ProviderException failure = failures.get(0);
+            for (int i = 1; i < failures.size(); ++i) failure.addSuppressed(failures.get(i));
+            throw failure;
+        }
+        return extracted;
+    }
+
+    /**
+     * Take up to a limit of items matching a query, reporting members
+     * which fail instead of throwing.
+     * <p>
+     * Behaves like {@link #extract(ExtractionQuery)}, except that every
+     * member failing with a provider error is passed to the handler
+     * and the items taken from the others are always returned.
+     *
+     * @param query an extraction query
+     * @param errorHandler receives the error of each failing member
+     * @return the extracted stacks
+     */
+    default @NotNull List<ItemStack> extract(@NotNull ExtractionQuery query, @NotNull Consumer<? super ProviderException> errorHandler) {
+        List<Storage<? extends T>> storages = flatten();
+        if (query.getStorageOrder().isPresent()) {
+            storages = new ArrayList<>(storages);
+            storages.sort(query.getStorageOrder().get());
+        }
+        final List<ItemStack> extracted = new ArrayList<>();
+        int remaining = query.getLimit();
+        final Set<Material> types = query.getFilter().getTypes().orElse(null);
+        try (ContentScope scope = ContentScope.open()) {
+            for (Storage<? extends T> storage : storages) {
+                if (remaining <= 0) break;
+                try {
+                    if (types != null) {
+                        boolean candidate = false;
+                        for (Material type : types) {
+                            if (storage.mightContain(type)) {
+                                candidate = true;
+                                break;
+                            }
+                        }
+                        if (!candidate) continue;
+                    }
+                    for (ItemStack taken : storage.extract(query.withLimit(remaining))) {
+                        remaining -= taken.getAmount();
+                        extracted.add(taken);
+                    }
+                } catch (ProviderException e) {
+                    // items taken from earlier members must not be lost
+                    errorHandler.accept(e);
+                }
+            }
+        }
+        final FlowStats stats = getFlowStats();
+        if (stats != null) {
+            stats.recordOperation();
+            stats.recordOut(extracted);
+        }
+        return extracted;
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import com.github.sanctum.storages.items.ItemKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives content changes of a {@link DiscreteStorage}.
+ * <p>
+ * Changes are reported per slot as the transition between the
+ * previously known and the newly known key and amount; replaying
+ * every change onto the previous state yields the current state.
+ *
+ * @since 1.0.0
+ * @see DiscreteStorage#addListener(StorageListener)
+ */
+public interface StorageListener {
+    /**
+     * Called when the known contents of a slot change.
+     *
+     * @param storage the storage
+     * @param slot the slot index
+     * @param previousKey the previous key or null if the slot was empty
+     * @param previousAmount the previous amount
+     * @param key the new key or null if the slot is now empty
+     * @param amount the new amount
+     */
+    void slotChanged(@NotNull DiscreteStorage storage, int slot, @Nullable ItemKey previousKey, int previousAmount, @Nullable ItemKey key, int amount);
+
+    /**
+     * Called when the known contents of a storage may no longer
+     * reflect its actual contents.
+     * <p>
+     * Differences are reported through
+     * {@link #slotChanged slotChanged} once the storage is refreshed.
+     *
+     * @param storage the storage
+     */
+    default void invalidated(@NotNull DiscreteStorage storage) {
+    }
+}
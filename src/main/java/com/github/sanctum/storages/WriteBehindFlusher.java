@@ -0,0 +1,108 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Flushes buffered slot writes of write-behind storages.
+ * <p>
+ * Storages enqueue themselves on their first buffered read or write;
+ * each pending storage is then flushed exactly once per call to
+ * {@link #flushAll()}, which {@link #schedule(Plugin)} runs once every tick.
+ * <p>
+ * <b>Not thread-safe; use from the main thread only.</b>
+ *
+ * @since 1.0.0
+ * @see InventoryDiscreteStorage#setWriteBehind(WriteBehindFlusher)
+ */
+public final class WriteBehindFlusher implements Runnable {
+    private final Set<InventoryDiscreteStorage<?>> pending = new LinkedHashSet<>();
+    private final Consumer<ProviderException> errorHandler;
+
+    /**
+     * Create a flusher which reports failed flushes to a handler.
+     * <p>
+     * A storage which fails to flush keeps its buffered writes and is
+     * retried on the next call to {@link #flushAll()}.
+     *
+     * @param errorHandler a handler for provider errors
+     */
+    public WriteBehindFlusher(@NotNull Consumer<ProviderException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    void enqueue(InventoryDiscreteStorage<?> storage) {
+        pending.add(storage);
+    }
+
+    void dequeue(InventoryDiscreteStorage<?> storage) {
+        pending.remove(storage);
+    }
+
+    /**
+     * Get the number of storages awaiting a flush.
+     *
+     * @return the number of pending storages
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Flush every pending storage.
+     */
+    public void flushAll() {
+        if (pending.isEmpty()) return;
+        final List<InventoryDiscreteStorage<?>> toFlush = new ArrayList<>(pending);
+        pending.clear();
+        for (InventoryDiscreteStorage<?> storage : toFlush) {
+            try {
+                storage.flush();
+            } catch (ProviderException e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        flushAll();
+    }
+
+    /**
+     * Schedule this flusher to run once every tick.
+     *
+     * @param plugin the plugin owning the task
+     * @return the scheduled task
+     */
+    public BukkitTask schedule(@NotNull Plugin plugin) {
+        return Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+}
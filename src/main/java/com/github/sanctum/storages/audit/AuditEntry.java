@@ -0,0 +1,127 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.audit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A content change read back from the files of an {@link AuditLog}.
+ *
+ * @since 1.0.0
+ * @see AuditReader
+ */
+public final class AuditEntry {
+    private final String storage;
+    private final int slot;
+    private final String material;
+    private final String key;
+    private final long delta;
+    private final @Nullable String actor;
+    private final long tick;
+    private final long time;
+
+    AuditEntry(String storage, int slot, String material, String key, long delta, @Nullable String actor, long tick, long time) {
+        this.storage = storage;
+        this.slot = slot;
+        this.material = material;
+        this.key = key;
+        this.delta = delta;
+        this.actor = actor;
+        this.tick = tick;
+        this.time = time;
+    }
+
+    /**
+     * Get the name of the changed storage.
+     *
+     * @return the storage name
+     */
+    public @NotNull String getStorage() {
+        return storage;
+    }
+
+    /**
+     * Get the changed slot.
+     *
+     * @return the slot index
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Get the material name of the changed item.
+     *
+     * @return the material name
+     */
+    public @NotNull String getMaterial() {
+        return material;
+    }
+
+    /**
+     * Get a description of the key of the changed item.
+     *
+     * @return the key description
+     */
+    public @NotNull String getKey() {
+        return key;
+    }
+
+    /**
+     * Get the change in amount.
+     *
+     * @return the number of items added, negative if removed
+     */
+    public long getDelta() {
+        return delta;
+    }
+
+    /**
+     * Get the actor the change was attributed to.
+     *
+     * @return the actor or null if none was set
+     */
+    public @Nullable String getActor() {
+        return actor;
+    }
+
+    /**
+     * Get the tick of the change.
+     *
+     * @return the tick counted by the log
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the time of the change.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return time + " t" + tick + ' ' + storage + '[' + slot + "] " + ((delta >= 0) ? "+" : "") + delta + ' ' + key + ((actor == null) ? "" : " by " + actor);
+    }
+}
@@ -0,0 +1,543 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.audit;
+
+import com.github.sanctum.storages.DiscreteStorage;
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.StorageGroup;
+import com.github.sanctum.storages.StorageListener;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Records content changes of discrete storages to rolling binary
+ * files for later investigation.
+ * <p>
+ * Each change of an {@link #attach(InventoryDiscreteStorage) attached}
+ * storage is recorded as its storage, slot, key, amount delta,
+ * {@link #actor(String) actor}, tick and time into a preallocated
+ * ring buffer without locking or allocating. A background thread
+ * drains the buffer to files in a directory, starting a new file
+ * once the current one exceeds a size and deleting the oldest files
+ * beyond a count. When the buffer is full changes are dropped and
+ * counted instead of blocking; the number dropped is written to the
+ * files as well. Use {@link AuditReader} to read them back.
+ * <p>
+ * Changes which a storage only discovers when refreshing its known
+ * contents are attributed to the actor active at that time.
+ * <p>
+ * Recording is safe from any thread.
+ *
+ * @since 1.0.0
+ * @see AuditReader
+ */
+public final class AuditLog implements AutoCloseable {
+    static final int MAGIC = 0x53544131;
+    static final byte STORAGE = 1;
+    static final byte KEY = 2;
+    static final byte ACTOR = 3;
+    static final byte RECORD = 4;
+    static final byte DROPPED = 5;
+    static final String PREFIX = "audit-";
+    static final String SUFFIX = ".bin";
+    private static final ThreadLocal<String> CURRENT_ACTOR = new ThreadLocal<>();
+    private static final int MAX_NAME_LENGTH = 256;
+    private static final int BATCH = 4096;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Consumer<ProviderException> errorHandler;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final int[] storages;
+    private final int[] slots;
+    private final int[] keys;
+    private final int[] actors;
+    private final long[] deltas;
+    private final long[] ticks;
+    private final long[] times;
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final Map<DiscreteStorage, StorageListener> attached = new IdentityHashMap<>();
+    private final List<String> storageNames = new CopyOnWriteArrayList<>();
+    private final Map<ItemKey, Integer> keyIds = new ConcurrentHashMap<>();
+    private final List<String[]> keyNames = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> actorIds = new ConcurrentHashMap<>();
+    private final List<String> actorNames = new CopyOnWriteArrayList<>();
+    private final Thread writer;
+    private volatile long tail;
+    private volatile long tick;
+    private volatile boolean running = true;
+    // writer thread state
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private final BitSet definedStorages = new BitSet();
+    private final BitSet definedKeys = new BitSet();
+    private final BitSet definedActors = new BitSet();
+    private FileChannel file;
+    private long fileSize;
+    private long fileCount;
+    private long reportedDrops;
+
+    /**
+     * Scope of an actor set through {@link #actor(String)}.
+     *
+     * @since 1.0.0
+     */
+    public interface Scope extends AutoCloseable {
+        /**
+         * Restore the previous actor of the thread.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Start an audit log which silently drops failed writes.
+     *
+     * @param directory the directory of the log files
+     * @param capacity the number of buffered changes, rounded up to
+     *                 a power of two
+     * @param maxFileBytes the size after which a new file is started
+     * @param maxFiles the number of files to keep
+     * @throws ProviderException if the directory cannot be created
+     */
+    public AuditLog(@NotNull Path directory, int capacity, long maxFileBytes, int maxFiles) throws ProviderException {
+        this(directory, capacity, maxFileBytes, maxFiles, e -> {});
+    }
+
+    /**
+     * Start an audit log which reports failed writes to a handler.
+     * <p>
+     * Changes which fail to be written are counted as dropped.
+     *
+     * @param directory the directory of the log files
+     * @param capacity the number of buffered changes, rounded up to
+     *                 a power of two
+     * @param maxFileBytes the size after which a new file is started
+     * @param maxFiles the number of files to keep
+     * @param errorHandler a handler for write errors, called from the
+     *                     writer thread
+     * @throws ProviderException if the directory cannot be created
+     * @throws IllegalArgumentException if capacity or maxFiles is not
+     * positive
+     */
+    public AuditLog(@NotNull Path directory, int capacity, long maxFileBytes, int maxFiles, @NotNull Consumer<ProviderException> errorHandler) throws ProviderException, IllegalArgumentException {
+        if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        if (maxFiles <= 0) throw new IllegalArgumentException("maxFiles must be positive");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new ProviderException("Unable to create audit directory " + directory, e);
+        }
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.errorHandler = errorHandler;
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = Math.max(size, 1) - 1;
+        this.published = new AtomicLongArray(mask + 1);
+        this.storages = new int[mask + 1];
+        this.slots = new int[mask + 1];
+        this.keys = new int[mask + 1];
+        this.actors = new int[mask + 1];
+        this.deltas = new long[mask + 1];
+        this.ticks = new long[mask + 1];
+        this.times = new long[mask + 1];
+        this.writer = new Thread(this::drainLoop, "Storages audit writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Attribute changes made by the current thread to an actor until
+     * the returned scope is closed.
+     * <p>
+     * Use with try-with-resources; scopes nest.
+     *
+     * @param actor an actor, such as a player name or UUID, or null
+     * @return the scope of the actor
+     */
+    public static @NotNull Scope actor(@Nullable String actor) {
+        final String previous = CURRENT_ACTOR.get();
+        CURRENT_ACTOR.set(actor);
+        return () -> {
+            if (previous == null) {
+                CURRENT_ACTOR.remove();
+            } else {
+                CURRENT_ACTOR.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Get the actor of the current thread.
+     *
+     * @return the actor or null if none is set
+     */
+    public static @Nullable String currentActor() {
+        return CURRENT_ACTOR.get();
+    }
+
+    /**
+     * Record the changes of a storage.
+     * <p>
+     * Only inventory-backed storages report their changes, so only
+     * they can be attached. Attaching an attached storage does nothing.
+     *
+     * @param storage a storage
+     */
+    public void attach(@NotNull InventoryDiscreteStorage<?> storage) {
+        synchronized (attached) {
+            if (attached.containsKey(storage)) return;
+            String name;
+            try {
+                name = storage.getName();
+            } catch (ProviderException e) {
+                name = "#" + storageNames.size();
+            }
+            storageNames.add(truncate(name));
+            final int id = storageNames.size() - 1;
+            final StorageListener listener = new StorageListener() {
+                @Override
+                public void slotChanged(@NotNull DiscreteStorage storage, int slot, @Nullable ItemKey previousKey, int previousAmount, @Nullable ItemKey key, int amount) {
+                    if (previousKey != null && previousKey.equals(key)) {
+                        if (amount != previousAmount) record(id, slot, key, amount - previousAmount);
+                        return;
+                    }
+                    if (previousKey != null) record(id, slot, previousKey, -previousAmount);
+                    if (key != null) record(id, slot, key, amount);
+                }
+            };
+            attached.put(storage, listener);
+            storage.addListener(listener);
+        }
+    }
+
+    /**
+     * Record the changes of every discrete member of a group.
+     * <p>
+     * Members added to the group later are not attached.
+     *
+     * @param group a group
+     * @throws IllegalArgumentException if a discrete member is not
+     * inventory-backed; no member is attached then
+     * @see StorageGroup#flatten()
+     */
+    public void attach(@NotNull StorageGroup<?> group) {
+        for (InventoryDiscreteStorage<?> storage : inventoryMembers(group)) attach(storage);
+    }
+
+    private static List<InventoryDiscreteStorage<?>> inventoryMembers(StorageGroup<?> group) {
+        final List<InventoryDiscreteStorage<?>> members = new ArrayList<>();
+        for (Storage<?> storage : group.flatten()) {
+            if (storage instanceof InventoryDiscreteStorage) {
+                members.add((InventoryDiscreteStorage<?>) storage);
+            } else if (storage instanceof DiscreteStorage) {
+                throw new IllegalArgumentException("Member does not report changes: " + storage);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Stop recording the changes of a storage.
+     *
+     * @param storage a storage
+     */
+    public void detach(@NotNull DiscreteStorage storage) {
+        synchronized (attached) {
+            final StorageListener listener = attached.remove(storage);
+            if (listener != null) storage.removeListener(listener);
+        }
+    }
+
+    /**
+     * Advance the tick recorded with changes.
+     * <p>
+     * Call once per server tick, or use {@link #schedule(Plugin)}.
+     */
+    public void tick() {
+        tick = tick + 1;
+    }
+
+    /**
+     * Schedule this log to advance its tick once every tick.
+     *
+     * @param plugin the plugin owning the task
+     * @return the scheduled task
+     */
+    public BukkitTask schedule(@NotNull Plugin plugin) {
+        return Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Get the number of changes dropped because the buffer was full
+     * or a write failed.
+     *
+     * @return the number of dropped changes
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Get the number of changes written to files.
+     *
+     * @return the number of written changes
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    private void record(int storage, int slot, ItemKey key, long delta) {
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) keyId = keyIds.computeIfAbsent(key, k -> register(keyNames, new String[]{k.getType().name(), truncate(k.toString())}));
+        final String actor = CURRENT_ACTOR.get();
+        int actorId = 0;
+        if (actor != null) {
+            Integer id = actorIds.get(actor);
+            if (id == null) id = actorIds.computeIfAbsent(actor, a -> register(actorNames, truncate(a)));
+            actorId = id + 1;
+        }
+        long claim;
+        do {
+            claim = head.get();
+            if (claim - tail > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(claim, claim + 1));
+        final int i = (int) claim & mask;
+        storages[i] = storage;
+        slots[i] = slot;
+        keys[i] = keyId;
+        actors[i] = actorId;
+        deltas[i] = delta;
+        ticks[i] = tick;
+        times[i] = System.currentTimeMillis();
+        published.lazySet(i, claim + 1);
+    }
+
+    private static <E> int register(List<E> names, E name) {
+        synchronized (names) {
+            names.add(name);
+            return names.size() - 1;
+        }
+    }
+
+    private static String truncate(String name) {
+        return (name.length() > MAX_NAME_LENGTH) ? name.substring(0, MAX_NAME_LENGTH) : name;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            final boolean stopping = !running;
+            final int drained = drain();
+            if (drained == 0) {
+                if (stopping) break;
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+        closeFile();
+    }
+
+    private int drain() {
+        long position = tail;
+        int count = 0;
+        try {
+            while (count < BATCH && published.get((int) position & mask) == position + 1) {
+                write((int) position & mask);
+                ++position;
+                ++count;
+            }
+            tail = position;
+            final long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                openIfNeeded();
+                reserve(11);
+                buffer.put(DROPPED);
+                putVarLong(drops - reportedDrops);
+                reportedDrops = drops;
+            }
+            writeBuffer();
+            written.addAndGet(count);
+            if (file != null && fileSize >= maxFileBytes) closeFile();
+        } catch (IOException e) {
+            tail = position;
+            buffer.clear();
+            // the batch is lost with the file
+            dropped.add(count);
+            closeFile();
+            errorHandler.accept(new ProviderException("Unable to write audit log in " + directory, e));
+        }
+        return count;
+    }
+
+    private void write(int i) throws IOException {
+        openIfNeeded();
+        final int storage = storages[i];
+        final int key = keys[i];
+        final int actor = actors[i];
+        if (!definedStorages.get(storage)) {
+            putName(STORAGE, storage, storageNames.get(storage));
+            definedStorages.set(storage);
+        }
+        if (!definedKeys.get(key)) {
+            final String[] names = keyNames.get(key);
+            putName(KEY, key, names[0]);
+            putString(names[1]);
+            definedKeys.set(key);
+        }
+        if (actor != 0 && !definedActors.get(actor)) {
+            putName(ACTOR, actor, actorNames.get(actor - 1));
+            definedActors.set(actor);
+        }
+        reserve(1 + 5 * 4 + 10 * 3);
+        buffer.put(RECORD);
+        putVarLong(storage);
+        putVarLong(slots[i]);
+        putVarLong(key);
+        final long delta = deltas[i];
+        putVarLong((delta << 1) ^ (delta >> 63));
+        putVarLong(actor);
+        putVarLong(ticks[i]);
+        putVarLong(times[i]);
+    }
+
+    private void putName(byte tag, int id, String name) throws IOException {
+        reserve(6);
+        buffer.put(tag);
+        putVarLong(id);
+        putString(name);
+    }
+
+    private void putString(String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        reserve(5 + bytes.length);
+        putVarLong(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) writeBuffer();
+    }
+
+    private void openIfNeeded() throws IOException {
+        if (file != null) return;
+        final long now = System.currentTimeMillis();
+        final Path path = directory.resolve(String.format("%s%013d-%06d%s", PREFIX, now, fileCount++ % 1000000, SUFFIX));
+        file = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        fileSize = 0;
+        definedStorages.clear();
+        definedKeys.clear();
+        definedActors.clear();
+        buffer.putInt(MAGIC).putLong(now);
+        prune();
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) fileSize += file.write(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void prune() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) files.add(path);
+        }
+        Collections.sort(files);
+        for (int i = 0; i < files.size() - maxFiles; ++i) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void closeFile() {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException e) {
+            errorHandler.accept(new ProviderException("Unable to close audit log in " + directory, e));
+        }
+        file = null;
+    }
+
+    /**
+     * Detach from all storages, write all buffered changes and stop
+     * the writer thread.
+     */
+    @Override
+    public void close() {
+        synchronized (attached) {
+            for (Map.Entry<DiscreteStorage, StorageListener> entry : attached.entrySet()) {
+                entry.getKey().removeListener(entry.getValue());
+            }
+            attached.clear();
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
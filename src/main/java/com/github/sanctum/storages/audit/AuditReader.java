@@ -0,0 +1,262 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.audit;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Reads the files written by an {@link AuditLog}.
+ * <p>
+ * A torn record at the end of a file, as left by a crash, ends that
+ * file. Run as a program to print matching changes:
+ * <pre>
+ * AuditReader &lt;file or directory&gt; [storage=NAME] [material=TYPE] [actor=NAME] [slot=N] [from=TICK] [to=TICK]
+ * </pre>
+ *
+ * @since 1.0.0
+ */
+public final class AuditReader {
+
+    private AuditReader() {}
+
+    /**
+     * Receives the contents of audit files.
+     *
+     * @since 1.0.0
+     */
+    public interface Visitor {
+        /**
+         * Called for each recorded change, in order.
+         *
+         * @param entry a change
+         */
+        void entry(@NotNull AuditEntry entry);
+
+        /**
+         * Called where changes were dropped instead of recorded.
+         *
+         * @param count the number of dropped changes
+         */
+        default void dropped(long count) {
+        }
+    }
+
+    /**
+     * List the audit files of a directory, oldest first.
+     *
+     * @param directory a log directory
+     * @return the audit files
+     * @throws ProviderException if the directory cannot be listed
+     */
+    public static @NotNull List<Path> files(@NotNull Path directory) throws ProviderException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, AuditLog.PREFIX + "*" + AuditLog.SUFFIX)) {
+            for (Path path : stream) files.add(path);
+        } catch (IOException e) {
+            throw new ProviderException("Unable to list " + directory, e);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Read every change matching a filter.
+     *
+     * @param path an audit file or log directory
+     * @param filter a filter of changes
+     * @return the matching changes, in order
+     * @throws ProviderException if a file cannot be read or is not
+     * an audit file
+     */
+    public static @NotNull List<AuditEntry> query(@NotNull Path path, @NotNull Predicate<? super AuditEntry> filter) throws ProviderException {
+        final List<AuditEntry> entries = new ArrayList<>();
+        scan(path, entry -> {
+            if (filter.test(entry)) entries.add(entry);
+        });
+        return entries;
+    }
+
+    /**
+     * Read an audit file or every audit file of a directory.
+     *
+     * @param path an audit file or log directory
+     * @param visitor the receiver of the contents
+     * @throws ProviderException if a file cannot be read or is not
+     * an audit file
+     */
+    public static void scan(@NotNull Path path, @NotNull Visitor visitor) throws ProviderException {
+        if (!Files.isDirectory(path)) {
+            read(path, visitor);
+            return;
+        }
+        for (Path file : files(path)) read(file, visitor);
+    }
+
+    private static void read(Path file, Visitor visitor) throws ProviderException {
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ProviderException("Unable to read " + file, e);
+        }
+        if (buffer.remaining() < 12 || buffer.getInt() != AuditLog.MAGIC) throw new ProviderException(file + " is not an audit file");
+        buffer.getLong();
+        final Map<Integer, String> storages = new HashMap<>();
+        final Map<Integer, String[]> keys = new HashMap<>();
+        final Map<Integer, String> actors = new HashMap<>();
+        try {
+            while (buffer.hasRemaining()) {
+                final byte tag = buffer.get();
+                switch (tag) {
+                    case AuditLog.STORAGE:
+                        storages.put(getInt(buffer), getString(buffer));
+                        break;
+                    case AuditLog.KEY:
+                        final int key = getInt(buffer);
+                        keys.put(key, new String[]{getString(buffer), getString(buffer)});
+                        break;
+                    case AuditLog.ACTOR:
+                        actors.put(getInt(buffer), getString(buffer));
+                        break;
+                    case AuditLog.RECORD:
+                        final String storage = storages.get(getInt(buffer));
+                        final int slot = getInt(buffer);
+                        final String[] names = keys.get(getInt(buffer));
+                        final long zigzag = getVarLong(buffer);
+                        final int actor = getInt(buffer);
+                        final long tick = getVarLong(buffer);
+                        final long time = getVarLong(buffer);
+                        if (storage == null || names == null || (actor != 0 && !actors.containsKey(actor))) {
+                            throw new ProviderException("Undefined reference in " + file);
+                        }
+                        visitor.entry(new AuditEntry(storage, slot, names[0], names[1], (zigzag >>> 1) ^ -(zigzag & 1), actors.get(actor), tick, time));
+                        break;
+                    case AuditLog.DROPPED:
+                        visitor.dropped(getVarLong(buffer));
+                        break;
+                    default:
+                        throw new ProviderException("Unknown tag " + tag + " in " + file);
+                }
+            }
+        } catch (BufferUnderflowException ignored) {
+            // torn tail
+        }
+    }
+
+    private static int getInt(ByteBuffer buffer) throws ProviderException {
+        final long value = getVarLong(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) throw new ProviderException("Value out of range: " + value);
+        return (int) value;
+    }
+
+    private static long getVarLong(ByteBuffer buffer) throws ProviderException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        throw new ProviderException("Varint too long");
+    }
+
+    private static String getString(ByteBuffer buffer) throws ProviderException {
+        final byte[] bytes = new byte[getInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Print the changes of an audit file or directory matching
+     * {@code name=value} filters.
+     *
+     * @param args the path followed by filters
+     * @throws ProviderException if a file cannot be read
+     */
+    public static void main(String[] args) throws ProviderException {
+        if (args.length == 0) {
+            System.err.println("Usage: AuditReader <file or directory> [storage=NAME] [material=TYPE] [actor=NAME] [slot=N] [from=TICK] [to=TICK]");
+            System.exit(2);
+        }
+        Predicate<AuditEntry> filter = entry -> true;
+        for (int i = 1; i < args.length; ++i) {
+            final int split = args[i].indexOf('=');
+            if (split < 0) throw new IllegalArgumentException("Expected name=value: " + args[i]);
+            final String value = args[i].substring(split + 1);
+            switch (args[i].substring(0, split)) {
+                case "storage":
+                    filter = filter.and(entry -> entry.getStorage().equals(value));
+                    break;
+                case "material":
+                    filter = filter.and(entry -> entry.getMaterial().equalsIgnoreCase(value));
+                    break;
+                case "actor":
+                    filter = filter.and(entry -> value.equals(entry.getActor()));
+                    break;
+                case "slot":
+                    final int slot = Integer.parseInt(value);
+                    filter = filter.and(entry -> entry.getSlot() == slot);
+                    break;
+                case "from":
+                    final long from = Long.parseLong(value);
+                    filter = filter.and(entry -> entry.getTick() >= from);
+                    break;
+                case "to":
+                    final long to = Long.parseLong(value);
+                    filter = filter.and(entry -> entry.getTick() <= to);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown filter " + args[i]);
+            }
+        }
+        final Predicate<AuditEntry> matching = filter;
+        final long[] totals = new long[2];
+        scan(Paths.get(args[0]), new Visitor() {
+            @Override
+            public void entry(@NotNull AuditEntry entry) {
+                if (!matching.test(entry)) return;
+                System.out.println(entry);
+                ++totals[0];
+            }
+
+            @Override
+            public void dropped(long count) {
+                totals[1] += count;
+            }
+        });
+        System.out.println(totals[0] + " matching changes, " + totals[1] + " dropped");
+    }
+}
@@ -44,14 +44,28 @@ public class BlockInventoryStorage extends InventoryDiscreteStorage<BlockManager
         super(blockManager);
     }
 
+    /**
+     * Get the location of the block of this storage.
+     *
+     * @return the block location
+     */
+    public BlockLocation getLocation() {
+        return manager.getBlockLocation();
+    }
+
     @Override
     public ItemStack[] getContents() throws InventoryHolderException {
-        return manager.query(c -> c.getInventory().getContents());
+        flush();
+        final ItemStack[] contents = manager.query(c -> c.getInventory().getContents());
+        contentIndex.setAll(contents);
+        return contents;
     }
 
     @Override
     public void setContents(ItemStack[] items) throws InventoryHolderException, IllegalArgumentException {
+        discardBuffer();
         manager.update(c -> c.getInventory().setContents(items));
+        contentIndex.setAll(items);
     }
 
     @Override
@@ -100,6 +100,75 @@ public final class BlockLocation implements ConfigurationSerializable {
         return z;
     }
 
+    /**
+     * Get the X coordinate of the chunk of the block.
+     *
+     * @return the chunk x coordinate
+     */
+    public int getChunkX() {
+        return x >> 4;
+    }
+
+    /**
+     * Get the Z coordinate of the chunk of the block.
+     *
+     * @return the chunk z coordinate
+     */
+    public int getChunkZ() {
+        return z >> 4;
+    }
+
+    /**
+     * Pack the coordinates of the block into a long.
+     * <p>
+     * X and Z take 26 bits each and Y takes 12 bits, which covers
+     * every block within the world border. The world is not packed.
+     *
+     * @return the packed coordinates
+     * @see #unpackX(long)
+     * @see #unpackY(long)
+     * @see #unpackZ(long)
+     */
+    public long pack() {
+        return pack(x, y, z);
+    }
+
+    /**
+     * Pack block coordinates into a long.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return the packed coordinates
+     * @see #pack()
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | ((long) y & 0xFFF);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Pack chunk coordinates into a long.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the packed chunk key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
     /**
      * Get the stored name of the world of the block.
      *
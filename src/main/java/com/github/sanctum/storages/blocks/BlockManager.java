@@ -18,10 +18,14 @@
  */
 package com.github.sanctum.storages.blocks;
 
-import com.github.sanctum.storages.InventoryDiscreteStorage.InventoryManager;
+import com.github.sanctum.storages.InventoryDiscreteStorage.HolderManager;
+import com.github.sanctum.storages.StateCache;
 import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.Container;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.function.Consumer;
 
@@ -32,7 +36,7 @@ import java.util.function.Consumer;
  * @since 1.0.0
  * @author ms5984
  */
-public class BlockManager extends InventoryManager<Container> {
+public class BlockManager extends HolderManager<Container> {
     private final BlockLocation blockLocation;
 
     /**
@@ -46,22 +50,52 @@ public class BlockManager extends InventoryManager<Container> {
         getRawState();
     }
 
+    /**
+     * Get the location of the managed block.
+     *
+     * @return the block location
+     */
+    public BlockLocation getBlockLocation() {
+        return blockLocation;
+    }
+
     @Override
     public void update(Consumer<Container> queryFunction) throws InventoryHolderException {
         super.update(queryFunction.andThen(Container::update));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A cached container is stale once its chunk is unloaded or the
+     * block no longer has the container's type.
+     */
+    @Override
+    protected boolean isStale(@NotNull Container cachedState) {
+        final World world = cachedState.getWorld();
+        if (!world.isChunkLoaded(blockLocation.getChunkX(), blockLocation.getChunkZ())) return true;
+        return world.getBlockAt(blockLocation.x, blockLocation.y, blockLocation.z).getType() != cachedState.getType();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Block changes only advance the generation of their chunk.
+     */
+    @Override
+    protected long localGeneration() {
+        return StateCache.current(blockLocation.world, blockLocation.getChunkX(), blockLocation.getChunkZ());
+    }
+
     @Override
     protected Container getRawState() throws InventoryHolderException {
-        final Container c;
         final Block block = blockLocation.toBlock();
         if (block == null) throw new InventoryHolderException("Unable to resolve block in world!");
-        try {
-            c = (Container) block.getState();
-        } catch (ClassCastException e) {
-            throw new InventoryHolderException("Unable to cast BlockState to Container. The block probably changed.", e);
+        final BlockState state = block.getState();
+        if (!(state instanceof Container)) {
+            throw new InventoryHolderException("BlockState is not a Container. The block probably changed.");
         }
-        return c;
+        return (Container) state;
     }
 
 }
@@ -0,0 +1,422 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.blocks;
+
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.storage.ContentScope;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * A chunk-bucketed spatial index of storages by block location.
+ * <p>
+ * Storages are bucketed per world by chunk and stored by their
+ * {@link BlockLocation#pack() packed} coordinates. Nearest-neighbour
+ * queries search chunk rings outward from the origin and stop once
+ * no unvisited ring can hold a closer storage; queries over sparse
+ * areas scan the occupied chunks instead. No query loads chunks.
+ * <p>
+ * Each storage is indexed at most once and each location holds at
+ * most one storage.
+ * <p>
+ * <b>Not thread-safe; use from the main thread only.</b>
+ *
+ * @since 1.0.0
+ * @param <S> storage type
+ */
+public final class BlockSpatialIndex<S extends Storage<?>> {
+    private final Map<String, WorldBuckets> worlds = new HashMap<>();
+    private final Map<S, BlockLocation> locations = new HashMap<>();
+
+    /**
+     * Index a storage at a location.
+     * <p>
+     * A storage indexed elsewhere is moved.
+     *
+     * @param location the location of the storage
+     * @param storage a storage
+     * @return the storage previously at the location or null
+     */
+    public @Nullable S put(@NotNull BlockLocation location, @NotNull S storage) {
+        final BlockLocation previousLocation = locations.get(storage);
+        if (location.equals(previousLocation)) return storage;
+        if (previousLocation != null) remove(previousLocation);
+        final WorldBuckets buckets = worlds.computeIfAbsent(location.world, w -> new WorldBuckets());
+        final long packed = location.pack();
+        final Bucket bucket = buckets.bucket(location.getChunkX(), location.getChunkZ());
+        final int index = bucket.indexOf(packed);
+        S previous = null;
+        if (index < 0) {
+            bucket.add(packed, storage);
+        } else {
+            previous = bucket.get(index);
+            bucket.values[index] = storage;
+            locations.remove(previous);
+        }
+        locations.put(storage, location);
+        return previous;
+    }
+
+    /**
+     * Remove the storage at a location.
+     *
+     * @param location a location
+     * @return the removed storage or null
+     */
+    public @Nullable S remove(@NotNull BlockLocation location) {
+        final WorldBuckets buckets = worlds.get(location.world);
+        if (buckets == null) return null;
+        final long chunk = BlockLocation.chunkKey(location.getChunkX(), location.getChunkZ());
+        final Bucket bucket = buckets.chunks.get(chunk);
+        if (bucket == null) return null;
+        final int index = bucket.indexOf(location.pack());
+        if (index < 0) return null;
+        final S removed = bucket.get(index);
+        bucket.removeAt(index);
+        if (bucket.size == 0) {
+            buckets.chunks.remove(chunk);
+            if (buckets.chunks.isEmpty()) worlds.remove(location.world);
+        }
+        locations.remove(removed);
+        return removed;
+    }
+
+    /**
+     * Remove a storage wherever it is indexed.
+     *
+     * @param storage a storage
+     * @return true if the storage was indexed
+     */
+    public boolean removeStorage(@NotNull S storage) {
+        final BlockLocation location = locations.get(storage);
+        return location != null && remove(location) != null;
+    }
+
+    /**
+     * Get the storage at a location.
+     *
+     * @param location a location
+     * @return the storage or null
+     */
+    public @Nullable S get(@NotNull BlockLocation location) {
+        final WorldBuckets buckets = worlds.get(location.world);
+        if (buckets == null) return null;
+        final Bucket bucket = buckets.chunks.get(BlockLocation.chunkKey(location.getChunkX(), location.getChunkZ()));
+        if (bucket == null) return null;
+        final int index = bucket.indexOf(location.pack());
+        return (index < 0) ? null : bucket.get(index);
+    }
+
+    /**
+     * Get the location at which a storage is indexed.
+     *
+     * @param storage a storage
+     * @return the location or null if the storage is not indexed
+     */
+    public @Nullable BlockLocation locate(@NotNull Storage<?> storage) {
+        return locations.get(storage);
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    public void clear() {
+        worlds.clear();
+        locations.clear();
+    }
+
+    /**
+     * Get the storages in a chunk.
+     *
+     * @param world the world name
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the storages in the chunk
+     */
+    public @NotNull List<S> inChunk(@NotNull String world, int chunkX, int chunkZ) {
+        final WorldBuckets buckets = worlds.get(world);
+        if (buckets == null) return Collections.emptyList();
+        final Bucket bucket = buckets.chunks.get(BlockLocation.chunkKey(chunkX, chunkZ));
+        if (bucket == null) return Collections.emptyList();
+        final List<S> list = new ArrayList<>(bucket.size);
+        for (int i = 0; i < bucket.size; ++i) list.add(bucket.get(i));
+        return list;
+    }
+
+    /**
+     * Get the storages within a box, bounds inclusive.
+     *
+     * @param world the world name
+     * @param minX the minimum x coordinate
+     * @param minY the minimum y coordinate
+     * @param minZ the minimum z coordinate
+     * @param maxX the maximum x coordinate
+     * @param maxY the maximum y coordinate
+     * @param maxZ the maximum z coordinate
+     * @return the storages within the box
+     */
+    public @NotNull List<S> within(@NotNull String world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        final WorldBuckets buckets = worlds.get(world);
+        if (buckets == null) return Collections.emptyList();
+        final List<S> list = new ArrayList<>();
+        final int minChunkX = minX >> 4, maxChunkX = maxX >> 4, minChunkZ = minZ >> 4, maxChunkZ = maxZ >> 4;
+        final long area = ((long) maxChunkX - minChunkX + 1) * ((long) maxChunkZ - minChunkZ + 1);
+        if (area > buckets.chunks.size()) {
+            for (Map.Entry<Long, Bucket> entry : buckets.chunks.entrySet()) {
+                final int chunkX = (int) (entry.getKey() >> 32), chunkZ = entry.getKey().intValue();
+                if (chunkX < minChunkX || chunkX > maxChunkX || chunkZ < minChunkZ || chunkZ > maxChunkZ) continue;
+                entry.getValue().collect(minX, minY, minZ, maxX, maxY, maxZ, list);
+            }
+        } else {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+                    final Bucket bucket = buckets.chunks.get(BlockLocation.chunkKey(chunkX, chunkZ));
+                    if (bucket != null) bucket.collect(minX, minY, minZ, maxX, maxY, maxZ, list);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Get the storages within a distance of a location.
+     *
+     * @param center the center
+     * @param radius the distance in blocks
+     * @return the storages within the sphere
+     */
+    public @NotNull List<S> withinRadius(@NotNull BlockLocation center, double radius) {
+        final int r = (int) Math.ceil(radius);
+        final List<S> list = within(center.world, center.x - r, center.y - r, center.z - r,
+                center.x + r, center.y + r, center.z + r);
+        final double limit = radius * radius;
+        list.removeIf(storage -> distanceSquared(center, locations.get(storage).pack()) > limit);
+        return list;
+    }
+
+    /**
+     * Get the storages nearest to a location.
+     *
+     * @param origin the origin
+     * @param n the maximum number of storages
+     * @return up to n storages of the world of the origin, nearest first
+     */
+    public @NotNull List<S> nearest(@NotNull BlockLocation origin, int n) {
+        return nearest(origin, n, storage -> true);
+    }
+
+    /**
+     * Get the storages nearest to a location which pass a filter.
+     * <p>
+     * The filter is only applied to storages closer than the current
+     * n-th candidate.
+     *
+     * @param origin the origin
+     * @param n the maximum number of storages
+     * @param filter a filter
+     * @return up to n storages of the world of the origin, nearest first
+     */
+    public @NotNull List<S> nearest(@NotNull BlockLocation origin, int n, @NotNull Predicate<? super S> filter) {
+        return search(origin, n, filter::test);
+    }
+
+    /**
+     * Get the storages nearest to a location which hold a similar item.
+     * <p>
+     * Storages whose presence summary rules the item out are not
+     * queried further; each storage's contents are read at most once.
+     *
+     * @param origin the origin
+     * @param n the maximum number of storages
+     * @param similar an item
+     * @return up to n storages of the world of the origin, nearest first
+     * @throws ProviderException if a provider encounters an error
+     */
+    public @NotNull List<S> nearestHolding(@NotNull BlockLocation origin, int n, @NotNull ItemStack similar) throws ProviderException {
+        final ItemKey key = ItemKey.of(similar);
+        if (key == null) return Collections.emptyList();
+        try (ContentScope scope = ContentScope.open()) {
+            return search(origin, n, storage -> storage.mightContain(key) && storage.containsSimilar(similar));
+        }
+    }
+
+    /**
+     * Order storages by distance from a location.
+     * <p>
+     * Storages not indexed in the world of the location come last.
+     * Suitable for {@link com.github.sanctum.storages.items.ExtractionQuery#withStorageOrder(Comparator)}.
+     *
+     * @param origin the origin
+     * @return a comparator of storages, nearest first
+     */
+    public @NotNull Comparator<Storage<?>> nearestFirst(@NotNull BlockLocation origin) {
+        return Comparator.comparingLong(storage -> {
+            final BlockLocation location = locations.get(storage);
+            if (location == null || !location.world.equals(origin.world)) return Long.MAX_VALUE;
+            return distanceSquared(origin, location.pack());
+        });
+    }
+
+    private interface Test<S, E extends Exception> {
+        boolean test(S storage) throws E;
+    }
+
+    private static final class Candidate<S> {
+        final long distance;
+        final S storage;
+
+        Candidate(long distance, S storage) {
+            this.distance = distance;
+            this.storage = storage;
+        }
+    }
+
+    private <E extends Exception> List<S> search(BlockLocation origin, int n, Test<? super S, E> test) throws E {
+        final WorldBuckets buckets = worlds.get(origin.world);
+        if (n <= 0 || buckets == null) return Collections.emptyList();
+        final PriorityQueue<Candidate<S>> heap = new PriorityQueue<>(n + 1,
+                Comparator.comparingLong((Candidate<S> candidate) -> candidate.distance).reversed());
+        final int originX = origin.getChunkX(), originZ = origin.getChunkZ();
+        final long maxRing = Math.max(Math.max(Math.abs((long) originX - buckets.minChunkX), Math.abs((long) originX - buckets.maxChunkX)),
+                Math.max(Math.abs((long) originZ - buckets.minChunkZ), Math.abs((long) originZ - buckets.maxChunkZ)));
+        final long scanLimit = 4L * buckets.chunks.size() + 64;
+        for (int ring = 0; ring <= maxRing; ++ring) {
+            if (heap.size() == n && ring > 0) {
+                final long gap = (ring - 1) * 16L + 1;
+                if (gap * gap > heap.peek().distance) break;
+            }
+            if ((2L * ring + 1) * (2L * ring + 1) > scanLimit) {
+                // sparse: visit the remaining occupied chunks directly
+                for (Map.Entry<Long, Bucket> entry : buckets.chunks.entrySet()) {
+                    final int chunkX = (int) (entry.getKey() >> 32), chunkZ = entry.getKey().intValue();
+                    if (Math.max(Math.abs((long) chunkX - originX), Math.abs((long) chunkZ - originZ)) < ring) continue;
+                    consider(entry.getValue(), origin, n, test, heap);
+                }
+                break;
+            }
+            if (ring == 0) {
+                consider(buckets.chunks.get(BlockLocation.chunkKey(originX, originZ)), origin, n, test, heap);
+                continue;
+            }
+            for (int dx = -ring; dx <= ring; ++dx) {
+                consider(buckets.chunks.get(BlockLocation.chunkKey(originX + dx, originZ - ring)), origin, n, test, heap);
+                consider(buckets.chunks.get(BlockLocation.chunkKey(originX + dx, originZ + ring)), origin, n, test, heap);
+            }
+            for (int dz = -ring + 1; dz < ring; ++dz) {
+                consider(buckets.chunks.get(BlockLocation.chunkKey(originX - ring, originZ + dz)), origin, n, test, heap);
+                consider(buckets.chunks.get(BlockLocation.chunkKey(originX + ring, originZ + dz)), origin, n, test, heap);
+            }
+        }
+        final List<Candidate<S>> sorted = new ArrayList<>(heap);
+        sorted.sort(Comparator.comparingLong(candidate -> candidate.distance));
+        final List<S> result = new ArrayList<>(sorted.size());
+        for (Candidate<S> candidate : sorted) result.add(candidate.storage);
+        return result;
+    }
+
+    private <E extends Exception> void consider(@Nullable Bucket bucket, BlockLocation origin, int n, Test<? super S, E> test,
+                                                PriorityQueue<Candidate<S>> heap) throws E {
+        if (bucket == null) return;
+        for (int i = 0; i < bucket.size; ++i) {
+            final long distance = distanceSquared(origin, bucket.positions[i]);
+            if (heap.size() == n && distance >= heap.peek().distance) continue;
+            final S storage = bucket.get(i);
+            if (!test.test(storage)) continue;
+            heap.add(new Candidate<>(distance, storage));
+            if (heap.size() > n) heap.poll();
+        }
+    }
+
+    private static long distanceSquared(BlockLocation origin, long packed) {
+        final long dx = BlockLocation.unpackX(packed) - (long) origin.x;
+        final long dy = BlockLocation.unpackY(packed) - (long) origin.y;
+        final long dz = BlockLocation.unpackZ(packed) - (long) origin.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static final class WorldBuckets {
+        final Map<Long, Bucket> chunks = new HashMap<>();
+        int minChunkX = Integer.MAX_VALUE, maxChunkX = Integer.MIN_VALUE;
+        int minChunkZ = Integer.MAX_VALUE, maxChunkZ = Integer.MIN_VALUE;
+
+        Bucket bucket(int chunkX, int chunkZ) {
+            minChunkX = Math.min(minChunkX, chunkX);
+            maxChunkX = Math.max(maxChunkX, chunkX);
+            minChunkZ = Math.min(minChunkZ, chunkZ);
+            maxChunkZ = Math.max(maxChunkZ, chunkZ);
+            return chunks.computeIfAbsent(BlockLocation.chunkKey(chunkX, chunkZ), k -> new Bucket());
+        }
+    }
+
+    private static final class Bucket {
+        long[] positions = new long[4];
+        Object[] values = new Object[4];
+        int size;
+
+        int indexOf(long packed) {
+            for (int i = 0; i < size; ++i) {
+                if (positions[i] == packed) return i;
+            }
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        <S> S get(int index) {
+            return (S) values[index];
+        }
+
+        void add(long packed, Object value) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            positions[size] = packed;
+            values[size++] = value;
+        }
+
+        void removeAt(int index) {
+            --size;
+            positions[index] = positions[size];
+            values[index] = values[size];
+            values[size] = null;
+        }
+
+        <S> void collect(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, List<S> into) {
+            for (int i = 0; i < size; ++i) {
+                final long packed = positions[i];
+                final int x = BlockLocation.unpackX(packed), y = BlockLocation.unpackY(packed), z = BlockLocation.unpackZ(packed);
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) into.add(get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.compaction;
+
+import com.github.sanctum.storages.DiscreteStorage;
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.StorageGroup;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An incremental compaction of a list of discrete storages.
+ * <p>
+ * Each {@link #step(long)} reads a window of members, merges similar
+ * partial stacks in memory, packs them into the fewest members of the
+ * window and writes each changed member back with a single
+ * {@link DiscreteStorage#setContents(ItemStack[])}. A window is read,
+ * planned and written within the same call, so contents cannot change
+ * underneath the plan when stepped from the main thread.
+ * <p>
+ * The last member of a window is carried into the next window, which
+ * lets items flow toward the front of the list across steps. Members
+ * which are not {@link DiscreteStorage#isPlainContainer() plain
+ * containers} are skipped.
+ * <p>
+ * Before a window is written, every member to be rewritten is checked
+ * to still have its planned size. Members losing items are written
+ * before members gaining them, and a failed write restores the members
+ * already written, so a provider failure cannot duplicate items.
+ *
+ * @since 1.0.0
+ * @see StorageGroup#compact(Comparator)
+ */
+public final class CompactionTask {
+    private final ImmutableList<DiscreteStorage> members;
+    private final @Nullable Comparator<? super ItemKey> order;
+    private int cursor;
+    private int written;
+
+    /**
+     * Create a compaction task for a list of storages.
+     *
+     * @param members storages to compact, in packing order
+     * @param order an optional key order for sorting packed stacks
+     */
+    public CompactionTask(@NotNull List<? extends DiscreteStorage> members, @Nullable Comparator<? super ItemKey> order) {
+        this.members = ImmutableList.copyOf(members);
+        this.order = order;
+    }
+
+    /**
+     * Create a compaction task for the discrete members of a group.
+     * <p>
+     * Nested groups are flattened; other members are ignored.
+     *
+     * @param group a storage group
+     * @param order an optional key order for sorting packed stacks
+     * @return a new task
+     */
+    public static CompactionTask of(@NotNull StorageGroup<?> group, @Nullable Comparator<? super ItemKey> order) {
+        final List<DiscreteStorage> members = new ArrayList<>();
+        collect(group, members);
+        return new CompactionTask(members, order);
+    }
+
+    private static void collect(StorageGroup<?> group, List<DiscreteStorage> into) {
+        for (Storage<?> storage : group.flatten()) {
+            if (storage instanceof DiscreteStorage) {
+                into.add((DiscreteStorage) storage);
+            } else if (storage instanceof StorageGroup) {
+                collect((StorageGroup<?>) storage, into);
+            }
+        }
+    }
+
+    /**
+     * Run compaction steps until the time budget is spent.
+     * <p>
+     * At least one window of two members (or the last member) is
+     * processed per call regardless of budget.
+     *
+     * @param budgetNanos time budget in nanoseconds
+     * @return true if compaction is complete
+     * @throws ProviderException if a provider encounters an error;
+     * members of the window already written are restored on a
+     * best-effort basis
+     */
+    public boolean step(long budgetNanos) throws ProviderException {
+        final long start = System.nanoTime();
+        while (!isDone()) {
+            final List<DiscreteStorage> window = new ArrayList<>();
+            final List<ItemStack[]> contents = new ArrayList<>();
+            int end = cursor;
+            int last = -1;
+            do {
+                final DiscreteStorage member = members.get(end++);
+                if (!member.isPlainContainer()) continue;
+                window.add(member);
+                contents.add(member.getContents());
+                last = end - 1;
+            } while (end < members.size() && (window.size() < 2 || System.nanoTime() - start < budgetNanos));
+            if (!window.isEmpty()) written += apply(window, contents, order);
+            // carry the last member of the window unless it was the final one
+            cursor = (end < members.size() && window.size() > 1) ? last : end;
+            if (System.nanoTime() - start >= budgetNanos) break;
+        }
+        return isDone();
+    }
+
+    /**
+     * Run the task to completion.
+     *
+     * @throws ProviderException if a provider encounters an error
+     */
+    public void run() throws ProviderException {
+        step(Long.MAX_VALUE);
+    }
+
+    /**
+     * Whether compaction is complete.
+     *
+     * @return true if every member has been processed
+     */
+    public boolean isDone() {
+        return cursor >= members.size();
+    }
+
+    /**
+     * Get the number of member writes performed so far.
+     *
+     * @return the number of members rewritten
+     */
+    public int getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Compact a single window of storages.
+     *
+     * @param window storages to pack, in order
+     * @param contents current contents of each storage
+     * @param order an optional key order
+     * @return the number of storages rewritten
+     * @throws ProviderException if a provider encounters an error
+     */
+    static int apply(List<? extends DiscreteStorage> window, List<ItemStack[]> contents, @Nullable Comparator<? super ItemKey> order) throws ProviderException {
+        final int[] sizes = new int[contents.size()];
+        for (int i = 0; i < sizes.length; ++i) {
+            sizes[i] = contents.get(i).length;
+        }
+        final List<ItemStack[]> packed = Packing.fill(Packing.merge(contents, order), sizes);
+        if (packed == null) return 0; // overstacked items no longer fit; leave as-is
+        final List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < sizes.length; ++i) {
+            if (Packing.sameContents(contents.get(i), packed.get(i))) continue;
+            if (window.get(i).getSize() != sizes[i]) {
+                throw new ProviderException("A storage changed size during compaction");
+            }
+            changed.add(i);
+        }
+        // members losing items first: a failure then cannot leave items in two places
+        final long[] gain = new long[sizes.length];
+        for (int i : changed) gain[i] = total(packed.get(i)) - total(contents.get(i));
+        changed.sort(Comparator.comparingLong(i -> gain[i]));
+        for (int n = 0; n < changed.size(); ++n) {
+            final int i = changed.get(n);
+            try {
+                window.get(i).setContents(packed.get(i));
+            } catch (ProviderException | RuntimeException e) {
+                for (int m = n - 1; m >= 0; --m) {
+                    final int j = changed.get(m);
+                    try {
+                        window.get(j).setContents(contents.get(j));
+                    } catch (ProviderException | RuntimeException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                throw e;
+            }
+        }
+        return changed.size();
+    }
+
+    private static long total(ItemStack[] contents) {
+        long total = 0;
+        for (ItemStack item : contents) {
+            if (item != null) total += item.getAmount();
+        }
+        return total;
+    }
+}
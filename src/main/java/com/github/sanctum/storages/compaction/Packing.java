@@ -0,0 +1,108 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.compaction;
+
+import com.github.sanctum.storages.items.ItemKey;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory planning helpers for compaction.
+ *
+ * @since 1.0.0
+ */
+final class Packing {
+    private Packing() {
+    }
+
+    /**
+     * Merge the stacks of several content arrays into the
+     * fewest full stacks, keeping first-seen order unless
+     * an order is provided.
+     *
+     * @param contents content arrays; elements may be null
+     * @param order an optional key order
+     * @return merged stacks
+     */
+    static List<ItemStack> merge(List<ItemStack[]> contents, @Nullable Comparator<? super ItemKey> order) {
+        final Map<ItemKey, long[]> totals = new LinkedHashMap<>();
+        for (ItemStack[] array : contents) {
+            for (ItemStack item : array) {
+                final ItemKey key = ItemKey.of(item);
+                if (key != null) totals.computeIfAbsent(key, k -> new long[1])[0] += item.getAmount();
+            }
+        }
+        final List<ItemKey> keys = new ArrayList<>(totals.keySet());
+        if (order != null) keys.sort(order);
+        final List<ItemStack> merged = new ArrayList<>();
+        for (ItemKey key : keys) {
+            final int max = Math.max(1, key.getMaxStackSize());
+            long total = totals.get(key)[0];
+            while (total > 0) {
+                final int amount = (int) Math.min(max, total);
+                merged.add(key.toItemStack(amount));
+                total -= amount;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Fill arrays of the given sizes with stacks, in order.
+     *
+     * @param stacks stacks to place
+     * @param sizes sizes of the target arrays
+     * @return filled arrays or null if the stacks do not fit
+     */
+    static @Nullable List<ItemStack[]> fill(List<ItemStack> stacks, int[] sizes) {
+        final List<ItemStack[]> filled = new ArrayList<>(sizes.length);
+        int next = 0;
+        for (int size : sizes) {
+            final ItemStack[] array = new ItemStack[size];
+            for (int i = 0; i < size && next < stacks.size(); ++i) {
+                array[i] = stacks.get(next++);
+            }
+            filled.add(array);
+        }
+        return (next == stacks.size()) ? filled : null;
+    }
+
+    /**
+     * Whether two content arrays hold equal stacks in every slot.
+     *
+     * @param a a content array
+     * @param b a content array
+     * @return true if no slot differs
+     */
+    static boolean sameContents(ItemStack[] a, ItemStack[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; ++i) {
+            final boolean aEmpty = ItemKey.isEmpty(a[i]);
+            final boolean bEmpty = ItemKey.isEmpty(b[i]);
+            if (aEmpty != bEmpty || (!aEmpty && !a[i].equals(b[i]))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.crafting;
+
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An execution plan for making an amount of an item: the items to
+ * extract from the network followed by the crafts to run, each
+ * craft after those making its ingredients.
+ *
+ * @since 1.0.0
+ * @see CraftingPlanner.Session#plan(ItemKey, long)
+ */
+public final class CraftingPlan {
+    private final ItemKey target;
+    private final long amount;
+    private final ImmutableList<Step> steps;
+    private final ImmutableMap<ItemKey, Long> missing;
+    private final ImmutableMap<ItemKey, Long> byproducts;
+    private final boolean reserved;
+
+    CraftingPlan(ItemKey target, long amount, List<Step> steps, Map<ItemKey, Long> missing, Map<ItemKey, Long> byproducts, boolean reserved) {
+        this.target = target;
+        this.amount = amount;
+        this.steps = ImmutableList.copyOf(steps);
+        this.missing = ImmutableMap.copyOf(missing);
+        this.byproducts = ImmutableMap.copyOf(byproducts);
+        this.reserved = reserved;
+    }
+
+    /**
+     * A step of a plan.
+     *
+     * @since 1.0.0
+     */
+    public static final class Step {
+        private final ItemKey key;
+        private final long amount;
+        private final @Nullable CraftingRecipe recipe;
+
+        Step(ItemKey key, long amount, @Nullable CraftingRecipe recipe) {
+            this.key = key;
+            this.amount = amount;
+            this.recipe = recipe;
+        }
+
+        /**
+         * Whether this step runs a recipe rather than extracting items.
+         *
+         * @return true if this is a craft
+         */
+        public boolean isCraft() {
+            return recipe != null;
+        }
+
+        /**
+         * Get the key extracted or made by this step.
+         *
+         * @return the item key
+         */
+        public @NotNull ItemKey getKey() {
+            return key;
+        }
+
+        /**
+         * Get the number of items to extract, or the number of times
+         * to run the recipe.
+         *
+         * @return the amount
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        /**
+         * Get the recipe of a craft.
+         *
+         * @return the recipe or null if this is an extraction
+         */
+        public @Nullable CraftingRecipe getRecipe() {
+            return recipe;
+        }
+
+        @Override
+        public String toString() {
+            return (recipe == null) ? "extract " + amount + "x" + key : "craft " + amount + "x" + recipe;
+        }
+    }
+
+    /**
+     * Get the key this plan makes.
+     *
+     * @return the target key
+     */
+    public @NotNull ItemKey getTarget() {
+        return target;
+    }
+
+    /**
+     * Get the amount this plan makes.
+     *
+     * @return the target amount
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Get the steps of this plan, extractions first.
+     *
+     * @return an immutable list of steps
+     */
+    public @NotNull List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the uncraftable items the network lacks for this plan.
+     *
+     * @return an immutable map of key to missing amount
+     */
+    public @NotNull Map<ItemKey, Long> getMissing() {
+        return missing;
+    }
+
+    /**
+     * Get the items crafted beyond what the plan needs.
+     *
+     * @return an immutable map of key to surplus amount
+     */
+    public @NotNull Map<ItemKey, Long> getByproducts() {
+        return byproducts;
+    }
+
+    /**
+     * Whether the network holds everything this plan needs.
+     *
+     * @return true if nothing is missing
+     */
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+
+    /**
+     * Whether the extractions of this plan are reserved in its session.
+     *
+     * @return true if reserved
+     */
+    public boolean isReserved() {
+        return reserved;
+    }
+
+    @Override
+    public String toString() {
+        return "CraftingPlan{" + amount + "x" + target + ", steps=" + steps + ", missing=" + missing + '}';
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.crafting;
+
+import com.github.sanctum.storages.StorageGroup;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.items.MatchStrategy;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Plans crafts against the aggregated contents of a network.
+ * <p>
+ * The recipe tree of each target is expanded once and memoized as a
+ * dependency order. A {@link Session} counts the network once and
+ * then plans any number of requests against those counts in a single
+ * pass each, reserving the items of complete plans so later requests
+ * do not plan with them. Stock of an item, or of any alternative the
+ * recipe needing it accepts, is used before crafting it.
+ * A recipe which would need its own output somewhere down the tree is
+ * ignored there, so the item is only extracted.
+ * <p>
+ * <b>Not thread-safe.</b>
+ *
+ * @since 1.0.0
+ */
+public final class CraftingPlanner {
+    private final RecipeBook book;
+    private final Map<ItemKey, Optional<CraftingRecipe>> recipes = new HashMap<>();
+    private final Map<ItemKey, Expansion> expansions = new HashMap<>();
+
+    private static final class Expansion {
+        // every key of the tree, each before its ingredients
+        final ImmutableList<ItemKey> order;
+        final ImmutableMap<ItemKey, CraftingRecipe> recipes;
+
+        Expansion(List<ItemKey> order, Map<ItemKey, CraftingRecipe> recipes) {
+            this.order = ImmutableList.copyOf(order);
+            this.recipes = ImmutableMap.copyOf(recipes);
+        }
+    }
+
+    /**
+     * Create a planner.
+     *
+     * @param book the recipes to plan with
+     */
+    public CraftingPlanner(@NotNull RecipeBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Forget memoized recipes and expansions, such as after the
+     * recipe book changed.
+     */
+    public void clearCache() {
+        recipes.clear();
+        expansions.clear();
+    }
+
+    /**
+     * Start planning against the current contents of a group.
+     *
+     * @param group a group
+     * @return a new session
+     * @throws ProviderException if a provider encounters an error
+     */
+    public @NotNull Session begin(@NotNull StorageGroup<?> group) throws ProviderException {
+        return new Session(group.countBy(MatchStrategy.SIMILAR));
+    }
+
+    /**
+     * Start planning against given counts.
+     *
+     * @param counts the available amount per key
+     * @return a new session
+     */
+    public @NotNull Session begin(@NotNull Map<ItemKey, Long> counts) {
+        return new Session(new HashMap<>(counts));
+    }
+
+    private Expansion expand(ItemKey target) {
+        final Expansion known = expansions.get(target);
+        if (known != null) return known;
+        final List<ItemKey> postorder = new ArrayList<>();
+        final Map<ItemKey, CraftingRecipe> used = new HashMap<>();
+        visit(target, new HashSet<>(), new HashSet<>(), postorder, used);
+        Collections.reverse(postorder);
+        final Expansion expansion = new Expansion(postorder, used);
+        expansions.put(target, expansion);
+        return expansion;
+    }
+
+    private void visit(ItemKey key, Set<ItemKey> path, Set<ItemKey> done, List<ItemKey> postorder, Map<ItemKey, CraftingRecipe> used) {
+        path.add(key);
+        final CraftingRecipe recipe = recipes.computeIfAbsent(key, k -> Optional.ofNullable(book.getRecipe(k))).orElse(null);
+        if (recipe != null && !Collections.disjoint(recipe.getIngredients().keySet(), path)) {
+            // crafting this key would need an item being crafted from it
+        } else if (recipe != null) {
+            used.put(key, recipe);
+            for (ItemKey ingredient : recipe.getIngredients().keySet()) {
+                if (!done.contains(ingredient)) visit(ingredient, path, done, postorder, used);
+            }
+        }
+        path.remove(key);
+        done.add(key);
+        postorder.add(key);
+    }
+
+    /**
+     * Plans requests against one count of a network.
+     * <p>
+     * The counts are not updated by later changes to the network;
+     * begin a new session to pick those up.
+     *
+     * @since 1.0.0
+     */
+    public final class Session {
+        private final Map<ItemKey, Long> available;
+
+        private Session(Map<ItemKey, Long> available) {
+            this.available = available;
+        }
+
+        /**
+         * Get the amount of a key left for planning.
+         *
+         * @param key an item key
+         * @return the unreserved amount
+         */
+        public long getAvailable(@NotNull ItemKey key) {
+            return available.getOrDefault(key, 0L);
+        }
+
+        /**
+         * Plan making an amount of an item.
+         * <p>
+         * A complete plan reserves its extractions and makes its
+         * byproducts available to later plans; an incomplete plan
+         * reserves nothing.
+         *
+         * @param target the key to make
+         * @param amount the amount to make
+         * @return the plan
+         * @throws IllegalArgumentException if the amount is not positive
+         * or too large to plan
+         */
+        public @NotNull CraftingPlan plan(@NotNull ItemKey target, long amount) throws IllegalArgumentException {
+            if (amount <= 0) throw new IllegalArgumentException("Amount must be positive");
+            final Expansion expansion = expand(target);
+            // per key, the amount wanted by each set of interchangeable keys
+            final Map<ItemKey, Map<Set<ItemKey>, Long>> demand = new HashMap<>();
+            final Map<ItemKey, Long> extract = new LinkedHashMap<>();
+            final Map<ItemKey, Long> missing = new LinkedHashMap<>();
+            final Map<ItemKey, Long> byproducts = new LinkedHashMap<>();
+            final List<CraftingPlan.Step> crafts = new ArrayList<>();
+            demand.computeIfAbsent(target, k -> new HashMap<>()).put(ImmutableSet.of(target), amount);
+            try {
+                for (ItemKey key : expansion.order) {
+                    final Map<Set<ItemKey>, Long> wanted = demand.get(key);
+                    if (wanted == null) continue;
+                    final List<Map.Entry<Set<ItemKey>, Long>> groups = new ArrayList<>(wanted.entrySet());
+                    // the least flexible demand picks from stock first
+                    groups.sort((a, b) -> Integer.compare(a.getKey().size(), b.getKey().size()));
+                    long rest = 0;
+                    for (Map.Entry<Set<ItemKey>, Long> group : groups) {
+                        long needed = group.getValue();
+                        for (ItemKey alternative : group.getKey()) {
+                            if (needed == 0) break;
+                            final long used = Math.min(needed, getAvailable(alternative) - extract.getOrDefault(alternative, 0L));
+                            if (used <= 0) continue;
+                            extract.merge(alternative, used, Math::addExact);
+                            needed -= used;
+                        }
+                        rest = Math.addExact(rest, needed);
+                    }
+                    if (rest == 0) continue;
+                    final CraftingRecipe recipe = expansion.recipes.get(key);
+                    if (recipe == null) {
+                        missing.put(key, rest);
+                        continue;
+                    }
+                    final long times = (rest + recipe.getAmount() - 1) / recipe.getAmount();
+                    crafts.add(new CraftingPlan.Step(key, times, recipe));
+                    final long surplus = Math.multiplyExact(times, recipe.getAmount()) - rest;
+                    if (surplus > 0) byproducts.put(key, surplus);
+                    for (Map.Entry<ItemKey, Integer> ingredient : recipe.getIngredients().entrySet()) {
+                        final long total = Math.multiplyExact(times, (long) ingredient.getValue());
+                        demand.computeIfAbsent(ingredient.getKey(), k -> new HashMap<>())
+                                .merge(recipe.getAlternatives(ingredient.getKey()), total, Math::addExact);
+                    }
+                }
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Amount too large to plan: " + amount, e);
+            }
+            final List<CraftingPlan.Step> steps = new ArrayList<>(extract.size() + crafts.size());
+            for (Map.Entry<ItemKey, Long> entry : extract.entrySet()) {
+                steps.add(new CraftingPlan.Step(entry.getKey(), entry.getValue(), null));
+            }
+            // ingredients were planned after the crafts using them
+            for (int i = crafts.size() - 1; i >= 0; --i) steps.add(crafts.get(i));
+            final boolean complete = missing.isEmpty();
+            if (complete) {
+                extract.forEach((key, used) -> available.merge(key, -used, Long::sum));
+                byproducts.forEach((key, surplus) -> available.merge(key, surplus, Long::sum));
+            }
+            return new CraftingPlan(target, amount, steps, missing, byproducts, complete);
+        }
+
+        /**
+         * Give back the reservations of a plan, such as after it was
+         * cancelled. Release each plan at most once.
+         *
+         * @param plan a reserved plan of this session
+         */
+        public void release(@NotNull CraftingPlan plan) {
+            if (!plan.isReserved()) return;
+            for (CraftingPlan.Step step : plan.getSteps()) {
+                if (!step.isCraft()) available.merge(step.getKey(), step.getAmount(), Long::sum);
+            }
+            plan.getByproducts().forEach((key, surplus) -> available.merge(key, -surplus, Long::sum));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.crafting;
+
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.RecipeChoice;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A recipe reduced to what planning needs: the output key and amount
+ * and the amount of each ingredient key consumed per craft.
+ * <p>
+ * An ingredient may accept interchangeable alternatives, such as any
+ * kind of planks; it is keyed by its first alternative, which is the
+ * one crafted when the network holds too few of them all.
+ *
+ * @since 1.0.0
+ * @see RecipeBook
+ */
+public final class CraftingRecipe {
+    private final ItemKey output;
+    private final int amount;
+    private final ImmutableMap<ItemKey, Integer> ingredients;
+    private final ImmutableMap<ItemKey, ImmutableSet<ItemKey>> alternatives;
+
+    private CraftingRecipe(ItemKey output, int amount, ImmutableMap<ItemKey, Integer> ingredients, ImmutableMap<ItemKey, ImmutableSet<ItemKey>> alternatives) {
+        this.output = output;
+        this.amount = amount;
+        this.ingredients = ingredients;
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Create a recipe.
+     *
+     * @param output the key of the output
+     * @param amount the number of items made per craft
+     * @param ingredients the amount of each ingredient per craft
+     * @return a new recipe
+     * @throws IllegalArgumentException if an amount is not positive or
+     * there are no ingredients
+     */
+    public static @NotNull CraftingRecipe of(@NotNull ItemKey output, int amount, @NotNull Map<ItemKey, Integer> ingredients) throws IllegalArgumentException {
+        return of(output, amount, ingredients, ImmutableMap.of());
+    }
+
+    /**
+     * Create a recipe whose ingredients accept alternatives.
+     *
+     * @param output the key of the output
+     * @param amount the number of items made per craft
+     * @param ingredients the amount of each ingredient per craft
+     * @param alternatives the keys each ingredient may be replaced
+     *                     with; ingredients without an entry accept
+     *                     only themselves
+     * @return a new recipe
+     * @throws IllegalArgumentException if an amount is not positive,
+     * there are no ingredients or an entry of alternatives is not an
+     * ingredient
+     */
+    public static @NotNull CraftingRecipe of(@NotNull ItemKey output, int amount, @NotNull Map<ItemKey, Integer> ingredients, @NotNull Map<ItemKey, ? extends Collection<ItemKey>> alternatives) throws IllegalArgumentException {
+        if (amount <= 0) throw new IllegalArgumentException("Output amount must be positive");
+        if (ingredients.isEmpty()) throw new IllegalArgumentException("A recipe needs ingredients");
+        for (int count : ingredients.values()) {
+            if (count <= 0) throw new IllegalArgumentException("Ingredient amounts must be positive");
+        }
+        final ImmutableMap.Builder<ItemKey, ImmutableSet<ItemKey>> choices = ImmutableMap.builder();
+        for (Map.Entry<ItemKey, ? extends Collection<ItemKey>> entry : alternatives.entrySet()) {
+            if (!ingredients.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Not an ingredient: " + entry.getKey());
+            }
+            choices.put(entry.getKey(), ImmutableSet.<ItemKey>builder().add(entry.getKey()).addAll(entry.getValue()).build());
+        }
+        return new CraftingRecipe(output, amount, ImmutableMap.copyOf(ingredients), choices.build());
+    }
+
+    /**
+     * Reduce a shaped or shapeless Bukkit recipe.
+     * <p>
+     * Every alternative of an ingredient choice is kept. Choices
+     * sharing their first alternative are merged into one ingredient
+     * accepting the alternatives common to them.
+     *
+     * @param recipe a Bukkit recipe
+     * @return the reduced recipe or null if the recipe is of another
+     * kind or has no ingredients
+     */
+    public static @Nullable CraftingRecipe of(@NotNull Recipe recipe) {
+        final ItemStack result = recipe.getResult();
+        final ItemKey output = ItemKey.of(result);
+        if (output == null) return null;
+        final Map<ItemKey, Integer> ingredients = new LinkedHashMap<>();
+        final Map<ItemKey, Set<ItemKey>> alternatives = new LinkedHashMap<>();
+        if (recipe instanceof ShapedRecipe) {
+            final Map<Character, RecipeChoice> choices = ((ShapedRecipe) recipe).getChoiceMap();
+            for (String row : ((ShapedRecipe) recipe).getShape()) {
+                for (char c : row.toCharArray()) {
+                    addChoice(choices.get(c), ingredients, alternatives);
+                }
+            }
+        } else if (recipe instanceof ShapelessRecipe) {
+            for (RecipeChoice choice : ((ShapelessRecipe) recipe).getChoiceList()) {
+                addChoice(choice, ingredients, alternatives);
+            }
+        } else {
+            return null;
+        }
+        if (ingredients.isEmpty()) return null;
+        final ImmutableMap.Builder<ItemKey, ImmutableSet<ItemKey>> choices = ImmutableMap.builder();
+        alternatives.forEach((key, keys) -> {
+            if (keys.size() > 1) choices.put(key, ImmutableSet.copyOf(keys));
+        });
+        return new CraftingRecipe(output, result.getAmount(), ImmutableMap.copyOf(ingredients), choices.build());
+    }
+
+    private static void addChoice(@Nullable RecipeChoice choice, Map<ItemKey, Integer> ingredients, Map<ItemKey, Set<ItemKey>> alternatives) {
+        final Set<ItemKey> keys = keysOf(choice);
+        if (keys.isEmpty()) return;
+        final ItemKey first = keys.iterator().next();
+        ingredients.merge(first, 1, Integer::sum);
+        final Set<ItemKey> known = alternatives.putIfAbsent(first, keys);
+        if (known != null) known.retainAll(keys);
+    }
+
+    private static Set<ItemKey> keysOf(@Nullable RecipeChoice choice) {
+        final Set<ItemKey> keys = new LinkedHashSet<>();
+        // MaterialChoice#getItemStack marks multiple choices with a wildcard durability
+        if (choice instanceof RecipeChoice.MaterialChoice) {
+            for (Material material : ((RecipeChoice.MaterialChoice) choice).getChoices()) {
+                keys.add(ItemKey.of(material));
+            }
+        } else if (choice instanceof RecipeChoice.ExactChoice) {
+            for (ItemStack item : ((RecipeChoice.ExactChoice) choice).getChoices()) {
+                final ItemKey key = ItemKey.of(item);
+                if (key != null) keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Get the key of the output.
+     *
+     * @return the output key
+     */
+    public @NotNull ItemKey getOutput() {
+        return output;
+    }
+
+    /**
+     * Get the number of items made per craft.
+     *
+     * @return the output amount
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Get the amount of each ingredient consumed per craft.
+     *
+     * @return an immutable map of ingredient to amount
+     */
+    public @NotNull Map<ItemKey, Integer> getIngredients() {
+        return ingredients;
+    }
+
+    /**
+     * Get the keys accepted in place of an ingredient.
+     *
+     * @param ingredient an ingredient key of this recipe
+     * @return an immutable set of interchangeable keys, the ingredient
+     * first
+     */
+    public @NotNull Set<ItemKey> getAlternatives(@NotNull ItemKey ingredient) {
+        final ImmutableSet<ItemKey> keys = alternatives.get(ingredient);
+        return (keys == null) ? ImmutableSet.of(ingredient) : keys;
+    }
+
+    @Override
+    public String toString() {
+        return "CraftingRecipe{" + amount + "x" + output + " <- " + ingredients + (alternatives.isEmpty() ? "" : ", alternatives=" + alternatives) + '}';
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.crafting;
+
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableMap;
+import org.bukkit.inventory.Recipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the recipe a {@link CraftingPlanner} uses to make a key.
+ *
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface RecipeBook {
+    /**
+     * Get the recipe which makes a key.
+     *
+     * @param output an item key
+     * @return the recipe or null if the key cannot be crafted
+     */
+    @Nullable CraftingRecipe getRecipe(@NotNull ItemKey output);
+
+    /**
+     * Create a book of recipes; the first recipe for each output wins.
+     *
+     * @param recipes some recipes
+     * @return a new recipe book
+     */
+    static @NotNull RecipeBook of(@NotNull Collection<CraftingRecipe> recipes) {
+        final Map<ItemKey, CraftingRecipe> byOutput = new HashMap<>();
+        for (CraftingRecipe recipe : recipes) {
+            byOutput.putIfAbsent(recipe.getOutput(), recipe);
+        }
+        final ImmutableMap<ItemKey, CraftingRecipe> book = ImmutableMap.copyOf(byOutput);
+        return book::get;
+    }
+
+    /**
+     * Create a book of the shaped and shapeless recipes of an iterator,
+     * such as {@code Bukkit.recipeIterator()}; the first recipe for
+     * each output wins.
+     *
+     * @param recipes an iterator of Bukkit recipes
+     * @return a new recipe book
+     * @see CraftingRecipe#of(Recipe)
+     */
+    static @NotNull RecipeBook fromBukkit(@NotNull Iterator<Recipe> recipes) {
+        final List<CraftingRecipe> reduced = new ArrayList<>();
+        while (recipes.hasNext()) {
+            final CraftingRecipe recipe = CraftingRecipe.of(recipes.next());
+            if (recipe != null) reduced.add(recipe);
+        }
+        return of(reduced);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.entities;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage.HolderManager;
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.inventory.InventoryHolder;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * An InventoryManager implementation for entities which hold an
+ * inventory, such as storage minecarts and chested horses.
+ * <p>
+ * The entity is resolved by id once and the reference reused for as
+ * long as it stays valid; a new lookup only happens after the entity
+ * was unloaded, removed or replaced.
+ *
+ * @since 1.0.0
+ * @param <T> entity type
+ */
+public class EntityManager<T extends Entity & InventoryHolder> extends HolderManager<T> {
+    private final UUID uniqueId;
+    private final Class<T> type;
+    private T entity;
+
+    /**
+     * Create an EntityManager for the entity with the provided id.
+     *
+     * @param uniqueId the id of the entity
+     * @param type the expected entity type
+     */
+    public EntityManager(@NotNull UUID uniqueId, @NotNull Class<T> type) {
+        this.uniqueId = uniqueId;
+        this.type = type;
+    }
+
+    /**
+     * Create an EntityManager for a loaded entity.
+     *
+     * @param entity a valid entity
+     * @param type the expected entity type
+     */
+    public EntityManager(@NotNull T entity, @NotNull Class<T> type) {
+        this(entity.getUniqueId(), type);
+        this.entity = entity;
+    }
+
+    /**
+     * Get the id of the managed entity.
+     *
+     * @return the entity's id
+     */
+    public @NotNull UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    @Override
+    protected boolean isStale(@NotNull T cachedState) {
+        return !cachedState.isValid() || cachedState.isDead();
+    }
+
+    @Override
+    protected @NotNull T validate(T rawState) throws InventoryHolderException {
+        final T e = super.validate(rawState);
+        if (e.isValid()) return e;
+        throw new InventoryHolderException("Entity is not valid.");
+    }
+
+    @Override
+    protected T getRawState() throws InventoryHolderException {
+        final T cached = entity;
+        if (cached != null && cached.isValid()) return cached;
+        final Entity resolved = Bukkit.getEntity(uniqueId);
+        if (resolved == null) {
+            throw new InventoryHolderException("Unable to resolve entity. It may be dead or in an unloaded chunk.");
+        }
+        if (!type.isInstance(resolved)) {
+            throw new InventoryHolderException("Entity is not a " + type.getSimpleName() + ".");
+        }
+        return entity = type.cast(resolved);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.entities;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.bukkit.entity.Entity;
+import org.bukkit.inventory.InventoryHolder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A DiscreteStorage backed by the inventory of an entity.
+ *
+ * @since 1.0.0
+ * @param <T> entity type
+ */
+public class EntityStorage<T extends Entity & InventoryHolder> extends InventoryDiscreteStorage<EntityManager<T>> {
+
+    /**
+     * Create an EntityStorage with an EntityManager.
+     *
+     * @param manager an EntityManager
+     * @throws ProviderException if the provider encounters an error
+     */
+    public EntityStorage(EntityManager<T> manager) throws ProviderException {
+        super(manager);
+    }
+
+    /**
+     * Create an EntityStorage for a loaded entity.
+     *
+     * @param entity a valid entity
+     * @param type the expected entity type
+     * @throws ProviderException if the provider encounters an error
+     */
+    public EntityStorage(@NotNull T entity, @NotNull Class<T> type) throws ProviderException {
+        this(new EntityManager<>(entity, type));
+    }
+
+    @Override
+    public @NotNull String getName() throws ProviderException {
+        return manager.query(Entity::getName);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.inventories;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage.InventoryManager;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An InventoryManager for an {@link Inventory} instance held by
+ * reference, such as a plugin-created GUI without a holder.
+ *
+ * @since 1.0.0
+ */
+public class InventoryReferenceManager extends InventoryManager<Inventory> {
+    private final Inventory inventory;
+
+    /**
+     * Create an InventoryReferenceManager for an inventory.
+     *
+     * @param inventory an inventory
+     */
+    public InventoryReferenceManager(@NotNull Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    protected @NotNull Inventory getInventory(@NotNull Inventory state) {
+        return state;
+    }
+
+    @Override
+    protected Inventory getRawState() {
+        return inventory;
+    }
+}
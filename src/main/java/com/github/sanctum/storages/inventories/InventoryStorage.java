@@ -0,0 +1,61 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.inventories;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A DiscreteStorage backed by an {@link Inventory} instance.
+ *
+ * @since 1.0.0
+ */
+public class InventoryStorage extends InventoryDiscreteStorage<InventoryReferenceManager> {
+    private final String name;
+
+    /**
+     * Create an InventoryStorage over an inventory.
+     *
+     * @param inventory an inventory
+     * @param name the name of the storage
+     * @throws ProviderException if the provider encounters an error
+     */
+    public InventoryStorage(@NotNull Inventory inventory, @NotNull String name) throws ProviderException {
+        this(new InventoryReferenceManager(inventory), name);
+    }
+
+    /**
+     * Create an InventoryStorage with an InventoryReferenceManager.
+     *
+     * @param manager an InventoryReferenceManager
+     * @param name the name of the storage
+     * @throws ProviderException if the provider encounters an error
+     */
+    public InventoryStorage(@NotNull InventoryReferenceManager manager, @NotNull String name) throws ProviderException {
+        super(manager);
+        this.name = name;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.inventories;
+
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An {@link Inventory} held entirely in memory.
+ * <p>
+ * Mirrors the semantics of the server's inventories: stacks are
+ * copied when set and returned live when read, so mutating a stack
+ * obtained from {@link #getItem(int)} mutates this inventory.
+ * <p>
+ * Does not require a running server as long as stored stacks
+ * carry no meta.
+ * <p>
+ * <b>Not thread-safe.</b>
+ *
+ * @since 1.0.0
+ */
+public class MemoryInventory implements Inventory {
+    private final ItemStack[] items;
+    private final int storageSize;
+    private final InventoryType type;
+    private final @Nullable InventoryHolder holder;
+    private int maxStackSize = 64;
+
+    /**
+     * Create an empty chest-type inventory.
+     *
+     * @param holder the holder or null
+     * @param size the number of slots
+     */
+    public MemoryInventory(@Nullable InventoryHolder holder, int size) {
+        this(holder, InventoryType.CHEST, size, size);
+    }
+
+    /**
+     * Create an empty inventory.
+     *
+     * @param holder the holder or null
+     * @param type the inventory type
+     * @param size the number of slots
+     * @param storageSize the number of leading slots considered storage
+     * @throws IllegalArgumentException if storageSize exceeds size
+     */
+    public MemoryInventory(@Nullable InventoryHolder holder, @NotNull InventoryType type, int size, int storageSize) throws IllegalArgumentException {
+        if (storageSize > size) throw new IllegalArgumentException("Storage size cannot exceed size!");
+        this.items = new ItemStack[size];
+        this.storageSize = storageSize;
+        this.type = type;
+        this.holder = holder;
+    }
+
+    @Override
+    public int getSize() {
+        return items.length;
+    }
+
+    @Override
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    @Override
+    public void setMaxStackSize(int size) {
+        this.maxStackSize = size;
+    }
+
+    @Override
+    public @Nullable ItemStack getItem(int index) {
+        return items[index];
+    }
+
+    @Override
+    public void setItem(int index, @Nullable ItemStack item) {
+        items[index] = ItemKey.isEmpty(item) ? null : item.clone();
+    }
+
+    @Override
+    public @NotNull HashMap<Integer, ItemStack> addItem(@NotNull ItemStack... items) throws IllegalArgumentException {
+        final HashMap<Integer, ItemStack> leftover = new HashMap<>();
+        for (int i = 0; i < items.length; ++i) {
+            final ItemStack item = items[i];
+            if (item == null) throw new IllegalArgumentException("Item cannot be null!");
+            if (ItemKey.isEmpty(item)) continue;
+            final int max = Math.min(item.getMaxStackSize(), maxStackSize);
+            int remaining = item.getAmount();
+            // top up similar partial stacks first, then fill empty slots
+            for (int slot = 0; slot < storageSize && remaining > 0; ++slot) {
+                final ItemStack current = this.items[slot];
+                if (current == null || current.getAmount() >= max || !item.isSimilar(current)) continue;
+                final int added = Math.min(max - current.getAmount(), remaining);
+                current.setAmount(current.getAmount() + added);
+                remaining -= added;
+            }
+            for (int slot = 0; slot < storageSize && remaining > 0; ++slot) {
+                if (this.items[slot] != null) continue;
+                final int added = Math.min(max, remaining);
+                final ItemStack placed = item.clone();
+                placed.setAmount(added);
+                this.items[slot] = placed;
+                remaining -= added;
+            }
+            if (remaining > 0) {
+                final ItemStack rest = item.clone();
+                rest.setAmount(remaining);
+                leftover.put(i, rest);
+            }
+        }
+        return leftover;
+    }
+
+    @Override
+    public @NotNull HashMap<Integer, ItemStack> removeItem(@NotNull ItemStack... items) throws IllegalArgumentException {
+        final HashMap<Integer, ItemStack> leftover = new HashMap<>();
+        for (int i = 0; i < items.length; ++i) {
+            final ItemStack item = items[i];
+            if (item == null) throw new IllegalArgumentException("Item cannot be null!");
+            int remaining = item.getAmount();
+            for (int slot = 0; slot < this.items.length && remaining > 0; ++slot) {
+                final ItemStack current = this.items[slot];
+                if (current == null || !item.isSimilar(current)) continue;
+                final int taken = Math.min(remaining, current.getAmount());
+                if (taken == current.getAmount()) {
+                    this.items[slot] = null;
+                } else {
+                    current.setAmount(current.getAmount() - taken);
+                }
+                remaining -= taken;
+            }
+            if (remaining > 0) {
+                final ItemStack rest = item.clone();
+                rest.setAmount(remaining);
+                leftover.put(i, rest);
+            }
+        }
+        return leftover;
+    }
+
+    @Override
+    public @NotNull ItemStack[] getContents() {
+        return Arrays.copyOf(items, items.length);
+    }
+
+    @Override
+    public void setContents(@NotNull ItemStack[] items) throws IllegalArgumentException {
+        setRange(items, this.items.length);
+    }
+
+    @Override
+    public @NotNull ItemStack[] getStorageContents() {
+        return Arrays.copyOf(items, storageSize);
+    }
+
+    @Override
+    public void setStorageContents(@NotNull ItemStack[] items) throws IllegalArgumentException {
+        setRange(items, storageSize);
+    }
+
+    private void setRange(ItemStack[] items, int length) {
+        if (items.length > length) throw new IllegalArgumentException("Invalid inventory size; expected " + length + " or less");
+        for (int i = 0; i < length; ++i) {
+            setItem(i, (i < items.length) ? items[i] : null);
+        }
+    }
+
+    @Override
+    public boolean contains(@NotNull Material material) throws IllegalArgumentException {
+        return first(material) != -1;
+    }
+
+    @Override
+    public boolean contains(@Nullable ItemStack item) {
+        return item != null && first(item) != -1;
+    }
+
+    @Override
+    public boolean contains(@NotNull Material material, int amount) throws IllegalArgumentException {
+        if (amount <= 0) return true;
+        for (ItemStack item : items) {
+            if (item != null && item.getType() == material && (amount -= item.getAmount()) <= 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(@Nullable ItemStack item, int amount) {
+        if (item == null) return false;
+        if (amount <= 0) return true;
+        for (ItemStack current : items) {
+            if (item.equals(current) && --amount <= 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAtLeast(@Nullable ItemStack item, int amount) {
+        if (item == null) return false;
+        if (amount <= 0) return true;
+        for (ItemStack current : items) {
+            if (item.isSimilar(current) && (amount -= current.getAmount()) <= 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public @NotNull HashMap<Integer, ? extends ItemStack> all(@NotNull Material material) throws IllegalArgumentException {
+        final HashMap<Integer, ItemStack> found = new HashMap<>();
+        for (int i = 0; i < items.length; ++i) {
+            if (items[i] != null && items[i].getType() == material) found.put(i, items[i]);
+        }
+        return found;
+    }
+
+    @Override
+    public @NotNull HashMap<Integer, ? extends ItemStack> all(@Nullable ItemStack item) {
+        final HashMap<Integer, ItemStack> found = new HashMap<>();
+        if (item == null) return found;
+        for (int i = 0; i < items.length; ++i) {
+            if (item.equals(items[i])) found.put(i, items[i]);
+        }
+        return found;
+    }
+
+    @Override
+    public int first(@NotNull Material material) throws IllegalArgumentException {
+        for (int i = 0; i < items.length; ++i) {
+            if (items[i] != null && items[i].getType() == material) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int first(@NotNull ItemStack item) {
+        for (int i = 0; i < items.length; ++i) {
+            if (item.equals(items[i])) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int firstEmpty() {
+        for (int i = 0; i < storageSize; ++i) {
+            if (items[i] == null) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (ItemStack item : items) {
+            if (item != null) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void remove(@NotNull Material material) throws IllegalArgumentException {
+        for (int i = 0; i < items.length; ++i) {
+            if (items[i] != null && items[i].getType() == material) items[i] = null;
+        }
+    }
+
+    @Override
+    public void remove(@NotNull ItemStack item) {
+        for (int i = 0; i < items.length; ++i) {
+            if (item.equals(items[i])) items[i] = null;
+        }
+    }
+
+    @Override
+    public void clear(int index) {
+        items[index] = null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(items, null);
+    }
+
+    @Override
+    public @NotNull List<HumanEntity> getViewers() {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public @NotNull InventoryType getType() {
+        return type;
+    }
+
+    @Override
+    public @Nullable InventoryHolder getHolder() {
+        return holder;
+    }
+
+    @Override
+    public @NotNull ListIterator<ItemStack> iterator() {
+        return iterator(0);
+    }
+
+    @Override
+    public @NotNull ListIterator<ItemStack> iterator(int index) {
+        final int start = (index < 0) ? index + items.length + 1 : index;
+        return new ListIterator<ItemStack>() {
+            private int next = start;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < items.length;
+            }
+
+            @Override
+            public ItemStack next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                last = next;
+                return items[next++];
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return next > 0;
+            }
+
+            @Override
+            public ItemStack previous() {
+                if (!hasPrevious()) throw new NoSuchElementException();
+                last = --next;
+                return items[next];
+            }
+
+            @Override
+            public int nextIndex() {
+                return next;
+            }
+
+            @Override
+            public int previousIndex() {
+                return next - 1;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Cannot remove from a fixed-size inventory!");
+            }
+
+            @Override
+            public void set(ItemStack itemStack) {
+                if (last == -1) throw new IllegalStateException();
+                setItem(last, itemStack);
+            }
+
+            @Override
+            public void add(ItemStack itemStack) {
+                throw new UnsupportedOperationException("Cannot add to a fixed-size inventory!");
+            }
+        };
+    }
+
+    @Override
+    public @Nullable Location getLocation() {
+        return null;
+    }
+}
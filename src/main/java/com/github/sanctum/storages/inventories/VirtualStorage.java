@@ -0,0 +1,54 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.inventories;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A storage which exists only in memory, backed by a
+ * {@link MemoryInventory} without a holder.
+ *
+ * @since 1.0.0
+ * @see com.github.sanctum.storages.persistence.StoragePersistence
+ */
+public class VirtualStorage extends InventoryStorage {
+
+    /**
+     * Create an empty VirtualStorage.
+     *
+     * @param name the name of the storage
+     * @param size the number of slots
+     * @throws ProviderException if the provider encounters an error
+     */
+    public VirtualStorage(@NotNull String name, int size) throws ProviderException {
+        super(new MemoryInventory(null, size), name);
+    }
+
+    /**
+     * Create a VirtualStorage with a manager of a memory inventory.
+     *
+     * @param manager an InventoryReferenceManager
+     * @param name the name of the storage
+     * @throws ProviderException if the provider encounters an error
+     */
+    public VirtualStorage(@NotNull InventoryReferenceManager manager, @NotNull String name) throws ProviderException {
+        super(manager, name);
+    }
+}
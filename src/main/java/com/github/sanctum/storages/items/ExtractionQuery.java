@@ -0,0 +1,224 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.items;
+
+import com.github.sanctum.storages.Storage;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Describes a bulk extraction: take up to a limit of items
+ * matching a filter, visiting slots in a given order.
+ * <p>
+ * Queries are immutable; {@code with*} methods return modified copies.
+ *
+ * @since 1.0.0
+ * @see com.github.sanctum.storages.ItemSource#extract(ExtractionQuery)
+ */
+public final class ExtractionQuery {
+    /** Limit value denoting no limit. */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    private final ItemFilter filter;
+    private final int limit;
+    private final Order order;
+    private final @Nullable Comparator<? super Storage<?>> storageOrder;
+
+    private ExtractionQuery(ItemFilter filter, int limit, Order order, @Nullable Comparator<? super Storage<?>> storageOrder) {
+        if (limit < 0) throw new IllegalArgumentException("Limit cannot be negative!");
+        this.filter = filter;
+        this.limit = limit;
+        this.order = order;
+        this.storageOrder = storageOrder;
+    }
+
+    /**
+     * Create a query taking up to {@code limit} items matching a filter.
+     *
+     * @param filter an item filter
+     * @param limit the maximum number of items to take
+     * @return a new query using {@link Order#FORWARD}
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public static ExtractionQuery of(@NotNull ItemFilter filter, int limit) throws IllegalArgumentException {
+        return new ExtractionQuery(filter, limit, Order.FORWARD, null);
+    }
+
+    /**
+     * Create a query taking all items matching a filter.
+     *
+     * @param filter an item filter
+     * @return a new query using {@link Order#FORWARD}
+     */
+    public static ExtractionQuery all(@NotNull ItemFilter filter) {
+        return of(filter, UNLIMITED);
+    }
+
+    /**
+     * Get a copy of this query with a different slot order.
+     *
+     * @param order the slot order
+     * @return a new query
+     */
+    public ExtractionQuery withOrder(@NotNull Order order) {
+        return new ExtractionQuery(filter, limit, order, storageOrder);
+    }
+
+    /**
+     * Get a copy of this query with a different limit.
+     *
+     * @param limit the maximum number of items to take
+     * @return a new query
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public ExtractionQuery withLimit(int limit) throws IllegalArgumentException {
+        return new ExtractionQuery(filter, limit, order, storageOrder);
+    }
+
+    /**
+     * Get a copy of this query which visits the members
+     * of a group in the order of the provided comparator.
+     *
+     * @param storageOrder a storage comparator (such as nearest-first)
+     * @return a new query
+     */
+    public ExtractionQuery withStorageOrder(@Nullable Comparator<? super Storage<?>> storageOrder) {
+        return new ExtractionQuery(filter, limit, order, storageOrder);
+    }
+
+    /**
+     * Get the item filter.
+     *
+     * @return the item filter
+     */
+    public @NotNull ItemFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get the maximum number of items to take.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the slot order.
+     *
+     * @return the slot order
+     */
+    public @NotNull Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Get the group member order.
+     *
+     * @return an Optional describing the member comparator
+     */
+    public Optional<Comparator<? super Storage<?>>> getStorageOrder() {
+        return Optional.ofNullable(storageOrder);
+    }
+
+    /**
+     * Apply this query to an array of stacks in a single pass.
+     * <p>
+     * Stacks in {@code contents} are never mutated; affected elements
+     * are replaced by their remainder (or null) and their indexes
+     * are set in {@code changed}.
+     *
+     * @param contents an array of stacks; elements may be null
+     * @param changed a set receiving the indexes of replaced elements
+     * @return the extracted stacks
+     */
+    public @NotNull List<ItemStack> applyTo(@Nullable ItemStack[] contents, @NotNull BitSet changed) {
+        final List<ItemStack> extracted = new ArrayList<>();
+        if (limit == 0) return extracted;
+        int remaining = limit;
+        switch (order) {
+            case FORWARD:
+                for (int i = 0; i < contents.length && remaining > 0; ++i) {
+                    if (filter.test(contents[i])) remaining -= take(contents, i, remaining, extracted, changed);
+                }
+                break;
+            case REVERSE:
+                for (int i = contents.length - 1; i >= 0 && remaining > 0; --i) {
+                    if (filter.test(contents[i])) remaining -= take(contents, i, remaining, extracted, changed);
+                }
+                break;
+            default:
+                // pack (amount, index) pairs into longs to sort without boxing
+                final long[] candidates = new long[contents.length];
+                int count = 0;
+                for (int i = 0; i < contents.length; ++i) {
+                    if (filter.test(contents[i])) {
+                        candidates[count++] = ((long) contents[i].getAmount() << 32) | i;
+                    }
+                }
+                Arrays.sort(candidates, 0, count);
+                final boolean smallestFirst = order == Order.SMALLEST_FIRST;
+                for (int j = 0; j < count && remaining > 0; ++j) {
+                    final int i = (int) candidates[smallestFirst ? j : count - 1 - j];
+                    remaining -= take(contents, i, remaining, extracted, changed);
+                }
+        }
+        return extracted;
+    }
+
+    private static int take(ItemStack[] contents, int index, int max, List<ItemStack> extracted, BitSet changed) {
+        final ItemStack stack = contents[index];
+        final int amount = stack.getAmount();
+        final int taken = Math.min(amount, max);
+        final ItemStack out = stack.clone();
+        out.setAmount(taken);
+        extracted.add(out);
+        if (taken == amount) {
+            contents[index] = null;
+        } else {
+            final ItemStack rest = stack.clone();
+            rest.setAmount(amount - taken);
+            contents[index] = rest;
+        }
+        changed.set(index);
+        return taken;
+    }
+
+    /**
+     * The order in which slots are visited.
+     */
+    public enum Order {
+        /** Visit slots from first to last. */
+        FORWARD,
+        /** Visit slots from last to first. */
+        REVERSE,
+        /** Empty the smallest matching stacks first. */
+        SMALLEST_FIRST,
+        /** Take from the largest matching stacks first. */
+        LARGEST_FIRST,
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.items;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A compiled, immutable item predicate.
+ * <p>
+ * A stack matches if its type is one of the accepted materials, it
+ * is similar to one of the accepted keys or it matches one of the
+ * accepted {@link MatchStrategy} keys (when any is configured), and
+ * it satisfies every enchantment and meta requirement.
+ * <p>
+ * Type tests are answered from an {@link EnumSet} before any meta
+ * is inspected; meta is fetched at most once per tested stack.
+ *
+ * @since 1.0.0
+ * @see Builder
+ */
+public final class ItemFilter implements Predicate<ItemStack> {
+    /** A filter matching every non-empty stack. */
+    public static final ItemFilter ANY = new Builder().build();
+    private final @Nullable EnumSet<Material> types;
+    private final EnumSet<Material> materials;
+    private final Map<Material, List<ItemKey>> keysByType;
+    private final Map<Material, List<StrategyKey>> strategyKeysByType;
+    private final ImmutableMap<Enchantment, Integer> enchantments;
+    private final ImmutableList<Predicate<? super ItemMeta>> metaFilters;
+
+    private ItemFilter(Builder builder) {
+        this.materials = EnumSet.noneOf(Material.class);
+        materials.addAll(builder.materials);
+        final Map<Material, List<ItemKey>> keysByType = new EnumMap<>(Material.class);
+        for (ItemKey key : builder.keys) {
+            keysByType.computeIfAbsent(key.getType(), t -> new ArrayList<>(1)).add(key);
+        }
+        this.keysByType = keysByType;
+        final Map<Material, List<StrategyKey>> strategyKeysByType = new EnumMap<>(Material.class);
+        for (StrategyKey key : builder.strategyKeys) {
+            strategyKeysByType.computeIfAbsent(key.type, t -> new ArrayList<>(1)).add(key);
+        }
+        this.strategyKeysByType = strategyKeysByType;
+        if (materials.isEmpty() && keysByType.isEmpty() && strategyKeysByType.isEmpty()) {
+            this.types = null;
+        } else {
+            final EnumSet<Material> types = EnumSet.copyOf(materials);
+            types.addAll(keysByType.keySet());
+            types.addAll(strategyKeysByType.keySet());
+            this.types = types;
+        }
+        this.enchantments = ImmutableMap.copyOf(builder.enchantments);
+        this.metaFilters = ImmutableList.copyOf(builder.metaFilters);
+    }
+
+    /**
+     * Create a filter matching any of the provided materials.
+     *
+     * @param materials materials to match
+     * @return a new filter
+     */
+    public static ItemFilter of(@NotNull Material... materials) {
+        return builder().materials(Arrays.asList(materials)).build();
+    }
+
+    /**
+     * Create a filter matching stacks similar to any of the provided stacks.
+     *
+     * @param items stacks to match
+     * @return a new filter
+     */
+    public static ItemFilter similarTo(@NotNull ItemStack... items) {
+        final Builder builder = builder();
+        for (ItemStack item : items) {
+            builder.similarTo(item);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create a new filter builder.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get the materials this filter can possibly match.
+     *
+     * @return an Optional describing the possible materials,
+     * or empty if the filter is not restricted by type
+     */
+    public Optional<Set<Material>> getTypes() {
+        return Optional.ofNullable(types).map(Collections::unmodifiableSet);
+    }
+
+    /**
+     * Whether this filter can possibly match stacks of a material.
+     *
+     * @param material a material
+     * @return false if no stack of the material can match
+     */
+    public boolean acceptsType(@NotNull Material material) {
+        return types == null || types.contains(material);
+    }
+
+    @Override
+    public boolean test(@Nullable ItemStack item) {
+        if (item == null || item.getAmount() <= 0) return false;
+        final Material type = item.getType();
+        if (type.isAir()) return false;
+        if (types != null) {
+            if (!types.contains(type)) return false;
+            if (!materials.contains(type) && !matchesKey(keysByType.get(type), item)
+                    && !matchesStrategy(strategyKeysByType.get(type), item)) return false;
+        }
+        for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+            if (item.getEnchantmentLevel(entry.getKey()) < entry.getValue()) return false;
+        }
+        if (metaFilters.isEmpty()) return true;
+        final ItemMeta meta = item.getItemMeta();
+        if (meta == null) return false;
+        for (Predicate<? super ItemMeta> metaFilter : metaFilters) {
+            if (!metaFilter.test(meta)) return false;
+        }
+        return true;
+    }
+
+    private static boolean matchesKey(@Nullable List<ItemKey> keys, ItemStack item) {
+        if (keys == null) return false;
+        for (ItemKey key : keys) {
+            if (key.matches(item)) return true;
+        }
+        return false;
+    }
+
+    private static boolean matchesStrategy(@Nullable List<StrategyKey> keys, ItemStack item) {
+        if (keys == null) return false;
+        for (StrategyKey key : keys) {
+            if (key.key.equals(key.strategy.keyOf(item))) return true;
+        }
+        return false;
+    }
+
+    private static final class StrategyKey {
+        final MatchStrategy<?> strategy;
+        final Object key;
+        final Material type;
+
+        StrategyKey(MatchStrategy<?> strategy, Object key, Material type) {
+            this.strategy = strategy;
+            this.key = key;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Builds {@link ItemFilter ItemFilters}.
+     */
+    public static final class Builder {
+        private final Set<Material> materials = new HashSet<>();
+        private final Set<ItemKey> keys = new LinkedHashSet<>();
+        private final List<StrategyKey> strategyKeys = new ArrayList<>();
+        private final Map<Enchantment, Integer> enchantments = new HashMap<>();
+        private final List<Predicate<? super ItemMeta>> metaFilters = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Accept stacks of any of the provided materials.
+         *
+         * @param materials materials to accept
+         * @return this builder
+         */
+        public Builder materials(@NotNull Collection<Material> materials) {
+            this.materials.addAll(materials);
+            return this;
+        }
+
+        /**
+         * Accept stacks similar to the provided stack.
+         *
+         * @param item a stack to accept
+         * @return this builder
+         * @throws IllegalArgumentException if item is empty
+         */
+        public Builder similarTo(@NotNull ItemStack item) throws IllegalArgumentException {
+            final ItemKey key = ItemKey.of(item);
+            if (key == null) throw new IllegalArgumentException("Item cannot be empty!");
+            return similarTo(key);
+        }
+
+        /**
+         * Accept stacks belonging to the provided key.
+         *
+         * @param key a key to accept
+         * @return this builder
+         */
+        public Builder similarTo(@NotNull ItemKey key) {
+            keys.add(key);
+            return this;
+        }
+
+        /**
+         * Accept stacks matching the provided stack under a strategy.
+         *
+         * @param strategy a match strategy
+         * @param item a reference stack
+         * @return this builder
+         * @throws IllegalArgumentException if item is empty
+         */
+        public Builder matching(@NotNull MatchStrategy<?> strategy, @NotNull ItemStack item) throws IllegalArgumentException {
+            final Object key = strategy.keyOf(item);
+            if (key == null) throw new IllegalArgumentException("Item cannot be empty!");
+            strategyKeys.add(new StrategyKey(strategy, key, item.getType()));
+            return this;
+        }
+
+        /**
+         * Require an enchantment of at least the given level.
+         *
+         * @param enchantment an enchantment
+         * @param minimumLevel the minimum level
+         * @return this builder
+         */
+        public Builder enchantment(@NotNull Enchantment enchantment, int minimumLevel) {
+            enchantments.merge(enchantment, minimumLevel, Math::max);
+            return this;
+        }
+
+        /**
+         * Require stack meta to pass a predicate.
+         *
+         * @param metaFilter a meta predicate
+         * @return this builder
+         */
+        public Builder meta(@NotNull Predicate<? super ItemMeta> metaFilter) {
+            metaFilters.add(metaFilter);
+            return this;
+        }
+
+        /**
+         * Compile the filter.
+         *
+         * @return a new ItemFilter
+         */
+        public ItemFilter build() {
+            return new ItemFilter(this);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.items;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An immutable key identifying all stacks similar to one another.
+ * <p>
+ * Two keys are equal if and only if stacks they were created from
+ * are similar according to {@link ItemStack#isSimilar(ItemStack)};
+ * amount is never part of the key.
+ * <p>
+ * Keys for stacks without meta are shared per {@link Material}.
+ *
+ * @since 1.0.0
+ */
+public final class ItemKey {
+    private static final AtomicReferenceArray<ItemKey> PLAIN = new AtomicReferenceArray<>(Material.values().length);
+    private final Material type;
+    private final @Nullable ItemStack prototype;
+    private final int hash;
+
+    private ItemKey(Material type, @Nullable ItemStack prototype) {
+        this.type = type;
+        this.prototype = prototype;
+        this.hash = (prototype == null) ? type.hashCode() : prototype.hashCode();
+    }
+
+    /**
+     * Get the key of a stack.
+     *
+     * @param item an ItemStack
+     * @return the key of the stack or null if it is empty
+     */
+    public static @Nullable ItemKey of(@Nullable ItemStack item) {
+        if (isEmpty(item)) return null;
+        if (!item.hasItemMeta()) return of(item.getType());
+        final ItemStack prototype = item.clone();
+        prototype.setAmount(1);
+        return new ItemKey(item.getType(), prototype);
+    }
+
+    /**
+     * Whether a stack denotes an empty slot.
+     *
+     * @param item an ItemStack
+     * @return true if the stack is null, air or has no items
+     */
+    public static boolean isEmpty(@Nullable ItemStack item) {
+        return item == null || item.getType().isAir() || item.getAmount() <= 0;
+    }
+
+    /**
+     * Get the key of a material's plain stacks (those without meta).
+     *
+     * @param material a material
+     * @return the shared key for plain stacks of the material
+     */
+    public static @NotNull ItemKey of(@NotNull Material material) {
+        final int ordinal = material.ordinal();
+        final ItemKey existing = PLAIN.get(ordinal);
+        if (existing != null) return existing;
+        final ItemKey created = new ItemKey(material, null);
+        return PLAIN.compareAndSet(ordinal, null, created) ? created : PLAIN.get(ordinal);
+    }
+
+    /**
+     * Get the material of this key.
+     *
+     * @return the material
+     */
+    public @NotNull Material getType() {
+        return type;
+    }
+
+    /**
+     * Whether stacks of this key carry meta.
+     *
+     * @return true if stacks of this key have meta
+     */
+    public boolean hasMeta() {
+        return prototype != null;
+    }
+
+    /**
+     * Get the maximum stack size of this key.
+     *
+     * @return the maximum stack size
+     */
+    public int getMaxStackSize() {
+        return (prototype == null) ? type.getMaxStackSize() : prototype.getMaxStackSize();
+    }
+
+    /**
+     * Whether a stack belongs to this key.
+     *
+     * @param item an ItemStack
+     * @return true if the stack is similar to this key
+     */
+    public boolean matches(@Nullable ItemStack item) {
+        if (item == null || item.getType() != type || item.getAmount() <= 0) return false;
+        return (prototype == null) ? !item.hasItemMeta() : prototype.isSimilar(item);
+    }
+
+    /**
+     * Create a new stack of this key.
+     *
+     * @param amount the amount of the stack
+     * @return a new ItemStack
+     */
+    public @NotNull ItemStack toItemStack(int amount) {
+        final ItemStack stack = (prototype == null) ? new ItemStack(type) : prototype.clone();
+        stack.setAmount(amount);
+        return stack;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final ItemKey that = (ItemKey) o;
+        if (type != that.type || hash != that.hash) return false;
+        if (prototype == null) return that.prototype == null;
+        return that.prototype != null && prototype.isSimilar(that.prototype);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return (prototype == null) ? "ItemKey{" + type + '}' : "ItemKey{" + prototype + '}';
+    }
+}
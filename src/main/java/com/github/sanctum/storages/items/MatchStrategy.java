@@ -0,0 +1,229 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.items;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A notion of item sameness, compiled to a key-extraction function.
+ * <p>
+ * Two stacks match under a strategy when their keys are equal, so
+ * stacks can be bucketed by key instead of being compared pairwise.
+ * Keys must be consistent with {@link ItemStack#isSimilar(ItemStack)}
+ * (similar stacks have equal keys) and must distinguish materials
+ * (stacks with equal keys have the same type); this lets keys be
+ * memoized per {@link ItemKey} and lets filters prune by type.
+ *
+ * @since 1.0.0
+ * @param <K> key type
+ * @see ItemFilter.Builder#matching(MatchStrategy, ItemStack)
+ */
+public abstract class MatchStrategy<K> {
+    private static final int MAX_MEMOIZED = 4096;
+    /**
+     * Match similar stacks, as {@link ItemStack#isSimilar(ItemStack)}.
+     */
+    public static final MatchStrategy<ItemKey> SIMILAR = new MatchStrategy<ItemKey>() {
+        @Override
+        protected @NotNull ItemKey extract(@NotNull ItemStack item) {
+            return ItemKey.of(item);
+        }
+    };
+    /**
+     * Match stacks of the same material.
+     */
+    public static final MatchStrategy<Material> TYPE = new MatchStrategy<Material>() {
+        @Override
+        protected @NotNull Material extract(@NotNull ItemStack item) {
+            return item.getType();
+        }
+    };
+    /**
+     * Match similar stacks regardless of damage.
+     */
+    public static final MatchStrategy<ItemKey> IGNORE_DURABILITY = normalizing(meta -> {
+        if (!(meta instanceof Damageable) || !((Damageable) meta).hasDamage()) return false;
+        ((Damageable) meta).setDamage(0);
+        return true;
+    });
+    /**
+     * Match similar stacks regardless of display name.
+     */
+    public static final MatchStrategy<ItemKey> IGNORE_NAME = normalizing(meta -> {
+        if (!meta.hasDisplayName()) return false;
+        meta.setDisplayName(null);
+        return true;
+    });
+    /**
+     * Match stacks of the same material and custom model data,
+     * including stacks without custom model data.
+     */
+    public static final MatchStrategy<Map.Entry<Material, Integer>> CUSTOM_MODEL_DATA = new MatchStrategy<Map.Entry<Material, Integer>>() {
+        @Override
+        protected @NotNull Map.Entry<Material, Integer> extract(@NotNull ItemStack item) {
+            final ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+            final Integer data = (meta != null && meta.hasCustomModelData()) ? meta.getCustomModelData() : null;
+            return new SimpleImmutableEntry<>(item.getType(), data);
+        }
+    };
+    private final Map<ItemKey, K> memoized = new ConcurrentHashMap<>();
+
+    /**
+     * Extract the key of a non-empty stack.
+     *
+     * @param item a non-empty stack
+     * @return its key
+     */
+    protected abstract @NotNull K extract(@NotNull ItemStack item);
+
+    /**
+     * Get the key of a stack.
+     *
+     * @param item a stack
+     * @return its key or null if the stack is empty
+     */
+    public final @Nullable K keyOf(@Nullable ItemStack item) {
+        if (ItemKey.isEmpty(item)) return null;
+        // plain keys are shared, so plain stacks hit the memo without allocating
+        return item.hasItemMeta() ? extract(item) : keyOf(ItemKey.of(item));
+    }
+
+    /**
+     * Get the key of the stacks of an item key.
+     * <p>
+     * Keys are memoized per item key.
+     *
+     * @param key an item key
+     * @return the key of its stacks or null if key is null
+     */
+    public final @Nullable K keyOf(@Nullable ItemKey key) {
+        if (key == null) return null;
+        final K cached = memoized.get(key);
+        if (cached != null) return cached;
+        final K extracted = extract(key.toItemStack(1));
+        if (memoized.size() >= MAX_MEMOIZED) memoized.clear();
+        memoized.put(key, extracted);
+        return extracted;
+    }
+
+    /**
+     * Whether two stacks match under this strategy.
+     *
+     * @param a a stack
+     * @param b another stack
+     * @return true if both are non-empty and their keys are equal
+     */
+    public final boolean matches(@Nullable ItemStack a, @Nullable ItemStack b) {
+        final K key = keyOf(a);
+        return key != null && key.equals(keyOf(b));
+    }
+
+    /**
+     * Get a predicate matching stacks against a reference stack.
+     * <p>
+     * The reference key is extracted once.
+     *
+     * @param reference a non-empty reference stack
+     * @return a predicate
+     * @throws IllegalArgumentException if reference is empty
+     */
+    public final @NotNull Predicate<ItemStack> matching(@NotNull ItemStack reference) throws IllegalArgumentException {
+        final K key = keyOf(reference);
+        if (key == null) throw new IllegalArgumentException("Reference cannot be empty!");
+        return item -> key.equals(keyOf(item));
+    }
+
+    /**
+     * Match stacks of the same material and value of a persistent
+     * data tag, including stacks without the tag.
+     * <p>
+     * The complex type of the tag must implement equality; primitive
+     * arrays are compared by content.
+     *
+     * @param key the tag key
+     * @param type the tag type
+     * @return a new strategy
+     */
+    public static @NotNull MatchStrategy<Map.Entry<Material, Object>> tag(@NotNull NamespacedKey key, @NotNull PersistentDataType<?, ?> type) {
+        return new MatchStrategy<Map.Entry<Material, Object>>() {
+            @Override
+            protected @NotNull Map.Entry<Material, Object> extract(@NotNull ItemStack item) {
+                final ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+                final Object value = (meta != null) ? meta.getPersistentDataContainer().get(key, type) : null;
+                return new SimpleImmutableEntry<>(item.getType(), comparable(value));
+            }
+        };
+    }
+
+    /**
+     * Create a strategy from a key function.
+     * <p>
+     * The function receives non-empty stacks only and must meet the
+     * requirements of this class.
+     *
+     * @param keyFunction a key function
+     * @param <K> key type
+     * @return a new strategy
+     */
+    public static <K> @NotNull MatchStrategy<K> of(@NotNull Function<? super ItemStack, ? extends K> keyFunction) {
+        return new MatchStrategy<K>() {
+            @Override
+            protected @NotNull K extract(@NotNull ItemStack item) {
+                return keyFunction.apply(item);
+            }
+        };
+    }
+
+    private static Object comparable(Object value) {
+        if (value instanceof byte[]) return ByteBuffer.wrap(((byte[]) value).clone());
+        if (value instanceof int[]) return IntBuffer.wrap(((int[]) value).clone());
+        if (value instanceof long[]) return LongBuffer.wrap(((long[]) value).clone());
+        return value;
+    }
+
+    private static MatchStrategy<ItemKey> normalizing(Predicate<ItemMeta> normalizer) {
+        return new MatchStrategy<ItemKey>() {
+            @Override
+            protected @NotNull ItemKey extract(@NotNull ItemStack item) {
+                if (!item.hasItemMeta()) return ItemKey.of(item);
+                final ItemMeta meta = item.getItemMeta();
+                if (!normalizer.test(meta)) return ItemKey.of(item);
+                final ItemStack normalized = item.clone();
+                normalized.setItemMeta(meta);
+                return ItemKey.of(normalized);
+            }
+        };
+    }
+}
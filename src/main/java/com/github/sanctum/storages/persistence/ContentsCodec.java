@@ -0,0 +1,517 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.persistence;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact binary codec for storage contents and item counts.
+ * <p>
+ * Materials are written by name once per stream and referenced by
+ * varint afterwards; item metas are deduplicated the same way, so
+ * each distinct meta is serialized only once. Amounts and slot gaps
+ * are varints and empty slots cost nothing beyond the gap.
+ * <p>
+ * Records are buffered into frames of about {@value #FRAME_SIZE}
+ * bytes, each optionally deflated, and streamed over NIO channels.
+ * Dictionaries span the whole stream, so a {@link Writer} should be
+ * used for many records at once.
+ *
+ * @since 1.0.0
+ */
+public final class ContentsCodec {
+    /**
+     * The approximate size of a frame before compression.
+     */
+    public static final int FRAME_SIZE = 1 << 16;
+    private static final int MAGIC = 0x53434331;
+    private static final int MAX_FRAME_SIZE = 1 << 26;
+    private static final byte STORED = 0;
+    private static final byte DEFLATED = 1;
+    private static final byte CONTENTS = 1;
+    private static final byte COUNTS = 2;
+
+    private ContentsCodec() {}
+
+    /**
+     * Encode a single array of contents.
+     *
+     * @param contents storage contents
+     * @param compress whether to deflate the result
+     * @return the encoded bytes
+     * @throws ProviderException if an item meta cannot be serialized
+     */
+    public static byte @NotNull [] encode(@Nullable ItemStack @NotNull [] contents, boolean compress) throws ProviderException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new Writer(Channels.newChannel(bytes), compress)) {
+            writer.writeContents(contents);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a single array of contents.
+     *
+     * @param bytes bytes produced by {@link #encode(ItemStack[], boolean)}
+     * @return the contents
+     * @throws ProviderException if the bytes are malformed
+     */
+    public static @Nullable ItemStack @NotNull [] decode(byte @NotNull [] bytes) throws ProviderException {
+        try (Reader reader = new Reader(Channels.newChannel(new ByteArrayInputStream(bytes)))) {
+            return reader.readContents();
+        }
+    }
+
+    /**
+     * Whether bytes start like a stream of this codec.
+     *
+     * @param bytes some bytes
+     * @return true if the bytes carry the codec header
+     */
+    public static boolean isEncoded(byte @NotNull [] bytes) {
+        return bytes.length >= 4 && ByteBuffer.wrap(bytes).getInt(0) == MAGIC;
+    }
+
+    /**
+     * Writes records to a channel.
+     * <p>
+     * Closing the writer flushes the last frame and closes the
+     * channel. <b>Not thread-safe.</b>
+     *
+     * @since 1.0.0
+     */
+    public static final class Writer implements AutoCloseable {
+        private final WritableByteChannel channel;
+        private final @Nullable Deflater deflater;
+        private final Map<Material, Integer> materials = new HashMap<>();
+        private final Map<ItemMeta, Integer> metas = new HashMap<>();
+        private ByteBuffer buffer = ByteBuffer.allocate(FRAME_SIZE + (FRAME_SIZE >> 2));
+        private byte[] compressed = new byte[0];
+        private boolean closed;
+
+        /**
+         * Start a stream on a channel.
+         *
+         * @param channel the target channel
+         * @param compress whether to deflate frames
+         * @throws ProviderException if the header cannot be written
+         */
+        public Writer(@NotNull WritableByteChannel channel, boolean compress) throws ProviderException {
+            this.channel = channel;
+            this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            final ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC);
+            header.flip();
+            write(header);
+        }
+
+        /**
+         * Write an array of contents.
+         *
+         * @param contents storage contents
+         * @throws ProviderException if an item meta cannot be serialized
+         * or the channel encounters an error
+         */
+        public void writeContents(@Nullable ItemStack @NotNull [] contents) throws ProviderException {
+            int present = 0;
+            for (ItemStack item : contents) {
+                if (!ItemKey.isEmpty(item)) ++present;
+            }
+            ensure(11);
+            buffer.put(CONTENTS);
+            putVarLong(contents.length);
+            putVarLong(present);
+            int previous = -1;
+            for (int i = 0; i < contents.length; ++i) {
+                final ItemStack item = contents[i];
+                if (ItemKey.isEmpty(item)) continue;
+                ensure(5);
+                putVarLong(i - previous - 1);
+                putItem(item);
+                ensure(5);
+                putVarLong(item.getAmount());
+                previous = i;
+            }
+            endRecord();
+        }
+
+        /**
+         * Write a map of item counts.
+         *
+         * @param counts the amount per key
+         * @throws ProviderException if an item meta cannot be serialized
+         * or the channel encounters an error
+         */
+        public void writeCounts(@NotNull Map<ItemKey, Long> counts) throws ProviderException {
+            ensure(6);
+            buffer.put(COUNTS);
+            putVarLong(counts.size());
+            for (Map.Entry<ItemKey, Long> entry : counts.entrySet()) {
+                putItem(entry.getKey().toItemStack(1));
+                ensure(10);
+                putVarLong(entry.getValue());
+            }
+            endRecord();
+        }
+
+        private void putItem(ItemStack item) throws ProviderException {
+            final Material type = item.getType();
+            final Integer material = materials.get(type);
+            if (material == null) {
+                materials.put(type, materials.size());
+                putBytes(0, type.name().getBytes(StandardCharsets.UTF_8));
+            } else {
+                ensure(5);
+                putVarLong(material + 1);
+            }
+            if (!item.hasItemMeta()) {
+                ensure(1);
+                buffer.put((byte) 0);
+                return;
+            }
+            final ItemMeta meta = item.getItemMeta();
+            final Integer known = metas.get(meta);
+            if (known != null) {
+                ensure(5);
+                putVarLong(known + 2);
+                return;
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+                out.writeObject(meta);
+            } catch (IOException e) {
+                throw new ProviderException("Unable to serialize meta of " + type, e);
+            }
+            metas.put(meta, metas.size());
+            putBytes(1, bytes.toByteArray());
+        }
+
+        private void putBytes(int tag, byte[] bytes) {
+            ensure(10 + bytes.length);
+            putVarLong(tag);
+            putVarLong(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putVarLong(long value) {
+            while ((value & ~0x7fL) != 0) {
+                buffer.put((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() >= bytes) return;
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + bytes));
+            buffer.flip();
+            buffer = grown.put(buffer);
+        }
+
+        private void endRecord() throws ProviderException {
+            if (buffer.position() >= FRAME_SIZE) flush();
+        }
+
+        /**
+         * Write all buffered records as a frame.
+         *
+         * @throws ProviderException if the channel encounters an error
+         */
+        public void flush() throws ProviderException {
+            final int length = buffer.position();
+            if (length == 0) return;
+            byte kind = STORED;
+            byte[] payload = buffer.array();
+            int stored = length;
+            if (deflater != null) {
+                if (compressed.length < length) compressed = new byte[length];
+                deflater.reset();
+                deflater.setInput(payload, 0, length);
+                deflater.finish();
+                final int size = deflater.deflate(compressed);
+                // keep incompressible frames as they are
+                if (deflater.finished() && size < length) {
+                    kind = DEFLATED;
+                    payload = compressed;
+                    stored = size;
+                }
+            }
+            final ByteBuffer header = ByteBuffer.allocate(9).put(kind).putInt(length).putInt(stored);
+            header.flip();
+            write(header);
+            write(ByteBuffer.wrap(payload, 0, stored));
+            buffer.clear();
+        }
+
+        private void write(ByteBuffer bytes) throws ProviderException {
+            try {
+                while (bytes.hasRemaining()) channel.write(bytes);
+            } catch (IOException e) {
+                throw new ProviderException("Unable to write contents", e);
+            }
+        }
+
+        @Override
+        public void close() throws ProviderException {
+            if (closed) return;
+            closed = true;
+            try {
+                flush();
+            } finally {
+                if (deflater != null) deflater.end();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new ProviderException("Unable to close contents stream", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads records from a channel, in the order they were written.
+     * <p>
+     * Closing the reader closes the channel. <b>Not thread-safe.</b>
+     *
+     * @since 1.0.0
+     */
+    public static final class Reader implements AutoCloseable {
+        private final ReadableByteChannel channel;
+        private final Inflater inflater = new Inflater();
+        private final List<Material> materials = new ArrayList<>();
+        private final List<ItemMeta> metas = new ArrayList<>();
+        private final ByteBuffer header = ByteBuffer.allocate(9);
+        private ByteBuffer frame = ByteBuffer.allocate(0);
+        private byte[] compressed = new byte[0];
+
+        /**
+         * Start reading a stream from a channel.
+         *
+         * @param channel the source channel
+         * @throws ProviderException if the stream header is missing
+         */
+        public Reader(@NotNull ReadableByteChannel channel) throws ProviderException {
+            this.channel = channel;
+            final ByteBuffer magic = ByteBuffer.allocate(4);
+            if (!read(magic) || magic.getInt(0) != MAGIC) throw new ProviderException("Not an encoded contents stream");
+        }
+
+        /**
+         * Whether another record follows.
+         *
+         * @return true if a record follows
+         * @throws ProviderException if the stream is malformed
+         */
+        public boolean hasNext() throws ProviderException {
+            while (!frame.hasRemaining()) {
+                if (!nextFrame()) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Read the next record as an array of contents.
+         *
+         * @return the contents
+         * @throws ProviderException if the stream has ended, the next
+         * record is not an array of contents or the stream is malformed
+         */
+        public @Nullable ItemStack @NotNull [] readContents() throws ProviderException {
+            begin(CONTENTS);
+            try {
+                final int size = getLength();
+                if (size > MAX_FRAME_SIZE) throw new ProviderException("Contents size out of range: " + size);
+                final ItemStack[] contents = new ItemStack[size];
+                int slot = -1;
+                for (int present = getLength(); present > 0; --present) {
+                    slot += getLength() + 1;
+                    if (slot >= contents.length) throw new ProviderException("Slot " + slot + " out of bounds");
+                    final ItemStack item = getItem();
+                    item.setAmount(getLength());
+                    contents[slot] = item;
+                }
+                return contents;
+            } catch (RuntimeException e) {
+                throw new ProviderException("Malformed contents record", e);
+            }
+        }
+
+        /**
+         * Read the next record as a map of item counts.
+         *
+         * @return the amount per key
+         * @throws ProviderException if the stream has ended, the next
+         * record is not a map of counts or the stream is malformed
+         */
+        public @NotNull Map<ItemKey, Long> readCounts() throws ProviderException {
+            begin(COUNTS);
+            try {
+                final int size = getLength();
+                final Map<ItemKey, Long> counts = new LinkedHashMap<>();
+                for (int i = 0; i < size; ++i) {
+                    final ItemKey key = ItemKey.of(getItem());
+                    if (key == null) throw new ProviderException("Empty key in counts record");
+                    counts.put(key, getVarLong());
+                }
+                return counts;
+            } catch (RuntimeException e) {
+                throw new ProviderException("Malformed counts record", e);
+            }
+        }
+
+        private void begin(byte type) throws ProviderException {
+            if (!hasNext()) throw new ProviderException("End of contents stream");
+            if (frame.get() != type) throw new ProviderException("Unexpected record type");
+        }
+
+        private ItemStack getItem() throws ProviderException {
+            final int material = getLength();
+            final Material type;
+            if (material == 0) {
+                final String name = new String(getBytes(), StandardCharsets.UTF_8);
+                type = Material.getMaterial(name);
+                if (type == null) throw new ProviderException("Unknown material " + name);
+                materials.add(type);
+            } else {
+                type = materials.get(material - 1);
+            }
+            final ItemStack item = new ItemStack(type);
+            final int meta = getLength();
+            if (meta == 0) return item;
+            if (meta > 1) {
+                item.setItemMeta(metas.get(meta - 2));
+                return item;
+            }
+            final ItemMeta decoded;
+            try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(getBytes()))) {
+                decoded = (ItemMeta) in.readObject();
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                throw new ProviderException("Unable to deserialize meta of " + type, e);
+            }
+            metas.add(decoded);
+            item.setItemMeta(decoded);
+            return item;
+        }
+
+        private byte[] getBytes() {
+            final byte[] bytes = new byte[getLength()];
+            frame.get(bytes);
+            return bytes;
+        }
+
+        private int getLength() {
+            final long value = getVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) throw new IllegalStateException("Length out of range: " + value);
+            return (int) value;
+        }
+
+        private long getVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte b = frame.get();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IllegalStateException("Varint too long");
+        }
+
+        private boolean nextFrame() throws ProviderException {
+            header.clear();
+            if (!read(header)) return false;
+            final byte kind = header.get(0);
+            final int length = header.getInt(1);
+            final int stored = header.getInt(5);
+            if (length < 0 || length > MAX_FRAME_SIZE || stored < 0 || stored > MAX_FRAME_SIZE) {
+                throw new ProviderException("Corrupt frame header");
+            }
+            if (frame.capacity() < length) frame = ByteBuffer.allocate(length);
+            frame.clear();
+            if (kind == STORED && stored == length) {
+                frame.limit(length);
+                if (!read(frame)) throw new ProviderException("Truncated frame");
+            } else if (kind == DEFLATED) {
+                if (compressed.length < stored) compressed = new byte[stored];
+                if (!read(ByteBuffer.wrap(compressed, 0, stored))) throw new ProviderException("Truncated frame");
+                inflater.reset();
+                inflater.setInput(compressed, 0, stored);
+                try {
+                    if (inflater.inflate(frame.array(), 0, length) != length || !inflater.finished()) {
+                        throw new ProviderException("Frame size mismatch");
+                    }
+                } catch (DataFormatException e) {
+                    throw new ProviderException("Corrupt frame", e);
+                }
+            } else {
+                throw new ProviderException("Unknown frame kind " + kind);
+            }
+            frame.position(0).limit(length);
+            return true;
+        }
+
+        // false on a clean end of stream, otherwise fills the buffer
+        private boolean read(ByteBuffer bytes) throws ProviderException {
+            final boolean empty = bytes.position() == 0;
+            try {
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes) < 0) {
+                        if (empty && bytes.position() == 0) return false;
+                        throw new ProviderException("Truncated contents stream");
+                    }
+                }
+            } catch (IOException e) {
+                throw new ProviderException("Unable to read contents", e);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws ProviderException {
+            inflater.end();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ProviderException("Unable to close contents stream", e);
+            }
+        }
+    }
+}
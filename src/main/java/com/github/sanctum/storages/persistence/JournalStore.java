@@ -0,0 +1,497 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.persistence;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A pure-Java, log-structured {@link StorageStore} in a single file.
+ * <p>
+ * Every write appends a checksummed record; the file offset of each
+ * live value is kept in memory and values are read back on demand
+ * through a cache bounded by total value size. Writes are buffered
+ * and appended in one batch, closed by a commit record and followed
+ * by a single sync, on each {@link #flush()}. The file is written and
+ * synced without holding the lock used by reads and writes, so a
+ * flush running on another thread does not block them.
+ * <p>
+ * Opening the file replays the journal. A torn or corrupt tail left
+ * by a crash is truncated back to the last commit record, so each
+ * batch is applied entirely or not at all. Superseded records are
+ * reclaimed by {@link #compact()}, which flushes run automatically
+ * once more than half the file is garbage.
+ * <p>
+ * Thread-safe.
+ *
+ * @since 1.0.0
+ */
+public final class JournalStore implements StorageStore {
+    private static final int MAGIC = 0x53544a32;
+    /** Journals written before commit records; every record stands alone. */
+    private static final int MAGIC_UNCOMMITTED = 0x53544a31;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte COMMIT = 3;
+    private static final byte[] COMMIT_PAYLOAD = {COMMIT, 0, 0};
+    private static final long AUTO_COMPACT_MIN_SIZE = 1L << 20;
+    private final Path file;
+    private final long maxCacheBytes;
+    private final Map<String, Entry> index = new HashMap<>();
+    private final Object flushLock = new Object();
+    private final Map<String, byte[]> pending = new LinkedHashMap<>();
+    private Map<String, byte[]> writing = Collections.emptyMap();
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private FileChannel channel;
+    private long end;
+    private long garbage;
+    private long cachedBytes;
+    private long truncated;
+
+    private static final class Entry {
+        final long valueOffset;
+        final int valueLength;
+        final int recordSize;
+
+        Entry(long valueOffset, int valueLength, int recordSize) {
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.recordSize = recordSize;
+        }
+    }
+
+    /**
+     * Open or create a journal file.
+     *
+     * @param file the journal file
+     * @param maxCacheBytes the maximum total size of cached values
+     * @throws ProviderException if the file cannot be opened or
+     * is not a journal
+     */
+    public JournalStore(@NotNull Path file, long maxCacheBytes) throws ProviderException {
+        this.file = file;
+        this.maxCacheBytes = maxCacheBytes;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay();
+        } catch (IOException e) {
+            throw new ProviderException("Unable to open journal " + file, e);
+        }
+    }
+
+    private void replay() throws IOException, ProviderException {
+        final long size = channel.size();
+        if (size < HEADER_SIZE) {
+            channel.truncate(0);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+            header.flip();
+            writeFully(header, 0);
+            channel.force(true);
+            end = HEADER_SIZE;
+            return;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        final int magic = header.getInt(0);
+        if (magic != MAGIC && magic != MAGIC_UNCOMMITTED) throw new ProviderException(file + " is not a storage journal");
+        final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        final CRC32 crc = new CRC32();
+        final List<byte[]> batch = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        long position = HEADER_SIZE;
+        long committed = position;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            recordHeader.clear();
+            readFully(recordHeader, position);
+            final int length = recordHeader.getInt(0);
+            if (length < 3 || position + RECORD_HEADER_SIZE + length > size) break;
+            final ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != recordHeader.getInt(4)) break;
+            if (payload.get(0) == COMMIT) {
+                for (int i = 0; i < batch.size(); ++i) apply(batch.get(i), positions.get(i));
+                batch.clear();
+                positions.clear();
+                garbage += RECORD_HEADER_SIZE + length;
+                committed = position + RECORD_HEADER_SIZE + length;
+            } else if (magic == MAGIC_UNCOMMITTED) {
+                apply(payload.array(), position);
+                committed = position + RECORD_HEADER_SIZE + length;
+            } else {
+                batch.add(payload.array());
+                positions.add(position);
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        end = committed;
+        if (committed < size) {
+            truncated = size - committed;
+            channel.truncate(committed);
+            channel.force(true);
+        }
+    }
+
+    private void apply(byte[] payload, long position) throws IOException {
+        final int keyLength = ((payload[1] & 0xff) << 8) | (payload[2] & 0xff);
+        if (3 + keyLength > payload.length) throw new IOException("Malformed record at " + position);
+        final String key = new String(payload, 3, keyLength, StandardCharsets.UTF_8);
+        final int recordSize = RECORD_HEADER_SIZE + payload.length;
+        final Entry previous;
+        if (payload[0] == PUT) {
+            final int valueStart = 3 + keyLength;
+            previous = index.put(key, new Entry(position + RECORD_HEADER_SIZE + valueStart, payload.length - valueStart, recordSize));
+        } else {
+            previous = index.remove(key);
+            garbage += recordSize;
+        }
+        if (previous != null) garbage += previous.recordSize;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of " + file);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Get the number of bytes dropped from a torn or corrupt tail when
+     * the journal was opened.
+     *
+     * @return the number of truncated bytes
+     */
+    public synchronized long getTruncatedBytes() {
+        return truncated;
+    }
+
+    /**
+     * Get the current size of the journal file.
+     *
+     * @return the size in bytes, excluding buffered writes
+     */
+    public synchronized long getFileSize() {
+        return end;
+    }
+
+    /**
+     * Get the number of bytes held by superseded records.
+     *
+     * @return the reclaimable size in bytes
+     */
+    public synchronized long getGarbageSize() {
+        return garbage;
+    }
+
+    @Override
+    public synchronized byte @Nullable [] get(@NotNull String key) throws ProviderException {
+        if (pending.containsKey(key)) return pending.get(key);
+        if (writing.containsKey(key)) return writing.get(key);
+        final byte[] cached = cache.get(key);
+        if (cached != null) return cached;
+        final Entry entry = index.get(key);
+        if (entry == null) return null;
+        final ByteBuffer value = ByteBuffer.allocate(entry.valueLength);
+        try {
+            readFully(value, entry.valueOffset);
+        } catch (IOException e) {
+            throw new ProviderException("Unable to read " + key + " from " + file, e);
+        }
+        cache(key, value.array());
+        return value.array();
+    }
+
+    private void cache(String key, byte[] value) {
+        if (value.length > maxCacheBytes) {
+            uncache(key);
+            return;
+        }
+        final byte[] previous = cache.put(key, value);
+        cachedBytes += value.length - ((previous == null) ? 0 : previous.length);
+        final Iterator<byte[]> eldest = cache.values().iterator();
+        while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    private void uncache(String key) {
+        final byte[] previous = cache.remove(key);
+        if (previous != null) cachedBytes -= previous.length;
+    }
+
+    @Override
+    public synchronized void put(@NotNull String key, byte @NotNull [] value) {
+        checkKey(key);
+        pending.put(key, value);
+    }
+
+    @Override
+    public synchronized void remove(@NotNull String key) {
+        checkKey(key);
+        pending.put(key, null);
+    }
+
+    private static void checkKey(String key) throws IllegalArgumentException {
+        if (key.getBytes(StandardCharsets.UTF_8).length > 0xffff) throw new IllegalArgumentException("Key too long");
+    }
+
+    @Override
+    public synchronized @NotNull Set<String> keys() {
+        final Set<String> keys = new LinkedHashSet<>(index.keySet());
+        overlay(keys, writing);
+        overlay(keys, pending);
+        return keys;
+    }
+
+    private static void overlay(Set<String> keys, Map<String, byte[]> writes) {
+        for (Map.Entry<String, byte[]> entry : writes.entrySet()) {
+            if (entry.getValue() == null) {
+                keys.remove(entry.getKey());
+            } else {
+                keys.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Appends all buffered writes and a commit record with one write
+     * and one sync. Reads and writes proceed while the batch is written;
+     * concurrent flushes run one at a time. If the batch cannot be
+     * written, its writes stay buffered unless overwritten since.
+     */
+    @Override
+    public void flush() throws ProviderException {
+        synchronized (flushLock) {
+            final Map<String, byte[]> batch;
+            final long start;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+                writing = batch;
+                start = end;
+            }
+            final byte[] bytes;
+            try {
+                bytes = encode(batch);
+                writeFully(ByteBuffer.wrap(bytes), start);
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+                        if (!pending.containsKey(entry.getKey())) pending.put(entry.getKey(), entry.getValue());
+                    }
+                    writing = Collections.emptyMap();
+                }
+                throw new ProviderException("Unable to append to " + file, e);
+            }
+            synchronized (this) {
+                // index only after the batch is durable
+                long position = start;
+                int offset = 0;
+                while (offset < bytes.length) {
+                    final int length = ByteBuffer.wrap(bytes, offset, 4).getInt();
+                    final byte[] recordPayload = new byte[length];
+                    System.arraycopy(bytes, offset + RECORD_HEADER_SIZE, recordPayload, 0, length);
+                    if (recordPayload[0] == COMMIT) {
+                        garbage += RECORD_HEADER_SIZE + length;
+                    } else {
+                        try {
+                            apply(recordPayload, position);
+                        } catch (IOException e) {
+                            throw new ProviderException("Unable to index " + file, e);
+                        }
+                    }
+                    position += RECORD_HEADER_SIZE + length;
+                    offset += RECORD_HEADER_SIZE + length;
+                }
+                end = position;
+                for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+                    if (entry.getValue() == null) {
+                        uncache(entry.getKey());
+                    } else {
+                        cache(entry.getKey(), entry.getValue());
+                    }
+                }
+                writing = Collections.emptyMap();
+                if (end > AUTO_COMPACT_MIN_SIZE && garbage * 2 > end) compactLocked();
+            }
+        }
+    }
+
+    private byte[] encode(Map<String, byte[]> batch) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream record = new DataOutputStream(payload);
+        final CRC32 crc = new CRC32();
+        for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+            if (entry.getValue() == null && !index.containsKey(entry.getKey())) continue;
+            payload.reset();
+            record.writeByte(entry.getValue() == null ? REMOVE : PUT);
+            record.writeShort(entry.getKey().getBytes(StandardCharsets.UTF_8).length);
+            record.write(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            if (entry.getValue() != null) record.write(entry.getValue());
+            record.flush();
+            crc.reset();
+            crc.update(payload.toByteArray());
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+        }
+        crc.reset();
+        crc.update(COMMIT_PAYLOAD);
+        out.writeInt(COMMIT_PAYLOAD.length);
+        out.writeInt((int) crc.getValue());
+        out.write(COMMIT_PAYLOAD);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rewrite the journal with only live records.
+     * <p>
+     * Buffered writes are flushed first. The rewritten file replaces
+     * the journal atomically.
+     *
+     * @throws ProviderException if the journal cannot be rewritten
+     */
+    public void compact() throws ProviderException {
+        synchronized (flushLock) {
+            flush();
+            synchronized (this) {
+                compactLocked();
+            }
+        }
+    }
+
+    /**
+     * Rewrite the journal while holding both locks.
+     */
+    private void compactLocked() throws ProviderException {
+        final Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        final Map<String, Entry> compacted = new HashMap<>();
+        long compactedEnd = HEADER_SIZE;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final CRC32 crc = new CRC32();
+            long position = HEADER_SIZE;
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+            header.flip();
+            while (header.hasRemaining()) out.write(header);
+            for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                final byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                final Entry live = entry.getValue();
+                final int length = 3 + key.length + live.valueLength;
+                final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+                record.putInt(length).putInt(0).put(PUT).putShort((short) key.length).put(key);
+                final ByteBuffer value = record.slice();
+                readFully(value, live.valueOffset);
+                crc.reset();
+                crc.update(record.array(), RECORD_HEADER_SIZE, length);
+                record.putInt(4, (int) crc.getValue());
+                record.clear();
+                while (record.hasRemaining()) out.write(record);
+                compacted.put(entry.getKey(), new Entry(position + RECORD_HEADER_SIZE + 3 + key.length, live.valueLength, RECORD_HEADER_SIZE + length));
+                position += RECORD_HEADER_SIZE + length;
+            }
+            final ByteBuffer commit = ByteBuffer.allocate(RECORD_HEADER_SIZE + COMMIT_PAYLOAD.length);
+            crc.reset();
+            crc.update(COMMIT_PAYLOAD);
+            commit.putInt(COMMIT_PAYLOAD.length).putInt((int) crc.getValue()).put(COMMIT_PAYLOAD);
+            commit.flip();
+            while (commit.hasRemaining()) out.write(commit);
+            compactedEnd = position + commit.capacity();
+            out.force(true);
+        } catch (IOException e) {
+            throw new ProviderException("Unable to compact " + file, e);
+        }
+        try {
+            channel.close();
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            index.clear();
+            index.putAll(compacted);
+            end = compactedEnd;
+            garbage = 0;
+        } catch (IOException e) {
+            throw new ProviderException("Unable to compact " + file, e);
+        } finally {
+            // reopen whichever file is in place
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new ProviderException("Unable to reopen " + file, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws ProviderException {
+        synchronized (flushLock) {
+            try {
+                flush();
+            } finally {
+                synchronized (this) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw new ProviderException("Unable to close " + file, e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.persistence;
+
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.InventoryReferenceManager;
+import com.github.sanctum.storages.inventories.MemoryInventory;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Persists the contents of {@link VirtualStorage VirtualStorages} and
+ * group metadata in a {@link StorageStore}.
+ * <p>
+ * Each storage is kept as its own record, encoded with
+ * {@link ContentsCodec}. Storages opened through
+ * this class are marked dirty by every update and only dirty storages
+ * are written back, all in one batch per {@link #flush()}. Once
+ * {@link #schedule(Plugin) scheduled}, dirty storages are handed to
+ * the store every tick and the store is synced asynchronously, so the
+ * main thread never waits on the disk.
+ * <p>
+ * Stacks obtained from a storage and modified in place do not mark it
+ * dirty; write them back through the storage.
+ * <p>
+ * <b>Not thread-safe; use from the main thread only.</b>
+ *
+ * @since 1.0.0
+ */
+public final class StoragePersistence implements Runnable, AutoCloseable {
+    private static final String STORAGE_PREFIX = "storage:";
+    private static final String GROUP_PREFIX = "group:";
+    private final StorageStore store;
+    private final Consumer<ProviderException> errorHandler;
+    private final Map<String, VirtualStorage> open = new HashMap<>();
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private volatile boolean unsynced;
+    private @Nullable Plugin plugin;
+
+    /**
+     * Create a persistence layer which silently drops failed
+     * scheduled flushes.
+     *
+     * @param store the backing store
+     */
+    public StoragePersistence(@NotNull StorageStore store) {
+        this(store, e -> {});
+    }
+
+    /**
+     * Create a persistence layer which reports failed scheduled
+     * flushes to a handler.
+     * <p>
+     * Storages which fail to save stay dirty. Failed asynchronous
+     * syncs are reported from the syncing thread.
+     *
+     * @param store the backing store
+     * @param errorHandler a handler for provider errors
+     */
+    public StoragePersistence(@NotNull StorageStore store, @NotNull Consumer<ProviderException> errorHandler) {
+        this.store = store;
+        this.errorHandler = errorHandler;
+    }
+
+    private final class TrackingManager extends InventoryReferenceManager {
+        private final String name;
+
+        TrackingManager(Inventory inventory, String name) {
+            super(inventory);
+            this.name = name;
+        }
+
+        @Override
+        public void update(Consumer<Inventory> queryFunction) throws InventoryHolderException {
+            super.update(queryFunction);
+            dirty.add(name);
+        }
+    }
+
+    /**
+     * Open a virtual storage, restoring its saved contents.
+     * <p>
+     * Opening an open storage returns the same instance.
+     *
+     * @param name the name of the storage
+     * @param size the number of slots
+     * @return the storage
+     * @throws ProviderException if the saved contents cannot be read
+     * or do not fit
+     * @throws IllegalArgumentException if the storage is open with
+     * a different size
+     */
+    public @NotNull VirtualStorage open(@NotNull String name, int size) throws ProviderException, IllegalArgumentException {
+        final VirtualStorage existing = open.get(name);
+        if (existing != null) {
+            if (existing.getSize() != size) throw new IllegalArgumentException(name + " is open with size " + existing.getSize());
+            return existing;
+        }
+        final MemoryInventory inventory = new MemoryInventory(null, size);
+        final byte[] saved = store.get(STORAGE_PREFIX + name);
+        if (saved != null) {
+            final ItemStack[] contents = decodeContents(saved);
+            for (int i = size; i < contents.length; ++i) {
+                if (contents[i] != null) throw new ProviderException("Saved contents of " + name + " do not fit in " + size + " slots");
+            }
+            inventory.setContents(Arrays.copyOf(contents, size));
+        }
+        final VirtualStorage storage = new VirtualStorage(new TrackingManager(inventory, name), name);
+        open.put(name, storage);
+        return storage;
+    }
+
+    /**
+     * Save a storage if dirty and stop tracking it.
+     *
+     * @param name the name of the storage
+     * @throws ProviderException if the storage cannot be saved
+     */
+    public void release(@NotNull String name) throws ProviderException {
+        final VirtualStorage storage = open.get(name);
+        if (storage == null) return;
+        if (dirty.remove(name)) store.put(STORAGE_PREFIX + name, encodeContents(storage.getContents()));
+        open.remove(name);
+    }
+
+    /**
+     * Delete the saved contents of a storage and stop tracking it.
+     *
+     * @param name the name of the storage
+     * @throws ProviderException if the store encounters an error
+     */
+    public void delete(@NotNull String name) throws ProviderException {
+        open.remove(name);
+        dirty.remove(name);
+        store.remove(STORAGE_PREFIX + name);
+    }
+
+    /**
+     * Get the names of all saved storages.
+     *
+     * @return the names of saved storages
+     * @throws ProviderException if the store encounters an error
+     */
+    public @NotNull Set<String> getStorageNames() throws ProviderException {
+        return withoutPrefix(STORAGE_PREFIX);
+    }
+
+    /**
+     * Save the metadata of a group as the names of its members.
+     *
+     * @param name the name of the group
+     * @param members the names of its members, in order
+     * @throws ProviderException if the store encounters an error
+     */
+    public void saveGroup(@NotNull String name, @NotNull Collection<String> members) throws ProviderException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(members.size());
+            for (String member : members) out.writeUTF(member);
+        } catch (IOException e) {
+            throw new ProviderException("Unable to encode group " + name, e);
+        }
+        store.put(GROUP_PREFIX + name, bytes.toByteArray());
+    }
+
+    /**
+     * Load the member names of a saved group.
+     *
+     * @param name the name of the group
+     * @return the names of its members or null if not saved
+     * @throws ProviderException if the store encounters an error
+     */
+    public @Nullable List<String> loadGroup(@NotNull String name) throws ProviderException {
+        final byte[] saved = store.get(GROUP_PREFIX + name);
+        if (saved == null) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(saved))) {
+            final int size = in.readInt();
+            final List<String> members = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) members.add(in.readUTF());
+            return ImmutableList.copyOf(members);
+        } catch (IOException e) {
+            throw new ProviderException("Unable to decode group " + name, e);
+        }
+    }
+
+    /**
+     * Delete the metadata of a group.
+     *
+     * @param name the name of the group
+     * @throws ProviderException if the store encounters an error
+     */
+    public void deleteGroup(@NotNull String name) throws ProviderException {
+        store.remove(GROUP_PREFIX + name);
+    }
+
+    /**
+     * Get the names of all saved groups.
+     *
+     * @return the names of saved groups
+     * @throws ProviderException if the store encounters an error
+     */
+    public @NotNull Set<String> getGroupNames() throws ProviderException {
+        return withoutPrefix(GROUP_PREFIX);
+    }
+
+    private Set<String> withoutPrefix(String prefix) throws ProviderException {
+        final Set<String> names = new LinkedHashSet<>();
+        for (String key : store.keys()) {
+            if (key.startsWith(prefix)) names.add(key.substring(prefix.length()));
+        }
+        return names;
+    }
+
+    /**
+     * Get the number of storages with unsaved changes.
+     *
+     * @return the number of dirty storages
+     */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Write every dirty storage and make all writes durable.
+     *
+     * @throws ProviderException if a storage or the store encounters
+     * an error; storages which failed to save stay dirty
+     */
+    public void flush() throws ProviderException {
+        try {
+            write();
+        } finally {
+            store.flush();
+        }
+    }
+
+    /**
+     * Hand every dirty storage to the store without syncing it.
+     *
+     * @throws ProviderException if a storage or the store encounters
+     * an error; storages which failed to save stay dirty
+     */
+    private void write() throws ProviderException {
+        ProviderException failure = null;
+        for (String name : new ArrayList<>(dirty)) {
+            final VirtualStorage storage = open.get(name);
+            // released or deleted storages are no longer saved
+            if (storage == null) {
+                dirty.remove(name);
+                continue;
+            }
+            try {
+                store.put(STORAGE_PREFIX + name, encodeContents(storage.getContents()));
+                dirty.remove(name);
+                unsynced = true;
+            } catch (ProviderException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Write dirty storages to the store and, once
+     * {@link #schedule(Plugin) scheduled}, start an asynchronous sync
+     * unless one is running; otherwise sync in place.
+     */
+    @Override
+    public void run() {
+        try {
+            write();
+        } catch (ProviderException e) {
+            errorHandler.accept(e);
+        }
+        if (!unsynced) return;
+        final Plugin plugin = this.plugin;
+        if (plugin == null) {
+            sync();
+        } else if (syncing.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    sync();
+                } finally {
+                    syncing.set(false);
+                }
+            });
+        }
+    }
+
+    private void sync() {
+        unsynced = false;
+        try {
+            store.flush();
+        } catch (ProviderException e) {
+            unsynced = true;
+            errorHandler.accept(e);
+        }
+    }
+
+    /**
+     * Schedule this persistence layer to run once every tick.
+     * <p>
+     * Syncing happens on another thread, so the store must be
+     * thread-safe, as {@link JournalStore} is.
+     *
+     * @param plugin the plugin owning the tasks
+     * @return the scheduled task
+     */
+    public BukkitTask schedule(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+        return Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+
+    /**
+     * Flush and close the backing store.
+     *
+     * @throws ProviderException if the final flush fails
+     */
+    @Override
+    public void close() throws ProviderException {
+        try {
+            flush();
+        } finally {
+            store.close();
+        }
+    }
+
+    private static byte[] encodeContents(ItemStack[] contents) throws ProviderException {
+        return ContentsCodec.encode(contents, true);
+    }
+
+    private static ItemStack[] decodeContents(byte[] bytes) throws ProviderException {
+        if (ContentsCodec.isEncoded(bytes)) return ContentsCodec.decode(bytes);
+        // records saved before the codec; rewritten in the new format once dirty
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
+            final ItemStack[] contents = new ItemStack[in.readInt()];
+            for (int i = 0; i < contents.length; ++i) contents[i] = (ItemStack) in.readObject();
+            return contents;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new ProviderException("Unable to decode contents", e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.persistence;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * A pluggable key-value backend for {@link StoragePersistence}.
+ * <p>
+ * Writes may be buffered until {@link #flush()}, but must be visible
+ * to reads immediately. Values handed to and returned from a store
+ * must not be modified afterwards.
+ *
+ * @since 1.0.0
+ * @see JournalStore
+ */
+public interface StorageStore extends AutoCloseable {
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key a key
+     * @return the value or null if absent
+     * @throws ProviderException if the backend encounters an error
+     */
+    byte @Nullable [] get(@NotNull String key) throws ProviderException;
+
+    /**
+     * Set the value of a key.
+     *
+     * @param key a key
+     * @param value the new value
+     * @throws ProviderException if the backend encounters an error
+     */
+    void put(@NotNull String key, byte @NotNull [] value) throws ProviderException;
+
+    /**
+     * Remove a key.
+     *
+     * @param key a key
+     * @throws ProviderException if the backend encounters an error
+     */
+    void remove(@NotNull String key) throws ProviderException;
+
+    /**
+     * Get all present keys.
+     *
+     * @return a snapshot of the keys
+     * @throws ProviderException if the backend encounters an error
+     */
+    @NotNull Set<String> keys() throws ProviderException;
+
+    /**
+     * Make all buffered writes durable.
+     *
+     * @throws ProviderException if the backend encounters an error
+     */
+    void flush() throws ProviderException;
+
+    /**
+     * Flush and release the backend.
+     *
+     * @throws ProviderException if the backend encounters an error
+     */
+    @Override
+    void close() throws ProviderException;
+}
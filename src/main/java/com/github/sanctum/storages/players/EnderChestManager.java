@@ -0,0 +1,67 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage.InventoryManager;
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An InventoryManager for the ender chest of a {@link Player}.
+ * <p>
+ * Resolution, validation and the validated-state cache are shared
+ * with the owning {@link PlayerManager}.
+ *
+ * @since 1.0.0
+ * @see PlayerManager#enderChest()
+ */
+public class EnderChestManager extends InventoryManager<Player> {
+    private final PlayerManager playerManager;
+
+    EnderChestManager(PlayerManager playerManager) {
+        this.playerManager = playerManager;
+    }
+
+    @Override
+    protected @NotNull Player resolve() throws InventoryHolderException {
+        return playerManager.resolvePlayer();
+    }
+
+    @Override
+    public void invalidate() {
+        playerManager.invalidate();
+    }
+
+    @Override
+    protected @NotNull Player validate(Player rawState) throws InventoryHolderException {
+        return playerManager.validate(rawState);
+    }
+
+    @Override
+    protected @NotNull Inventory getInventory(@NotNull Player state) {
+        return state.getEnderChest();
+    }
+
+    @Override
+    protected Player getRawState() {
+        return playerManager.getRawState();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A DiscreteStorage backed by the live ender chest of a Player.
+ *
+ * @since 1.0.0
+ * @see PlayerStoragePassthrough#enderChest()
+ */
+public class EnderChestStorage extends InventoryDiscreteStorage<EnderChestManager> {
+
+    /**
+     * Create an EnderChestStorage with an EnderChestManager.
+     *
+     * @param manager an EnderChestManager
+     * @throws ProviderException if the provider encounters an error
+     */
+    public EnderChestStorage(EnderChestManager manager) throws ProviderException {
+        super(manager);
+    }
+
+    @Override
+    public @NotNull String getName() throws ProviderException {
+        return manager.query(p -> p.getName() + "[ENDER_CHEST]");
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players;
+
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * Sections of a {@link PlayerInventory} by raw slot range.
+ *
+ * @since 1.0.0
+ * @see PlayerSectionStorage
+ */
+public enum PlayerInventorySection {
+    /** The nine hotbar slots (0-8). */
+    HOTBAR(0, 9),
+    /** The main inventory grid without the hotbar (9-35). */
+    MAIN(9, 36),
+    /** The hotbar and the main inventory grid (0-35). */
+    STORAGE(0, 36),
+    /** The armor slots, boots to helmet (36-39). */
+    ARMOR(36, 40),
+    /** The off-hand slot (40). */
+    OFFHAND(40, 41),
+    ;
+
+    private final int start;
+    private final int end;
+
+    PlayerInventorySection(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the first raw slot of this section.
+     *
+     * @return the first raw slot (inclusive)
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the end of the raw slot range of this section.
+     *
+     * @return the last raw slot plus one (exclusive)
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the number of slots in this section.
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return end - start;
+    }
+}
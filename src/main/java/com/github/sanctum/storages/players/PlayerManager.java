@@ -18,7 +18,7 @@
  */
 package com.github.sanctum.storages.players;
 
-import com.github.sanctum.storages.InventoryDiscreteStorage.InventoryManager;
+import com.github.sanctum.storages.InventoryDiscreteStorage.HolderManager;
 import com.github.sanctum.storages.exceptions.InventoryHolderException;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
@@ -31,8 +31,9 @@ import java.util.function.Consumer;
  * @since 1.0.0
  * @author ms5984
  */
-public class PlayerManager extends InventoryManager<Player> {
+public class PlayerManager extends HolderManager<Player> {
     private final Player player;
+    private EnderChestManager enderChest;
 
     /**
      * Create a PlayerManager for the provided Player.
@@ -43,11 +44,37 @@ public class PlayerManager extends InventoryManager<Player> {
         this.player = player;
     }
 
+    /**
+     * Get a manager for the ender chest of the player which
+     * shares this manager's resolution and validation.
+     *
+     * @return the ender chest manager
+     */
+    public EnderChestManager enderChest() {
+        if (enderChest == null) enderChest = new EnderChestManager(this);
+        return enderChest;
+    }
+
     @Override
     public void update(Consumer<Player> queryFunction) throws InventoryHolderException {
         super.update(queryFunction.andThen(Player::updateInventory));
     }
 
+    /**
+     * Resolve the player through this manager's state cache.
+     *
+     * @return the validated player
+     * @throws InventoryHolderException if the player is not valid
+     */
+    @NotNull Player resolvePlayer() throws InventoryHolderException {
+        return resolve();
+    }
+
+    @Override
+    protected boolean isStale(@NotNull Player cachedState) {
+        return !cachedState.isValid();
+    }
+
     @Override
     protected @NotNull Player validate(Player rawState) throws InventoryHolderException {
         final Player p = super.validate(rawState);
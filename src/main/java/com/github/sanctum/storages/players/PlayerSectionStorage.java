@@ -0,0 +1,315 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players;
+
+import com.github.sanctum.storages.DiscreteStorage;
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import com.github.sanctum.storages.exceptions.ItemException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.storage.ContentsView;
+import com.github.sanctum.storages.storage.StorageSlot;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A DiscreteStorage view over one or more sections of
+ * a Player's inventory.
+ * <p>
+ * Slot indexes of this storage run from 0 across the selected
+ * sections in the order given. Each operation resolves and validates
+ * the player once through the shared {@link PlayerManager}, however
+ * many sections are selected.
+ *
+ * @since 1.0.0
+ * @see PlayerStoragePassthrough#section(PlayerInventorySection...)
+ */
+public class PlayerSectionStorage extends DiscreteStorage {
+    protected final PlayerManager manager;
+    private final ImmutableList<PlayerInventorySection> sections;
+    private final int[] rawSlots;
+    private final ImmutableList<StorageSlot> slotDAOs;
+
+    /**
+     * Create a view over sections of a player's inventory.
+     *
+     * @param manager a PlayerManager
+     * @param sections the sections to include, in slot order
+     * @throws IllegalArgumentException if no sections are provided
+     */
+    public PlayerSectionStorage(@NotNull PlayerManager manager, @NotNull PlayerInventorySection... sections) throws IllegalArgumentException {
+        if (sections.length == 0) throw new IllegalArgumentException("At least one section is required!");
+        this.manager = manager;
+        this.sections = ImmutableList.copyOf(sections);
+        final Set<Integer> seen = new LinkedHashSet<>();
+        for (PlayerInventorySection section : sections) {
+            for (int raw = section.getStart(); raw < section.getEnd(); ++raw) {
+                seen.add(raw);
+            }
+        }
+        this.rawSlots = seen.stream().mapToInt(Integer::intValue).toArray();
+        final ImmutableList.Builder<StorageSlot> slots = new ImmutableList.Builder<>();
+        for (int index = 0; index < rawSlots.length; ++index) {
+            final int raw = rawSlots[index];
+            slots.add(new StorageSlot(index) {
+                @Override
+                public Optional<@NotNull ItemStack> getItem() throws InventoryHolderException {
+                    return Optional.ofNullable(manager.queryInventory(inventory -> inventory.getItem(raw)));
+                }
+
+                @Override
+                public void setItem(@Nullable ItemStack item) throws InventoryHolderException {
+                    manager.updateInventory(inventory -> inventory.setItem(raw, item));
+                }
+            });
+        }
+        this.slotDAOs = slots.build();
+    }
+
+    /**
+     * Get the sections included in this view.
+     *
+     * @return the sections in slot order
+     */
+    public List<PlayerInventorySection> getSections() {
+        return sections;
+    }
+
+    @Override
+    public @NotNull String getName() throws ProviderException {
+        return manager.query(Player::getName) + sections;
+    }
+
+    @Override
+    public int getSize() {
+        return rawSlots.length;
+    }
+
+    @Override
+    public List<StorageSlot> getSlots() {
+        return slotDAOs;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * True unless armor or off-hand slots are included.
+     */
+    @Override
+    public boolean isPlainContainer() {
+        for (int raw : rawSlots) {
+            if (raw >= PlayerInventorySection.STORAGE.getEnd()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public ItemStack[] getContents() throws InventoryHolderException {
+        return manager.queryInventory(this::read);
+    }
+
+    @Override
+    public void setContents(ItemStack[] items) throws InventoryHolderException, IllegalArgumentException {
+        if (items.length > rawSlots.length) throw new IllegalArgumentException("Too many items for this section!");
+        manager.updateInventory(inventory -> {
+            for (int i = 0; i < rawSlots.length; ++i) {
+                inventory.setItem(rawSlots[i], (i < items.length) ? items[i] : null);
+            }
+        });
+    }
+
+    @Override
+    public void clear() throws InventoryHolderException {
+        setContents(new ItemStack[0]);
+    }
+
+    @Override
+    public boolean contains(Material material) throws InventoryHolderException {
+        return containsAtLeast(material, 1);
+    }
+
+    @Override
+    public boolean containsAtLeast(Material material, int amount) throws InventoryHolderException {
+        return readContents(view -> {
+            int found = 0;
+            for (int i = 0; i < view.size(); ++i) {
+                if (view.getType(i) == material && (found += view.getAmount(i)) >= amount) return true;
+            }
+            return amount <= 0;
+        });
+    }
+
+    @Override
+    public boolean containsSimilar(ItemStack similar, int amount) throws InventoryHolderException {
+        return readContents(view -> {
+            int found = 0;
+            for (int i = 0; i < view.size(); ++i) {
+                final ItemStack item = view.getItem(i);
+                if (similar.isSimilar(item) && (found += item.getAmount()) >= amount) return true;
+            }
+            return amount <= 0;
+        });
+    }
+
+    @Override
+    public boolean containsExact(ItemStack itemStack, int amount) throws InventoryHolderException {
+        return readContents(view -> {
+            int found = 0;
+            for (int i = 0; i < view.size(); ++i) {
+                if (itemStack.equals(view.getItem(i)) && ++found >= amount) return true;
+            }
+            return amount <= 0;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads only the selected slots, one at a time, without copying
+     * the inventory.
+     */
+    @Override
+    public <R> R readContents(@NotNull Function<? super ContentsView, ? extends R> reader) throws InventoryHolderException {
+        return manager.queryInventory(inventory -> ContentsView.within(new ContentsView() {
+            @Override
+            public int size() {
+                return rawSlots.length;
+            }
+
+            @Override
+            protected @Nullable ItemStack item(int slot) {
+                return inventory.getItem(rawSlots[slot]);
+            }
+        }, reader));
+    }
+
+    @Override
+    public void addItem(Collection<@NotNull ItemStack> items) throws InventoryHolderException, ItemException {
+        final List<ItemStack> leftover = new ArrayList<>();
+        manager.updateInventory(inventory -> {
+            final ItemStack[] contents = read(inventory);
+            final BitSet changed = new BitSet(contents.length);
+            for (ItemStack item : items) {
+                if (ItemKey.isEmpty(item)) continue;
+                final int remaining = add(contents, item, Math.min(item.getMaxStackSize(), inventory.getMaxStackSize()), changed);
+                if (remaining > 0) leftover.add(withAmount(item, remaining));
+            }
+            write(inventory, contents, changed);
+        });
+        if (!leftover.isEmpty()) throw new ItemException(ImmutableList.copyOf(leftover));
+    }
+
+    @Override
+    public void removeItem(Collection<@NotNull ItemStack> items) throws InventoryHolderException, ItemException {
+        final List<ItemStack> leftover = new ArrayList<>();
+        manager.updateInventory(inventory -> {
+            final ItemStack[] contents = read(inventory);
+            final BitSet changed = new BitSet(contents.length);
+            for (ItemStack item : items) {
+                int remaining = item.getAmount();
+                for (int i = 0; i < contents.length && remaining > 0; ++i) {
+                    if (!item.isSimilar(contents[i])) continue;
+                    final int taken = Math.min(remaining, contents[i].getAmount());
+                    contents[i] = (taken == contents[i].getAmount()) ? null : withAmount(contents[i], contents[i].getAmount() - taken);
+                    remaining -= taken;
+                    changed.set(i);
+                }
+                if (remaining > 0) leftover.add(withAmount(item, remaining));
+            }
+            write(inventory, contents, changed);
+        });
+        if (!leftover.isEmpty()) throw new ItemException(ImmutableList.copyOf(leftover));
+    }
+
+    @Override
+    public boolean remove(Material material) throws InventoryHolderException {
+        return removeMatching(item -> item.getType() == material);
+    }
+
+    @Override
+    public boolean removeExact(ItemStack item) throws InventoryHolderException {
+        return removeMatching(item::equals);
+    }
+
+    private boolean removeMatching(Predicate<ItemStack> predicate) throws InventoryHolderException {
+        final BitSet changed = new BitSet(rawSlots.length);
+        manager.updateInventory(inventory -> {
+            final ItemStack[] contents = read(inventory);
+            for (int i = 0; i < contents.length; ++i) {
+                if (!ItemKey.isEmpty(contents[i]) && predicate.test(contents[i])) {
+                    contents[i] = null;
+                    changed.set(i);
+                }
+            }
+            write(inventory, contents, changed);
+        });
+        return !changed.isEmpty();
+    }
+
+    private ItemStack[] read(Inventory inventory) {
+        final ItemStack[] all = inventory.getContents();
+        final ItemStack[] contents = new ItemStack[rawSlots.length];
+        for (int i = 0; i < rawSlots.length; ++i) {
+            contents[i] = (rawSlots[i] < all.length) ? all[rawSlots[i]] : null;
+        }
+        return contents;
+    }
+
+    private void write(Inventory inventory, ItemStack[] contents, BitSet changed) {
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            inventory.setItem(rawSlots[i], contents[i]);
+        }
+    }
+
+    private static int add(ItemStack[] contents, ItemStack item, int max, BitSet changed) {
+        int remaining = item.getAmount();
+        // top up similar partial stacks first, then fill empty slots
+        for (int i = 0; i < contents.length && remaining > 0; ++i) {
+            final ItemStack current = contents[i];
+            if (current == null || current.getAmount() >= max || !item.isSimilar(current)) continue;
+            final int added = Math.min(max - current.getAmount(), remaining);
+            contents[i] = withAmount(current, current.getAmount() + added);
+            remaining -= added;
+            changed.set(i);
+        }
+        for (int i = 0; i < contents.length && remaining > 0; ++i) {
+            if (!ItemKey.isEmpty(contents[i])) continue;
+            final int added = Math.min(max, remaining);
+            contents[i] = withAmount(item, added);
+            remaining -= added;
+            changed.set(i);
+        }
+        return remaining;
+    }
+
+    private static ItemStack withAmount(ItemStack item, int amount) {
+        final ItemStack copy = item.clone();
+        copy.setAmount(amount);
+        return copy;
+    }
+}
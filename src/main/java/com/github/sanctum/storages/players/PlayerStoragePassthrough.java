@@ -36,6 +36,33 @@ public class PlayerStoragePassthrough extends InventoryDiscreteStorage<PlayerMan
         super(new PlayerManager(player));
     }
 
+    /**
+     * Get a view over sections of the player's inventory.
+     * <p>
+     * The view shares this storage's {@link PlayerManager}.
+     *
+     * @param sections the sections to include, in slot order
+     * @return a new section view
+     * @throws IllegalArgumentException if no sections are provided
+     */
+    public PlayerSectionStorage section(@NotNull PlayerInventorySection... sections) throws IllegalArgumentException {
+        return new PlayerSectionStorage(manager, sections);
+    }
+
+    /**
+     * Get a storage over the player's ender chest.
+     * <p>
+     * The storage resolves and validates the player through this
+     * storage's {@link PlayerManager} and may join a
+     * {@link com.github.sanctum.storages.StorageGroup StorageGroup}.
+     *
+     * @return a new ender chest storage
+     * @throws ProviderException if the provider encounters an error
+     */
+    public EnderChestStorage enderChest() throws ProviderException {
+        return new EnderChestStorage(manager.enderChest());
+    }
+
     @Override
     public @NotNull String getName() throws ProviderException {
         return manager.query(Player::getName);
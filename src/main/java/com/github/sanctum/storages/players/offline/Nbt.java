@@ -0,0 +1,350 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players.offline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal reader and writer for the NBT format used by player
+ * data files.
+ * <p>
+ * Compounds are decoded to {@link LinkedHashMap LinkedHashMaps},
+ * lists to {@link NbtList} and all other tags to their boxed or
+ * array Java counterparts, so any tag read can be written back
+ * unchanged.
+ *
+ * @since 1.0.0
+ */
+final class Nbt {
+    static final byte END = 0;
+    static final byte BYTE = 1;
+    static final byte SHORT = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte FLOAT = 5;
+    static final byte DOUBLE = 6;
+    static final byte BYTE_ARRAY = 7;
+    static final byte STRING = 8;
+    static final byte LIST = 9;
+    static final byte COMPOUND = 10;
+    static final byte INT_ARRAY = 11;
+    static final byte LONG_ARRAY = 12;
+    private static final int MAX_DEPTH = 512;
+    private static final Pattern SIMPLE_KEY = Pattern.compile("[A-Za-z0-9._+-]+");
+
+    private Nbt() {}
+
+    /**
+     * A list tag, which remembers its element type even when empty.
+     */
+    static final class NbtList extends ArrayList<Object> {
+        private static final long serialVersionUID = 1L;
+        byte elementType;
+
+        NbtList(byte elementType) {
+            this.elementType = elementType;
+        }
+    }
+
+    /**
+     * Read a named root compound.
+     *
+     * @param in uncompressed input
+     * @return the root compound
+     * @throws IOException if the input is not a valid root compound
+     */
+    static Map<String, Object> readRoot(DataInput in) throws IOException {
+        if (in.readByte() != COMPOUND) throw new IOException("Root tag is not a compound");
+        in.readUTF();
+        return readCompound(in, 0);
+    }
+
+    /**
+     * Write a root compound with an empty name.
+     *
+     * @param out uncompressed output
+     * @param root the root compound
+     * @throws IOException if the output encounters an error
+     */
+    static void writeRoot(DataOutput out, Map<String, Object> root) throws IOException {
+        out.writeByte(COMPOUND);
+        out.writeUTF("");
+        writePayload(out, COMPOUND, root);
+    }
+
+    private static Map<String, Object> readCompound(DataInput in, int depth) throws IOException {
+        final Map<String, Object> compound = new LinkedHashMap<>();
+        byte type;
+        while ((type = in.readByte()) != END) {
+            final String name = in.readUTF();
+            compound.put(name, readPayload(in, type, depth + 1));
+        }
+        return compound;
+    }
+
+    private static Object readPayload(DataInput in, byte type, int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw new IOException("Tag nested too deeply");
+        switch (type) {
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case BYTE_ARRAY: {
+                final byte[] array = new byte[checkLength(in.readInt())];
+                in.readFully(array);
+                return array;
+            }
+            case STRING:
+                return in.readUTF();
+            case LIST: {
+                final NbtList list = new NbtList(in.readByte());
+                final int length = checkLength(in.readInt());
+                for (int i = 0; i < length; ++i) {
+                    list.add(readPayload(in, list.elementType, depth + 1));
+                }
+                return list;
+            }
+            case COMPOUND:
+                return readCompound(in, depth);
+            case INT_ARRAY: {
+                final int[] array = new int[checkLength(in.readInt())];
+                for (int i = 0; i < array.length; ++i) array[i] = in.readInt();
+                return array;
+            }
+            case LONG_ARRAY: {
+                final long[] array = new long[checkLength(in.readInt())];
+                for (int i = 0; i < array.length; ++i) array[i] = in.readLong();
+                return array;
+            }
+            default:
+                throw new IOException("Unknown tag type " + type);
+        }
+    }
+
+    private static int checkLength(int length) throws IOException {
+        if (length < 0) throw new IOException("Negative length " + length);
+        return length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writePayload(DataOutput out, byte type, Object value) throws IOException {
+        switch (type) {
+            case BYTE:
+                out.writeByte((Byte) value);
+                return;
+            case SHORT:
+                out.writeShort((Short) value);
+                return;
+            case INT:
+                out.writeInt((Integer) value);
+                return;
+            case LONG:
+                out.writeLong((Long) value);
+                return;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                return;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                return;
+            case BYTE_ARRAY:
+                out.writeInt(((byte[]) value).length);
+                out.write((byte[]) value);
+                return;
+            case STRING:
+                out.writeUTF((String) value);
+                return;
+            case LIST: {
+                final List<Object> list = (List<Object>) value;
+                final byte elementType = list.isEmpty() ? elementType(list) : typeOf(list.get(0));
+                out.writeByte(elementType);
+                out.writeInt(list.size());
+                for (Object element : list) writePayload(out, elementType, element);
+                return;
+            }
+            case COMPOUND:
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                    final byte entryType = typeOf(entry.getValue());
+                    out.writeByte(entryType);
+                    out.writeUTF(entry.getKey());
+                    writePayload(out, entryType, entry.getValue());
+                }
+                out.writeByte(END);
+                return;
+            case INT_ARRAY:
+                out.writeInt(((int[]) value).length);
+                for (int i : (int[]) value) out.writeInt(i);
+                return;
+            case LONG_ARRAY:
+                out.writeInt(((long[]) value).length);
+                for (long l : (long[]) value) out.writeLong(l);
+                return;
+            default:
+                throw new IOException("Unknown tag type " + type);
+        }
+    }
+
+    private static byte elementType(List<?> list) {
+        return (list instanceof NbtList) ? ((NbtList) list).elementType : END;
+    }
+
+    /**
+     * Get the tag type of a decoded value.
+     *
+     * @param value a decoded value
+     * @return its tag type
+     * @throws IllegalArgumentException if the value is not a tag value
+     */
+    static byte typeOf(Object value) throws IllegalArgumentException {
+        if (value instanceof Byte) return BYTE;
+        if (value instanceof Short) return SHORT;
+        if (value instanceof Integer) return INT;
+        if (value instanceof Long) return LONG;
+        if (value instanceof Float) return FLOAT;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof byte[]) return BYTE_ARRAY;
+        if (value instanceof String) return STRING;
+        if (value instanceof List) return LIST;
+        if (value instanceof Map) return COMPOUND;
+        if (value instanceof int[]) return INT_ARRAY;
+        if (value instanceof long[]) return LONG_ARRAY;
+        throw new IllegalArgumentException("Not a tag value: " + value);
+    }
+
+    /**
+     * Render a decoded value in the string form accepted by
+     * item commands.
+     *
+     * @param value a decoded value
+     * @return its string form
+     */
+    static String toSnbt(Object value) {
+        final StringBuilder sb = new StringBuilder();
+        appendSnbt(sb, value);
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendSnbt(StringBuilder sb, Object value) {
+        switch (typeOf(value)) {
+            case BYTE:
+                sb.append(value).append('b');
+                return;
+            case SHORT:
+                sb.append(value).append('s');
+                return;
+            case INT:
+                sb.append(value);
+                return;
+            case LONG:
+                sb.append(value).append('L');
+                return;
+            case FLOAT:
+                sb.append(value).append('f');
+                return;
+            case DOUBLE:
+                sb.append(value).append('d');
+                return;
+            case BYTE_ARRAY: {
+                sb.append("[B;");
+                final byte[] array = (byte[]) value;
+                for (int i = 0; i < array.length; ++i) {
+                    if (i > 0) sb.append(',');
+                    sb.append(array[i]).append('b');
+                }
+                sb.append(']');
+                return;
+            }
+            case STRING:
+                appendQuoted(sb, (String) value);
+                return;
+            case LIST: {
+                sb.append('[');
+                final List<Object> list = (List<Object>) value;
+                for (int i = 0; i < list.size(); ++i) {
+                    if (i > 0) sb.append(',');
+                    appendSnbt(sb, list.get(i));
+                }
+                sb.append(']');
+                return;
+            }
+            case COMPOUND: {
+                sb.append('{');
+                boolean first = true;
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    if (SIMPLE_KEY.matcher(entry.getKey()).matches()) {
+                        sb.append(entry.getKey());
+                    } else {
+                        appendQuoted(sb, entry.getKey());
+                    }
+                    sb.append(':');
+                    appendSnbt(sb, entry.getValue());
+                }
+                sb.append('}');
+                return;
+            }
+            case INT_ARRAY: {
+                sb.append("[I;");
+                final int[] array = (int[]) value;
+                for (int i = 0; i < array.length; ++i) {
+                    if (i > 0) sb.append(',');
+                    sb.append(array[i]);
+                }
+                sb.append(']');
+                return;
+            }
+            case LONG_ARRAY: {
+                sb.append("[L;");
+                final long[] array = (long[]) value;
+                for (int i = 0; i < array.length; ++i) {
+                    if (i > 0) sb.append(',');
+                    sb.append(array[i]).append('L');
+                }
+                sb.append(']');
+            }
+        }
+    }
+
+    private static void appendQuoted(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players.offline;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.MemoryInventory;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.players.offline.Nbt.NbtList;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Nameable;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The decoded inventories of an offline player.
+ * <p>
+ * Item tags are applied to decoded stacks through
+ * {@link org.bukkit.UnsafeValues#modifyItemStack} when a server is
+ * running and are otherwise kept only in their raw form. Either way
+ * the raw tag of each decoded stack is retained and written back for
+ * a similar stack left in the same slot. With a server running, where
+ * similarity covers the applied meta, it is also written back for
+ * similar stacks which have moved; without one, moved stacks lose
+ * their tag rather than gaining another stack's. Stacks with other
+ * meta cannot be persisted; see {@link #canPersist(ItemStack)}.
+ * Entries whose item id
+ * is unknown to the server are preserved as long as their slot is
+ * left empty.
+ * <p>
+ * <b>Not thread-safe.</b>
+ *
+ * @since 1.0.0
+ * @see OfflinePlayerStore
+ */
+public final class OfflinePlayerData implements InventoryHolder, Nameable {
+    /**
+     * Slots of the inventory: 36 storage slots, four armor slots
+     * (feet first) and the offhand, as in a live player inventory.
+     */
+    public static final int INVENTORY_SIZE = 41;
+    public static final int ENDER_CHEST_SIZE = 27;
+    private static final int STORAGE_SIZE = 36;
+    private static final String INVENTORY_TAG = "Inventory";
+    private static final String ENDER_CHEST_TAG = "EnderItems";
+    private final UUID uniqueId;
+    private final Map<String, Object> root;
+    private final MemoryInventory inventory;
+    private final MemoryInventory enderChest;
+    private final List<ItemStack> decoded = new ArrayList<>();
+    private final List<Map<String, Object>> decodedTags = new ArrayList<>();
+    private final Map<Integer, Integer> inventoryTags = new HashMap<>();
+    private final Map<Integer, Integer> enderChestTags = new HashMap<>();
+    private final List<Map<String, Object>> unknownInventory = new ArrayList<>();
+    private final List<Map<String, Object>> unknownEnderChest = new ArrayList<>();
+    private String customName;
+    private volatile boolean released;
+
+    private OfflinePlayerData(UUID uniqueId, Map<String, Object> root) {
+        this.uniqueId = uniqueId;
+        this.root = root;
+        this.inventory = new MemoryInventory(this, InventoryType.PLAYER, INVENTORY_SIZE, STORAGE_SIZE);
+        this.enderChest = new MemoryInventory(this, InventoryType.ENDER_CHEST, ENDER_CHEST_SIZE, ENDER_CHEST_SIZE);
+    }
+
+    /**
+     * Decode the inventories of a player data root compound.
+     *
+     * @param uniqueId the player's id
+     * @param root the root compound
+     * @return decoded data
+     * @throws ProviderException if the compound is malformed
+     */
+    static OfflinePlayerData decode(UUID uniqueId, Map<String, Object> root) throws ProviderException {
+        final OfflinePlayerData data = new OfflinePlayerData(uniqueId, root);
+        try {
+            data.decodeItems(root.get(INVENTORY_TAG), data.inventory, data.unknownInventory, data.inventoryTags, true);
+            data.decodeItems(root.get(ENDER_CHEST_TAG), data.enderChest, data.unknownEnderChest, data.enderChestTags, false);
+        } catch (ClassCastException e) {
+            throw new ProviderException("Malformed player data for " + uniqueId, e);
+        }
+        return data;
+    }
+
+    @SuppressWarnings({"unchecked", "deprecation"})
+    private void decodeItems(Object list, MemoryInventory target, List<Map<String, Object>> unknown, Map<Integer, Integer> tags, boolean playerSlots) {
+        if (!(list instanceof List)) return;
+        for (Object element : (List<Object>) list) {
+            final Map<String, Object> entry = (Map<String, Object>) element;
+            final int slot = toIndex(((Number) entry.getOrDefault("Slot", (byte) -1)).intValue(), playerSlots);
+            final Material material = Material.matchMaterial(String.valueOf(entry.get("id")));
+            final int count = ((Number) entry.getOrDefault("Count", (byte) 0)).intValue();
+            if (material == null || slot < 0 || slot >= target.getSize() || target.getItem(slot) != null) {
+                unknown.add(entry);
+                continue;
+            }
+            if (count <= 0) continue;
+            ItemStack item = new ItemStack(material, count);
+            final Object tag = entry.get("tag");
+            if (tag instanceof Map) {
+                if (Bukkit.getServer() != null) {
+                    item = Bukkit.getUnsafe().modifyItemStack(item, Nbt.toSnbt(tag));
+                }
+                tags.put(slot, decoded.size());
+                decoded.add(item.clone());
+                decodedTags.add((Map<String, Object>) tag);
+            }
+            target.setItem(slot, item);
+        }
+    }
+
+    /**
+     * Encode the current inventories into a copy of the root compound.
+     *
+     * @return a new root compound
+     * @throws ProviderException if a stack carries meta which cannot
+     * be persisted
+     */
+    Map<String, Object> encode() throws ProviderException {
+        final Map<String, Object> copy = new LinkedHashMap<>(root);
+        copy.put(INVENTORY_TAG, encodeItems(inventory, unknownInventory, inventoryTags, true));
+        copy.put(ENDER_CHEST_TAG, encodeItems(enderChest, unknownEnderChest, enderChestTags, false));
+        return copy;
+    }
+
+    private NbtList encodeItems(MemoryInventory source, List<Map<String, Object>> unknown, Map<Integer, Integer> tags, boolean playerSlots) throws ProviderException {
+        final NbtList list = new NbtList(Nbt.COMPOUND);
+        for (int i = 0; i < source.getSize(); ++i) {
+            final ItemStack item = source.getItem(i);
+            if (ItemKey.isEmpty(item)) continue;
+            final Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("Slot", (byte) toSlot(i, playerSlots));
+            entry.put("id", item.getType().getKey().toString());
+            entry.put("Count", (byte) item.getAmount());
+            final Map<String, Object> tag = findTag(item, tags.get(i));
+            if (tag != null) {
+                entry.put("tag", tag);
+            } else if (item.hasItemMeta()) {
+                throw new ProviderException("Cannot persist meta of " + item.getType() + " in slot " + i + " for " + uniqueId);
+            }
+            list.add(entry);
+        }
+        for (Map<String, Object> entry : unknown) {
+            final int slot = toIndex(((Number) entry.getOrDefault("Slot", (byte) -1)).intValue(), playerSlots);
+            if (slot < 0 || slot >= source.getSize() || source.getItem(slot) == null) list.add(entry);
+        }
+        return list;
+    }
+
+    private @Nullable Map<String, Object> findTag(ItemStack item, @Nullable Integer inSlot) {
+        if (inSlot != null && decoded.get(inSlot).isSimilar(item)) return decodedTags.get(inSlot);
+        // without a server similarity is by material alone
+        if (Bukkit.getServer() == null) return null;
+        for (int i = 0; i < decoded.size(); ++i) {
+            if (decoded.get(i).isSimilar(item)) return decodedTags.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * Whether a stack can be written back to the player's file.
+     * <p>
+     * Stacks without meta always can; stacks with meta only while a
+     * server is running and a similar stack was decoded from the file.
+     *
+     * @param item a stack
+     * @return true if the stack can be persisted
+     */
+    public boolean canPersist(@NotNull ItemStack item) {
+        return !item.hasItemMeta() || findTag(item, null) != null;
+    }
+
+    private static int toIndex(int slot, boolean playerSlots) {
+        if (!playerSlots) return slot;
+        if (slot >= 0 && slot < STORAGE_SIZE) return slot;
+        if (slot >= 100 && slot <= 103) return STORAGE_SIZE + slot - 100;
+        if (slot == -106) return INVENTORY_SIZE - 1;
+        return -1;
+    }
+
+    private static int toSlot(int index, boolean playerSlots) {
+        if (!playerSlots || index < STORAGE_SIZE) return index;
+        if (index == INVENTORY_SIZE - 1) return -106;
+        return 100 + index - STORAGE_SIZE;
+    }
+
+    /**
+     * Get the id of the player.
+     *
+     * @return the player's id
+     */
+    public @NotNull UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    /**
+     * Get the last name recorded for the player by the server.
+     *
+     * @return the last known name or the player's id
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull String getLastKnownName() {
+        final Object bukkit = root.get("bukkit");
+        if (bukkit instanceof Map) {
+            final Object name = ((Map<String, Object>) bukkit).get("lastKnownName");
+            if (name instanceof String) return (String) name;
+        }
+        return uniqueId.toString();
+    }
+
+    /**
+     * Get the player's inventory.
+     *
+     * @return the decoded inventory
+     */
+    @Override
+    public @NotNull Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Get the player's ender chest.
+     *
+     * @return the decoded ender chest
+     */
+    public @NotNull Inventory getEnderChest() {
+        return enderChest;
+    }
+
+    /**
+     * Whether this data has been released by its store.
+     * <p>
+     * Released data is no longer written back.
+     *
+     * @return true if released
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    void release() {
+        released = true;
+    }
+
+    void reclaim() {
+        released = false;
+    }
+
+    @Override
+    public @Nullable String getCustomName() {
+        return customName;
+    }
+
+    @Override
+    public void setCustomName(@Nullable String name) {
+        this.customName = name;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players.offline;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage.InventoryManager;
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * An InventoryManager for the decoded data of an offline player.
+ * <p>
+ * Every update marks the data dirty in its {@link OfflinePlayerStore},
+ * which writes it back on the next flush.
+ *
+ * @since 1.0.0
+ * @see OfflinePlayerStore#load(java.util.UUID)
+ */
+public class OfflinePlayerManager extends InventoryManager<OfflinePlayerData> {
+    private final OfflinePlayerData data;
+    private final OfflinePlayerStore store;
+    private final boolean enderChest;
+    private OfflinePlayerManager enderChestManager;
+
+    OfflinePlayerManager(OfflinePlayerData data, OfflinePlayerStore store) {
+        this(data, store, false);
+    }
+
+    private OfflinePlayerManager(OfflinePlayerData data, OfflinePlayerStore store, boolean enderChest) {
+        this.data = data;
+        this.store = store;
+        this.enderChest = enderChest;
+    }
+
+    /**
+     * Get a manager for the ender chest of the same data.
+     *
+     * @return the ender chest manager
+     */
+    public OfflinePlayerManager enderChest() {
+        if (enderChest) return this;
+        if (enderChestManager == null) enderChestManager = new OfflinePlayerManager(data, store, true);
+        return enderChestManager;
+    }
+
+    /**
+     * Whether this manager serves the ender chest.
+     *
+     * @return true if this is an ender chest manager
+     */
+    public boolean isEnderChest() {
+        return enderChest;
+    }
+
+    @Override
+    public void update(Consumer<OfflinePlayerData> queryFunction) throws InventoryHolderException {
+        super.update(queryFunction);
+        store.markDirty(data);
+    }
+
+    @Override
+    protected @NotNull Inventory getInventory(@NotNull OfflinePlayerData state) {
+        return enderChest ? state.getEnderChest() : state.getInventory();
+    }
+
+    @Override
+    protected boolean isStale(@NotNull OfflinePlayerData cachedState) {
+        return cachedState.isReleased();
+    }
+
+    @Override
+    protected @NotNull OfflinePlayerData validate(OfflinePlayerData rawState) throws InventoryHolderException {
+        final OfflinePlayerData d = super.validate(rawState);
+        if (!d.isReleased()) return d;
+        throw new InventoryHolderException("Offline player data has been released.");
+    }
+
+    @Override
+    protected OfflinePlayerData getRawState() {
+        return data;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players.offline;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import com.github.sanctum.storages.exceptions.ItemException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A DiscreteStorage backed by the decoded inventory or ender chest
+ * of an offline player.
+ * <p>
+ * Like {@link com.github.sanctum.storages.players.PlayerStoragePassthrough
+ * PlayerStoragePassthrough}, only the 36 storage slots of the
+ * inventory are exposed.
+ * <p>
+ * Stacks whose meta cannot be written back to the player's file are
+ * refused when written instead of failing the next flush: they do not
+ * fit according to {@link #maxInsertable(ItemKey)}, are returned as
+ * leftovers by {@link #addItem(Collection)} and rejected by
+ * {@link #setItem(int, ItemStack)} and {@link #setContents(ItemStack[])}.
+ *
+ * @see OfflinePlayerData#canPersist(ItemStack)
+ * @since 1.0.0
+ * @see OfflinePlayerStore#load(java.util.UUID)
+ */
+public class OfflinePlayerStorage extends InventoryDiscreteStorage<OfflinePlayerManager> {
+
+    /**
+     * Create an OfflinePlayerStorage with an OfflinePlayerManager.
+     *
+     * @param manager an OfflinePlayerManager
+     * @throws ProviderException if the provider encounters an error
+     */
+    public OfflinePlayerStorage(OfflinePlayerManager manager) throws ProviderException {
+        super(manager);
+    }
+
+    /**
+     * Get a storage over the player's ender chest.
+     *
+     * @return a new ender chest storage
+     * @throws ProviderException if the provider encounters an error
+     */
+    public OfflinePlayerStorage enderChest() throws ProviderException {
+        return new OfflinePlayerStorage(manager.enderChest());
+    }
+
+    /**
+     * Get the decoded data backing this storage.
+     *
+     * @return the decoded data
+     * @throws ProviderException if the data has been released
+     */
+    public OfflinePlayerData getData() throws ProviderException {
+        return manager.query(d -> d);
+    }
+
+    @Override
+    public long maxInsertable(@NotNull ItemKey key) throws InventoryHolderException {
+        if (key.hasMeta() && !manager.query(d -> d.canPersist(key.toItemStack(1)))) return 0;
+        return super.maxInsertable(key);
+    }
+
+    @Override
+    public void addItem(Collection<@NotNull ItemStack> items) throws InventoryHolderException, ItemException {
+        final List<ItemStack> accepted = new ArrayList<>(items.size());
+        final List<ItemStack> refused = new ArrayList<>();
+        manager.query(d -> {
+            for (ItemStack item : items) (d.canPersist(item) ? accepted : refused).add(item);
+            return null;
+        });
+        if (refused.isEmpty()) {
+            super.addItem(items);
+            return;
+        }
+        final List<ItemStack> leftover = new ArrayList<>(refused);
+        try {
+            if (!accepted.isEmpty()) super.addItem(accepted);
+        } catch (ItemException e) {
+            leftover.addAll(e.getItems());
+        }
+        throw new ItemException(ImmutableList.copyOf(leftover));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the item's meta cannot be
+     * persisted
+     */
+    @Override
+    public void setItem(int index, @Nullable ItemStack item) throws ProviderException, IllegalArgumentException {
+        checkPersistable(item);
+        super.setItem(index, item);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the meta of an item cannot be
+     * persisted; nothing is changed then
+     */
+    @Override
+    public void setContents(ItemStack[] items) throws InventoryHolderException, IllegalArgumentException {
+        for (ItemStack item : items) checkPersistable(item);
+        super.setContents(items);
+    }
+
+    private void checkPersistable(@Nullable ItemStack item) throws InventoryHolderException {
+        if (item == null || manager.query(d -> d.canPersist(item))) return;
+        throw new IllegalArgumentException("Cannot persist meta of " + item.getType());
+    }
+
+    @Override
+    public @NotNull String getName() throws ProviderException {
+        final String name = manager.query(OfflinePlayerData::getLastKnownName);
+        return manager.isEnderChest() ? name + "[ENDER_CHEST]" : name;
+    }
+}
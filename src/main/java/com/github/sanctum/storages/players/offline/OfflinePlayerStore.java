@@ -0,0 +1,517 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players.offline;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Loads and saves offline player inventories from a directory of
+ * player data files, such as {@code world/playerdata}.
+ * <p>
+ * Files are read and decoded on a loader pool when first requested
+ * and cached until {@link #release(UUID) released}. Loading a player
+ * whose released data still has unsaved changes reuses that data, and
+ * a file being written is only read once the write finished. Storages mark
+ * their data dirty on every write; {@link #flush()} encodes dirty data
+ * on the calling thread and hands it to a single writer thread, which
+ * writes each batch to temporary files, forces them to disk together
+ * and then atomically replaces the originals.
+ * <p>
+ * Players who are online or logging in are refused. Once
+ * {@link #register(Plugin) registered}, the store also saves and
+ * releases a player's data while they log in, before the server reads
+ * their file, and turns the login away if that does not finish in
+ * time. Data still loaded when a player joins anyway is discarded
+ * rather than written over the live player's file.
+ * <p>
+ * Loading and releasing are thread-safe. Decoded data and flushing
+ * must be confined to one thread at a time, usually the main thread.
+ *
+ * @since 1.0.0
+ */
+public class OfflinePlayerStore implements AutoCloseable {
+    private static final String EXTENSION = ".dat";
+    private static final String TEMP_EXTENSION = ".dat.tmp";
+    private static final long LOGIN_TIMEOUT_MILLIS = 10_000L;
+    private static final long LOGIN_EXPIRY_MILLIS = 60_000L;
+    private static final String SAVING_MESSAGE = "Your player data is being saved, try again shortly";
+    private final Path directory;
+    private final ExecutorService loader;
+    private final ExecutorService writer;
+    private final boolean ownsLoader;
+    private final Map<UUID, CompletableFuture<OfflinePlayerData>> cache = new ConcurrentHashMap<>();
+    private final Set<OfflinePlayerData> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, CompletableFuture<Void>> writes = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> loggingIn = new ConcurrentHashMap<>();
+
+    /**
+     * Create a store over a directory with its own loader pool.
+     *
+     * @param directory the player data directory
+     */
+    public OfflinePlayerStore(@NotNull Path directory) {
+        this(directory, Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), daemon("Storages-OfflineLoader")), true);
+    }
+
+    /**
+     * Create a store over a directory which loads on the provided pool.
+     * <p>
+     * The pool is not shut down by {@link #close()}.
+     *
+     * @param directory the player data directory
+     * @param loader the executor to read and decode files on
+     */
+    public OfflinePlayerStore(@NotNull Path directory, @NotNull ExecutorService loader) {
+        this(directory, loader, false);
+    }
+
+    private OfflinePlayerStore(Path directory, ExecutorService loader, boolean ownsLoader) {
+        this.directory = directory;
+        this.loader = loader;
+        this.ownsLoader = ownsLoader;
+        this.writer = Executors.newSingleThreadExecutor(daemon("Storages-OfflineWriter"));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            final Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Get the directory of this store.
+     *
+     * @return the player data directory
+     */
+    public @NotNull Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * List the ids of all players with a data file.
+     *
+     * @return the ids in directory order
+     * @throws ProviderException if the directory cannot be read
+     */
+    public @NotNull List<UUID> listPlayers() throws ProviderException {
+        final List<UUID> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                final String name = file.getFileName().toString();
+                try {
+                    ids.add(UUID.fromString(name.substring(0, name.length() - EXTENSION.length())));
+                } catch (IllegalArgumentException ignored) {
+                    // not a player data file
+                }
+            }
+        } catch (IOException e) {
+            throw new ProviderException("Unable to list " + directory, e);
+        }
+        return ids;
+    }
+
+    /**
+     * Get a storage over the inventory of an offline player, reading
+     * its data file off the calling thread if not already loaded.
+     * <p>
+     * The future completes exceptionally with a {@link ProviderException}
+     * if the player is online or logging in, or if the file is missing
+     * or malformed.
+     *
+     * @param uniqueId the player's id
+     * @return a future storage
+     */
+    public CompletableFuture<OfflinePlayerStorage> load(@NotNull UUID uniqueId) {
+        return loadData(uniqueId).thenApply(data -> {
+            try {
+                return new OfflinePlayerStorage(new OfflinePlayerManager(data, this));
+            } catch (ProviderException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Get the decoded data of an offline player, reading its data file
+     * off the calling thread if not already loaded.
+     *
+     * @param uniqueId the player's id
+     * @return the future data, completing exceptionally with a
+     * {@link ProviderException} if the player is online or logging in
+     */
+    public CompletableFuture<OfflinePlayerData> loadData(@NotNull UUID uniqueId) {
+        if (isOnline(uniqueId)) {
+            final CompletableFuture<OfflinePlayerData> refused = new CompletableFuture<>();
+            refused.completeExceptionally(new ProviderException("Player " + uniqueId + " is online"));
+            return refused;
+        }
+        final CompletableFuture<OfflinePlayerData> future = cache.computeIfAbsent(uniqueId,
+                id -> CompletableFuture.supplyAsync(() -> reclaimOrRead(id), loader));
+        // failed loads are not cached
+        future.whenComplete((data, e) -> {
+            if (e != null) cache.remove(uniqueId, future);
+        });
+        return future;
+    }
+
+    /**
+     * Whether a player is online or logging in.
+     * <p>
+     * The data of such players is owned by the server.
+     *
+     * @param uniqueId the player's id
+     * @return true if the store refuses the player
+     */
+    public boolean isOnline(@NotNull UUID uniqueId) {
+        final Long since = loggingIn.get(uniqueId);
+        if (since != null) {
+            // logins rejected after pre-login never reach the join event
+            if (System.currentTimeMillis() - since < LOGIN_EXPIRY_MILLIS) return true;
+            loggingIn.remove(uniqueId, since);
+        }
+        return Bukkit.getServer() != null && Bukkit.getPlayer(uniqueId) != null;
+    }
+
+    // flush marks a write pending before taking data out of the dirty set
+    private OfflinePlayerData reclaimOrRead(UUID uniqueId) {
+        while (true) {
+            for (OfflinePlayerData data : dirty) {
+                if (data.isReleased() && data.getUniqueId().equals(uniqueId)) {
+                    data.reclaim();
+                    return data;
+                }
+            }
+            final CompletableFuture<Void> pending = writes.get(uniqueId);
+            if (pending == null) return read(uniqueId);
+            // completes after a failed batch is dirty again
+            pending.join();
+        }
+    }
+
+    private OfflinePlayerData read(UUID uniqueId) {
+        final Path file = directory.resolve(uniqueId + EXTENSION);
+        try (InputStream in = Files.newInputStream(file)) {
+            final DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+            return OfflinePlayerData.decode(uniqueId, Nbt.readRoot(data));
+        } catch (NoSuchFileException e) {
+            throw new CompletionException(new ProviderException("No player data for " + uniqueId, e));
+        } catch (IOException e) {
+            throw new CompletionException(new ProviderException("Unable to read " + file, e));
+        } catch (ProviderException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Whether the data of a player is loaded or loading.
+     *
+     * @param uniqueId the player's id
+     * @return true if cached
+     */
+    public boolean isLoaded(@NotNull UUID uniqueId) {
+        return cache.containsKey(uniqueId);
+    }
+
+    void markDirty(OfflinePlayerData data) {
+        if (!data.isReleased()) dirty.add(data);
+    }
+
+    /**
+     * Get the number of players with unsaved changes.
+     *
+     * @return the number of dirty players
+     */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Encode every dirty player and write them back as one batch.
+     * <p>
+     * Encoding happens on the calling thread; writing does not. Players
+     * which fail to encode are skipped and stay dirty. Players in a
+     * batch which fails to write are marked dirty again. Changes to
+     * players who have come online are discarded. A batch holds at most
+     * one data per player; others stay dirty for the next flush.
+     *
+     * @return a future completing once the batch is on disk, completing
+     * exceptionally with a {@link ProviderException} on failure
+     */
+    public CompletableFuture<Void> flush() {
+        if (dirty.isEmpty()) return CompletableFuture.completedFuture(null);
+        return flush(new ArrayList<>(dirty), false);
+    }
+
+    private CompletableFuture<Void> flush(Collection<OfflinePlayerData> players, boolean handingOver) {
+        final List<Map<String, Object>> roots = new ArrayList<>(players.size());
+        final Set<OfflinePlayerData> encoded = new LinkedHashSet<>();
+        final Set<UUID> ids = new LinkedHashSet<>();
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        ProviderException failure = null;
+        for (OfflinePlayerData data : players) {
+            if (!dirty.contains(data) || !ids.add(data.getUniqueId())) continue;
+            // loads wait for this write once the data leaves the dirty set
+            writes.put(data.getUniqueId(), written);
+            dirty.remove(data);
+            if (!handingOver && isOnline(data.getUniqueId())) {
+                discard(data.getUniqueId(), data);
+                continue;
+            }
+            try {
+                roots.add(data.encode());
+                encoded.add(data);
+            } catch (ProviderException e) {
+                dirty.add(data);
+                if (failure == null) failure = e;
+            }
+        }
+        final ProviderException encodeFailure = failure;
+        final List<OfflinePlayerData> batch = new ArrayList<>(encoded);
+        final CompletableFuture<Void> result = CompletableFuture.runAsync(() -> {
+            try {
+                if (!batch.isEmpty()) write(batch, roots);
+            } catch (IOException e) {
+                dirty.addAll(batch);
+                throw new CompletionException(new ProviderException("Unable to write player data", e));
+            }
+            if (encodeFailure != null) throw new CompletionException(encodeFailure);
+        }, writer);
+        result.whenComplete((v, e) -> {
+            for (UUID id : ids) writes.remove(id, written);
+            written.complete(null);
+        });
+        return result;
+    }
+
+    private void write(List<OfflinePlayerData> batch, List<Map<String, Object>> roots) throws IOException {
+        final List<Path> temps = new ArrayList<>(batch.size());
+        final List<FileChannel> channels = new ArrayList<>(batch.size());
+        try {
+            for (int i = 0; i < batch.size(); ++i) {
+                final Path temp = directory.resolve(batch.get(i).getUniqueId() + TEMP_EXTENSION);
+                final FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                temps.add(temp);
+                channels.add(channel);
+                // closing the gzip stream would close the channel before it is forced
+                final GZIPOutputStream gzip = new GZIPOutputStream(nonClosing(Channels.newOutputStream(channel)));
+                final DataOutputStream out = new DataOutputStream(gzip);
+                Nbt.writeRoot(out, roots.get(i));
+                out.flush();
+                gzip.finish();
+            }
+            // one pass of syncs after all writes lets the file system coalesce them
+            for (FileChannel channel : channels) channel.force(true);
+        } finally {
+            for (FileChannel channel : channels) channel.close();
+        }
+        for (int i = 0; i < batch.size(); ++i) {
+            final Path target = directory.resolve(batch.get(i).getUniqueId() + EXTENSION);
+            try {
+                Files.move(temps.get(i), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temps.get(i), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        syncDirectory();
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // directories cannot be opened for syncing on every platform
+        }
+    }
+
+    private static OutputStream nonClosing(OutputStream out) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * Release the data of a player.
+     * <p>
+     * Unsaved changes stay queued for the next flush; loading the
+     * player again before then reuses the released data. Storages over
+     * released data throw on further use until it is reused.
+     *
+     * @param uniqueId the player's id
+     */
+    public void release(@NotNull UUID uniqueId) {
+        final CompletableFuture<OfflinePlayerData> future = cache.remove(uniqueId);
+        if (future != null) future.thenAccept(OfflinePlayerData::release);
+    }
+
+    private void discard(UUID uniqueId, OfflinePlayerData data) {
+        cache.remove(uniqueId);
+        data.release();
+        dirty.remove(data);
+    }
+
+    /**
+     * Save and release the data of a player, then refuse them until
+     * they join, so the server reads the saved file.
+     * <p>
+     * Runs on the main thread.
+     */
+    private CompletableFuture<Void> handOver(UUID uniqueId) {
+        loggingIn.put(uniqueId, System.currentTimeMillis());
+        final CompletableFuture<OfflinePlayerData> future = cache.remove(uniqueId);
+        // data still loading cannot have changes yet
+        if (future != null) future.thenAccept(OfflinePlayerData::release);
+        // released data may still be queued as well
+        final List<OfflinePlayerData> pending = new ArrayList<>();
+        for (OfflinePlayerData data : dirty) {
+            if (data.getUniqueId().equals(uniqueId)) pending.add(data);
+        }
+        if (pending.isEmpty()) return CompletableFuture.completedFuture(null);
+        return flush(pending, true);
+    }
+
+    /**
+     * Save and release a player's data when they log in.
+     * <p>
+     * Logins wait off the main thread until the data is on disk and are
+     * turned away if that fails or takes too long.
+     *
+     * @param plugin the plugin owning the listener
+     */
+    public void register(@NotNull Plugin plugin) {
+        Bukkit.getPluginManager().registerEvents(new LoginListener(plugin), plugin);
+    }
+
+    private final class LoginListener implements Listener {
+        private final Plugin plugin;
+
+        LoginListener(Plugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @EventHandler(priority = EventPriority.HIGHEST)
+        public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+            if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+            final UUID uniqueId = e.getUniqueId();
+            final long deadline = System.currentTimeMillis() + LOGIN_TIMEOUT_MILLIS;
+            try {
+                Bukkit.getScheduler().callSyncMethod(plugin, () -> handOver(uniqueId))
+                        .get(LOGIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                        .get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                e.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, SAVING_MESSAGE);
+            } catch (ExecutionException | TimeoutException ex) {
+                e.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, SAVING_MESSAGE);
+            }
+        }
+
+        @EventHandler(priority = EventPriority.LOWEST)
+        public void onJoin(PlayerJoinEvent e) {
+            final UUID uniqueId = e.getPlayer().getUniqueId();
+            loggingIn.remove(uniqueId);
+            // loaded without a pre-login hand-over; the server's copy wins
+            final CompletableFuture<OfflinePlayerData> future = cache.remove(uniqueId);
+            if (future != null) future.thenAccept(data -> discard(uniqueId, data));
+        }
+    }
+
+    /**
+     * Schedule {@link #flush()} to run periodically on the main thread.
+     *
+     * @param plugin the plugin owning the task
+     * @param periodTicks ticks between flushes
+     * @return the scheduled task
+     */
+    public BukkitTask schedule(@NotNull Plugin plugin, long periodTicks) {
+        return Bukkit.getScheduler().runTaskTimer(plugin, (Runnable) this::flush, periodTicks, periodTicks);
+    }
+
+    /**
+     * Flush all dirty players, wait for pending writes and stop
+     * the store's threads.
+     *
+     * @throws ProviderException if the final flush fails
+     */
+    @Override
+    public void close() throws ProviderException {
+        try {
+            flush().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ProviderException) throw (ProviderException) e.getCause();
+            throw new ProviderException(e.getCause());
+        } finally {
+            writer.shutdown();
+            if (ownsLoader) loader.shutdown();
+        }
+    }
+}
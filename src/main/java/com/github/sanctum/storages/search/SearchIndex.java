@@ -0,0 +1,351 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.search;
+
+import com.github.sanctum.storages.DiscreteStorage;
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.StorageGroup;
+import com.github.sanctum.storages.StorageListener;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ItemKey;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * An inverted index of the items held by attached storages, for
+ * terminal search.
+ * <p>
+ * Each item key present in any attached storage is indexed under
+ * the lowercase words of its material, display name and lore, the
+ * names of its enchantments (stored ones included) and the names of
+ * its material's item tags prefixed with {@code #}. Tokens are kept
+ * sorted so every query term matches as a prefix; results hold the
+ * total amount per key across all attached storages.
+ * <p>
+ * Counts follow the slot changes reported by the storages, so the
+ * index is never rebuilt. Storages which report that their known
+ * contents went stale are refreshed before the next query, which
+ * reports the changes they missed; a storage stays stale until its
+ * refresh succeeds.
+ * <p>
+ * <b>Not thread-safe; use from the main thread only.</b>
+ *
+ * @since 1.0.0
+ */
+public final class SearchIndex {
+    private final Function<Material, Collection<String>> tags;
+    private final TreeMap<String, Set<ItemKey>> postings = new TreeMap<>();
+    private final Map<ItemKey, long[]> counts = new HashMap<>();
+    private final Map<ItemKey, String[]> tokens = new HashMap<>();
+    private final Map<InventoryDiscreteStorage<?>, Map<ItemKey, long[]>> attached = new IdentityHashMap<>();
+    private final Set<InventoryDiscreteStorage<?>> stale = new LinkedHashSet<>();
+    private final StorageListener listener = new StorageListener() {
+        @Override
+        public void slotChanged(@NotNull DiscreteStorage storage, int slot, @Nullable ItemKey previousKey, int previousAmount, @Nullable ItemKey key, int amount) {
+            final Map<ItemKey, long[]> held = attached.get(storage);
+            if (held == null) return;
+            add(held, previousKey, -previousAmount);
+            add(held, key, amount);
+        }
+
+        @Override
+        public void invalidated(@NotNull DiscreteStorage storage) {
+            if (attached.containsKey(storage)) stale.add((InventoryDiscreteStorage<?>) storage);
+        }
+    };
+
+    /**
+     * Create an index which reads material tags from the server.
+     */
+    public SearchIndex() {
+        this(new Function<Material, Collection<String>>() {
+            private Map<Material, List<String>> byMaterial;
+
+            @Override
+            public Collection<String> apply(Material material) {
+                if (byMaterial == null) byMaterial = loadTags();
+                return byMaterial.getOrDefault(material, Collections.emptyList());
+            }
+        });
+    }
+
+    /**
+     * Create an index with a custom source of material tags.
+     *
+     * @param tags the tag names of a material, without {@code #}
+     */
+    public SearchIndex(@NotNull Function<Material, Collection<String>> tags) {
+        this.tags = tags;
+    }
+
+    private static Map<Material, List<String>> loadTags() {
+        final Map<Material, List<String>> byMaterial = new EnumMap<>(Material.class);
+        for (Tag<Material> tag : Bukkit.getTags(Tag.REGISTRY_ITEMS, Material.class)) {
+            final String name = tag.getKey().getKey();
+            for (Material material : tag.getValues()) {
+                byMaterial.computeIfAbsent(material, m -> new ArrayList<>()).add(name);
+            }
+        }
+        return byMaterial;
+    }
+
+    /**
+     * Index the contents of a storage and follow its changes.
+     * <p>
+     * Only inventory-backed storages report their changes, so only
+     * they can be attached. Attaching an attached storage does nothing.
+     *
+     * @param storage a storage
+     * @throws ProviderException if the contents cannot be read
+     */
+    public void attach(@NotNull InventoryDiscreteStorage<?> storage) throws ProviderException {
+        if (attached.containsKey(storage)) return;
+        final Map<ItemKey, long[]> held = new HashMap<>();
+        final Map<ItemKey, Long> current = storage.readContents(view -> {
+            final Map<ItemKey, Long> amounts = new HashMap<>();
+            for (int i = 0; i < view.size(); ++i) {
+                final ItemKey key = view.getKey(i);
+                if (key != null) amounts.merge(key, (long) view.getAmount(i), Long::sum);
+            }
+            return amounts;
+        });
+        attached.put(storage, held);
+        current.forEach((key, amount) -> add(held, key, amount));
+        storage.addListener(listener);
+        // an index which is already invalid will not report it again
+        if (!storage.getContentIndex().isValid()) stale.add(storage);
+    }
+
+    /**
+     * Index the discrete members of a group.
+     * <p>
+     * Members added to the group later are not attached.
+     *
+     * @param group a group
+     * @throws ProviderException if the contents of a member cannot
+     * be read
+     * @throws IllegalArgumentException if a discrete member is not
+     * inventory-backed; no member is attached then
+     * @see StorageGroup#flatten()
+     */
+    public void attach(@NotNull StorageGroup<?> group) throws ProviderException {
+        final List<InventoryDiscreteStorage<?>> members = new ArrayList<>();
+        for (Storage<?> storage : group.flatten()) {
+            if (storage instanceof InventoryDiscreteStorage) {
+                members.add((InventoryDiscreteStorage<?>) storage);
+            } else if (storage instanceof DiscreteStorage) {
+                throw new IllegalArgumentException("Member does not report changes: " + storage);
+            }
+        }
+        for (InventoryDiscreteStorage<?> storage : members) attach(storage);
+    }
+
+    /**
+     * Remove the contents of a storage from the index and stop
+     * following it.
+     *
+     * @param storage a storage
+     */
+    public void detach(@NotNull DiscreteStorage storage) {
+        final Map<ItemKey, long[]> held = attached.remove(storage);
+        if (held == null) return;
+        storage.removeListener(listener);
+        stale.remove(storage);
+        for (Map.Entry<ItemKey, long[]> entry : held.entrySet()) {
+            addTotal(entry.getKey(), -entry.getValue()[0]);
+        }
+    }
+
+    private void add(Map<ItemKey, long[]> held, @Nullable ItemKey key, long amount) {
+        if (key == null || amount == 0) return;
+        final long[] total = held.computeIfAbsent(key, k -> new long[1]);
+        total[0] += amount;
+        if (total[0] == 0) held.remove(key);
+        addTotal(key, amount);
+    }
+
+    private void addTotal(ItemKey key, long amount) {
+        long[] total = counts.get(key);
+        if (total == null) {
+            total = new long[1];
+            counts.put(key, total);
+            final String[] keyTokens = tokenize(key);
+            tokens.put(key, keyTokens);
+            for (String token : keyTokens) {
+                postings.computeIfAbsent(token, t -> new HashSet<>()).add(key);
+            }
+        }
+        total[0] += amount;
+        if (total[0] > 0) return;
+        counts.remove(key);
+        for (String token : tokens.remove(key)) {
+            final Set<ItemKey> keys = postings.get(token);
+            keys.remove(key);
+            if (keys.isEmpty()) postings.remove(token);
+        }
+    }
+
+    private String[] tokenize(ItemKey key) {
+        final Set<String> words = new LinkedHashSet<>();
+        split(key.getType().name(), words);
+        for (String tag : tags.apply(key.getType())) {
+            words.add('#' + tag.toLowerCase(Locale.ROOT));
+        }
+        if (key.hasMeta()) {
+            final ItemMeta meta = key.toItemStack(1).getItemMeta();
+            if (meta != null) {
+                if (meta.hasDisplayName()) split(meta.getDisplayName(), words);
+                if (meta.hasLore()) {
+                    for (String line : meta.getLore()) split(line, words);
+                }
+                for (Enchantment enchantment : meta.getEnchants().keySet()) {
+                    split(enchantment.getKey().getKey(), words);
+                }
+                if (meta instanceof EnchantmentStorageMeta) {
+                    for (Enchantment enchantment : ((EnchantmentStorageMeta) meta).getStoredEnchants().keySet()) {
+                        split(enchantment.getKey().getKey(), words);
+                    }
+                }
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    // lowercase letter and digit runs; color codes are skipped
+    private static void split(String text, Collection<String> into) {
+        final StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); ++i) {
+            final char c = text.charAt(i);
+            if (c == '\u00a7') {
+                ++i;
+            } else if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (word.length() > 0) {
+                into.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) into.add(word.toString());
+    }
+
+    // a storage which fails stays stale and is retried next time
+    private void refreshStale() throws ProviderException {
+        if (stale.isEmpty()) return;
+        for (InventoryDiscreteStorage<?> storage : new ArrayList<>(stale)) {
+            storage.refreshContentIndex();
+            stale.remove(storage);
+        }
+    }
+
+    /**
+     * Find the keys matching every term of a query.
+     * <p>
+     * Terms are separated like indexed words and each matches any
+     * token it is a prefix of; a term starting with {@code #} matches
+     * tags. An empty query matches every key.
+     *
+     * @param query the query
+     * @param limit the maximum number of results
+     * @return the total amount per matching key, largest first
+     * @throws ProviderException if a storage cannot be refreshed
+     */
+    public @NotNull Map<ItemKey, Long> search(@NotNull String query, int limit) throws ProviderException {
+        refreshStale();
+        final List<String> terms = new ArrayList<>();
+        for (String part : query.trim().split("\\s+")) {
+            if (part.isEmpty()) continue;
+            if (part.charAt(0) == '#') {
+                terms.add('#' + part.substring(1).toLowerCase(Locale.ROOT));
+            } else {
+                split(part, terms);
+            }
+        }
+        Set<ItemKey> matches = null;
+        for (String term : terms) {
+            final Set<ItemKey> termMatches = new HashSet<>();
+            for (Set<ItemKey> keys : postings.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+                if (matches == null) {
+                    termMatches.addAll(keys);
+                } else {
+                    for (ItemKey key : keys) {
+                        if (matches.contains(key)) termMatches.add(key);
+                    }
+                }
+            }
+            matches = termMatches;
+            if (matches.isEmpty()) break;
+        }
+        final List<ItemKey> results = new ArrayList<>((matches == null) ? counts.keySet() : matches);
+        results.sort((a, b) -> Long.compare(counts.get(b)[0], counts.get(a)[0]));
+        final Map<ItemKey, Long> found = new LinkedHashMap<>();
+        for (int i = 0; i < results.size() && i < limit; ++i) {
+            found.put(results.get(i), counts.get(results.get(i))[0]);
+        }
+        return found;
+    }
+
+    /**
+     * Get the total amount of a key across attached storages.
+     *
+     * @param key an item key
+     * @return the total amount
+     * @throws ProviderException if a storage cannot be refreshed
+     */
+    public long getCount(@NotNull ItemKey key) throws ProviderException {
+        refreshStale();
+        final long[] total = counts.get(key);
+        return (total == null) ? 0 : total[0];
+    }
+
+    /**
+     * Get the number of distinct keys held by attached storages.
+     *
+     * @return the number of indexed keys
+     * @throws ProviderException if a storage cannot be refreshed
+     */
+    public int size() throws ProviderException {
+        refreshStale();
+        return counts.size();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.stats;
+
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Item-flow counters of a storage or group over a window.
+ * <p>
+ * Item counts are net of rejected and missing items, so
+ * {@link #getItemsIn()} is the number of items actually inserted.
+ *
+ * @since 1.0.0
+ * @see FlowStats#snapshot()
+ */
+public final class FlowSnapshot {
+    /**
+     * Orders snapshots by descending items moved, hottest first.
+     */
+    public static final Comparator<FlowSnapshot> HOTTEST_FIRST =
+            Comparator.comparingLong((FlowSnapshot snapshot) -> snapshot.itemsIn + snapshot.itemsOut).reversed();
+    private final long windowNanos;
+    private final long operations;
+    private final long itemsIn;
+    private final long itemsOut;
+    private final long rejected;
+    private final long missing;
+    private final ImmutableMap<ItemKey, Long> inByKey;
+    private final ImmutableMap<ItemKey, Long> outByKey;
+
+    FlowSnapshot(long windowNanos, long operations, long itemsIn, long itemsOut, long rejected, long missing,
+                 ImmutableMap<ItemKey, Long> inByKey, ImmutableMap<ItemKey, Long> outByKey) {
+        this.windowNanos = windowNanos;
+        this.operations = operations;
+        this.itemsIn = itemsIn;
+        this.itemsOut = itemsOut;
+        this.rejected = rejected;
+        this.missing = missing;
+        this.inByKey = inByKey;
+        this.outByKey = outByKey;
+    }
+
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    public long getItemsIn() {
+        return itemsIn;
+    }
+
+    public long getItemsOut() {
+        return itemsOut;
+    }
+
+    /**
+     * Get the number of items insertions could not fit.
+     *
+     * @return the rejected item count
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Get the number of items removals could not find.
+     *
+     * @return the missing item count
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * Get the items inserted per key.
+     *
+     * @return an immutable map of key to amount
+     */
+    public @NotNull ImmutableMap<ItemKey, Long> getInByKey() {
+        return inByKey;
+    }
+
+    /**
+     * Get the items removed per key.
+     *
+     * @return an immutable map of key to amount
+     */
+    public @NotNull ImmutableMap<ItemKey, Long> getOutByKey() {
+        return outByKey;
+    }
+
+    public double getOperationsPerSecond() {
+        return perSecond(operations);
+    }
+
+    public double getItemsInPerSecond() {
+        return perSecond(itemsIn);
+    }
+
+    public double getItemsOutPerSecond() {
+        return perSecond(itemsOut);
+    }
+
+    /**
+     * Get the fraction of offered items which insertions rejected.
+     *
+     * @return a value from 0 to 1
+     */
+    public double getLeftoverRate() {
+        final long offered = itemsIn + rejected;
+        return (offered <= 0) ? 0 : (double) rejected / offered;
+    }
+
+    /**
+     * Combine this snapshot with another, such as of a sibling storage.
+     * <p>
+     * The combined window is the longer of the two.
+     *
+     * @param other another snapshot
+     * @return a combined snapshot
+     */
+    public @NotNull FlowSnapshot merge(@NotNull FlowSnapshot other) {
+        return new FlowSnapshot(Math.max(windowNanos, other.windowNanos), operations + other.operations,
+                itemsIn + other.itemsIn, itemsOut + other.itemsOut, rejected + other.rejected,
+                missing + other.missing, merge(inByKey, other.inByKey), merge(outByKey, other.outByKey));
+    }
+
+    private double perSecond(long count) {
+        return count * 1e9 / windowNanos;
+    }
+
+    private static ImmutableMap<ItemKey, Long> merge(ImmutableMap<ItemKey, Long> a, ImmutableMap<ItemKey, Long> b) {
+        if (a.isEmpty()) return b;
+        if (b.isEmpty()) return a;
+        final Map<ItemKey, Long> merged = new HashMap<>(a);
+        b.forEach((key, amount) -> merged.merge(key, amount, Long::sum));
+        return ImmutableMap.copyOf(merged);
+    }
+
+    @Override
+    public String toString() {
+        return "FlowSnapshot{operations=" + operations + ", in=" + itemsIn + ", out=" + itemsOut +
+                ", rejected=" + rejected + ", missing=" + missing + ", windowNanos=" + windowNanos + '}';
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.stats;
+
+import com.github.sanctum.storages.DiscreteStorage;
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.StorageGroup;
+import com.github.sanctum.storages.items.ItemKey;
+import com.google.common.collect.ImmutableMap;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Rolling item-flow counters of a storage or group.
+ * <p>
+ * Counts operations, items moved in and out (in total and per
+ * {@link ItemKey}), items rejected by full insertions and items
+ * missing from removals over a sliding window. Recording is
+ * lock-free and safe from any thread.
+ *
+ * @since 1.0.0
+ * @see com.github.sanctum.storages.DiscreteStorage#setFlowStats(FlowStats)
+ * @see com.github.sanctum.storages.SimpleStorageGroup#setFlowStats(FlowStats)
+ */
+public final class FlowStats {
+    private final int buckets;
+    private final long bucketNanos;
+    private final LongSupplier clock;
+    private final WindowedCounter operations;
+    private final WindowedCounter in;
+    private final WindowedCounter out;
+    private final WindowedCounter rejected;
+    private final WindowedCounter missing;
+    private final Map<ItemKey, WindowedCounter> inByKey = new ConcurrentHashMap<>();
+    private final Map<ItemKey, WindowedCounter> outByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Create counters over a one minute window of one second buckets.
+     */
+    public FlowStats() {
+        this(60, TimeUnit.SECONDS, 60);
+    }
+
+    /**
+     * Create counters over a sliding window.
+     *
+     * @param window the length of the window
+     * @param unit the unit of the window
+     * @param buckets the number of buckets the window slides by
+     * @throws IllegalArgumentException if the window is shorter than
+     * one nanosecond per bucket or buckets is not positive
+     */
+    public FlowStats(long window, @NotNull TimeUnit unit, int buckets) throws IllegalArgumentException {
+        this(unit.toNanos(window), buckets, System::nanoTime);
+    }
+
+    FlowStats(long windowNanos, int buckets, LongSupplier clock) {
+        if (buckets <= 0 || windowNanos < buckets) {
+            throw new IllegalArgumentException("Window must be at least one nanosecond per bucket");
+        }
+        this.buckets = buckets;
+        this.bucketNanos = windowNanos / buckets;
+        this.clock = clock;
+        this.operations = counter();
+        this.in = counter();
+        this.out = counter();
+        this.rejected = counter();
+        this.missing = counter();
+    }
+
+    /**
+     * Get the length of the window.
+     *
+     * @return the window in nanoseconds
+     */
+    public long getWindowNanos() {
+        return bucketNanos * buckets;
+    }
+
+    /**
+     * Count one operation.
+     */
+    public void recordOperation() {
+        operations.add(1, clock.getAsLong());
+    }
+
+    /**
+     * Count items offered for insertion.
+     * <p>
+     * Items not accepted are to be reported through
+     * {@link #recordRejected(Collection)}.
+     *
+     * @param items the offered items
+     */
+    public void recordIn(@NotNull Collection<? extends ItemStack> items) {
+        final long now = clock.getAsLong();
+        for (ItemStack item : items) record(in, inByKey, item, 1, now);
+    }
+
+    /**
+     * Count items not accepted by an insertion.
+     *
+     * @param leftover the items left over
+     */
+    public void recordRejected(@NotNull Collection<? extends ItemStack> leftover) {
+        final long now = clock.getAsLong();
+        for (ItemStack item : leftover) {
+            if (record(in, inByKey, item, -1, now)) rejected.add(item.getAmount(), now);
+        }
+    }
+
+    /**
+     * Count items requested for removal.
+     * <p>
+     * Items not found are to be reported through
+     * {@link #recordMissing(Collection)}.
+     *
+     * @param items the requested items
+     */
+    public void recordOut(@NotNull Collection<? extends ItemStack> items) {
+        final long now = clock.getAsLong();
+        for (ItemStack item : items) record(out, outByKey, item, 1, now);
+    }
+
+    /**
+     * Count one removed item stack.
+     *
+     * @param item the removed stack
+     */
+    public void recordOut(@Nullable ItemStack item) {
+        record(out, outByKey, item, 1, clock.getAsLong());
+    }
+
+    /**
+     * Count items not found by a removal.
+     *
+     * @param leftover the items left over
+     */
+    public void recordMissing(@NotNull Collection<? extends ItemStack> leftover) {
+        final long now = clock.getAsLong();
+        for (ItemStack item : leftover) {
+            if (record(out, outByKey, item, -1, now)) missing.add(item.getAmount(), now);
+        }
+    }
+
+    /**
+     * Read the counters of the current window.
+     * <p>
+     * Per-key counters without flow in the window are dropped.
+     *
+     * @return a snapshot of the counters
+     */
+    public @NotNull FlowSnapshot snapshot() {
+        final long now = clock.getAsLong();
+        return new FlowSnapshot(getWindowNanos(), operations.sum(now), in.sum(now), out.sum(now),
+                rejected.sum(now), missing.sum(now), sums(inByKey, now), sums(outByKey, now));
+    }
+
+    /**
+     * Reset all counters.
+     */
+    public void reset() {
+        operations.reset();
+        in.reset();
+        out.reset();
+        rejected.reset();
+        missing.reset();
+        inByKey.clear();
+        outByKey.clear();
+    }
+
+    /**
+     * Start counting flow on each discrete member of a group, nested
+     * groups included, which does not count flow yet.
+     *
+     * @param group a group
+     * @param factory creates the counters of each member
+     */
+    public static void enableMembers(@NotNull StorageGroup<?> group, @NotNull Supplier<FlowStats> factory) {
+        for (Storage<?> storage : group.flatten()) {
+            if (storage instanceof DiscreteStorage) {
+                final DiscreteStorage member = (DiscreteStorage) storage;
+                if (member.getFlowStats() == null) member.setFlowStats(factory.get());
+            }
+        }
+    }
+
+    /**
+     * Snapshot the members of a group which count flow, nested groups
+     * expanded as by {@link StorageGroup#flatten()}, hottest first.
+     *
+     * @param group a group
+     * @return an ordered map of member to snapshot
+     * @see FlowSnapshot#HOTTEST_FIRST
+     */
+    public static @NotNull Map<Storage<?>, FlowSnapshot> snapshotMembers(@NotNull StorageGroup<?> group) {
+        final List<Map.Entry<Storage<?>, FlowSnapshot>> entries = new ArrayList<>();
+        for (Storage<?> storage : group.flatten()) {
+            final FlowStats stats = (storage instanceof DiscreteStorage) ? ((DiscreteStorage) storage).getFlowStats()
+                    : (storage instanceof StorageGroup) ? ((StorageGroup<?>) storage).getFlowStats() : null;
+            if (stats != null) entries.add(new AbstractMap.SimpleImmutableEntry<>(storage, stats.snapshot()));
+        }
+        entries.sort(Map.Entry.comparingByValue(FlowSnapshot.HOTTEST_FIRST));
+        final Map<Storage<?>, FlowSnapshot> snapshots = new LinkedHashMap<>();
+        for (Map.Entry<Storage<?>, FlowSnapshot> entry : entries) snapshots.put(entry.getKey(), entry.getValue());
+        return snapshots;
+    }
+
+    private WindowedCounter counter() {
+        return new WindowedCounter(buckets, bucketNanos);
+    }
+
+    private boolean record(WindowedCounter total, Map<ItemKey, WindowedCounter> byKey, @Nullable ItemStack item, int sign, long now) {
+        final ItemKey key = ItemKey.of(item);
+        if (key == null) return false;
+        final long amount = (long) sign * item.getAmount();
+        total.add(amount, now);
+        byKey.computeIfAbsent(key, k -> counter()).add(amount, now);
+        return true;
+    }
+
+    private static ImmutableMap<ItemKey, Long> sums(Map<ItemKey, WindowedCounter> byKey, long now) {
+        final ImmutableMap.Builder<ItemKey, Long> builder = ImmutableMap.builder();
+        byKey.entrySet().removeIf(entry -> {
+            final long sum = entry.getValue().sum(now);
+            if (sum != 0) builder.put(entry.getKey(), sum);
+            return sum == 0;
+        });
+        return builder.build();
+    }
+}
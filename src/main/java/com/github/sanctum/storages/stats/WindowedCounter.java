@@ -0,0 +1,75 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A striped counter over a sliding window of fixed-length buckets.
+ * <p>
+ * Each bucket is a {@link LongAdder} stamped with the epoch it counts;
+ * the first writer of a new epoch resets the bucket. Sums include only
+ * buckets within the window. Concurrent writes racing a reset may be
+ * lost, which is acceptable for statistics.
+ *
+ * @since 1.0.0
+ */
+final class WindowedCounter {
+    private final LongAdder[] buckets;
+    private final AtomicLongArray epochs;
+    private final long bucketNanos;
+
+    WindowedCounter(int buckets, long bucketNanos) {
+        this.buckets = new LongAdder[buckets];
+        this.epochs = new AtomicLongArray(buckets);
+        this.bucketNanos = bucketNanos;
+        for (int i = 0; i < buckets; ++i) {
+            this.buckets[i] = new LongAdder();
+            this.epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    void add(long amount, long now) {
+        final long epoch = Math.floorDiv(now, bucketNanos);
+        final int i = (int) Math.floorMod(epoch, (long) buckets.length);
+        final long stamp = epochs.get(i);
+        if (stamp != epoch && epochs.compareAndSet(i, stamp, epoch)) {
+            buckets[i].reset();
+        }
+        buckets[i].add(amount);
+    }
+
+    long sum(long now) {
+        final long epoch = Math.floorDiv(now, bucketNanos);
+        long total = 0;
+        for (int i = 0; i < buckets.length; ++i) {
+            final long stamp = epochs.get(i);
+            if (stamp != Long.MIN_VALUE && stamp <= epoch && epoch - stamp < buckets.length) total += buckets[i].sum();
+        }
+        return total;
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length; ++i) {
+            epochs.set(i, Long.MIN_VALUE);
+            buckets[i].reset();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.storage;
+
+import com.github.sanctum.storages.DiscreteStorage;
+import com.github.sanctum.storages.StorageListener;
+import com.github.sanctum.storages.items.ItemKey;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * The last known key and amount of every slot of a storage,
+ * with capacity totals maintained incrementally.
+ * <p>
+ * Every change is reported to a {@link StorageListener} sink, so
+ * observers replaying those changes always agree with this index.
+ * An invalid index still holds its last known state; it becomes
+ * valid again once refreshed from a full contents read.
+ * <p>
+ * A presence summary of the known contents (a bitset of material
+ * ordinals and a Bloom filter over item keys) answers whether the
+ * storage might hold an item. Bits are set on writes and only
+ * cleared when the summary is rebuilt, which happens on a full
+ * refresh or lazily once enough stacks have left their slots.
+ *
+ * @since 1.0.0
+ */
+public final class ContentIndex {
+    private static final int BLOOM_WORDS = 8;
+    private static final int BLOOM_MASK = BLOOM_WORDS * 64 - 1;
+    private final DiscreteStorage owner;
+    private final StorageListener sink;
+    private final ItemKey[] keys;
+    private final int[] amounts;
+    private final Map<ItemKey, long[]> headroom = new HashMap<>();
+    private final BitSet materials = new BitSet();
+    private final long[] bloom = new long[BLOOM_WORDS];
+    private int freeSlots;
+    private int departed;
+    private boolean valid;
+
+    /**
+     * Create an invalid index with every slot known empty.
+     *
+     * @param owner the storage described by this index
+     * @param size the number of slots
+     * @param sink a listener receiving every change
+     */
+    public ContentIndex(@NotNull DiscreteStorage owner, int size, @NotNull StorageListener sink) {
+        this.owner = owner;
+        this.sink = sink;
+        this.keys = new ItemKey[size];
+        this.amounts = new int[size];
+        this.freeSlots = size;
+    }
+
+    /**
+     * Get the free space a stack leaves in its slot.
+     *
+     * @param key the key of the stack or null if the slot is empty
+     * @param amount the amount of the stack
+     * @return the number of similar items that still fit on the stack
+     */
+    public static int headroom(@Nullable ItemKey key, int amount) {
+        return (key == null) ? 0 : Math.max(0, key.getMaxStackSize() - amount);
+    }
+
+    /**
+     * Get the number of slots.
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Whether this index has been filled from a full contents read.
+     * <p>
+     * A valid index only reflects changes reported to it; its owner
+     * decides how long it may be trusted without another full read.
+     *
+     * @return true unless invalidated since the last full refresh
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Mark this index as possibly out of date.
+     */
+    public void invalidate() {
+        if (!valid) return;
+        valid = false;
+        sink.invalidated(owner);
+    }
+
+    /**
+     * Record the new contents of a slot.
+     *
+     * @param slot the slot index
+     * @param item the new contents
+     */
+    public void set(int slot, @Nullable ItemStack item) {
+        final ItemKey previousKey = keys[slot];
+        final ItemKey key = (previousKey != null && previousKey.matches(item)) ? previousKey : ItemKey.of(item);
+        final int amount = (key == null) ? 0 : item.getAmount();
+        final int previousAmount = amounts[slot];
+        if (key == previousKey && amount == previousAmount) return;
+        keys[slot] = key;
+        amounts[slot] = amount;
+        if (previousKey == null) --freeSlots;
+        if (key == null) ++freeSlots;
+        if (previousKey != null && previousKey != key) ++departed;
+        if (key != null && key != previousKey) addPresence(key);
+        addHeadroom(previousKey, -headroom(previousKey, previousAmount));
+        addHeadroom(key, headroom(key, amount));
+        sink.slotChanged(owner, slot, previousKey, previousAmount, key, amount);
+    }
+
+    /**
+     * Record the full contents and mark this index valid.
+     *
+     * @param contents the contents; missing trailing elements are empty
+     */
+    public void setAll(@Nullable ItemStack[] contents) {
+        for (int i = 0; i < keys.length; ++i) {
+            set(i, (i < contents.length) ? contents[i] : null);
+        }
+        rebuildPresence();
+        valid = true;
+    }
+
+    /**
+     * Whether the known contents might include a material.
+     * <p>
+     * False means no known slot holds the material.
+     *
+     * @param material a material
+     * @return false if the material is definitely absent
+     */
+    public boolean mightContain(@NotNull Material material) {
+        if (departed > keys.length) rebuildPresence();
+        return materials.get(material.ordinal());
+    }
+
+    /**
+     * Whether the known contents might include items of a key.
+     * <p>
+     * False means no known slot holds items of the key.
+     *
+     * @param key an item key
+     * @return false if the key is definitely absent
+     */
+    public boolean mightContain(@NotNull ItemKey key) {
+        if (departed > keys.length) rebuildPresence();
+        if (!materials.get(key.getType().ordinal())) return false;
+        final int h = mix(key.hashCode());
+        return bloomBit(h) && bloomBit(h >>> 16 | h << 16);
+    }
+
+    private void addPresence(ItemKey key) {
+        materials.set(key.getType().ordinal());
+        final int h = mix(key.hashCode());
+        setBloomBit(h);
+        setBloomBit(h >>> 16 | h << 16);
+    }
+
+    private void rebuildPresence() {
+        materials.clear();
+        Arrays.fill(bloom, 0);
+        departed = 0;
+        for (ItemKey key : keys) {
+            if (key != null) addPresence(key);
+        }
+    }
+
+    private boolean bloomBit(int h) {
+        final int bit = h & BLOOM_MASK;
+        return (bloom[bit >>> 6] & 1L << bit) != 0;
+    }
+
+    private void setBloomBit(int h) {
+        final int bit = h & BLOOM_MASK;
+        bloom[bit >>> 6] |= 1L << bit;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ h >>> 16;
+    }
+
+    private void addHeadroom(@Nullable ItemKey key, int delta) {
+        if (key == null || delta == 0) return;
+        final long[] total = headroom.computeIfAbsent(key, k -> new long[1]);
+        if ((total[0] += delta) == 0) headroom.remove(key);
+    }
+
+    /**
+     * Get the known key of a slot.
+     *
+     * @param slot the slot index
+     * @return the key or null if the slot is known empty
+     */
+    public @Nullable ItemKey getKey(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Get the known amount of a slot.
+     *
+     * @param slot the slot index
+     * @return the amount or 0 if the slot is known empty
+     */
+    public int getAmount(int slot) {
+        return amounts[slot];
+    }
+
+    /**
+     * Get the number of known empty slots.
+     *
+     * @return the number of free slots
+     */
+    public int getFreeSlots() {
+        return freeSlots;
+    }
+
+    /**
+     * Get the free space on existing stacks of a key.
+     *
+     * @param key an item key
+     * @return the number of items of the key fitting on existing stacks
+     */
+    public long getHeadroom(@NotNull ItemKey key) {
+        final long[] total = headroom.get(key);
+        return (total == null) ? 0 : total[0];
+    }
+
+    /**
+     * Get the number of items of a key which fit into the storage.
+     *
+     * @param key an item key
+     * @return the free space on existing stacks plus that of free slots
+     */
+    public long getMaxInsertable(@NotNull ItemKey key) {
+        return getHeadroom(key) + (long) freeSlots * key.getMaxStackSize();
+    }
+
+    /**
+     * Visit the free space on existing stacks of every key.
+     *
+     * @param action an action receiving each key and its free space
+     */
+    public void forEachHeadroom(@NotNull ObjLongConsumer<ItemKey> action) {
+        headroom.forEach((key, total) -> action.accept(key, total[0]));
+    }
+}
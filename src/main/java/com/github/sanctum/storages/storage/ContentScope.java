@@ -0,0 +1,100 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.storage;
+
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+
+/**
+ * A batch scope during which content indexes may be trusted.
+ * <p>
+ * Outside of a scope, every read answered by the content index of an
+ * {@link InventoryDiscreteStorage} first refreshes the index from a full
+ * contents read, so changes made by other sources are always seen.
+ * Inside a scope, an index refreshed once is trusted until the
+ * outermost scope closes; writes made through the storage keep it
+ * current. Callers opening a scope assert that no other source changes
+ * the inventories they use until it is closed:
+ * <pre>{@code
+ * try (ContentScope scope = ContentScope.open()) {
+ *     if (group.maxInsertable(key) >= amount) group.addItem(items);
+ * }
+ * }</pre>
+ * Scopes may be nested.
+ * <p>
+ * <b>Not thread-safe; use from the main thread only.</b>
+ *
+ * @since 1.0.0
+ */
+public final class ContentScope implements AutoCloseable {
+    private static int depth;
+    private static long epoch;
+    private boolean closed;
+
+    private ContentScope() {}
+
+    /**
+     * Open a scope.
+     *
+     * @return a scope which must be closed
+     */
+    public static ContentScope open() {
+        if (depth++ == 0) ++epoch;
+        return new ContentScope();
+    }
+
+    /**
+     * Whether a scope is open.
+     *
+     * @return true if a scope is open
+     */
+    public static boolean isOpen() {
+        return depth > 0;
+    }
+
+    /**
+     * Whether an index refreshed during the provided epoch may
+     * still be trusted.
+     *
+     * @param refreshedEpoch the {@link #epoch()} at the time of refresh
+     * @return true if a scope is open and it was refreshed within it
+     */
+    public static boolean isCurrent(long refreshedEpoch) {
+        return depth > 0 && refreshedEpoch == epoch;
+    }
+
+    /**
+     * Get the epoch of the outermost open or last closed scope.
+     *
+     * @return the current epoch
+     */
+    public static long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Close this scope; indexes stop being trusted once the
+     * outermost scope is closed. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        --depth;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.storage;
+
+import com.github.sanctum.storages.items.ItemKey;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+/**
+ * A read-only view of the slots of a storage which does not copy
+ * its contents.
+ * <p>
+ * A view is only valid within the scope of the reader it was passed
+ * to; any access after the reader returns throws. Stacks returned by
+ * {@link #getItem(int)} may be live and must not be modified or kept.
+ * Most readers only need {@link #getType(int)} and
+ * {@link #getAmount(int)}, which implementations may answer without
+ * touching stacks at all.
+ *
+ * @since 1.0.0
+ * @see com.github.sanctum.storages.DiscreteStorage#readContents(Function)
+ */
+public abstract class ContentsView {
+    private boolean open = true;
+
+    /**
+     * Create a view over a content array.
+     *
+     * @param contents the contents; elements may be null
+     * @return a new view
+     */
+    public static ContentsView of(@Nullable ItemStack[] contents) {
+        return new ContentsView() {
+            @Override
+            public int size() {
+                return contents.length;
+            }
+
+            @Override
+            protected @Nullable ItemStack item(int slot) {
+                return contents[slot];
+            }
+        };
+    }
+
+    /**
+     * Apply a reader to a view and close the view afterwards.
+     *
+     * @param view a new view
+     * @param reader a reader
+     * @param <R> result type
+     * @return the result of the reader
+     */
+    public static <R> R within(@NotNull ContentsView view, @NotNull Function<? super ContentsView, ? extends R> reader) {
+        try {
+            return reader.apply(view);
+        } finally {
+            view.open = false;
+        }
+    }
+
+    /**
+     * Get the number of slots.
+     *
+     * @return the number of slots
+     */
+    public abstract int size();
+
+    /**
+     * Get the stack of a slot.
+     *
+     * @param slot the slot index
+     * @return the stack, which must not be modified or kept
+     * @throws IllegalStateException if the view is out of scope
+     */
+    public final @Nullable ItemStack getItem(int slot) throws IllegalStateException {
+        checkOpen();
+        return item(slot);
+    }
+
+    /**
+     * Get the material of a slot.
+     *
+     * @param slot the slot index
+     * @return the material or null if the slot is empty
+     * @throws IllegalStateException if the view is out of scope
+     */
+    public final @Nullable Material getType(int slot) throws IllegalStateException {
+        checkOpen();
+        return type(slot);
+    }
+
+    /**
+     * Get the amount of a slot.
+     *
+     * @param slot the slot index
+     * @return the amount or 0 if the slot is empty
+     * @throws IllegalStateException if the view is out of scope
+     */
+    public final int getAmount(int slot) throws IllegalStateException {
+        checkOpen();
+        return amount(slot);
+    }
+
+    /**
+     * Get the item key of a slot.
+     *
+     * @param slot the slot index
+     * @return the key or null if the slot is empty
+     * @throws IllegalStateException if the view is out of scope
+     */
+    public final @Nullable ItemKey getKey(int slot) throws IllegalStateException {
+        checkOpen();
+        return key(slot);
+    }
+
+    /**
+     * Whether the stack of a slot belongs to an item key.
+     *
+     * @param slot the slot index
+     * @param key an item key
+     * @return true if the stack is similar to the key
+     * @throws IllegalStateException if the view is out of scope
+     */
+    public final boolean matches(int slot, @NotNull ItemKey key) throws IllegalStateException {
+        checkOpen();
+        return keyMatches(slot, key);
+    }
+
+    /**
+     * Whether a slot is empty.
+     *
+     * @param slot the slot index
+     * @return true if the slot is empty
+     * @throws IllegalStateException if the view is out of scope
+     */
+    public final boolean isEmpty(int slot) throws IllegalStateException {
+        return getType(slot) == null;
+    }
+
+    protected abstract @Nullable ItemStack item(int slot);
+
+    protected @Nullable Material type(int slot) {
+        final ItemStack item = item(slot);
+        return ItemKey.isEmpty(item) ? null : item.getType();
+    }
+
+    protected int amount(int slot) {
+        final ItemStack item = item(slot);
+        return ItemKey.isEmpty(item) ? 0 : item.getAmount();
+    }
+
+    protected @Nullable ItemKey key(int slot) {
+        return ItemKey.of(item(slot));
+    }
+
+    protected boolean keyMatches(int slot, @NotNull ItemKey key) {
+        return key.matches(item(slot));
+    }
+
+    private void checkOpen() {
+        if (!open) throw new IllegalStateException("ContentsView used outside of its reader");
+    }
+}
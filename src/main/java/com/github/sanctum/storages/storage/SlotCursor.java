@@ -0,0 +1,135 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.storage;
+
+import java.util.Arrays;
+
+/**
+ * A reusable cursor over (slot index, amount) pairs.
+ * <p>
+ * Filled by searches and then traversed with {@link #next()}:
+ * <pre>{@code
+ * cursor.clear();
+ * storage.find(Material.COBBLESTONE, cursor);
+ * while (cursor.next()) {
+ *     total += cursor.amount();
+ * }
+ * }</pre>
+ *
+ * @since 1.0.0
+ */
+public final class SlotCursor {
+    private int[] indexes;
+    private int[] amounts;
+    private int size;
+    private int position = -1;
+
+    /**
+     * Create an empty cursor with a default capacity.
+     */
+    public SlotCursor() {
+        this(27);
+    }
+
+    /**
+     * Create an empty cursor with the provided initial capacity.
+     *
+     * @param capacity the initial capacity
+     */
+    public SlotCursor(int capacity) {
+        this.indexes = new int[Math.max(1, capacity)];
+        this.amounts = new int[indexes.length];
+    }
+
+    /**
+     * Append a pair to this cursor.
+     *
+     * @param index a slot index
+     * @param amount the amount in the slot
+     */
+    public void add(int index, int amount) {
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, size << 1);
+            amounts = Arrays.copyOf(amounts, size << 1);
+        }
+        indexes[size] = index;
+        amounts[size++] = amount;
+    }
+
+    /**
+     * Advance to the next pair.
+     *
+     * @return true if the cursor points at a pair
+     */
+    public boolean next() {
+        if (position + 1 >= size) return false;
+        ++position;
+        return true;
+    }
+
+    /**
+     * Get the slot index of the current pair.
+     *
+     * @return the slot index
+     * @throws IllegalStateException if the cursor does not point at a pair
+     */
+    public int index() throws IllegalStateException {
+        checkPosition();
+        return indexes[position];
+    }
+
+    /**
+     * Get the amount of the current pair.
+     *
+     * @return the amount
+     * @throws IllegalStateException if the cursor does not point at a pair
+     */
+    public int amount() throws IllegalStateException {
+        checkPosition();
+        return amounts[position];
+    }
+
+    private void checkPosition() {
+        if (position < 0 || position >= size) throw new IllegalStateException("Cursor does not point at a slot!");
+    }
+
+    /**
+     * Move the cursor back before the first pair.
+     */
+    public void rewind() {
+        position = -1;
+    }
+
+    /**
+     * Get the number of pairs.
+     *
+     * @return the number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all pairs and rewind, keeping the allocated capacity.
+     */
+    public void clear() {
+        size = 0;
+        position = -1;
+    }
+}
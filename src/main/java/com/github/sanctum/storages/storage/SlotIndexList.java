@@ -0,0 +1,123 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.storage;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A reusable, growable list of primitive slot indexes.
+ * <p>
+ * Intended to be allocated once and {@link #clear() cleared}
+ * between uses, so repeated searches do not allocate.
+ *
+ * @since 1.0.0
+ */
+public final class SlotIndexList {
+    private int[] indexes;
+    private int size;
+
+    /**
+     * Create an empty list with a default capacity.
+     */
+    public SlotIndexList() {
+        this(27);
+    }
+
+    /**
+     * Create an empty list with the provided initial capacity.
+     *
+     * @param capacity the initial capacity
+     */
+    public SlotIndexList(int capacity) {
+        this.indexes = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Append a slot index.
+     *
+     * @param index a slot index
+     */
+    public void add(int index) {
+        if (size == indexes.length) indexes = Arrays.copyOf(indexes, size << 1);
+        indexes[size++] = index;
+    }
+
+    /**
+     * Get the slot index at a position of this list.
+     *
+     * @param position a position in this list
+     * @return the slot index
+     * @throws IndexOutOfBoundsException if position is out of bounds
+     */
+    public int get(int position) throws IndexOutOfBoundsException {
+        if (position < 0 || position >= size) throw new IndexOutOfBoundsException("Position out of bounds!");
+        return indexes[position];
+    }
+
+    /**
+     * Get the number of slot indexes in this list.
+     *
+     * @return the size of this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether this list is empty.
+     *
+     * @return true if this list holds no indexes
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all indexes, keeping the allocated capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Perform an action for every slot index in order.
+     *
+     * @param action an action
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; ++i) {
+            action.accept(indexes[i]);
+        }
+    }
+
+    /**
+     * Copy the slot indexes into a new array.
+     *
+     * @return a new array of slot indexes
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(indexes, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
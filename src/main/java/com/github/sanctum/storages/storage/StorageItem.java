@@ -75,15 +75,19 @@ public abstract class StorageItem {
 
     /**
      * Get the original contents and subsequently update the storage item.
+     * <p>
+     * The returned item is a copy taken before the operation is applied,
+     * so operations which modify their argument do not alter it.
      *
      * @param updateOperation update function to apply
      * @return an Optional describing the original storage item contents
      * @throws ProviderException if the provider encounters an error
      */
     public Optional<@NotNull ItemStack> getAndUpdate(Function<@Nullable ItemStack, @Nullable ItemStack> updateOperation) throws ProviderException {
-        final Optional<@NotNull ItemStack> original = getItem();
-        update(updateOperation);
-        return original;
+        final ItemStack original = getItem().orElse(null);
+        final ItemStack copy = (original == null) ? null : original.clone();
+        setItem(updateOperation.apply(original));
+        return Optional.ofNullable(copy);
     }
 
     /**
@@ -0,0 +1,253 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.transport;
+
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.items.ItemFilter;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scheduled transfer of items from a source storage to a sink.
+ * <p>
+ * Each tick a link may move up to its batch size of items matching
+ * its filter, limited over time by its rate. Items the sink rejects
+ * go back to the source; items neither accepts stay in transit on
+ * the link and are offered to the sink again first. A link whose
+ * sink rejects everything backs off for up to a second.
+ *
+ * @since 1.0.0
+ * @see TransportScheduler
+ */
+public final class TransportLink {
+    private static final int MAX_BACKOFF_TICKS = 20;
+    private final Storage<?> source;
+    private final Storage<?> sink;
+    private final ItemFilter filter;
+    private final double ratePerTick;
+    private final int batchSize;
+    private final List<ItemStack> inTransit = new ArrayList<>();
+    private double budget;
+    private int backoff;
+    private long wakeTick;
+    private long moved;
+    private boolean enabled = true;
+
+    private TransportLink(Builder builder) {
+        this.source = builder.source;
+        this.sink = builder.sink;
+        this.filter = builder.filter;
+        this.ratePerTick = builder.ratePerSecond / 20;
+        this.batchSize = builder.batchSize;
+        this.budget = batchSize;
+    }
+
+    /**
+     * Create a builder for a link between two storages.
+     *
+     * @param source the storage to take items from
+     * @param sink the storage to give items to
+     * @return a new builder
+     * @throws IllegalArgumentException if source and sink are the same
+     */
+    public static Builder builder(@NotNull Storage<?> source, @NotNull Storage<?> sink) throws IllegalArgumentException {
+        if (source == sink) throw new IllegalArgumentException("Source and sink must differ");
+        return new Builder(source, sink);
+    }
+
+    /**
+     * Get the storage items are taken from.
+     *
+     * @return the source
+     */
+    public @NotNull Storage<?> getSource() {
+        return source;
+    }
+
+    /**
+     * Get the storage items are given to.
+     *
+     * @return the sink
+     */
+    public @NotNull Storage<?> getSink() {
+        return sink;
+    }
+
+    /**
+     * Get the filter of moved items.
+     *
+     * @return the filter
+     */
+    public @NotNull ItemFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get the maximum number of items moved per tick.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Get the average number of items this link may move per second.
+     *
+     * @return the rate
+     */
+    public double getRate() {
+        return ratePerTick * 20;
+    }
+
+    /**
+     * Get the number of items delivered to the sink so far.
+     *
+     * @return the number of delivered items
+     */
+    public long getMovedCount() {
+        return moved;
+    }
+
+    /**
+     * Get the items taken from the source which neither the sink nor
+     * the source accepted yet.
+     *
+     * @return a copy of the items in transit
+     */
+    public @NotNull List<ItemStack> getInTransit() {
+        return ImmutableList.copyOf(inTransit);
+    }
+
+    /**
+     * Whether this link moves items.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Pause or resume this link.
+     * <p>
+     * Items in transit are kept while paused.
+     *
+     * @param enabled whether the link moves items
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // scheduler state, main thread only
+
+    List<ItemStack> inTransit() {
+        return inTransit;
+    }
+
+    boolean isDue(long tick) {
+        return enabled && tick >= wakeTick;
+    }
+
+    int refill() {
+        budget = Math.min(batchSize, budget + ratePerTick);
+        return (int) budget;
+    }
+
+    void spend(int items) {
+        budget -= items;
+    }
+
+    void delivered(int items) {
+        moved += items;
+        backoff = 0;
+    }
+
+    void rejected(long tick) {
+        backoff = (backoff == 0) ? 1 : Math.min(MAX_BACKOFF_TICKS, backoff << 1);
+        wakeTick = tick + backoff;
+    }
+
+    /**
+     * Builds {@link TransportLink TransportLinks}.
+     */
+    public static final class Builder {
+        private final Storage<?> source;
+        private final Storage<?> sink;
+        private ItemFilter filter = ItemFilter.ANY;
+        private double ratePerSecond = Double.POSITIVE_INFINITY;
+        private int batchSize = 64;
+
+        private Builder(Storage<?> source, Storage<?> sink) {
+            this.source = source;
+            this.sink = sink;
+        }
+
+        /**
+         * Move only items matching a filter. Defaults to any item.
+         *
+         * @param filter a filter
+         * @return this builder
+         */
+        public Builder filter(@NotNull ItemFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Limit the average number of items moved per second.
+         * Defaults to no limit beyond the batch size.
+         *
+         * @param itemsPerSecond a positive rate
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is not positive
+         */
+        public Builder rate(double itemsPerSecond) throws IllegalArgumentException {
+            if (!(itemsPerSecond > 0)) throw new IllegalArgumentException("Rate must be positive");
+            this.ratePerSecond = itemsPerSecond;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of items moved per tick. Defaults to 64.
+         *
+         * @param batchSize a positive number of items
+         * @return this builder
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder batchSize(int batchSize) throws IllegalArgumentException {
+            if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Build the link.
+         *
+         * @return a new link
+         */
+        public TransportLink build() {
+            return new TransportLink(this);
+        }
+    }
+}
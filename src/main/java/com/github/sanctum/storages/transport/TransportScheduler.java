@@ -0,0 +1,351 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.transport;
+
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.StorageGroup;
+import com.github.sanctum.storages.exceptions.ItemException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.storage.ContentScope;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Runs every {@link TransportLink} of an automation setup from a
+ * single task.
+ * <p>
+ * Each tick, due links take items from their sources, visiting each
+ * source once with all of its links. Everything bound for the same
+ * sink in that tick is then given to it in one
+ * {@link Storage#addItem(java.util.Collection) addItem} call, so a
+ * {@link StorageGroup} sink places the whole batch through its own
+ * placement order. Rejected items are handed back to the links which
+ * sent them, last sender first, and returned to their sources. A sink
+ * failing with a provider error has taken nothing; the batch stays in
+ * transit and is retried.
+ * <p>
+ * Removing a link or {@link #close() closing} the scheduler returns the
+ * link's items in transit to its source.
+ * <p>
+ * <b>Not thread-safe; use from the main thread only.</b>
+ *
+ * @since 1.0.0
+ */
+public final class TransportScheduler implements Runnable, AutoCloseable {
+    private final Map<Storage<?>, List<TransportLink>> bySource = new LinkedHashMap<>();
+    private final Map<Storage<?>, Delivery> deliveries = new LinkedHashMap<>();
+    private final Map<TransportLink, List<ItemStack>> returns = new LinkedHashMap<>();
+    private final Consumer<ProviderException> errorHandler;
+    private BukkitTask task;
+    private long tick;
+
+    private static final class Delivery {
+        final List<TransportLink> links = new ArrayList<>();
+        final List<List<ItemStack>> parts = new ArrayList<>();
+        final List<ItemStack> items = new ArrayList<>();
+
+        void add(TransportLink link, List<ItemStack> part) {
+            links.add(link);
+            parts.add(part);
+            items.addAll(part);
+        }
+
+        boolean isEmpty() {
+            return items.isEmpty();
+        }
+
+        void clear() {
+            links.clear();
+            parts.clear();
+            items.clear();
+        }
+    }
+
+    /**
+     * Create a scheduler which silently drops provider errors.
+     */
+    public TransportScheduler() {
+        this(e -> {});
+    }
+
+    /**
+     * Create a scheduler which reports provider errors to a handler.
+     * <p>
+     * Items affected by a failing storage stay in transit.
+     *
+     * @param errorHandler a handler for provider errors
+     */
+    public TransportScheduler(@NotNull Consumer<ProviderException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Schedule a link. Adding a scheduled link does nothing.
+     *
+     * @param link a link
+     */
+    public void add(@NotNull TransportLink link) {
+        final List<TransportLink> links = bySource.computeIfAbsent(link.getSource(), source -> new ArrayList<>());
+        if (!links.contains(link)) links.add(link);
+    }
+
+    /**
+     * Stop scheduling a link and return its items in transit to its
+     * source.
+     * <p>
+     * Items the source cannot take back stay on the link.
+     *
+     * @param link a link
+     */
+    public void remove(@NotNull TransportLink link) {
+        final List<TransportLink> links = bySource.get(link.getSource());
+        if (links == null || !links.remove(link)) return;
+        if (links.isEmpty()) bySource.remove(link.getSource());
+        returnInTransit(link);
+        for (List<TransportLink> remaining : bySource.values()) {
+            for (TransportLink other : remaining) {
+                if (other.getSink().equals(link.getSink())) return;
+            }
+        }
+        deliveries.remove(link.getSink());
+    }
+
+    /**
+     * Get all scheduled links, grouped by source.
+     *
+     * @return a new list of the links
+     */
+    public @NotNull List<TransportLink> getLinks() {
+        final List<TransportLink> all = new ArrayList<>();
+        for (List<TransportLink> links : bySource.values()) all.addAll(links);
+        return all;
+    }
+
+    /**
+     * Get the number of ticks run so far.
+     *
+     * @return the tick count
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Run one tick of every due link.
+     */
+    @Override
+    public void run() {
+        ++tick;
+        for (Map.Entry<Storage<?>, List<TransportLink>> entry : bySource.entrySet()) {
+            take(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Storage<?>, Delivery> entry : deliveries.entrySet()) {
+            final Delivery delivery = entry.getValue();
+            if (delivery.isEmpty()) continue;
+            deliver(entry.getKey(), delivery);
+            delivery.clear();
+        }
+        if (returns.isEmpty()) return;
+        for (Map.Entry<TransportLink, List<ItemStack>> entry : returns.entrySet()) {
+            giveBack(entry.getKey(), entry.getValue());
+        }
+        returns.clear();
+    }
+
+    private void take(Storage<?> source, List<TransportLink> links) {
+        try (ContentScope scope = ContentScope.open()) {
+            for (TransportLink link : links) {
+                if (!link.isDue(tick)) continue;
+                final List<ItemStack> part;
+                if (!link.inTransit().isEmpty()) {
+                    // retry what is already in transit before taking more
+                    part = new ArrayList<>(link.inTransit());
+                    link.inTransit().clear();
+                } else {
+                    final int budget = link.refill();
+                    if (budget <= 0) continue;
+                    try {
+                        if (!mightContain(source, link)) continue;
+                        final ExtractionQuery query = ExtractionQuery.of(link.getFilter(), budget);
+                        // a group reports failing members without dropping what others gave
+                        part = source instanceof StorageGroup
+                                ? ((StorageGroup<?>) source).extract(query, errorHandler)
+                                : source.extract(query);
+                    } catch (ProviderException e) {
+                        errorHandler.accept(e);
+                        continue;
+                    }
+                    if (part.isEmpty()) continue;
+                    link.spend(amount(part));
+                }
+                deliveries.computeIfAbsent(link.getSink(), sink -> new Delivery()).add(link, part);
+            }
+        }
+    }
+
+    private static boolean mightContain(Storage<?> source, TransportLink link) throws ProviderException {
+        final Optional<Set<Material>> types = link.getFilter().getTypes();
+        if (!types.isPresent()) return true;
+        for (Material type : types.get()) {
+            if (source.mightContain(type)) return true;
+        }
+        return false;
+    }
+
+    private void deliver(Storage<?> sink, Delivery delivery) {
+        List<ItemStack> left = Collections.emptyList();
+        boolean failed = false;
+        try {
+            sink.addItem(copies(delivery.items));
+        } catch (ItemException e) {
+            left = e.getItems();
+            for (Throwable suppressed : e.getSuppressed()) {
+                if (suppressed instanceof ProviderException) errorHandler.accept((ProviderException) suppressed);
+            }
+        } catch (ProviderException e) {
+            // a storage failing with a provider error has accepted nothing
+            errorHandler.accept(e);
+            left = delivery.items;
+            failed = true;
+        }
+        final Map<ItemKey, Integer> leftover = new HashMap<>();
+        for (ItemStack item : left) {
+            final ItemKey key = ItemKey.of(item);
+            if (key != null) leftover.merge(key, item.getAmount(), Integer::sum);
+        }
+        for (int i = delivery.links.size() - 1; i >= 0; --i) {
+            final TransportLink link = delivery.links.get(i);
+            int sent = 0;
+            int returned = 0;
+            for (ItemStack item : delivery.parts.get(i)) {
+                sent += item.getAmount();
+                final ItemKey key = ItemKey.of(item);
+                final Integer remaining = (key == null) ? null : leftover.get(key);
+                if (remaining == null) continue;
+                final int back = Math.min(remaining, item.getAmount());
+                if (back == remaining) {
+                    leftover.remove(key);
+                } else {
+                    leftover.put(key, remaining - back);
+                }
+                returned += back;
+                keepBack(link, key.toItemStack(back), failed);
+            }
+            if (returned < sent) {
+                link.delivered(sent - returned);
+            } else if (!failed) {
+                link.rejected(tick);
+            }
+        }
+        // leftovers the sink changed beyond recognition go back with the first sender
+        for (Map.Entry<ItemKey, Integer> entry : leftover.entrySet()) {
+            keepBack(delivery.links.get(0), entry.getKey().toItemStack(entry.getValue()), failed);
+        }
+    }
+
+    /**
+     * Keep undelivered items on their link for a retry after a provider
+     * error, otherwise queue them for return to the link's source.
+     */
+    private void keepBack(TransportLink link, ItemStack item, boolean retry) {
+        if (retry) {
+            link.inTransit().add(item);
+        } else {
+            returns.computeIfAbsent(link, l -> new ArrayList<>()).add(item);
+        }
+    }
+
+    private static List<ItemStack> copies(List<ItemStack> items) {
+        // inventories modify the stacks they are given
+        final List<ItemStack> copies = new ArrayList<>(items.size());
+        for (ItemStack item : items) copies.add(item.clone());
+        return copies;
+    }
+
+    private void giveBack(TransportLink link, List<ItemStack> items) {
+        try {
+            link.getSource().addItem(copies(items));
+        } catch (ItemException e) {
+            link.inTransit().addAll(e.getItems());
+        } catch (ProviderException e) {
+            errorHandler.accept(e);
+            link.inTransit().addAll(items);
+        }
+    }
+
+    private static int amount(List<ItemStack> items) {
+        int amount = 0;
+        for (ItemStack item : items) amount += item.getAmount();
+        return amount;
+    }
+
+    private void returnInTransit(TransportLink link) {
+        if (link.inTransit().isEmpty()) return;
+        final List<ItemStack> items = new ArrayList<>(link.inTransit());
+        link.inTransit().clear();
+        giveBack(link, items);
+    }
+
+    /**
+     * Schedule this scheduler to run once every tick.
+     *
+     * @param plugin the plugin owning the task
+     * @return the scheduled task
+     */
+    public BukkitTask schedule(@NotNull Plugin plugin) {
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+        return task;
+    }
+
+    /**
+     * Stop the scheduled task and remove every link, returning items
+     * in transit to their sources.
+     * <p>
+     * Items a source cannot take back stay on their link, where
+     * {@link TransportLink#getInTransit()} reports them.
+     */
+    @Override
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (TransportLink link : getLinks()) {
+            returnInTransit(link);
+        }
+        bySource.clear();
+        deliveries.clear();
+    }
+}
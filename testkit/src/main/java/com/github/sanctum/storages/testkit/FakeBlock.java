@@ -0,0 +1,235 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.inventories.MemoryInventory;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A block of a {@link FakeWorld}, optionally holding a container.
+ * <p>
+ * Like on a server, every call to {@link Block#getState()} creates a
+ * new state snapshot while the container inventory stays live; the
+ * number of snapshots taken is counted to measure resolution work.
+ *
+ * @since 1.0.0
+ */
+public final class FakeBlock {
+    private final Block handle = Fakes.proxy(Block.class, this);
+    private final FakeWorld world;
+    private final int x;
+    private final int y;
+    private final int z;
+    private Material type = Material.AIR;
+    private MemoryInventory inventory;
+    private String customName;
+    private int stateCount;
+
+    FakeBlock(FakeWorld world, int x, int y, int z) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    void placeContainer(Material type, int size) {
+        this.type = type;
+        this.customName = null;
+        final ContainerState holderState = new ContainerState();
+        this.inventory = new MemoryInventory(Fakes.proxy(Container.class, holderState), InventoryType.CHEST, size, size);
+        holderState.capturedInventory = inventory;
+    }
+
+    /**
+     * Get the block interface backed by this fake.
+     *
+     * @return the block
+     */
+    public @NotNull Block asBlock() {
+        return handle;
+    }
+
+    /**
+     * Get the live container inventory.
+     *
+     * @return the inventory or null if the block is not a container
+     */
+    public @Nullable MemoryInventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Get the number of state snapshots taken so far.
+     *
+     * @return the number of getState calls
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Replace this block with air, dropping any container.
+     */
+    public void breakBlock() {
+        setType(Material.AIR);
+    }
+
+    // Block
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public World getWorld() {
+        return world.asWorld();
+    }
+
+    public Location getLocation() {
+        return new Location(world.asWorld(), x, y, z);
+    }
+
+    public Material getType() {
+        return type;
+    }
+
+    public void setType(Material type) {
+        if (type == this.type) return;
+        this.type = type;
+        this.inventory = null;
+    }
+
+    public boolean isEmpty() {
+        return type.isAir();
+    }
+
+    public BlockState getState() {
+        ++stateCount;
+        if (inventory != null) return Fakes.proxy(Container.class, new ContainerState());
+        return Fakes.proxy(BlockState.class, new PlainState());
+    }
+
+    @Override
+    public String toString() {
+        return type + "@" + world + "[" + x + "," + y + "," + z + "]";
+    }
+
+    /**
+     * Delegate of a plain block state snapshot.
+     */
+    public class PlainState {
+        final Material capturedType = type;
+
+        public Block getBlock() {
+            return handle;
+        }
+
+        public Material getType() {
+            return capturedType;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        public World getWorld() {
+            return world.asWorld();
+        }
+
+        public Location getLocation() {
+            return FakeBlock.this.getLocation();
+        }
+
+        public boolean isPlaced() {
+            return true;
+        }
+
+        public boolean update() {
+            return update(false, true);
+        }
+
+        public boolean update(boolean force) {
+            return update(force, true);
+        }
+
+        public boolean update(boolean force, boolean applyPhysics) {
+            return type == capturedType;
+        }
+    }
+
+    /**
+     * Delegate of a container state snapshot.
+     */
+    public final class ContainerState extends PlainState {
+        MemoryInventory capturedInventory = inventory;
+
+        public Inventory getInventory() {
+            return capturedInventory;
+        }
+
+        public Inventory getSnapshotInventory() {
+            return capturedInventory;
+        }
+
+        public String getCustomName() {
+            return customName;
+        }
+
+        public void setCustomName(String name) {
+            customName = name;
+        }
+
+        public boolean isLocked() {
+            return false;
+        }
+
+        public String getLock() {
+            return "";
+        }
+
+        @Override
+        public boolean update(boolean force, boolean applyPhysics) {
+            return inventory == capturedInventory && super.update(force, applyPhysics);
+        }
+    }
+}
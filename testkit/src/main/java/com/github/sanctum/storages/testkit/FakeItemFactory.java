@@ -0,0 +1,64 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Objects;
+
+/**
+ * Delegate of the fake item factory.
+ * <p>
+ * No meta implementations exist without a server, so stacks created
+ * under the fake server never carry meta.
+ *
+ * @since 1.0.0
+ */
+final class FakeItemFactory {
+
+    public ItemMeta getItemMeta(Material material) {
+        return null;
+    }
+
+    public boolean equals(ItemMeta a, ItemMeta b) {
+        return Objects.equals(a, b);
+    }
+
+    public boolean isApplicable(ItemMeta meta, ItemStack stack) {
+        return true;
+    }
+
+    public boolean isApplicable(ItemMeta meta, Material material) {
+        return true;
+    }
+
+    public ItemMeta asMetaFor(ItemMeta meta, ItemStack stack) {
+        return meta;
+    }
+
+    public ItemMeta asMetaFor(ItemMeta meta, Material material) {
+        return meta;
+    }
+
+    public Material updateMaterial(ItemMeta meta, Material material) {
+        return material;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.inventories.MemoryInventory;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.PlayerInventory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * An online player of the {@link FakeServer} with an in-memory
+ * inventory and ender chest.
+ *
+ * @since 1.0.0
+ * @see FakeServer#addPlayer(String)
+ */
+public final class FakePlayer {
+    private final Player handle = Fakes.proxy(Player.class, this);
+    private final FakeServer server;
+    private final String name;
+    private final UUID uniqueId;
+    private final FakePlayerInventory inventory = new FakePlayerInventory(handle);
+    private final PlayerInventory inventoryHandle = Fakes.proxy(PlayerInventory.class, inventory);
+    private final MemoryInventory enderChest = new MemoryInventory(handle, InventoryType.ENDER_CHEST, 27, 27);
+    private boolean online = true;
+    private int updateCount;
+
+    FakePlayer(FakeServer server, String name) {
+        this.server = server;
+        this.name = name;
+        this.uniqueId = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes());
+    }
+
+    /**
+     * Get the player interface backed by this fake.
+     *
+     * @return the player
+     */
+    public @NotNull Player asPlayer() {
+        return handle;
+    }
+
+    /**
+     * Get the backing inventory of the player.
+     *
+     * @return the inventory delegate
+     */
+    public @NotNull FakePlayerInventory getPlayerInventory() {
+        return inventory;
+    }
+
+    /**
+     * Get the number of inventory updates sent to the player.
+     *
+     * @return the number of updateInventory calls
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * Disconnect the player, invalidating it.
+     */
+    public void quit() {
+        online = false;
+        server.removePlayer(this);
+    }
+
+    // Player
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDisplayName() {
+        return name;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isValid() {
+        return online;
+    }
+
+    public Player getPlayer() {
+        return online ? handle : null;
+    }
+
+    public PlayerInventory getInventory() {
+        return inventoryHandle;
+    }
+
+    public Inventory getEnderChest() {
+        return enderChest;
+    }
+
+    public void updateInventory() {
+        ++updateCount;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.inventories.MemoryInventory;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * Delegate of a fake player inventory, laid out like a live one:
+ * 36 storage slots, four armor slots (feet first) and the offhand.
+ *
+ * @since 1.0.0
+ */
+public final class FakePlayerInventory extends MemoryInventory {
+    private static final int ARMOR_START = 36;
+    private static final int OFFHAND = 40;
+    private final HumanEntity holder;
+    private int heldItemSlot;
+
+    FakePlayerInventory(HumanEntity holder) {
+        super(holder, InventoryType.PLAYER, 41, 36);
+        this.holder = holder;
+    }
+
+    @Override
+    public HumanEntity getHolder() {
+        return holder;
+    }
+
+    public ItemStack[] getArmorContents() {
+        return Arrays.copyOfRange(getContents(), ARMOR_START, OFFHAND);
+    }
+
+    public void setArmorContents(ItemStack[] items) {
+        for (int i = 0; i < 4; ++i) setItem(ARMOR_START + i, (i < items.length) ? items[i] : null);
+    }
+
+    public ItemStack[] getExtraContents() {
+        return new ItemStack[]{getItem(OFFHAND)};
+    }
+
+    public void setExtraContents(ItemStack[] items) {
+        setItem(OFFHAND, (items.length > 0) ? items[0] : null);
+    }
+
+    public ItemStack getBoots() {
+        return getItem(ARMOR_START);
+    }
+
+    public ItemStack getLeggings() {
+        return getItem(ARMOR_START + 1);
+    }
+
+    public ItemStack getChestplate() {
+        return getItem(ARMOR_START + 2);
+    }
+
+    public ItemStack getHelmet() {
+        return getItem(ARMOR_START + 3);
+    }
+
+    public void setBoots(ItemStack item) {
+        setItem(ARMOR_START, item);
+    }
+
+    public void setLeggings(ItemStack item) {
+        setItem(ARMOR_START + 1, item);
+    }
+
+    public void setChestplate(ItemStack item) {
+        setItem(ARMOR_START + 2, item);
+    }
+
+    public void setHelmet(ItemStack item) {
+        setItem(ARMOR_START + 3, item);
+    }
+
+    public ItemStack getItemInMainHand() {
+        return getItem(heldItemSlot);
+    }
+
+    public void setItemInMainHand(ItemStack item) {
+        setItem(heldItemSlot, item);
+    }
+
+    public ItemStack getItemInOffHand() {
+        return getItem(OFFHAND);
+    }
+
+    public void setItemInOffHand(ItemStack item) {
+        setItem(OFFHAND, item);
+    }
+
+    public int getHeldItemSlot() {
+        return heldItemSlot;
+    }
+
+    public void setHeldItemSlot(int slot) {
+        if (slot < 0 || slot > 8) throw new IllegalArgumentException("Slot is not between 0 and 8 inclusive");
+        this.heldItemSlot = slot;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import org.bukkit.Server;
+
+import java.util.logging.Logger;
+
+/**
+ * Delegate of a fake plugin.
+ *
+ * @since 1.0.0
+ */
+final class FakePlugin {
+    private final String name;
+    private final Server server;
+    private final Logger logger;
+
+    FakePlugin(String name, Server server) {
+        this.name = name;
+        this.server = server;
+        this.logger = Logger.getLogger(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Delegate of the fake plugin manager, which dispatches events to
+ * registered listeners synchronously and in priority order.
+ *
+ * @since 1.0.0
+ */
+final class FakePluginManager {
+    private final List<Handler> handlers = new ArrayList<>();
+
+    private static final class Handler {
+        final Listener listener;
+        final Method method;
+        final EventHandler annotation;
+        final Plugin plugin;
+
+        Handler(Listener listener, Method method, EventHandler annotation, Plugin plugin) {
+            this.listener = listener;
+            this.method = method;
+            this.annotation = annotation;
+            this.plugin = plugin;
+        }
+    }
+
+    public void registerEvents(Listener listener, Plugin plugin) {
+        for (Method method : listener.getClass().getMethods()) {
+            final EventHandler annotation = method.getAnnotation(EventHandler.class);
+            if (annotation == null || method.getParameterCount() != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) continue;
+            method.setAccessible(true);
+            handlers.add(new Handler(listener, method, annotation, plugin));
+        }
+        // stable sort keeps registration order within a priority
+        handlers.sort(Comparator.comparing(h -> h.annotation.priority()));
+    }
+
+    public void callEvent(Event event) {
+        for (Handler handler : new ArrayList<>(handlers)) {
+            if (!handler.method.getParameterTypes()[0].isInstance(event)) continue;
+            if (handler.annotation.ignoreCancelled() && event instanceof Cancellable && ((Cancellable) event).isCancelled()) continue;
+            try {
+                handler.method.invoke(handler.listener, event);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    public void disablePlugin(Plugin plugin) {
+        // listeners of the plugin still hear about it, as on a server
+        callEvent(new PluginDisableEvent(plugin));
+        handlers.removeIf(h -> h.plugin == plugin);
+    }
+
+    public boolean isPluginEnabled(Plugin plugin) {
+        return true;
+    }
+
+    void reset() {
+        handlers.clear();
+    }
+}
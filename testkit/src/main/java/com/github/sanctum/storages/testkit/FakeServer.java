@@ -0,0 +1,278 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.inventories.MemoryInventory;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory server for exercising storages without a running
+ * Minecraft server.
+ * <p>
+ * Worlds, blocks and players exist only once created through this
+ * class. Scheduled tasks run only when the {@link TickSimulator}
+ * is advanced, on the calling thread, which is treated as the
+ * primary thread. Item meta is not supported; the item factory
+ * reports no meta for any material.
+ *
+ * @since 1.0.0
+ */
+public final class FakeServer {
+    private static FakeServer instance;
+    private final Server handle = Fakes.proxy(Server.class, this);
+    private final Logger logger = Logger.getLogger("FakeServer");
+    private final ItemFactory itemFactory = Fakes.proxy(ItemFactory.class, new FakeItemFactory());
+    private final FakePluginManager pluginManager = new FakePluginManager();
+    private final PluginManager pluginManagerHandle = Fakes.proxy(PluginManager.class, pluginManager);
+    private final TickSimulator ticks = new TickSimulator();
+    private final Map<String, FakeWorld> worlds = new LinkedHashMap<>();
+    private final Map<UUID, FakePlayer> players = new LinkedHashMap<>();
+
+    private FakeServer() {}
+
+    /**
+     * Install the fake server as the Bukkit server.
+     * <p>
+     * Calling this again returns the installed instance.
+     *
+     * @return the fake server
+     * @throws IllegalStateException if a different server is installed
+     */
+    public static synchronized @NotNull FakeServer install() {
+        if (instance == null) {
+            if (Bukkit.getServer() != null) {
+                throw new IllegalStateException("A different server is already installed");
+            }
+            final FakeServer server = new FakeServer();
+            Bukkit.setServer(server.handle);
+            instance = server;
+        }
+        return instance;
+    }
+
+    /**
+     * Get the installed fake server.
+     *
+     * @return the fake server
+     * @throws IllegalStateException if the server has not been installed
+     */
+    public static synchronized @NotNull FakeServer get() {
+        if (instance == null) throw new IllegalStateException("FakeServer has not been installed");
+        return instance;
+    }
+
+    /**
+     * Remove all worlds, players, tasks and listeners.
+     */
+    public void reset() {
+        worlds.clear();
+        players.clear();
+        ticks.reset();
+        pluginManager.reset();
+    }
+
+    /**
+     * Get the server interface backed by this fake.
+     *
+     * @return the server
+     */
+    public @NotNull Server asServer() {
+        return handle;
+    }
+
+    /**
+     * Create a new empty world.
+     *
+     * @param name the name of the world
+     * @return the world
+     * @throws IllegalArgumentException if a world of the name exists
+     */
+    public @NotNull FakeWorld createWorld(@NotNull String name) {
+        if (worlds.containsKey(name)) throw new IllegalArgumentException("World " + name + " already exists");
+        final FakeWorld world = new FakeWorld(name);
+        worlds.put(name, world);
+        return world;
+    }
+
+    /**
+     * Connect a new player.
+     * <p>
+     * The unique id is derived from the name as for offline mode.
+     *
+     * @param name the name of the player
+     * @return the player
+     * @throws IllegalArgumentException if the player is online
+     */
+    public @NotNull FakePlayer addPlayer(@NotNull String name) {
+        final FakePlayer player = new FakePlayer(this, name);
+        if (players.containsKey(player.getUniqueId())) {
+            throw new IllegalArgumentException("Player " + name + " is already online");
+        }
+        players.put(player.getUniqueId(), player);
+        return player;
+    }
+
+    void removePlayer(FakePlayer player) {
+        players.remove(player.getUniqueId(), player);
+    }
+
+    /**
+     * Get the tick simulator which drives the scheduler.
+     *
+     * @return the tick simulator
+     */
+    public @NotNull TickSimulator getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Create a plugin to own listeners and tasks.
+     *
+     * @param name the name of the plugin
+     * @return a plugin
+     */
+    public @NotNull Plugin createPlugin(@NotNull String name) {
+        return Fakes.proxy(Plugin.class, new FakePlugin(name, handle));
+    }
+
+    /**
+     * Dispatch an event to the registered listeners.
+     *
+     * @param event an event
+     * @param <E> event type
+     * @return the event
+     */
+    public <E extends Event> @NotNull E callEvent(@NotNull E event) {
+        pluginManager.callEvent(event);
+        return event;
+    }
+
+    // Server
+
+    public String getName() {
+        return "FakeServer";
+    }
+
+    public String getVersion() {
+        return "1.0.0";
+    }
+
+    public String getBukkitVersion() {
+        return "1.16.5-R0.1-SNAPSHOT";
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    public @Nullable World getWorld(String name) {
+        final FakeWorld world = worlds.get(name);
+        return (world == null) ? null : world.asWorld();
+    }
+
+    public @Nullable World getWorld(UUID uid) {
+        for (FakeWorld world : worlds.values()) {
+            if (world.getUID().equals(uid)) return world.asWorld();
+        }
+        return null;
+    }
+
+    public List<World> getWorlds() {
+        final List<World> list = new ArrayList<>(worlds.size());
+        for (FakeWorld world : worlds.values()) list.add(world.asWorld());
+        return list;
+    }
+
+    public ItemFactory getItemFactory() {
+        return itemFactory;
+    }
+
+    public BukkitScheduler getScheduler() {
+        return ticks.getScheduler();
+    }
+
+    public PluginManager getPluginManager() {
+        return pluginManagerHandle;
+    }
+
+    public boolean isPrimaryThread() {
+        return true;
+    }
+
+    public @Nullable Player getPlayer(UUID uuid) {
+        final FakePlayer player = players.get(uuid);
+        return (player == null) ? null : player.asPlayer();
+    }
+
+    public @Nullable Player getPlayer(String name) {
+        return getPlayerExact(name);
+    }
+
+    public @Nullable Player getPlayerExact(String name) {
+        for (FakePlayer player : players.values()) {
+            if (player.getName().equalsIgnoreCase(name)) return player.asPlayer();
+        }
+        return null;
+    }
+
+    public Collection<? extends Player> getOnlinePlayers() {
+        final List<Player> list = new ArrayList<>(players.size());
+        for (FakePlayer player : players.values()) list.add(player.asPlayer());
+        return Collections.unmodifiableList(list);
+    }
+
+    public @Nullable Entity getEntity(UUID uuid) {
+        return getPlayer(uuid);
+    }
+
+    public Inventory createInventory(InventoryHolder holder, int size) {
+        return new MemoryInventory(holder, size);
+    }
+
+    public Inventory createInventory(InventoryHolder holder, int size, String title) {
+        return new MemoryInventory(holder, size);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An in-memory world of {@link FakeBlock FakeBlocks}.
+ * <p>
+ * Blocks are created as air on first access and keep their identity.
+ *
+ * @since 1.0.0
+ * @see FakeServer#createWorld(String)
+ */
+public final class FakeWorld {
+    private final World handle = Fakes.proxy(World.class, this);
+    private final String name;
+    private final UUID uniqueId;
+    private final Map<Long, FakeBlock> blocks = new HashMap<>();
+
+    FakeWorld(String name) {
+        this.name = name;
+        this.uniqueId = UUID.nameUUIDFromBytes(name.getBytes());
+    }
+
+    /**
+     * Get the world interface backed by this fake.
+     *
+     * @return the world
+     */
+    public @NotNull World asWorld() {
+        return handle;
+    }
+
+    /**
+     * Get the fake block at a position.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the block
+     */
+    public @NotNull FakeBlock blockAt(int x, int y, int z) {
+        return blocks.computeIfAbsent(pack(x, y, z), k -> new FakeBlock(this, x, y, z));
+    }
+
+    /**
+     * Place a container with an empty inventory, replacing the block.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param type the container material
+     * @param size the number of slots
+     * @return the block
+     */
+    public @NotNull FakeBlock placeContainer(int x, int y, int z, @NotNull Material type, int size) {
+        final FakeBlock block = blockAt(x, y, z);
+        block.placeContainer(type, size);
+        return block;
+    }
+
+    /**
+     * Get the number of blocks accessed or placed.
+     *
+     * @return the number of known blocks
+     */
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3ffffff) << 38) | ((long) (z & 0x3ffffff) << 12) | (y & 0xfff);
+    }
+
+    // World
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getUID() {
+        return uniqueId;
+    }
+
+    public Block getBlockAt(int x, int y, int z) {
+        return blockAt(x, y, z).asBlock();
+    }
+
+    public Block getBlockAt(Location location) {
+        return getBlockAt(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public boolean isChunkLoaded(int x, int z) {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds API interface implementations backed by plain delegate objects.
+ * <p>
+ * A call is forwarded to the public delegate method with the same name
+ * and parameter types; calls the delegate does not implement throw
+ * {@link UnsupportedOperationException}, so code relying on an API
+ * the fakes do not model fails loudly instead of reading a default.
+ * {@code equals}, {@code hashCode} and {@code toString} use the
+ * identity of the proxy.
+ *
+ * @since 1.0.0
+ */
+final class Fakes {
+    private static final Map<Class<?>, Map<Method, Optional<Method>>> TARGETS = new ConcurrentHashMap<>();
+
+    private Fakes() {}
+
+    static <T> T proxy(Class<T> type, Object delegate) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + "[" + delegate + "]";
+                }
+            }
+            final Optional<Method> target = TARGETS.computeIfAbsent(delegate.getClass(), c -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(method, m -> find(delegate.getClass(), m));
+            if (!target.isPresent()) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "#" + method.getName() + " is not implemented by " + delegate.getClass().getSimpleName());
+            }
+            try {
+                return target.get().invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+
+    private static Optional<Method> find(Class<?> delegateType, Method method) {
+        try {
+            final Method target = delegateType.getMethod(method.getName(), method.getParameterTypes());
+            if (target.getDeclaringClass() == Object.class) return Optional.empty();
+            target.setAccessible(true);
+            return Optional.of(target);
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+}
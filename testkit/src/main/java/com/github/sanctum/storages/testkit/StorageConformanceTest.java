@@ -0,0 +1,259 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.DiscreteStorage;
+import com.github.sanctum.storages.InventoryDiscreteStorage;
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.WriteBehindFlusher;
+import com.github.sanctum.storages.exceptions.ItemException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.ItemFilter;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.items.MatchStrategy;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Behaviour every {@link Storage} implementation is expected to share.
+ * <p>
+ * Subclass this in a test source set and implement
+ * {@link #createStorage(int)}; each test runs against a fresh, empty
+ * storage on a reset {@link FakeServer}.
+ *
+ * @since 1.0.0
+ */
+public abstract class StorageConformanceTest {
+    protected FakeServer server;
+
+    /**
+     * Create an empty storage of the given number of slots.
+     *
+     * @param size the number of slots
+     * @return a new storage
+     * @throws ProviderException if the provider encounters an error
+     */
+    protected abstract Storage<?> createStorage(int size) throws ProviderException;
+
+    /**
+     * Make the provider of a storage fail from now on, if supported.
+     * <p>
+     * Tests of failure handling are skipped unless overridden.
+     *
+     * @param storage a storage created by {@link #createStorage(int)}
+     * @return true if the provider now fails
+     */
+    protected boolean failProvider(Storage<?> storage) {
+        return false;
+    }
+
+    @BeforeEach
+    void installServer() {
+        server = FakeServer.install();
+        server.reset();
+    }
+
+    @Test
+    void startsEmpty() throws ProviderException {
+        final Storage<?> storage = createStorage(9);
+        assertEquals(9, storage.getSize());
+        assertEquals(9, storage.freeSlots());
+        assertFalse(storage.contains(Material.STONE));
+        assertTrue(storage.countBy(MatchStrategy.TYPE).isEmpty());
+    }
+
+    @Test
+    void addedItemsAreContained() throws ProviderException, ItemException {
+        final Storage<?> storage = createStorage(9);
+        storage.addItem(new ItemStack(Material.STONE, 40));
+        storage.addItem(new ItemStack(Material.STONE, 40));
+        assertTrue(storage.contains(Material.STONE));
+        assertTrue(storage.containsAtLeast(Material.STONE, 80));
+        assertFalse(storage.containsAtLeast(Material.STONE, 81));
+        assertTrue(storage.containsSimilar(new ItemStack(Material.STONE), 80));
+        assertFalse(storage.contains(Material.DIRT));
+        assertEquals(7, storage.freeSlots());
+    }
+
+    @Test
+    void maxInsertableMatchesCapacity() throws ProviderException, ItemException {
+        final Storage<?> storage = createStorage(3);
+        final ItemKey stone = ItemKey.of(Material.STONE);
+        storage.addItem(new ItemStack(Material.STONE, 10));
+        storage.addItem(new ItemStack(Material.DIRT, 1));
+        assertEquals(54 + 64, storage.maxInsertable(stone));
+        assertTrue(storage.canAccept(stone, 118));
+        assertFalse(storage.canAccept(stone, 119));
+        storage.addItem(new ItemStack(Material.STONE, 118));
+        assertEquals(0, storage.maxInsertable(stone));
+    }
+
+    @Test
+    void overflowIsRejected() throws ProviderException, ItemException {
+        final Storage<?> storage = createStorage(1);
+        storage.addItem(new ItemStack(Material.STONE, 60));
+        final ItemException e = assertThrows(ItemException.class, () -> storage.addItem(new ItemStack(Material.STONE, 10)));
+        assertNotNull(e.getItems());
+        assertFalse(e.getItems().isEmpty());
+    }
+
+    @Test
+    void removedItemsAreGone() throws ProviderException, ItemException {
+        final Storage<?> storage = createStorage(9);
+        storage.addItem(new ItemStack(Material.STONE, 100));
+        storage.removeItem(new ItemStack(Material.STONE, 30));
+        assertTrue(storage.containsAtLeast(Material.STONE, 70));
+        assertFalse(storage.containsAtLeast(Material.STONE, 71));
+        assertThrows(ItemException.class, () -> storage.removeItem(new ItemStack(Material.DIRT, 1)));
+        assertTrue(storage.remove(Material.STONE));
+        assertFalse(storage.contains(Material.STONE));
+        assertFalse(storage.remove(Material.STONE));
+    }
+
+    @Test
+    void extractRespectsLimit() throws ProviderException, ItemException {
+        final Storage<?> storage = createStorage(9);
+        storage.addItem(new ItemStack(Material.STONE, 100));
+        storage.addItem(new ItemStack(Material.DIRT, 5));
+        final List<ItemStack> extracted = storage.extract(ExtractionQuery.of(ItemFilter.of(Material.STONE), 70));
+        int total = 0;
+        for (ItemStack item : extracted) {
+            assertEquals(Material.STONE, item.getType());
+            total += item.getAmount();
+        }
+        assertEquals(70, total);
+        assertTrue(storage.containsAtLeast(Material.STONE, 30));
+        assertFalse(storage.containsAtLeast(Material.STONE, 31));
+        assertTrue(storage.containsAtLeast(Material.DIRT, 5));
+    }
+
+    @Test
+    void countsByType() throws ProviderException, ItemException {
+        final Storage<?> storage = createStorage(9);
+        storage.addItem(new ItemStack(Material.STONE, 100));
+        storage.addItem(new ItemStack(Material.DIRT, 5));
+        final Map<Material, Long> counts = storage.countBy(MatchStrategy.TYPE);
+        assertEquals(2, counts.size());
+        assertEquals(Long.valueOf(100), counts.get(Material.STONE));
+        assertEquals(Long.valueOf(5), counts.get(Material.DIRT));
+    }
+
+    @Test
+    void clearEmptiesStorage() throws ProviderException, ItemException {
+        final Storage<?> storage = createStorage(9);
+        storage.addItem(new ItemStack(Material.STONE, 100));
+        storage.clear();
+        assertEquals(9, storage.freeSlots());
+        assertFalse(storage.contains(Material.STONE));
+    }
+
+    @Test
+    void contentsRoundTrip() throws ProviderException {
+        final Storage<?> storage = createStorage(9);
+        assumeTrue(storage instanceof DiscreteStorage);
+        final DiscreteStorage discrete = (DiscreteStorage) storage;
+        final ItemStack[] contents = new ItemStack[9];
+        contents[0] = new ItemStack(Material.STONE, 12);
+        contents[4] = new ItemStack(Material.DIAMOND, 3);
+        discrete.setContents(contents);
+        final ItemStack[] read = discrete.getContents();
+        assertEquals(9, read.length);
+        assertEquals(contents[0], read[0]);
+        assertEquals(contents[4], read[4]);
+        assertTrue(ItemKey.isEmpty(read[1]));
+        discrete.setItem(1, new ItemStack(Material.DIRT, 2));
+        assertEquals(new ItemStack(Material.DIRT, 2), discrete.getContents()[1]);
+        assertThrows(IllegalArgumentException.class, () -> discrete.setContents(new ItemStack[10]));
+    }
+
+    @Test
+    void writeBehindIsEquivalent() throws ProviderException {
+        final Storage<?> direct = createStorage(9);
+        final Storage<?> buffered = createStorage(9);
+        assumeTrue(buffered instanceof InventoryDiscreteStorage);
+        final InventoryDiscreteStorage<?> storage = (InventoryDiscreteStorage<?>) buffered;
+        final WriteBehindFlusher flusher = new WriteBehindFlusher(e -> fail(e));
+        flusher.schedule(server.createPlugin("conformance"));
+        storage.setWriteBehind(flusher);
+        for (DiscreteStorage each : new DiscreteStorage[]{(DiscreteStorage) direct, storage}) {
+            each.setItem(0, new ItemStack(Material.STONE, 32));
+            each.setItem(4, new ItemStack(Material.DIRT, 3));
+            each.getSlot(0).updateAndGet(item -> new ItemStack(Material.STONE, item.getAmount() + 8));
+            each.getSlot(4).setItem(null);
+            each.getSlot(8).setItem(new ItemStack(Material.COBBLESTONE, 1));
+        }
+        assertEquals(1, flusher.getPendingCount());
+        for (int i = 0; i < 9; ++i) {
+            assertEquals(((DiscreteStorage) direct).getSlot(i).getItem(), storage.getSlot(i).getItem());
+        }
+        server.getTicks().tick();
+        assertEquals(0, flusher.getPendingCount());
+        storage.invalidateContents();
+        assertArrayEquals(((DiscreteStorage) direct).getContents(), storage.getContents());
+        storage.setWriteBehind(null);
+    }
+
+    @Test
+    void writeBehindCopiesStacks() throws ProviderException {
+        final Storage<?> created = createStorage(9);
+        assumeTrue(created instanceof InventoryDiscreteStorage);
+        final InventoryDiscreteStorage<?> storage = (InventoryDiscreteStorage<?>) created;
+        final WriteBehindFlusher flusher = new WriteBehindFlusher(e -> fail(e));
+        storage.setWriteBehind(flusher);
+        final ItemStack written = new ItemStack(Material.STONE, 10);
+        storage.setItem(0, written);
+        written.setAmount(20);
+        final ItemStack read = storage.getSlot(0).getItem().orElseThrow(AssertionError::new);
+        assertEquals(10, read.getAmount());
+        read.setAmount(30);
+        assertEquals(10, storage.getSlot(0).getItem().orElseThrow(AssertionError::new).getAmount());
+        flusher.flushAll();
+        storage.invalidateContents();
+        assertEquals(10, storage.getContents()[0].getAmount());
+        storage.setWriteBehind(null);
+    }
+
+    @Test
+    void failedFlushKeepsWrites() throws ProviderException {
+        final Storage<?> created = createStorage(9);
+        assumeTrue(created instanceof InventoryDiscreteStorage);
+        final InventoryDiscreteStorage<?> storage = (InventoryDiscreteStorage<?>) created;
+        final List<ProviderException> failures = new ArrayList<>();
+        final WriteBehindFlusher flusher = new WriteBehindFlusher(failures::add);
+        storage.setWriteBehind(flusher);
+        storage.setItem(0, new ItemStack(Material.STONE, 5));
+        assumeTrue(failProvider(storage), "Provider cannot be made to fail");
+        flusher.flushAll();
+        assertEquals(1, failures.size());
+        assertEquals(1, flusher.getPendingCount());
+        assertFalse(storage.getContentIndex().isValid());
+        assertEquals(Optional.of(new ItemStack(Material.STONE, 5)), storage.getSlot(0).getItem());
+    }
+}
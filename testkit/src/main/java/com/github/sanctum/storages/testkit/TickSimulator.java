@@ -0,0 +1,239 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A deterministic scheduler driven by explicit ticks.
+ * <p>
+ * Backs {@link org.bukkit.Bukkit#getScheduler()} under the
+ * {@link FakeServer}. Nothing runs until {@link #tick()} is called;
+ * each tick then runs every due task on the calling thread, ordered
+ * by due tick and then by scheduling order. Asynchronous tasks are
+ * run like synchronous ones.
+ *
+ * @since 1.0.0
+ */
+public final class TickSimulator {
+    private final BukkitScheduler handle = Fakes.proxy(BukkitScheduler.class, this);
+    private final PriorityQueue<Task> queue = new PriorityQueue<>((a, b) -> (a.due != b.due) ? Long.compare(a.due, b.due) : Integer.compare(a.id, b.id));
+    private long currentTick;
+    private int nextId = 1;
+    private Task running;
+
+    TickSimulator() {}
+
+    /**
+     * A scheduled task.
+     */
+    public final class Task {
+        private final BukkitTask handle = Fakes.proxy(BukkitTask.class, this);
+        private final int id;
+        private final Plugin owner;
+        private final Runnable runnable;
+        private final long period;
+        private long due;
+        private boolean cancelled;
+
+        private Task(Plugin owner, Runnable runnable, long delay, long period) {
+            this.id = nextId++;
+            this.owner = owner;
+            this.runnable = runnable;
+            this.period = period;
+            this.due = currentTick + Math.max(1, delay);
+        }
+
+        public int getTaskId() {
+            return id;
+        }
+
+        public Plugin getOwner() {
+            return owner;
+        }
+
+        public boolean isSync() {
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            queue.remove(this);
+        }
+    }
+
+    /**
+     * Get the scheduler interface backed by this simulator.
+     *
+     * @return the scheduler
+     */
+    public @NotNull BukkitScheduler getScheduler() {
+        return handle;
+    }
+
+    /**
+     * Get the number of ticks run so far.
+     *
+     * @return the current tick
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Get the number of scheduled tasks.
+     *
+     * @return the number of pending tasks
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Run one tick.
+     */
+    public void tick() {
+        ++currentTick;
+        while (!queue.isEmpty() && queue.peek().due <= currentTick) {
+            final Task task = queue.poll();
+            running = task;
+            try {
+                task.runnable.run();
+            } finally {
+                running = null;
+            }
+            if (task.period > 0 && !task.cancelled) {
+                task.due = currentTick + task.period;
+                queue.add(task);
+            }
+        }
+    }
+
+    /**
+     * Run several ticks.
+     *
+     * @param ticks the number of ticks
+     */
+    public void tick(int ticks) {
+        for (int i = 0; i < ticks; ++i) tick();
+    }
+
+    /**
+     * Cancel every task and reset the tick counter.
+     */
+    public void reset() {
+        queue.clear();
+        currentTick = 0;
+    }
+
+    private BukkitTask schedule(Plugin plugin, Runnable runnable, long delay, long period) {
+        final Task task = new Task(plugin, runnable, delay, period);
+        queue.add(task);
+        return task.handle;
+    }
+
+    // BukkitScheduler
+
+    public BukkitTask runTask(Plugin plugin, Runnable task) {
+        return schedule(plugin, task, 0, -1);
+    }
+
+    public BukkitTask runTaskLater(Plugin plugin, Runnable task, long delay) {
+        return schedule(plugin, task, delay, -1);
+    }
+
+    public BukkitTask runTaskTimer(Plugin plugin, Runnable task, long delay, long period) {
+        return schedule(plugin, task, delay, period);
+    }
+
+    public BukkitTask runTaskAsynchronously(Plugin plugin, Runnable task) {
+        return runTask(plugin, task);
+    }
+
+    public BukkitTask runTaskLaterAsynchronously(Plugin plugin, Runnable task, long delay) {
+        return runTaskLater(plugin, task, delay);
+    }
+
+    public BukkitTask runTaskTimerAsynchronously(Plugin plugin, Runnable task, long delay, long period) {
+        return runTaskTimer(plugin, task, delay, period);
+    }
+
+    public int scheduleSyncDelayedTask(Plugin plugin, Runnable task) {
+        return runTask(plugin, task).getTaskId();
+    }
+
+    public int scheduleSyncDelayedTask(Plugin plugin, Runnable task, long delay) {
+        return runTaskLater(plugin, task, delay).getTaskId();
+    }
+
+    public int scheduleSyncRepeatingTask(Plugin plugin, Runnable task, long delay, long period) {
+        return runTaskTimer(plugin, task, delay, period).getTaskId();
+    }
+
+    public <T> Future<T> callSyncMethod(Plugin plugin, Callable<T> task) {
+        final FutureTask<T> future = new FutureTask<>(task);
+        runTask(plugin, future);
+        return future;
+    }
+
+    public void cancelTask(int taskId) {
+        for (Task task : new ArrayList<>(queue)) {
+            if (task.id == taskId) task.cancel();
+        }
+        if (running != null && running.id == taskId) running.cancel();
+    }
+
+    public void cancelTasks(Plugin plugin) {
+        for (Task task : new ArrayList<>(queue)) {
+            if (task.owner == plugin) task.cancel();
+        }
+        if (running != null && running.owner == plugin) running.cancel();
+    }
+
+    public boolean isQueued(int taskId) {
+        for (Task task : queue) {
+            if (task.id == taskId) return true;
+        }
+        return false;
+    }
+
+    public boolean isCurrentlyRunning(int taskId) {
+        return running != null && running.id == taskId;
+    }
+
+    public List<BukkitTask> getPendingTasks() {
+        final List<BukkitTask> tasks = new ArrayList<>();
+        for (Task task : queue) tasks.add(task.handle);
+        return tasks;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit.load;
+
+/**
+ * A fixed-size log-linear histogram of non-negative values.
+ * <p>
+ * Values are bucketed with sixteen sub-buckets per power of two, so
+ * percentiles are exact below 16 and within 1/16 of the true value
+ * above. Recording does not allocate.
+ *
+ * @since 1.0.0
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private final long[] buckets = new long[(64 - SUB_BITS) * SUB_COUNT];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Record a value.
+     *
+     * @param value a value; negative values are recorded as zero
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        ++buckets[indexOf(value)];
+        ++count;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Add all values recorded by another histogram.
+     *
+     * @param other a histogram
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < buckets.length; ++i) buckets[i] += other.buckets[i];
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Get the value below or at which a fraction of recorded values lie.
+     *
+     * @param percentile a percentile from 0 to 100
+     * @return the upper bound of the bucket containing the percentile,
+     * or 0 if no values were recorded
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; ++i) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min(max, upperBound(i));
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_COUNT) return index;
+        final int shift = index / SUB_COUNT - 1;
+        final long low = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit.load;
+
+import com.github.sanctum.storages.SimpleStorageGroup;
+import com.github.sanctum.storages.StorageGroup;
+import com.github.sanctum.storages.exceptions.ItemException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.ItemFilter;
+import com.github.sanctum.storages.items.MatchStrategy;
+import com.github.sanctum.storages.storage.StorageSlot;
+import com.github.sanctum.storages.testkit.FakeServer;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Drives a storage network with simulated hopper and player traffic.
+ * <p>
+ * Each simulated tick performs the operations due by the rates of the
+ * {@link TrafficProfile}, timing each one and measuring the bytes the
+ * tick allocated. Ticks run back to back on the calling thread; no
+ * scheduler is involved.
+ * <p>
+ * If no server is installed a {@link FakeServer} is installed.
+ *
+ * @since 1.0.0
+ */
+public final class LoadGenerator {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+    private final TrafficProfile profile;
+    private final StorageGroup<StorageSlot> network;
+    private final Random random;
+    private final Material[] materials;
+    private final ItemFilter[] filters;
+    private double hopperCredit;
+    private double guiCredit;
+    private double extractCredit;
+    private long tick;
+    private long inserted;
+    private long rejected;
+    private long extracted;
+
+    /**
+     * Build an empty network for a profile.
+     *
+     * @param profile a traffic profile
+     * @throws ProviderException if a storage cannot be created
+     */
+    public LoadGenerator(@NotNull TrafficProfile profile) throws ProviderException {
+        if (Bukkit.getServer() == null) FakeServer.install();
+        this.profile = profile;
+        this.random = new Random(profile.getSeed());
+        this.materials = profile.getMaterials().toArray(new Material[0]);
+        this.filters = new ItemFilter[materials.length];
+        for (int i = 0; i < materials.length; ++i) filters[i] = ItemFilter.of(materials[i]);
+        final SimpleStorageGroup<StorageSlot> group = new SimpleStorageGroup<>("load");
+        for (int i = 0; i < profile.getStorages(); ++i) {
+            group.addStorage(new VirtualStorage("load-" + i, profile.getSlots()));
+        }
+        this.network = group;
+    }
+
+    /**
+     * Get the network under load.
+     *
+     * @return the network
+     */
+    public @NotNull StorageGroup<StorageSlot> getNetwork() {
+        return network;
+    }
+
+    /**
+     * Run ticks without recording results, to let the JIT settle.
+     *
+     * @param ticks the number of ticks
+     * @throws ProviderException if an operation fails
+     */
+    public void warmUp(int ticks) throws ProviderException {
+        run(ticks);
+    }
+
+    /**
+     * Run ticks and report the results.
+     *
+     * @param ticks the number of ticks
+     * @return the report of these ticks
+     * @throws ProviderException if an operation fails
+     */
+    public @NotNull LoadReport run(int ticks) throws ProviderException {
+        final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) latencies.put(operation, new Histogram());
+        final Histogram tickTimes = new Histogram();
+        final Histogram allocations = (THREADS == null) ? null : new Histogram();
+        final long threadId = Thread.currentThread().getId();
+        final long insertedBefore = inserted, rejectedBefore = rejected, extractedBefore = extracted;
+        for (int i = 0; i < ticks; ++i) {
+            final long allocatedBefore = (THREADS == null) ? 0 : THREADS.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            tick(latencies);
+            tickTimes.record(System.nanoTime() - start);
+            if (allocations != null) allocations.record(THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+        return new LoadReport(profile, ticks, latencies, tickTimes, allocations,
+                inserted - insertedBefore, rejected - rejectedBefore, extracted - extractedBefore);
+    }
+
+    private void tick(Map<Operation, Histogram> latencies) throws ProviderException {
+        ++tick;
+        hopperCredit += profile.getHopperInserts();
+        guiCredit += profile.getGuiQueries();
+        extractCredit += profile.getCraftingExtractions();
+        final Histogram inserts = latencies.get(Operation.HOPPER_INSERT);
+        for (; hopperCredit >= 1; --hopperCredit) {
+            final ItemStack item = new ItemStack(materials[random.nextInt(materials.length)]);
+            final long start = System.nanoTime();
+            try {
+                network.addItem(item);
+                ++inserted;
+            } catch (ItemException e) {
+                for (ItemStack leftover : e.getItems()) rejected += leftover.getAmount();
+            }
+            inserts.record(System.nanoTime() - start);
+        }
+        final Histogram queries = latencies.get(Operation.GUI_QUERY);
+        for (; guiCredit >= 1; --guiCredit) {
+            final long start = System.nanoTime();
+            network.countBy(MatchStrategy.TYPE);
+            queries.record(System.nanoTime() - start);
+        }
+        final Histogram extractions = latencies.get(Operation.CRAFTING_EXTRACT);
+        for (; extractCredit >= 1; --extractCredit) {
+            final ExtractionQuery query = ExtractionQuery.of(filters[random.nextInt(filters.length)], profile.getExtractionSize());
+            final long start = System.nanoTime();
+            final List<ItemStack> items = network.extract(query);
+            extractions.record(System.nanoTime() - start);
+            for (ItemStack item : items) extracted += item.getAmount();
+        }
+        if (profile.getPurgeInterval() > 0 && tick % profile.getPurgeInterval() == 0) {
+            final long start = System.nanoTime();
+            network.clear();
+            latencies.get(Operation.PURGE).record(System.nanoTime() - start);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported()) return null;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        } catch (UnsupportedOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Run the default profile and print the report.
+     * <p>
+     * Arguments, all optional: measured ticks (default 1200), storages
+     * (default 1000) and hopper inserts per tick (default 200).
+     *
+     * @param args command line arguments
+     * @throws ProviderException if an operation fails
+     */
+    public static void main(String[] args) throws ProviderException {
+        final int ticks = (args.length > 0) ? Integer.parseInt(args[0]) : 1200;
+        final TrafficProfile.Builder builder = TrafficProfile.builder();
+        if (args.length > 1) builder.storages(Integer.parseInt(args[1]), 54);
+        if (args.length > 2) builder.hopperInserts(Double.parseDouble(args[2]));
+        final LoadGenerator generator = new LoadGenerator(builder.build());
+        generator.warmUp(Math.max(200, ticks / 5));
+        System.out.print(generator.run(ticks));
+    }
+}
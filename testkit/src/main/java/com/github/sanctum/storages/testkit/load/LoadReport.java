@@ -0,0 +1,148 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit.load;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The results of a {@link LoadGenerator} run.
+ * <p>
+ * Latencies and tick durations are in nanoseconds; allocation is in
+ * bytes allocated by the generating thread.
+ *
+ * @since 1.0.0
+ */
+public final class LoadReport {
+    private final TrafficProfile profile;
+    private final int ticks;
+    private final Map<Operation, Histogram> latencies;
+    private final Histogram tickTimes;
+    private final Histogram tickAllocations;
+    private final long insertedItems;
+    private final long rejectedItems;
+    private final long extractedItems;
+
+    LoadReport(TrafficProfile profile, int ticks, Map<Operation, Histogram> latencies, Histogram tickTimes,
+               @Nullable Histogram tickAllocations, long insertedItems, long rejectedItems, long extractedItems) {
+        this.profile = profile;
+        this.ticks = ticks;
+        this.latencies = new EnumMap<>(latencies);
+        this.tickTimes = tickTimes;
+        this.tickAllocations = tickAllocations;
+        this.insertedItems = insertedItems;
+        this.rejectedItems = rejectedItems;
+        this.extractedItems = extractedItems;
+    }
+
+    public @NotNull TrafficProfile getProfile() {
+        return profile;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get the latency histogram of an operation.
+     *
+     * @param operation an operation
+     * @return the latencies of the operation in nanoseconds
+     */
+    public @NotNull Histogram getLatency(@NotNull Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * Get the number of operations completed per second of measured
+     * time, which is the time spent inside operations.
+     *
+     * @param operation an operation
+     * @return the throughput of the operation
+     */
+    public double getThroughput(@NotNull Operation operation) {
+        final Histogram latency = latencies.get(operation);
+        return (latency.getSum() == 0) ? 0 : latency.getCount() * 1e9 / latency.getSum();
+    }
+
+    /**
+     * Get the duration of each simulated tick.
+     *
+     * @return tick times in nanoseconds
+     */
+    public @NotNull Histogram getTickTimes() {
+        return tickTimes;
+    }
+
+    /**
+     * Get the bytes allocated during each simulated tick.
+     *
+     * @return allocations per tick or null if the JVM does not
+     * measure thread allocation
+     */
+    public @Nullable Histogram getTickAllocations() {
+        return tickAllocations;
+    }
+
+    public long getInsertedItems() {
+        return insertedItems;
+    }
+
+    /**
+     * Get the number of items hoppers failed to insert because the
+     * network was full.
+     *
+     * @return the rejected item count
+     */
+    public long getRejectedItems() {
+        return rejectedItems;
+    }
+
+    public long getExtractedItems() {
+        return extractedItems;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(profile).append('\n');
+        sb.append(String.format(Locale.ROOT, "%d ticks, %d inserted, %d rejected, %d extracted%n",
+                ticks, insertedItems, rejectedItems, extractedItems));
+        sb.append(String.format(Locale.ROOT, "%-17s %10s %12s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/s", "mean us", "p50 us", "p99 us", "max us"));
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            final Histogram h = entry.getValue();
+            sb.append(String.format(Locale.ROOT, "%-17s %10d %12.0f %10.1f %10.1f %10.1f %10.1f%n",
+                    entry.getKey(), h.getCount(), getThroughput(entry.getKey()), h.getMean() / 1e3,
+                    h.getPercentile(50) / 1e3, h.getPercentile(99) / 1e3, h.getMax() / 1e3));
+        }
+        sb.append(String.format(Locale.ROOT, "tick ms: mean %.3f, p99 %.3f, max %.3f%n",
+                tickTimes.getMean() / 1e6, tickTimes.getPercentile(99) / 1e6, tickTimes.getMax() / 1e6));
+        if (tickAllocations != null) {
+            sb.append(String.format(Locale.ROOT, "alloc KiB/tick: mean %.1f, p99 %.1f, max %.1f%n",
+                    tickAllocations.getMean() / 1024, tickAllocations.getPercentile(99) / 1024.0,
+                    tickAllocations.getMax() / 1024.0));
+        }
+        return sb.toString();
+    }
+}
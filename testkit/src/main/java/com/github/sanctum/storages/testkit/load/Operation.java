@@ -0,0 +1,44 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit.load;
+
+/**
+ * The kinds of traffic a {@link LoadGenerator} produces.
+ *
+ * @since 1.0.0
+ */
+public enum Operation {
+    /**
+     * A hopper pushing a single item into the network.
+     */
+    HOPPER_INSERT,
+    /**
+     * A player opening a network terminal, which counts the network
+     * contents by type.
+     */
+    GUI_QUERY,
+    /**
+     * A crafting request extracting a bounded amount of one material.
+     */
+    CRAFTING_EXTRACT,
+    /**
+     * Clearing the whole network.
+     */
+    PURGE,
+}
@@ -0,0 +1,219 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit.load;
+
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Describes the network under load and the traffic sent to it.
+ * <p>
+ * Rates are per simulated tick. Fractional rates are spread over
+ * ticks, so {@code 0.05} GUI queries per tick is one per second.
+ *
+ * @since 1.0.0
+ */
+public final class TrafficProfile {
+    private final int storages;
+    private final int slots;
+    private final double hopperInserts;
+    private final double guiQueries;
+    private final double craftingExtractions;
+    private final int extractionSize;
+    private final int purgeInterval;
+    private final ImmutableList<Material> materials;
+    private final long seed;
+
+    private TrafficProfile(Builder builder) {
+        this.storages = builder.storages;
+        this.slots = builder.slots;
+        this.hopperInserts = builder.hopperInserts;
+        this.guiQueries = builder.guiQueries;
+        this.craftingExtractions = builder.craftingExtractions;
+        this.extractionSize = builder.extractionSize;
+        this.purgeInterval = builder.purgeInterval;
+        this.materials = builder.materials;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * A network of 1,000 double chests fed by 200 hoppers, with a few
+     * players browsing and crafting and a purge every five minutes.
+     *
+     * @return the default profile
+     */
+    public static TrafficProfile network() {
+        return builder().build();
+    }
+
+    /**
+     * Create a builder initialized to the {@link #network()} profile.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getStorages() {
+        return storages;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public double getHopperInserts() {
+        return hopperInserts;
+    }
+
+    public double getGuiQueries() {
+        return guiQueries;
+    }
+
+    public double getCraftingExtractions() {
+        return craftingExtractions;
+    }
+
+    public int getExtractionSize() {
+        return extractionSize;
+    }
+
+    public int getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public @NotNull ImmutableList<Material> getMaterials() {
+        return materials;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return "TrafficProfile{storages=" + storages + ", slots=" + slots +
+                ", hopperInserts=" + hopperInserts + ", guiQueries=" + guiQueries +
+                ", craftingExtractions=" + craftingExtractions + ", extractionSize=" + extractionSize +
+                ", purgeInterval=" + purgeInterval + ", materials=" + materials.size() + ", seed=" + seed + '}';
+    }
+
+    /**
+     * Builds {@link TrafficProfile}s.
+     *
+     * @since 1.0.0
+     */
+    public static final class Builder {
+        private int storages = 1000;
+        private int slots = 54;
+        private double hopperInserts = 200;
+        private double guiQueries = 0.25;
+        private double craftingExtractions = 0.5;
+        private int extractionSize = 64;
+        private int purgeInterval = 6000;
+        private ImmutableList<Material> materials = ImmutableList.of(Material.STONE, Material.COBBLESTONE,
+                Material.DIRT, Material.OAK_PLANKS, Material.STICK, Material.DIAMOND);
+        private long seed = 1;
+
+        private Builder() {}
+
+        /**
+         * Set the number and size of the network members.
+         *
+         * @param storages the number of storages
+         * @param slots the slots of each storage
+         * @return this builder
+         * @throws IllegalArgumentException if either value is not positive
+         */
+        public Builder storages(int storages, int slots) throws IllegalArgumentException {
+            if (storages <= 0 || slots <= 0) throw new IllegalArgumentException("Storages and slots must be positive");
+            this.storages = storages;
+            this.slots = slots;
+            return this;
+        }
+
+        public Builder hopperInserts(double perTick) {
+            this.hopperInserts = rate(perTick);
+            return this;
+        }
+
+        public Builder guiQueries(double perTick) {
+            this.guiQueries = rate(perTick);
+            return this;
+        }
+
+        /**
+         * Set the rate and size of crafting extractions.
+         *
+         * @param perTick extractions per tick
+         * @param size the amount requested by each extraction
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is negative or
+         * the size is not positive
+         */
+        public Builder craftingExtractions(double perTick, int size) throws IllegalArgumentException {
+            if (size <= 0) throw new IllegalArgumentException("Extraction size must be positive");
+            this.craftingExtractions = rate(perTick);
+            this.extractionSize = size;
+            return this;
+        }
+
+        /**
+         * Set the number of ticks between full purges.
+         *
+         * @param ticks ticks between purges, or 0 to never purge
+         * @return this builder
+         * @throws IllegalArgumentException if ticks is negative
+         */
+        public Builder purgeInterval(int ticks) throws IllegalArgumentException {
+            if (ticks < 0) throw new IllegalArgumentException("Purge interval must not be negative");
+            this.purgeInterval = ticks;
+            return this;
+        }
+
+        public Builder materials(@NotNull Material... materials) throws IllegalArgumentException {
+            return materials(Arrays.asList(materials));
+        }
+
+        public Builder materials(@NotNull Collection<Material> materials) throws IllegalArgumentException {
+            if (materials.isEmpty()) throw new IllegalArgumentException("Materials must not be empty");
+            this.materials = ImmutableList.copyOf(materials);
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public TrafficProfile build() {
+            return new TrafficProfile(this);
+        }
+
+        private static double rate(double perTick) {
+            if (perTick < 0 || Double.isNaN(perTick)) throw new IllegalArgumentException("Rate must not be negative");
+            return perTick;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.github.sanctum.storages.storage.StorageSlot;
+import com.github.sanctum.storages.testkit.FakeServer;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupSnapshotTest {
+    private SimpleStorageGroup<StorageSlot> group;
+    private VirtualStorage first;
+    private VirtualStorage second;
+
+    @BeforeEach
+    void setUp() throws ProviderException {
+        FakeServer.install().reset();
+        group = new SimpleStorageGroup<>("group");
+        first = new VirtualStorage("first", 3);
+        second = new VirtualStorage("second", 3);
+        group.addStorage(first);
+        group.addStorage(second);
+        first.setItem(0, new ItemStack(Material.STONE, 10));
+        second.setItem(2, new ItemStack(Material.DIRT, 5));
+    }
+
+    @Test
+    void restoreWritesOnlyChangedSlots() throws ProviderException {
+        final GroupSnapshot snapshot = group.snapshot();
+        first.setItem(0, new ItemStack(Material.STONE, 3));
+        first.setItem(1, new ItemStack(Material.COBBLESTONE, 1));
+        assertEquals(2, group.restore(snapshot));
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.STONE, 10), null, null}, first.getContents());
+        assertArrayEquals(new ItemStack[]{null, null, new ItemStack(Material.DIRT, 5)}, second.getContents());
+        assertEquals(0, group.restore(snapshot));
+    }
+
+    @Test
+    void recordedContentsAreCopies() throws ProviderException {
+        final GroupSnapshot snapshot = group.snapshot();
+        final ItemStack[] contents = snapshot.getContents(first);
+        assertNotNull(contents);
+        contents[0].setAmount(1);
+        contents[1] = new ItemStack(Material.COBBLESTONE);
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.STONE, 10), null, null}, snapshot.getContents(first));
+        assertNull(snapshot.getContents(new VirtualStorage("other", 3)));
+    }
+
+    @Test
+    void unchangedMembersAreShared() throws ProviderException {
+        final GroupSnapshot base = group.snapshot();
+        assertEquals(0, base.getSharedCount());
+        second.setItem(0, new ItemStack(Material.COBBLESTONE, 2));
+        final GroupSnapshot next = group.snapshot();
+        assertTrue(next.getVersion() > base.getVersion());
+        assertEquals(1, next.getSharedCount());
+        group.restore(base);
+        assertArrayEquals(new ItemStack[]{null, null, new ItemStack(Material.DIRT, 5)}, second.getContents());
+        group.restore(next);
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.COBBLESTONE, 2), null, new ItemStack(Material.DIRT, 5)}, second.getContents());
+    }
+
+    @Test
+    void membersAreRecordedAtSnapshotTime() throws ProviderException {
+        final SimpleStorageGroup<StorageSlot> nested = new SimpleStorageGroup<>("nested");
+        final VirtualStorage third = new VirtualStorage("third", 2);
+        nested.addStorage(third);
+        group.addStorage(nested);
+        final GroupSnapshot snapshot = group.snapshot();
+        assertEquals(ImmutableList.of(first, second, third), snapshot.getMembers());
+        group.removeStorage(second);
+        final VirtualStorage joined = new VirtualStorage("joined", 2);
+        group.addStorage(joined);
+        second.clear();
+        joined.setItem(0, new ItemStack(Material.STONE, 1));
+        third.setItem(1, new ItemStack(Material.STONE, 1));
+        assertEquals(2, group.restore(snapshot));
+        // a member which left is restored, one which joined is left alone
+        assertArrayEquals(new ItemStack[]{null, null, new ItemStack(Material.DIRT, 5)}, second.getContents());
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.STONE, 1), null}, joined.getContents());
+        assertArrayEquals(new ItemStack[2], third.getContents());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages;
+
+import com.github.sanctum.storages.testkit.FakeServer;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateCacheTest {
+    private Plugin plugin;
+    private BukkitTask task;
+
+    @BeforeEach
+    void setUp() {
+        final FakeServer server = FakeServer.install();
+        server.reset();
+        plugin = server.createPlugin("cache");
+        task = StateCache.register(plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        task.cancel();
+    }
+
+    @Test
+    void chunkChangesOnlyAdvanceTheirChunk() {
+        final long generation = StateCache.current();
+        assertEquals(0, StateCache.current("world", 0, 0));
+        StateCache.advance("world", 0, 0);
+        final long changed = StateCache.current("world", 0, 0);
+        assertNotEquals(0L, changed);
+        assertEquals(generation, StateCache.current());
+        assertEquals(0, StateCache.current("world", 1, 0));
+        assertEquals(0, StateCache.current("other", 0, 0));
+        StateCache.advance("world", 0, 0);
+        assertNotEquals(changed, StateCache.current("world", 0, 0));
+        // a new generation starts every chunk over
+        StateCache.advance();
+        assertEquals(0, StateCache.current("world", 0, 0));
+    }
+
+    @Test
+    void tickAdvancesTheGeneration() {
+        final long generation = StateCache.current();
+        FakeServer.get().getTicks().tick();
+        assertTrue(StateCache.current() > generation);
+    }
+
+    @Test
+    void cancellingTheTaskDeactivates() {
+        assertTrue(StateCache.isActive());
+        task.cancel();
+        assertFalse(StateCache.isActive());
+    }
+
+    @Test
+    void disablingThePluginDeactivates() {
+        assertTrue(StateCache.isActive());
+        Bukkit.getPluginManager().disablePlugin(FakeServer.get().createPlugin("other"));
+        assertTrue(StateCache.isActive());
+        Bukkit.getPluginManager().disablePlugin(plugin);
+        assertFalse(StateCache.isActive());
+        assertTrue(task.isCancelled());
+    }
+}
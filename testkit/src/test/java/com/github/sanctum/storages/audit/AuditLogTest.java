@@ -0,0 +1,145 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.audit;
+
+import com.github.sanctum.storages.exceptions.ItemException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.github.sanctum.storages.testkit.FakeServer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void installServer() {
+        FakeServer.install().reset();
+    }
+
+    @Test
+    void changesAreRecordedWithActorAndTick() throws ProviderException, ItemException {
+        final VirtualStorage storage = new VirtualStorage("vault", 9);
+        try (AuditLog log = new AuditLog(dir, 64, 1 << 20, 4, e -> fail(e))) {
+            log.attach(storage);
+            try (AuditLog.Scope scope = AuditLog.actor("alice")) {
+                storage.setItem(0, new ItemStack(Material.STONE, 10));
+            }
+            log.tick();
+            storage.setItem(0, new ItemStack(Material.STONE, 6));
+            storage.setItem(0, new ItemStack(Material.DIRT, 2));
+            log.detach(storage);
+            storage.setItem(1, new ItemStack(Material.DIRT, 1));
+        }
+        final List<AuditEntry> entries = AuditReader.query(dir, entry -> true);
+        assertEquals(4, entries.size());
+        assertEquals("vault", entries.get(0).getStorage());
+        assertEquals("STONE", entries.get(0).getMaterial());
+        assertEquals(10, entries.get(0).getDelta());
+        assertEquals("alice", entries.get(0).getActor());
+        assertEquals(0, entries.get(0).getTick());
+        assertEquals(-4, entries.get(1).getDelta());
+        assertNull(entries.get(1).getActor());
+        assertEquals(1, entries.get(1).getTick());
+        assertEquals(-6, entries.get(2).getDelta());
+        assertEquals("DIRT", entries.get(3).getMaterial());
+        assertEquals(2, entries.get(3).getDelta());
+        assertEquals(0, entries.get(3).getSlot());
+    }
+
+    @Test
+    void actorScopesNest() {
+        try (AuditLog.Scope outer = AuditLog.actor("alice")) {
+            try (AuditLog.Scope inner = AuditLog.actor("bob")) {
+                assertEquals("bob", AuditLog.currentActor());
+            }
+            assertEquals("alice", AuditLog.currentActor());
+        }
+        assertNull(AuditLog.currentActor());
+    }
+
+    @Test
+    void filesRollOverAndArePruned() throws ProviderException, InterruptedException {
+        final VirtualStorage storage = new VirtualStorage("vault", 9);
+        try (AuditLog log = new AuditLog(dir, 1 << 12, 256, 2, e -> fail(e))) {
+            log.attach(storage);
+            // files roll over between batches, so let each burst drain
+            for (int burst = 1; burst <= 4; ++burst) {
+                for (int i = 1; i <= 50; ++i) {
+                    storage.setItem(i % 9, new ItemStack(Material.STONE, (burst + i) % 64 + 1));
+                }
+                awaitWritten(log, burst * 50);
+            }
+        }
+        final List<Path> files = AuditReader.files(dir);
+        assertEquals(2, files.size());
+        // every file repeats the names it refers to
+        for (AuditEntry entry : AuditReader.query(files.get(files.size() - 1), entry -> true)) {
+            assertEquals("vault", entry.getStorage());
+            assertEquals("STONE", entry.getMaterial());
+        }
+    }
+
+    private static void awaitWritten(AuditLog log, long count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (log.getWrittenCount() < count) {
+            if (System.nanoTime() > deadline) fail("Only " + log.getWrittenCount() + " of " + count + " changes written");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void droppedChangesAreCounted() throws ProviderException {
+        final VirtualStorage storage = new VirtualStorage("vault", 9);
+        final AuditLog log = new AuditLog(dir, 1, 1 << 20, 4, e -> fail(e));
+        log.attach(storage);
+        for (int i = 1; i <= 500; ++i) {
+            storage.setItem(0, new ItemStack(Material.STONE, i % 64 + 1));
+        }
+        log.close();
+        final long recorded = log.getWrittenCount() + log.getDroppedCount();
+        assertEquals(500, recorded);
+        final AtomicLong entries = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        AuditReader.scan(dir, new AuditReader.Visitor() {
+            @Override
+            public void entry(AuditEntry entry) {
+                entries.incrementAndGet();
+            }
+
+            @Override
+            public void dropped(long count) {
+                dropped.addAndGet(count);
+            }
+        });
+        assertEquals(log.getWrittenCount(), entries.get());
+        assertEquals(log.getDroppedCount(), dropped.get());
+    }
+}
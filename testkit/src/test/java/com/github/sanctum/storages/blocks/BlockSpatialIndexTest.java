@@ -0,0 +1,131 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.blocks;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.github.sanctum.storages.testkit.FakeServer;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockSpatialIndexTest {
+    private static final String WORLD = "world";
+    private BlockSpatialIndex<VirtualStorage> index;
+    private List<VirtualStorage> storages;
+
+    @BeforeEach
+    void setUp() {
+        FakeServer.install().reset();
+        index = new BlockSpatialIndex<>();
+        storages = new ArrayList<>();
+    }
+
+    @Test
+    void nearestMatchesBruteForceInDenseAreas() throws ProviderException {
+        checkAgainstBruteForce(96, 400);
+    }
+
+    @Test
+    void nearestMatchesBruteForceInSparseAreas() throws ProviderException {
+        checkAgainstBruteForce(30000, 200);
+    }
+
+    private void checkAgainstBruteForce(int spread, int count) throws ProviderException {
+        final Random random = new Random(spread);
+        for (int i = 0; i < count; ++i) {
+            add(random.nextInt(2 * spread) - spread, random.nextInt(256), random.nextInt(2 * spread) - spread);
+        }
+        for (int query = 0; query < 50; ++query) {
+            final BlockLocation origin = new BlockLocation(random.nextInt(2 * spread) - spread, random.nextInt(256),
+                    random.nextInt(2 * spread) - spread, WORLD);
+            for (int n : new int[]{1, 7, 32}) {
+                final List<Long> expected = new ArrayList<>();
+                for (VirtualStorage storage : storages) expected.add(distance(origin, storage));
+                expected.sort(null);
+                final List<Long> actual = new ArrayList<>();
+                for (VirtualStorage storage : index.nearest(origin, n)) actual.add(distance(origin, storage));
+                assertEquals(expected.subList(0, n), actual);
+            }
+        }
+    }
+
+    @Test
+    void nearestAppliesTheFilter() throws ProviderException {
+        final VirtualStorage near = add(1, 64, 0);
+        final VirtualStorage middle = add(40, 64, 0);
+        final VirtualStorage far = add(-200, 64, 0);
+        final BlockLocation origin = new BlockLocation(0, 64, 0, WORLD);
+        assertEquals(ImmutableList.of(near, middle, far), index.nearest(origin, 5));
+        assertEquals(ImmutableList.of(middle, far), index.nearest(origin, 2, storage -> storage != near));
+        assertTrue(index.nearest(origin, 0).isEmpty());
+        assertTrue(index.nearest(new BlockLocation(0, 64, 0, "other"), 3).isEmpty());
+    }
+
+    @Test
+    void nearestHoldingReadsContents() throws ProviderException {
+        final VirtualStorage near = add(0, 64, 0);
+        final VirtualStorage far = add(100, 64, 100);
+        near.setItem(0, new ItemStack(Material.DIRT, 1));
+        far.setItem(0, new ItemStack(Material.STONE, 1));
+        final BlockLocation origin = new BlockLocation(0, 64, 0, WORLD);
+        assertEquals(ImmutableList.of(far), index.nearestHolding(origin, 2, new ItemStack(Material.STONE)));
+        assertTrue(index.nearestHolding(origin, 2, new ItemStack(Material.DIAMOND)).isEmpty());
+    }
+
+    @Test
+    void movedAndRemovedStoragesAreNotFound() throws ProviderException {
+        final VirtualStorage first = add(0, 64, 0);
+        final VirtualStorage second = add(500, 64, 500);
+        final BlockLocation moved = new BlockLocation(-500, 64, -500, WORLD);
+        assertNull(index.put(moved, first));
+        assertEquals(moved, index.locate(first));
+        assertNull(index.get(new BlockLocation(0, 64, 0, WORLD)));
+        assertEquals(ImmutableList.of(first, second), index.nearest(new BlockLocation(-100, 64, -100, WORLD), 2));
+        assertSame(first, index.put(moved, second));
+        assertNull(index.locate(first));
+        assertEquals(1, index.size());
+        assertTrue(index.removeStorage(second));
+        assertFalse(index.removeStorage(second));
+        assertTrue(index.nearest(moved, 1).isEmpty());
+    }
+
+    private VirtualStorage add(int x, int y, int z) throws ProviderException {
+        final VirtualStorage storage = new VirtualStorage("storage" + storages.size(), 1);
+        final BlockLocation location = new BlockLocation(x, y, z, WORLD);
+        // a duplicate location replaces the storage indexed there
+        storages.remove(index.put(location, storage));
+        storages.add(storage);
+        return storage;
+    }
+
+    private long distance(BlockLocation origin, VirtualStorage storage) {
+        final BlockLocation location = index.locate(storage);
+        final long dx = location.x - origin.x, dy = location.y - origin.y, dz = location.z - origin.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.compaction;
+
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.github.sanctum.storages.testkit.FakeServer;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactionTaskTest {
+    private final List<String> writes = new ArrayList<>();
+
+    @BeforeEach
+    void installServer() {
+        FakeServer.install().reset();
+        writes.clear();
+    }
+
+    @Test
+    void partialStacksArePackedToTheFront() throws ProviderException {
+        final Recording a = new Recording("a", 2, new ItemStack(Material.STONE, 10), null);
+        final Recording b = new Recording("b", 2, new ItemStack(Material.STONE, 20), new ItemStack(Material.DIRT, 5));
+        final CompactionTask task = new CompactionTask(ImmutableList.of(a, b), null);
+        task.run();
+        assertTrue(task.isDone());
+        assertEquals(2, task.getWrittenCount());
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.STONE, 30), new ItemStack(Material.DIRT, 5)}, a.getContents());
+        assertArrayEquals(new ItemStack[2], b.getContents());
+        // the member losing items is written first
+        assertEquals(ImmutableList.of("b", "a"), writes);
+    }
+
+    @Test
+    void stepsCarryTheLastMemberForward() throws ProviderException {
+        final Recording a = new Recording("a", 1, new ItemStack(Material.STONE, 1));
+        final Recording b = new Recording("b", 1, new ItemStack(Material.STONE, 1));
+        final Recording c = new Recording("c", 1, new ItemStack(Material.STONE, 1));
+        final CompactionTask task = new CompactionTask(ImmutableList.of(a, b, c), null);
+        assertFalse(task.step(0));
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.STONE, 2)}, a.getContents());
+        assertArrayEquals(new ItemStack[1], b.getContents());
+        assertTrue(task.step(0));
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.STONE, 1)}, b.getContents());
+        assertArrayEquals(new ItemStack[1], c.getContents());
+    }
+
+    @Test
+    void unchangedMembersAreNotWritten() throws ProviderException {
+        final Recording a = new Recording("a", 2, new ItemStack(Material.STONE, 64), new ItemStack(Material.DIRT, 3));
+        final Recording b = new Recording("b", 2);
+        final CompactionTask task = new CompactionTask(ImmutableList.of(a, b), null);
+        task.run();
+        assertEquals(0, task.getWrittenCount());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void failedWriteRestoresWrittenMembers() throws ProviderException {
+        final ItemStack[] before = {new ItemStack(Material.STONE, 20), new ItemStack(Material.DIRT, 5)};
+        final Recording a = new Recording("a", 2, new ItemStack(Material.STONE, 10), null);
+        final Recording b = new Recording("b", 2, before[0].clone(), before[1].clone());
+        a.failWrites = true;
+        final CompactionTask task = new CompactionTask(ImmutableList.of(a, b), null);
+        assertThrows(InventoryHolderException.class, task::run);
+        // b was emptied, a failed and b was put back
+        assertEquals(ImmutableList.of("b", "a", "b"), writes);
+        assertArrayEquals(new ItemStack[]{new ItemStack(Material.STONE, 10), null}, a.getContents());
+        assertArrayEquals(before, b.getContents());
+    }
+
+    private final class Recording extends VirtualStorage {
+        private final String id;
+        boolean failWrites;
+
+        Recording(String id, int size, ItemStack... contents) throws ProviderException {
+            super(id, size);
+            this.id = id;
+            if (contents.length > 0) super.setContents(contents);
+        }
+
+        @Override
+        public void setContents(ItemStack[] items) throws InventoryHolderException {
+            writes.add(id);
+            if (failWrites) throw new InventoryHolderException("write refused");
+            super.setContents(items);
+        }
+    }
+}
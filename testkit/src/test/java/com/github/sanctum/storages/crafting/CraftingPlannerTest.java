@@ -0,0 +1,150 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.crafting;
+
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.testkit.FakeServer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CraftingPlannerTest {
+    private ItemKey sword;
+    private ItemKey diamond;
+    private ItemKey stick;
+    private ItemKey planks;
+    private ItemKey cobblestone;
+    private CraftingPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        FakeServer.install().reset();
+        sword = key(Material.DIAMOND_SWORD);
+        diamond = key(Material.DIAMOND);
+        stick = key(Material.STICK);
+        planks = key(Material.OAK_PLANKS);
+        cobblestone = key(Material.COBBLESTONE);
+        planner = new CraftingPlanner(RecipeBook.of(ImmutableList.of(
+                CraftingRecipe.of(sword, 1, ImmutableMap.of(diamond, 2, stick, 1)),
+                CraftingRecipe.of(stick, 4, ImmutableMap.of(planks, 2), ImmutableMap.of(planks, ImmutableList.of(cobblestone))))));
+    }
+
+    @Test
+    void stockIsUsedBeforeCrafting() {
+        final CraftingPlanner.Session session = planner.begin(ImmutableMap.of(diamond, 2L, planks, 2L));
+        final CraftingPlan plan = session.plan(sword, 1);
+        assertTrue(plan.isComplete());
+        assertTrue(plan.getMissing().isEmpty());
+        assertEquals(ImmutableMap.of(diamond, 2L, planks, 2L), extractions(plan));
+        assertEquals(ImmutableList.of(stick + "x1", sword + "x1"), crafts(plan));
+        assertEquals(ImmutableMap.of(stick, 3L), plan.getByproducts());
+        assertEquals(0, session.getAvailable(diamond));
+        assertEquals(3, session.getAvailable(stick));
+    }
+
+    @Test
+    void incompletePlansReserveNothing() {
+        final CraftingPlanner.Session session = planner.begin(ImmutableMap.of(diamond, 1L, stick, 1L));
+        final CraftingPlan plan = session.plan(sword, 1);
+        assertFalse(plan.isComplete());
+        assertEquals(ImmutableMap.of(diamond, 1L), plan.getMissing());
+        assertEquals(1, session.getAvailable(diamond));
+        assertEquals(1, session.getAvailable(stick));
+    }
+
+    @Test
+    void laterPlansSeeReservationsAndByproducts() {
+        final CraftingPlanner.Session session = planner.begin(ImmutableMap.of(diamond, 4L, planks, 2L));
+        final CraftingPlan first = session.plan(sword, 1);
+        final CraftingPlan second = session.plan(sword, 1);
+        assertTrue(second.isComplete());
+        // the second sword takes a stick left over from the first craft
+        assertEquals(ImmutableMap.of(diamond, 2L, stick, 1L), extractions(second));
+        assertEquals(ImmutableList.of(sword + "x1"), crafts(second));
+        assertEquals(2, session.getAvailable(stick));
+        assertFalse(session.plan(sword, 1).isComplete());
+        session.release(second);
+        session.release(first);
+        assertEquals(4, session.getAvailable(diamond));
+        assertEquals(2, session.getAvailable(planks));
+        assertEquals(0, session.getAvailable(stick));
+    }
+
+    @Test
+    void alternativesAreUsedFromStock() {
+        final CraftingPlanner.Session session = planner.begin(ImmutableMap.of(diamond, 2L, cobblestone, 5L));
+        final CraftingPlan plan = session.plan(sword, 1);
+        assertTrue(plan.isComplete());
+        assertEquals(ImmutableMap.of(diamond, 2L, cobblestone, 2L), extractions(plan));
+        assertEquals(ImmutableList.of(stick + "x1", sword + "x1"), crafts(plan));
+        assertEquals(3, session.getAvailable(cobblestone));
+    }
+
+    @Test
+    void cyclicRecipesAreOnlyExtracted() {
+        final ItemKey stone = key(Material.STONE);
+        final ItemKey dirt = key(Material.DIRT);
+        final CraftingPlanner cyclic = new CraftingPlanner(RecipeBook.of(ImmutableList.of(
+                CraftingRecipe.of(stone, 1, ImmutableMap.of(dirt, 1)),
+                CraftingRecipe.of(dirt, 1, ImmutableMap.of(stone, 1)))));
+        final CraftingPlan plan = cyclic.begin(ImmutableMap.of()).plan(stone, 2);
+        assertFalse(plan.isComplete());
+        assertEquals(ImmutableMap.of(dirt, 2L), plan.getMissing());
+        assertEquals(ImmutableList.of(stone + "x2"), crafts(plan));
+    }
+
+    @Test
+    void invalidAmountsAreRejected() {
+        final CraftingPlanner.Session session = planner.begin(ImmutableMap.of(diamond, 2L));
+        assertThrows(IllegalArgumentException.class, () -> session.plan(sword, 0));
+        assertThrows(IllegalArgumentException.class, () -> session.plan(sword, Long.MAX_VALUE));
+        assertEquals(2, session.getAvailable(diamond));
+    }
+
+    private static ItemKey key(Material material) {
+        return ItemKey.of(new ItemStack(material));
+    }
+
+    private static Map<ItemKey, Long> extractions(CraftingPlan plan) {
+        final Map<ItemKey, Long> extractions = new HashMap<>();
+        for (CraftingPlan.Step step : plan.getSteps()) {
+            if (!step.isCraft()) extractions.put(step.getKey(), step.getAmount());
+        }
+        return extractions;
+    }
+
+    // crafts in the order they run, ingredients first
+    private static List<String> crafts(CraftingPlan plan) {
+        final List<String> crafts = new ArrayList<>();
+        for (CraftingPlan.Step step : plan.getSteps()) {
+            if (step.isCraft()) crafts.add(step.getKey() + "x" + step.getAmount());
+        }
+        return crafts;
+    }
+}
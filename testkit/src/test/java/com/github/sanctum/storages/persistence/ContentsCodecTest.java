@@ -0,0 +1,216 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.persistence;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.github.sanctum.storages.items.ItemKey;
+import com.github.sanctum.storages.testkit.FakeServer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentsCodecTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void installServer() {
+        FakeServer.install().reset();
+    }
+
+    private static ItemStack[] sample() {
+        final ItemStack[] contents = new ItemStack[27];
+        contents[0] = new ItemStack(Material.STONE, 64);
+        contents[3] = new ItemStack(Material.DIRT, 3);
+        contents[4] = new ItemStack(Material.STONE, 1);
+        contents[26] = new ItemStack(Material.DIAMOND_SWORD, 1);
+        return contents;
+    }
+
+    @Test
+    void contentsRoundTrip() throws ProviderException {
+        for (boolean compress : new boolean[]{false, true}) {
+            final byte[] bytes = ContentsCodec.encode(sample(), compress);
+            assertTrue(ContentsCodec.isEncoded(bytes));
+            assertArrayEquals(sample(), ContentsCodec.decode(bytes));
+        }
+        assertArrayEquals(new ItemStack[5], ContentsCodec.decode(ContentsCodec.encode(new ItemStack[5], true)));
+    }
+
+    @Test
+    void recordsAreReadInOrder() throws ProviderException {
+        final Map<ItemKey, Long> counts = new LinkedHashMap<>();
+        counts.put(ItemKey.of(Material.STONE), 1L << 40);
+        counts.put(ItemKey.of(Material.DIRT), 3L);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ContentsCodec.Writer writer = new ContentsCodec.Writer(Channels.newChannel(bytes), true)) {
+            writer.writeContents(sample());
+            writer.writeCounts(counts);
+            writer.writeContents(new ItemStack[1]);
+        }
+        try (ContentsCodec.Reader reader = new ContentsCodec.Reader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+            assertArrayEquals(sample(), reader.readContents());
+            assertThrows(ProviderException.class, reader::readContents);
+        }
+        try (ContentsCodec.Reader reader = new ContentsCodec.Reader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+            reader.readContents();
+            assertEquals(counts, reader.readCounts());
+            assertArrayEquals(new ItemStack[1], reader.readContents());
+            assertFalse(reader.hasNext());
+            assertThrows(ProviderException.class, reader::readContents);
+        }
+    }
+
+    @Test
+    void materialNamesAreWrittenOnce() throws ProviderException {
+        final ItemStack[] many = new ItemStack[27];
+        Arrays.fill(many, new ItemStack(Material.STONE, 64));
+        final int single = ContentsCodec.encode(new ItemStack[]{new ItemStack(Material.STONE, 64)}, false).length;
+        // gap, material reference, meta marker and amount per further slot
+        assertEquals(single + 26 * 4, ContentsCodec.encode(many, false).length);
+    }
+
+    @Test
+    void metaIsSerializedOncePerStream() throws ProviderException {
+        final ItemStack named = new ItemStack(Material.DIAMOND_SWORD);
+        named.setItemMeta(meta("Excalibur"));
+        final ItemStack[] many = new ItemStack[27];
+        Arrays.fill(many, named);
+        final int plain = ContentsCodec.encode(new ItemStack[]{new ItemStack(Material.DIAMOND_SWORD)}, false).length;
+        final int single = ContentsCodec.encode(new ItemStack[]{named}, false).length;
+        assertTrue(single - plain > 26 * 4);
+        final byte[] bytes = ContentsCodec.encode(many, false);
+        assertEquals(single + 26 * 4, bytes.length);
+        final ItemStack[] decoded = ContentsCodec.decode(bytes);
+        assertArrayEquals(many, decoded);
+        assertEquals(meta("Excalibur"), decoded[26].getItemMeta());
+    }
+
+    @Test
+    void streamsSpanManyFrames() throws ProviderException {
+        final ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        for (ByteArrayOutputStream bytes : Arrays.asList(stored, deflated)) {
+            try (ContentsCodec.Writer writer = new ContentsCodec.Writer(Channels.newChannel(bytes), bytes == deflated)) {
+                for (int i = 0; i < 10000; ++i) writer.writeContents(sample());
+            }
+        }
+        assertTrue(stored.size() > 2 * ContentsCodec.FRAME_SIZE);
+        assertTrue(deflated.size() < stored.size() / 4);
+        for (ByteArrayOutputStream bytes : Arrays.asList(stored, deflated)) {
+            try (ContentsCodec.Reader reader = new ContentsCodec.Reader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+                int records = 0;
+                while (reader.hasNext()) {
+                    assertArrayEquals(sample(), reader.readContents());
+                    ++records;
+                }
+                assertEquals(10000, records);
+            }
+        }
+    }
+
+    @Test
+    void malformedStreamsAreRejected() throws ProviderException {
+        final byte[] bytes = ContentsCodec.encode(sample(), true);
+        assertThrows(ProviderException.class, () -> ContentsCodec.decode(Arrays.copyOf(bytes, bytes.length - 3)));
+        final byte[] corrupt = bytes.clone();
+        corrupt[4] = 7;
+        assertThrows(ProviderException.class, () -> ContentsCodec.decode(corrupt));
+        assertFalse(ContentsCodec.isEncoded(new byte[]{1, 2}));
+        assertThrows(ProviderException.class, () -> ContentsCodec.decode(new byte[8]));
+    }
+
+    @Test
+    void legacyContentsAreReadAndRewritten() throws ProviderException, IOException {
+        final ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(legacy)) {
+            out.writeInt(3);
+            for (int i = 0; i < 3; ++i) out.writeObject(null);
+        }
+        final Path file = dir.resolve("journal");
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            store.put("storage:legacy", legacy.toByteArray());
+        }
+        try (StoragePersistence persistence = new StoragePersistence(new JournalStore(file, 1024), e -> fail(e))) {
+            final VirtualStorage storage = persistence.open("legacy", 3);
+            assertArrayEquals(new ItemStack[3], storage.getContents());
+            storage.setItem(1, new ItemStack(Material.STONE, 5));
+        }
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            final byte[] saved = store.get("storage:legacy");
+            assertTrue(ContentsCodec.isEncoded(saved));
+            assertEquals(new ItemStack(Material.STONE, 5), ContentsCodec.decode(saved)[1]);
+        }
+    }
+
+    private static ItemMeta meta(String name) {
+        return (ItemMeta) Proxy.newProxyInstance(ItemMeta.class.getClassLoader(), new Class<?>[]{ItemMeta.class}, new NamedMeta(name));
+    }
+
+    // an immutable meta carrying a display name, equal by name
+    private static final class NamedMeta implements InvocationHandler, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String name;
+
+        NamedMeta(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "clone":
+                    return proxy;
+                case "serialize":
+                    return Collections.singletonMap("display-name", name);
+                case "equals":
+                    return args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                            && Proxy.getInvocationHandler(args[0]) instanceof NamedMeta
+                            && ((NamedMeta) Proxy.getInvocationHandler(args[0])).name.equals(name);
+                case "hashCode":
+                    return name.hashCode();
+                case "toString":
+                    return "NamedMeta{" + name + "}";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+}
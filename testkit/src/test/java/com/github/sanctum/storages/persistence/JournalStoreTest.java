@@ -0,0 +1,160 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.persistence;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalStoreTest {
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void valuesSurviveReopening() throws ProviderException {
+        final Path file = dir.resolve("journal");
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            store.put("a", bytes("alpha"));
+            store.put("b", bytes("beta"));
+            store.flush();
+            store.remove("b");
+        }
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            assertArrayEquals(bytes("alpha"), store.get("a"));
+            assertNull(store.get("b"));
+            assertEquals(1, store.keys().size());
+            assertEquals(0, store.getTruncatedBytes());
+        }
+    }
+
+    @Test
+    void bufferedWritesAreVisible() throws ProviderException {
+        try (JournalStore store = new JournalStore(dir.resolve("journal"), 1024)) {
+            store.put("a", bytes("alpha"));
+            assertArrayEquals(bytes("alpha"), store.get("a"));
+            assertTrue(store.keys().contains("a"));
+            store.remove("a");
+            assertNull(store.get("a"));
+            assertFalse(store.keys().contains("a"));
+        }
+    }
+
+    @Test
+    void batchWithoutCommitIsDropped() throws ProviderException, IOException {
+        final Path file = dir.resolve("journal");
+        final long committed;
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            store.put("a", bytes("alpha"));
+            store.flush();
+            committed = store.getFileSize();
+            store.put("b", bytes("beta"));
+            store.put("c", bytes("gamma"));
+        }
+        // cut the commit record off the second batch
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            assertArrayEquals(bytes("alpha"), store.get("a"));
+            assertNull(store.get("b"));
+            assertNull(store.get("c"));
+            assertEquals(committed, store.getFileSize());
+            assertTrue(store.getTruncatedBytes() > 0);
+        }
+    }
+
+    @Test
+    void corruptRecordDropsItsBatch() throws ProviderException, IOException {
+        final Path file = dir.resolve("journal");
+        final long committed;
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            store.put("a", bytes("alpha"));
+            store.flush();
+            committed = store.getFileSize();
+            store.put("b", bytes("beta"));
+            store.put("c", bytes("gamma"));
+        }
+        // flip the last byte of the value of "b", failing its checksum
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, committed);
+            final long last = committed + 8 + length.getInt(0) - 1;
+            final ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, last);
+            value.put(0, (byte) ~value.get(0));
+            value.rewind();
+            channel.write(value, last);
+        }
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            assertArrayEquals(bytes("alpha"), store.get("a"));
+            assertNull(store.get("b"));
+            assertNull(store.get("c"));
+            assertEquals(committed, store.getFileSize());
+        }
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveValues() throws ProviderException {
+        final Path file = dir.resolve("journal");
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            for (int i = 0; i < 10; ++i) {
+                store.put("a", bytes("alpha" + i));
+                store.put("b", bytes("beta" + i));
+                store.flush();
+            }
+            store.remove("b");
+            store.flush();
+            final long before = store.getFileSize();
+            assertTrue(store.getGarbageSize() > 0);
+            store.compact();
+            assertEquals(0, store.getGarbageSize());
+            assertTrue(store.getFileSize() < before);
+            assertArrayEquals(bytes("alpha9"), store.get("a"));
+            store.put("c", bytes("gamma"));
+        }
+        assertFalse(Files.exists(dir.resolve("journal.compact")));
+        try (JournalStore store = new JournalStore(file, 1024)) {
+            assertArrayEquals(bytes("alpha9"), store.get("a"));
+            assertNull(store.get("b"));
+            assertArrayEquals(bytes("gamma"), store.get("c"));
+            assertEquals(0, store.getTruncatedBytes());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        final Path file = dir.resolve("other");
+        Files.write(file, bytes("not a journal"));
+        assertThrows(ProviderException.class, () -> new JournalStore(file, 1024));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.players.offline;
+
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.testkit.FakePlayer;
+import com.github.sanctum.storages.testkit.FakeServer;
+import com.google.common.collect.ImmutableList;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflinePlayerStoreTest {
+    @TempDir
+    Path dir;
+    private FakeServer server;
+    private OfflinePlayerStore store;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.install();
+        server.reset();
+        store = new OfflinePlayerStore(dir);
+    }
+
+    @AfterEach
+    void tearDown() throws ProviderException {
+        store.close();
+    }
+
+    @Test
+    void sampleDataIsDecoded() throws IOException, ProviderException {
+        final UUID id = UUID.randomUUID();
+        writeSample(id);
+        final OfflinePlayerStorage storage = store.load(id).join();
+        final ItemStack[] contents = storage.getContents();
+        assertEquals(new ItemStack(Material.STONE, 5), contents[0]);
+        assertEquals(new ItemStack(Material.DIAMOND, 2), contents[8]);
+        assertEquals(new ItemStack(Material.DIRT, 16), storage.enderChest().getContents()[3]);
+        assertTrue(store.isLoaded(id));
+    }
+
+    @Test
+    void flushedChangesKeepUnknownData() throws IOException, ProviderException {
+        final UUID id = UUID.randomUUID();
+        writeSample(id);
+        final OfflinePlayerStorage storage = store.load(id).join();
+        storage.setItem(1, new ItemStack(Material.COBBLESTONE, 3));
+        assertEquals(1, store.getDirtyCount());
+        store.flush().join();
+        assertEquals(0, store.getDirtyCount());
+        final Map<String, Object> root = readFile(id);
+        assertEquals(7, root.get("XpLevel"));
+        final List<?> inventory = (List<?>) root.get("Inventory");
+        assertTrue(inventory.contains(item(1, "minecraft:cobblestone", 3)));
+        assertTrue(inventory.contains(item(0, "minecraft:stone", 5)));
+        // an item this server does not know is written back untouched
+        assertTrue(inventory.contains(item(2, "othermod:widget", 1)));
+        assertFalse(Files.exists(dir.resolve(id + ".dat.tmp")));
+    }
+
+    @Test
+    void releasedChangesAreReusedUntilFlushed() throws IOException, ProviderException {
+        final UUID id = UUID.randomUUID();
+        writeSample(id);
+        final OfflinePlayerStorage storage = store.load(id).join();
+        storage.setItem(1, new ItemStack(Material.COBBLESTONE, 3));
+        final OfflinePlayerData changed = storage.getData();
+        store.release(id);
+        assertFalse(store.isLoaded(id));
+        final OfflinePlayerData reloaded = store.loadData(id).join();
+        assertSame(changed, reloaded);
+        assertFalse(reloaded.isReleased());
+        store.flush().join();
+        store.release(id);
+        final OfflinePlayerData fresh = store.loadData(id).join();
+        assertNotSame(changed, fresh);
+        assertEquals(new ItemStack(Material.COBBLESTONE, 3), fresh.getInventory().getItem(1));
+    }
+
+    @Test
+    void missingFilesFailWithoutBeingCached() {
+        final UUID id = UUID.randomUUID();
+        final CompletableFuture<OfflinePlayerData> future = store.loadData(id);
+        final CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof ProviderException);
+        assertFalse(store.isLoaded(id));
+    }
+
+    @Test
+    void onlinePlayersAreRefused() throws IOException {
+        final FakePlayer player = server.addPlayer("online");
+        writeSample(player.getUniqueId());
+        final CompletionException e = assertThrows(CompletionException.class, () -> store.load(player.getUniqueId()).join());
+        assertTrue(e.getCause() instanceof ProviderException);
+        assertTrue(store.isOnline(player.getUniqueId()));
+    }
+
+    @Test
+    void playersAreListedByFileName() throws IOException, ProviderException {
+        final UUID id = UUID.randomUUID();
+        writeSample(id);
+        Files.createFile(dir.resolve("notes.dat"));
+        Files.createFile(dir.resolve(UUID.randomUUID() + ".dat_old"));
+        assertEquals(ImmutableList.of(id), store.listPlayers());
+    }
+
+    private void writeSample(UUID id) throws IOException {
+        final Map<String, Object> root = new LinkedHashMap<>();
+        root.put("XpLevel", 7);
+        final Nbt.NbtList inventory = new Nbt.NbtList(Nbt.COMPOUND);
+        inventory.add(item(0, "minecraft:stone", 5));
+        inventory.add(item(2, "othermod:widget", 1));
+        inventory.add(item(8, "minecraft:diamond", 2));
+        root.put("Inventory", inventory);
+        final Nbt.NbtList enderItems = new Nbt.NbtList(Nbt.COMPOUND);
+        enderItems.add(item(3, "minecraft:dirt", 16));
+        root.put("EnderItems", enderItems);
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(dir.resolve(id + ".dat"))))) {
+            Nbt.writeRoot(out, root);
+        }
+    }
+
+    private Map<String, Object> readFile(UUID id) throws IOException {
+        try (InputStream in = Files.newInputStream(dir.resolve(id + ".dat"))) {
+            return Nbt.readRoot(new DataInputStream(new BufferedInputStream(new GZIPInputStream(in))));
+        }
+    }
+
+    private static Map<String, Object> item(int slot, String id, int count) {
+        final Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("Slot", (byte) slot);
+        entry.put("id", id);
+        entry.put("Count", (byte) count);
+        return entry;
+    }
+}
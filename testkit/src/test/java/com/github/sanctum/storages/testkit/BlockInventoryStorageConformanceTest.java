@@ -0,0 +1,61 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.blocks.BlockInventoryStorage;
+import com.github.sanctum.storages.blocks.BlockLocation;
+import com.github.sanctum.storages.blocks.BlockManager;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Runs the conformance suite against {@link BlockInventoryStorage}
+ * over chests placed in a fake world.
+ */
+class BlockInventoryStorageConformanceTest extends StorageConformanceTest {
+    private final Map<Storage<?>, FakeBlock> blocks = new IdentityHashMap<>();
+    private FakeWorld world;
+    private int placed;
+
+    @BeforeEach
+    void createWorld() {
+        world = server.createWorld("world");
+        placed = 0;
+    }
+
+    @Override
+    protected Storage<?> createStorage(int size) throws ProviderException {
+        final int x = placed++;
+        final FakeBlock block = world.placeContainer(x, 64, 0, Material.CHEST, size);
+        final Storage<?> storage = new BlockInventoryStorage(new BlockManager(new BlockLocation(x, 64, 0, world.asWorld())));
+        blocks.put(storage, block);
+        return storage;
+    }
+
+    @Override
+    protected boolean failProvider(Storage<?> storage) {
+        blocks.get(storage).breakBlock();
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.InventoryStorage;
+import org.bukkit.Bukkit;
+
+/**
+ * Runs the conformance suite against {@link InventoryStorage} over
+ * an inventory created through the server.
+ */
+class InventoryStorageConformanceTest extends StorageConformanceTest {
+    @Override
+    protected Storage<?> createStorage(int size) throws ProviderException {
+        return new InventoryStorage(Bukkit.createInventory(null, size), "inventory");
+    }
+}
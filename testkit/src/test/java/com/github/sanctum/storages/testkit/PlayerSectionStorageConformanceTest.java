@@ -0,0 +1,49 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.testkit;
+
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.players.PlayerInventorySection;
+import com.github.sanctum.storages.players.PlayerManager;
+import com.github.sanctum.storages.players.PlayerSectionStorage;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the conformance suite against {@link PlayerSectionStorage}
+ * over the section of a fake player's inventory with the requested
+ * number of slots; sizes no section has are skipped.
+ */
+class PlayerSectionStorageConformanceTest extends StorageConformanceTest {
+    private int joined;
+
+    @Override
+    protected Storage<?> createStorage(int size) {
+        PlayerInventorySection match = null;
+        for (PlayerInventorySection section : PlayerInventorySection.values()) {
+            if (section.size() == size) {
+                match = section;
+                break;
+            }
+        }
+        assumeTrue(match != null, "No section has " + size + " slots");
+        final FakePlayer player = server.addPlayer("Player" + joined++);
+        return new PlayerSectionStorage(new PlayerManager(player.asPlayer()), match);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *  This file is part of Storages.
+ *
+ *  Copyright 2021 ms5984 (Matt) <https://github.com/ms5984>
+ *  Copyright 2021 the-h-team (Sanctum) <https://github.com/the-h-team>
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.github.sanctum.storages.transport;
+
+import com.github.sanctum.storages.SimpleStorageGroup;
+import com.github.sanctum.storages.Storage;
+import com.github.sanctum.storages.exceptions.InventoryHolderException;
+import com.github.sanctum.storages.exceptions.ItemException;
+import com.github.sanctum.storages.exceptions.ProviderException;
+import com.github.sanctum.storages.inventories.VirtualStorage;
+import com.github.sanctum.storages.items.ExtractionQuery;
+import com.github.sanctum.storages.items.MatchStrategy;
+import com.github.sanctum.storages.storage.StorageSlot;
+import com.github.sanctum.storages.testkit.FakeServer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransportSchedulerTest {
+    private final List<ProviderException> errors = new ArrayList<>();
+    private TransportScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        FakeServer.install().reset();
+        errors.clear();
+        scheduler = new TransportScheduler(errors::add);
+    }
+
+    @Test
+    void linksMoveUpToTheirBudget() throws ProviderException {
+        final VirtualStorage source = storage("source", 100);
+        final VirtualStorage sink = new VirtualStorage("sink", 9);
+        final TransportLink link = TransportLink.builder(source, sink).batchSize(10).rate(20).build();
+        scheduler.add(link);
+        scheduler.run();
+        assertEquals(10, stone(sink));
+        scheduler.run();
+        assertEquals(11, stone(sink));
+        assertEquals(89, stone(source));
+        assertEquals(11, link.getMovedCount());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    void failingSinkKeepsItemsInTransitAndRetries() throws ProviderException {
+        final VirtualStorage source = storage("source", 30);
+        final Flaky sink = new Flaky("sink", 9);
+        final TransportLink link = TransportLink.builder(source, sink).batchSize(10).build();
+        scheduler.add(link);
+        sink.failing = true;
+        scheduler.run();
+        scheduler.run();
+        assertEquals(2, errors.size());
+        assertEquals(20, stone(source));
+        assertEquals(10, amount(link.getInTransit()));
+        assertEquals(0, link.getMovedCount());
+        sink.failing = false;
+        scheduler.run();
+        // the retried batch is delivered before anything new is taken
+        assertEquals(10, stone(sink));
+        assertEquals(20, stone(source));
+        assertTrue(link.getInTransit().isEmpty());
+        assertEquals(10, link.getMovedCount());
+    }
+
+    @Test
+    void rejectedItemsReturnToTheSource() throws ProviderException {
+        final VirtualStorage source = storage("source", 10);
+        final VirtualStorage sink = new VirtualStorage("sink", 1);
+        sink.setItem(0, new ItemStack(Material.DIRT, 64));
+        final TransportLink link = TransportLink.builder(source, sink).build();
+        scheduler.add(link);
+        scheduler.run();
+        assertEquals(10, stone(source));
+        assertTrue(link.getInTransit().isEmpty());
+        assertEquals(0, link.getMovedCount());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    void removingALinkReturnsItemsInTransit() throws ProviderException {
+        final VirtualStorage source = storage("source", 10);
+        final Flaky sink = new Flaky("sink", 9);
+        final TransportLink link = TransportLink.builder(source, sink).build();
+        scheduler.add(link);
+        sink.failing = true;
+        scheduler.run();
+        assertEquals(10, amount(link.getInTransit()));
+        scheduler.remove(link);
+        assertTrue(scheduler.getLinks().isEmpty());
+        assertTrue(link.getInTransit().isEmpty());
+        assertEquals(10, stone(source));
+    }
+
+    @Test
+    void failingGroupMemberDoesNotStopTheOthers() throws ProviderException {
+        final SimpleStorageGroup<StorageSlot> source = new SimpleStorageGroup<>("source");
+        final Flaky broken = new Flaky("broken", 9);
+        broken.setItem(0, new ItemStack(Material.STONE, 5));
+        broken.failing = true;
+        source.addStorage(broken);
+        source.addStorage(storage("working", 5));
+        final VirtualStorage sink = new VirtualStorage("sink", 9);
+        scheduler.add(TransportLink.builder(source, sink).build());
+        scheduler.run();
+        assertEquals(1, errors.size());
+        assertEquals(5, stone(sink));
+        broken.failing = false;
+        assertEquals(5, stone(broken));
+    }
+
+    private static VirtualStorage storage(String name, int stone) throws ProviderException {
+        final VirtualStorage storage = new VirtualStorage(name, 9);
+        int slot = 0;
+        for (int left = stone; left > 0; left -= 64) {
+            storage.setItem(slot++, new ItemStack(Material.STONE, Math.min(64, left)));
+        }
+        return storage;
+    }
+
+    private static long stone(Storage<?> storage) throws ProviderException {
+        return storage.countBy(MatchStrategy.TYPE).getOrDefault(Material.STONE, 0L);
+    }
+
+    private static int amount(List<ItemStack> items) {
+        int amount = 0;
+        for (ItemStack item : items) amount += item.getAmount();
+        return amount;
+    }
+
+    private static final class Flaky extends VirtualStorage {
+        boolean failing;
+
+        Flaky(String name, int size) throws ProviderException {
+            super(name, size);
+        }
+
+        @Override
+        public void addItem(Collection<@NotNull ItemStack> items) throws InventoryHolderException, ItemException {
+            if (failing) throw new InventoryHolderException("sink offline");
+            super.addItem(items);
+        }
+
+        @Override
+        public @NotNull List<ItemStack> extract(@NotNull ExtractionQuery query) throws InventoryHolderException {
+            if (failing) throw new InventoryHolderException("source offline");
+            return super.extract(query);
+        }
+    }
+}